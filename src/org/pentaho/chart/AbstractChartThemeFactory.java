@@ -19,9 +19,18 @@ package org.pentaho.chart;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.pentaho.chart.core.ChartDocument;
 import org.pentaho.chart.core.ChartElement;
 import org.pentaho.chart.model.Theme;
@@ -29,46 +38,146 @@ import org.pentaho.chart.model.Theme.ChartTheme;
 import org.pentaho.reporting.libraries.css.dom.LayoutStyle;
 import org.pentaho.reporting.libraries.css.keys.color.ColorStyleKeys;
 
+/**
+ * Reads themes from theme files, which are chart documents whose series styles give the series colors. Each file is
+ * compiled into a {@link CompiledTheme} the first time its theme is asked for and compiled again when the file's
+ * modification time changes. A file that cannot be compiled is not tried again until it is modified.
+ * <p/>
+ * Subclasses can return precompiled themes, written by {@link ThemeCompiler}, from {@link #getPrecompiledThemes()}.
+ * A precompiled theme is used in place of the theme file of the same name when the file is missing or has the same
+ * {@link CompiledTheme#contentHash(File) content hash} as the file it was compiled from, so no chart document has to
+ * be parsed at run time.
+ */
 public abstract class AbstractChartThemeFactory implements IChartThemeFactory {
+  private static final Log logger = LogFactory.getLog(AbstractChartThemeFactory.class);
 
+  /**
+   * The themes last returned by {@link #getThemes()}.
+   *
+   * @deprecated themes are compiled and cached per theme file; use {@link #getThemes()} or {@link #getTheme}.
+   */
+  @Deprecated
   protected List<Theme> themes = null;
+
+  private final ConcurrentHashMap<File, CompiledTheme> compiledThemes = new ConcurrentHashMap<File, CompiledTheme>();
+  private final ConcurrentHashMap<File, Long> failedThemes = new ConcurrentHashMap<File, Long>();
+  private volatile Map<String, CompiledTheme> precompiledThemes;
   
   protected AbstractChartThemeFactory() {    
   }
   
   public Theme getTheme(ChartTheme chartTheme) {
     Theme theme = null;
-    if ((chartTheme != null) && (chartTheme.ordinal() < getThemes().size())) {
-      theme = getThemes().get(chartTheme.ordinal());
+    if (chartTheme != null) {
+      List<File> themeFiles = getThemeFiles();
+      if (chartTheme.ordinal() < themeFiles.size()) {
+        CompiledTheme compiledTheme = getCompiledTheme(themeFiles.get(chartTheme.ordinal()));
+        if (compiledTheme != null) {
+          theme = compiledTheme.toTheme();
+        }
+      }
     }
     return theme;
   }
   
+  @SuppressWarnings("deprecation")
   public List<Theme> getThemes() {
+    List<Theme> result = new ArrayList<Theme>();
+    for (File themeFile : getThemeFiles()) {
+      CompiledTheme compiledTheme = getCompiledTheme(themeFile);
+      if (compiledTheme != null) {
+        result.add(compiledTheme.toTheme());
+      }
+    }
+    themes = result;
+    return result;
+  }
+
+  /**
+   * Returns the compiled theme of the given file, or <code>null</code> if the file cannot be read.
+   */
+  public CompiledTheme getCompiledTheme(File themeFile) {
+    long lastModified = themeFile.lastModified();
+    CompiledTheme compiledTheme = compiledThemes.get(themeFile);
+    if ((compiledTheme != null) && (compiledTheme.getLastModified() == lastModified)) {
+      return compiledTheme;
+    }
+    Long failedLastModified = failedThemes.get(themeFile);
+    if ((failedLastModified != null) && (failedLastModified.longValue() == lastModified)) {
+      return null;
+    }
+
+    try {
+      CompiledTheme precompiledTheme = getPrecompiledThemeMap().get(themeFile.getName());
+      if ((precompiledTheme != null) && (!themeFile.exists()
+          || (precompiledTheme.getContentHash() == CompiledTheme.contentHash(themeFile)))) {
+        // Takes the file's modification time so that the file is only hashed again once it changes.
+        compiledTheme = precompiledTheme.withFile(themeFile.getAbsolutePath(), lastModified);
+      } else {
+        compiledTheme = compileTheme(themeFile);
+      }
+    } catch (Exception e) {
+      logger.error("Unable to read the chart theme " + themeFile, e); //$NON-NLS-1$
+      failedThemes.put(themeFile, lastModified);
+      return null;
+    }
+    failedThemes.remove(themeFile);
+    compiledThemes.put(themeFile, compiledTheme);
+    return compiledTheme;
+  }
+
+  /**
+   * Parses a theme file and returns its series colors.
+   */
+  public static CompiledTheme compileTheme(File themeFile) throws Exception {
+    // Read the modification time first so that a change made while parsing is picked up next time.
+    long lastModified = themeFile.lastModified();
+    long contentHash = CompiledTheme.contentHash(themeFile);
+    ChartDocument themeDocument = org.pentaho.chart.ChartFactory.getChartDocument(themeFile.toURI().toURL(), true);
+    List<Integer> colors = new ArrayList<Integer>();
+    for (ChartElement seriesTheme : themeDocument.getChildElements(ChartElement.TAG_NAME_SERIES)) {
+      LayoutStyle seriesStyle = seriesTheme.getLayoutStyle();
+      Color color = seriesStyle != null ? (Color) seriesStyle.getValue(ColorStyleKeys.COLOR) : null;
+      if (color != null) {
+        // For now get rid of the alpha value.
+        colors.add(0x00FFFFFF & color.getRGB());
+      }
+    }
+    int[] rgb = new int[colors.size()];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = colors.get(i);
+    }
+    return new CompiledTheme(themeFile.getAbsolutePath(), rgb, lastModified, contentHash);
+  }
+
+  /**
+   * Returns the location of themes precompiled by {@link ThemeCompiler}, or <code>null</code> if there are none.
+   */
+  protected URL getPrecompiledThemes() {
+    return null;
+  }
+
+  private Map<String, CompiledTheme> getPrecompiledThemeMap() {
+    Map<String, CompiledTheme> themes = precompiledThemes;
     if (themes == null) {
-      synchronized(this) {
-        if (themes == null) {
-          themes = new ArrayList<Theme>();
-          for (File themeFile : getThemeFiles()) {
-            try {
-              ChartDocument themeDocument = org.pentaho.chart.ChartFactory.getChartDocument(themeFile.toURL(), true);
-              Theme chartTheme = new Theme();
-              chartTheme.setId(themeFile.getAbsolutePath());
-              for (ChartElement seriesTheme : themeDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES)) {
-                LayoutStyle seriesStyle = seriesTheme.getLayoutStyle();
-                Color color = seriesStyle != null ? (Color) seriesStyle.getValue(ColorStyleKeys.COLOR) : null;
-                if (color != null) {
-                  // For now get rid of the alpha value.
-                  chartTheme.getColors().add(0x00FFFFFF & color.getRGB());
-                }
-              }
-              themes.add(chartTheme);
-            } catch (Exception e) {
-              e.printStackTrace();
+      themes = new HashMap<String, CompiledTheme>();
+      URL location = getPrecompiledThemes();
+      if (location != null) {
+        try {
+          InputStream inputStream = location.openStream();
+          try {
+            for (CompiledTheme theme : CompiledTheme.read(inputStream)) {
+              themes.put(theme.getId(), theme);
             }
+          } finally {
+            inputStream.close();
           }
+        } catch (IOException e) {
+          logger.error("Unable to read the precompiled chart themes " + location, e); //$NON-NLS-1$
         }
       }
+      themes = Collections.unmodifiableMap(themes);
+      precompiledThemes = themes;
     }
     return themes;
   }
@@ -0,0 +1,338 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.pentaho.chart.data.IChartDataModel;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.plugin.ChartTimeoutException;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.IOutput.OutputTypes;
+
+/**
+ * Runs the blocking {@link ChartBeanFactory} stages, building the data model, rendering the chart and encoding the
+ * image, on an executor and returns their results as futures.
+ * <p/>
+ * Every request has a {@link ChartDeadline}. The stages check it before they start and the renderers check it between
+ * series, so work that is late or whose future has been cancelled stops at the next check. The future returned to the
+ * caller fails with a {@link ChartTimeoutException} as soon as the deadline passes, even if a stage is still running.
+ * <p/>
+ * At most <code>maxPendingRequests</code> requests are accepted at a time, counting both queued and running ones.
+ * Further requests fail straight away with a {@link RejectedExecutionException} rather than waiting in a queue.
+ */
+public class AsyncChartBeanFactory {
+
+  public static final int DEFAULT_MAX_PENDING_REQUESTS = 64;
+
+  private static ScheduledThreadPoolExecutor timer;
+
+  private final Executor executor;
+  private final boolean ownsExecutor;
+  private final Semaphore permits;
+  private final int maxPendingRequests;
+
+  /**
+   * Creates a factory that runs on {@link #createDefaultExecutor()} and accepts
+   * {@link #DEFAULT_MAX_PENDING_REQUESTS} requests at a time.
+   */
+  public AsyncChartBeanFactory() {
+    this( createDefaultExecutor(), DEFAULT_MAX_PENDING_REQUESTS, true );
+  }
+
+  public AsyncChartBeanFactory( Executor executor, int maxPendingRequests ) {
+    this( executor, maxPendingRequests, false );
+  }
+
+  private AsyncChartBeanFactory( Executor executor, int maxPendingRequests, boolean ownsExecutor ) {
+    if ( executor == null ) {
+      throw new IllegalArgumentException( "executor" ); //$NON-NLS-1$
+    }
+    if ( maxPendingRequests <= 0 ) {
+      throw new IllegalArgumentException( "maxPendingRequests: " + maxPendingRequests ); //$NON-NLS-1$
+    }
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.maxPendingRequests = maxPendingRequests;
+    this.permits = new Semaphore( maxPendingRequests );
+  }
+
+  /**
+   * Returns an executor that starts a virtual thread per task when the JVM supports them (Java 21 and later), or
+   * otherwise a pool of daemon threads, one per processor.
+   */
+  public static ExecutorService createDefaultExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null ); //$NON-NLS-1$
+    } catch ( Exception e ) {
+      return Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+          new DaemonThreadFactory( "chart-render-" ) ); //$NON-NLS-1$
+    }
+  }
+
+  public int getMaxPendingRequests() {
+    return maxPendingRequests;
+  }
+
+  /**
+   * Returns the number of accepted requests that have not finished yet.
+   */
+  public int getPendingRequestCount() {
+    return maxPendingRequests - permits.availablePermits();
+  }
+
+  /**
+   * Builds the data model, see
+   * {@link ChartBeanFactory#createChartDataModel(Object[][], Number, boolean, int, int, int, ChartModel)}.
+   */
+  public CompletableFuture<IChartDataModel> createChartDataModel( final Object[][] queryResults,
+      final Number scalingFactor, final boolean convertNullsToZero, final int rangeColumnIndex,
+      final int seriesColumnIdx, final int domainColumnIdx, final ChartModel chartModel, final ChartDeadline deadline ) {
+    return admit( deadline, new Callable<CompletableFuture<IChartDataModel>>() {
+      public CompletableFuture<IChartDataModel> call() {
+        return submit( deadline, dataModelStage( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex,
+            seriesColumnIdx, domainColumnIdx, chartModel ) );
+      }
+    } );
+  }
+
+  /**
+   * Renders the chart, see {@link ChartBeanFactory#createChart(ChartModel, IChartDataModel, IChartLinkGenerator)}.
+   */
+  public CompletableFuture<IOutput> createChart( final ChartModel chartModel, final IChartDataModel chartDataModel,
+      final IChartLinkGenerator contentLinkGenerator, final ChartDeadline deadline ) {
+    return admit( deadline, new Callable<CompletableFuture<IOutput>>() {
+      public CompletableFuture<IOutput> call() {
+        return submit( deadline, renderStage( chartModel, chartDataModel, contentLinkGenerator ) );
+      }
+    } );
+  }
+
+  /**
+   * Encodes a rendered chart, see {@link IOutput#persistChart(java.io.OutputStream, OutputTypes, int, int)}.
+   */
+  public CompletableFuture<InputStream> persistChart( final IOutput output, final OutputTypes outputType,
+      final int width, final int height, final ChartDeadline deadline ) {
+    return admit( deadline, new Callable<CompletableFuture<InputStream>>() {
+      public CompletableFuture<InputStream> call() {
+        return submit( deadline, encodeStage( output, outputType, width, height ) );
+      }
+    } );
+  }
+
+  /**
+   * Builds, renders and encodes a chart as one request, see
+   * {@link ChartBeanFactory#createChart(Object[][], Number, boolean, int, int, int, ChartModel, IChartLinkGenerator, int, int, OutputTypes)}.
+   * 
+   * @param timeout
+   *          the time allowed for the whole request; 0 for no limit
+   */
+  public CompletableFuture<InputStream> createChart( final Object[][] queryResults, final Number scalingFactor,
+      final boolean convertNullsToZero, final int rangeColumnIndex, final int seriesColumnIdx,
+      final int domainColumnIdx, final ChartModel chartModel, final IChartLinkGenerator contentLinkGenerator,
+      final int width, final int height, final OutputTypes outputType, long timeout, TimeUnit unit ) {
+    final ChartDeadline deadline = ChartDeadline.after( timeout, unit );
+    return admit( deadline, new Callable<CompletableFuture<InputStream>>() {
+      public CompletableFuture<InputStream> call() {
+        return submit( deadline, dataModelStage( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex,
+            seriesColumnIdx, domainColumnIdx, chartModel ) ).thenCompose(
+            new Function<IChartDataModel, CompletionStage<IOutput>>() {
+              public CompletionStage<IOutput> apply( IChartDataModel chartDataModel ) {
+                return submit( deadline, renderStage( chartModel, chartDataModel, contentLinkGenerator ) );
+              }
+            } ).thenCompose( new Function<IOutput, CompletionStage<InputStream>>() {
+              public CompletionStage<InputStream> apply( IOutput output ) {
+                return submit( deadline, encodeStage( output, outputType, width, height ) );
+              }
+            } );
+      }
+    } );
+  }
+
+  /**
+   * Shuts down the executor if this factory created it. Requests already accepted are still processed.
+   */
+  public void shutdown() {
+    if ( ownsExecutor ) {
+      ( (ExecutorService) executor ).shutdown();
+    }
+  }
+
+  private static Callable<IChartDataModel> dataModelStage( final Object[][] queryResults,
+      final Number scalingFactor, final boolean convertNullsToZero, final int rangeColumnIndex,
+      final int seriesColumnIdx, final int domainColumnIdx, final ChartModel chartModel ) {
+    return new Callable<IChartDataModel>() {
+      public IChartDataModel call() throws Exception {
+        return ChartBeanFactory.createChartDataModel( queryResults, scalingFactor, convertNullsToZero,
+            rangeColumnIndex, seriesColumnIdx, domainColumnIdx, chartModel );
+      }
+    };
+  }
+
+  private static Callable<IOutput> renderStage( final ChartModel chartModel, final IChartDataModel chartDataModel,
+      final IChartLinkGenerator contentLinkGenerator ) {
+    return new Callable<IOutput>() {
+      public IOutput call() throws Exception {
+        return ChartBeanFactory.createChart( chartModel, chartDataModel, contentLinkGenerator );
+      }
+    };
+  }
+
+  private static Callable<InputStream> encodeStage( final IOutput output, final OutputTypes outputType,
+      final int width, final int height ) {
+    return new Callable<InputStream>() {
+      public InputStream call() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        output.persistChart( outputStream, outputType, width, height );
+        return new ByteArrayInputStream( outputStream.toByteArray() );
+      }
+    };
+  }
+
+  /**
+   * Takes a permit for a new request and starts its work. The permit is returned when the work finishes, which may be
+   * after the returned future has timed out or been cancelled.
+   */
+  private <T> CompletableFuture<T> admit( final ChartDeadline deadline, Callable<CompletableFuture<T>> start ) {
+    final CompletableFuture<T> result = new CompletableFuture<T>();
+    if ( !permits.tryAcquire() ) {
+      result.completeExceptionally( new RejectedExecutionException( "Too many pending chart requests: " //$NON-NLS-1$
+          + maxPendingRequests ) );
+      return result;
+    }
+
+    CompletableFuture<T> work;
+    try {
+      work = start.call();
+    } catch ( Exception e ) {
+      permits.release();
+      result.completeExceptionally( e );
+      return result;
+    }
+    work.whenComplete( new BiConsumer<T, Throwable>() {
+      public void accept( T value, Throwable error ) {
+        permits.release();
+        if ( error == null ) {
+          result.complete( value );
+        } else {
+          result.completeExceptionally( translate( error, deadline ) );
+        }
+      }
+    } );
+
+    final ScheduledFuture<?> timeout;
+    if ( deadline.hasTimeout() && !result.isDone() ) {
+      timeout = getTimer().schedule( new Runnable() {
+        public void run() {
+          result.completeExceptionally( new ChartTimeoutException( "Chart request deadline exceeded" ) ); //$NON-NLS-1$
+        }
+      }, deadline.getRemaining( TimeUnit.NANOSECONDS ), TimeUnit.NANOSECONDS );
+    } else {
+      timeout = null;
+    }
+    result.whenComplete( new BiConsumer<T, Throwable>() {
+      public void accept( T value, Throwable error ) {
+        if ( result.isCancelled() ) {
+          deadline.cancel();
+        }
+        if ( timeout != null ) {
+          timeout.cancel( false );
+        }
+      }
+    } );
+    return result;
+  }
+
+  /**
+   * Runs one stage on the executor with the request's deadline as the current deadline.
+   */
+  private <T> CompletableFuture<T> submit( final ChartDeadline deadline, final Callable<T> stage ) {
+    final CompletableFuture<T> future = new CompletableFuture<T>();
+    try {
+      executor.execute( new Runnable() {
+        public void run() {
+          ChartDeadline previous = deadline.enter();
+          try {
+            deadline.check();
+            future.complete( stage.call() );
+          } catch ( Throwable t ) {
+            future.completeExceptionally( t );
+          } finally {
+            ChartDeadline.restore( previous );
+          }
+        }
+      } );
+    } catch ( RejectedExecutionException e ) {
+      future.completeExceptionally( e );
+    }
+    return future;
+  }
+
+  private static Throwable translate( Throwable error, ChartDeadline deadline ) {
+    Throwable cause = error;
+    if ( ( cause instanceof CompletionException ) && ( cause.getCause() != null ) ) {
+      cause = cause.getCause();
+    }
+    if ( ( cause instanceof CancellationException ) && !deadline.isCancelled() && deadline.isExpired() ) {
+      return new ChartTimeoutException( cause.getMessage() );
+    }
+    return cause;
+  }
+
+  private static synchronized ScheduledThreadPoolExecutor getTimer() {
+    if ( timer == null ) {
+      timer = new ScheduledThreadPoolExecutor( 1, new DaemonThreadFactory( "chart-deadline-" ) ); //$NON-NLS-1$
+      timer.setRemoveOnCancelPolicy( true );
+    }
+    return timer;
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    DaemonThreadFactory( String prefix ) {
+      this.prefix = prefix;
+    }
+
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, prefix + count.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+}
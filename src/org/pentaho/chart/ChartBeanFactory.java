@@ -17,12 +17,17 @@
 
 package org.pentaho.chart;
 
+import java.awt.Dimension;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
+import org.pentaho.chart.data.AggregationFunction;
+import org.pentaho.chart.data.Aggregator;
 import org.pentaho.chart.data.BasicDataModel;
 import org.pentaho.chart.data.IChartDataModel;
 import org.pentaho.chart.data.IScalableDataModel;
@@ -30,9 +35,9 @@ import org.pentaho.chart.data.MultiSeriesDataModel;
 import org.pentaho.chart.data.MultiSeriesXYDataModel;
 import org.pentaho.chart.data.NamedValue;
 import org.pentaho.chart.data.NamedValuesDataModel;
+import org.pentaho.chart.data.TopNReducer;
 import org.pentaho.chart.data.XYDataModel;
 import org.pentaho.chart.data.XYDataPoint;
-import org.pentaho.chart.data.MultiSeriesDataModel.DomainData;
 import org.pentaho.chart.data.MultiSeriesXYDataModel.Series;
 import org.pentaho.chart.model.ChartModel;
 import org.pentaho.chart.model.DialPlot;
@@ -47,6 +52,7 @@ import org.pentaho.chart.plugin.api.IOutput;
 import org.pentaho.chart.plugin.api.PersistenceException;
 import org.pentaho.chart.plugin.api.IOutput.OutputTypes;
 import org.pentaho.chart.plugin.jfreechart.JFreeChartPlugin;
+import org.pentaho.chart.plugin.jfreechart.outputs.JFreeChartOutput;
 import org.pentaho.chart.plugin.openflashchart.OpenFlashChartPlugin;
 import org.pentaho.commons.connection.IPentahoMetaData;
 import org.pentaho.metadata.model.concept.types.DataType;
@@ -57,13 +63,59 @@ public class ChartBeanFactory {
   private static String META_DATA_MASK_ATTRIBUTE = "mask";
   private static String META_DATA_DATATYPE_ATTRIBUTE = "datatype";
   private static int META_DATA_ROW_WITH_ATTRIBUTE = 0;
+  private static int MAX_MEMOIZED_VALUES_PER_COLUMN = 4096;
 
   private static int MAX_ALLOWED_DATA_POINTS = 100;
+  private static int PARALLEL_AGGREGATION_THRESHOLD = 100000;
+  private static ForkJoinPool aggregationPool = ForkJoinPool.commonPool();
   private static List<IChartPlugin> chartPlugins = new ArrayList<IChartPlugin>();
 
   private ChartBeanFactory() {
   }
 
+  /**
+   * Formats the values of one column. The mask and data type are read from the metadata once, and the formatted
+   * string of each distinct value is remembered (up to {@link #MAX_MEMOIZED_VALUES_PER_COLUMN} values), so a low
+   * cardinality column costs about one hash lookup per cell and every occurrence of a value shares one string.
+   * Instances are safe to use from the parallel aggregation threads.
+   */
+  private static class ColumnFormatter {
+    private final boolean useMetaData;
+    private final String mask;
+    private final DataType datatype;
+    private final ConcurrentHashMap<Object, String> formattedValues = new ConcurrentHashMap<Object, String>();
+
+    ColumnFormatter( IPentahoMetaData metaData, int columnNo ) {
+      useMetaData = metaData != null && columnNo >= 0;
+      if ( useMetaData ) {
+        mask = (String) metaData.getAttribute( META_DATA_ROW_WITH_ATTRIBUTE, columnNo, META_DATA_MASK_ATTRIBUTE );
+        datatype =
+            (DataType) metaData.getAttribute( META_DATA_ROW_WITH_ATTRIBUTE, columnNo, META_DATA_DATATYPE_ATTRIBUTE );
+      } else {
+        mask = null;
+        datatype = null;
+      }
+    }
+
+    String format( Object data ) {
+      String formattedValue = formattedValues.get( data );
+      if ( formattedValue == null ) {
+        if ( useMetaData ) {
+          formattedValue = DataFormatter.getFormatedString( datatype, mask, data );
+        } else {
+          formattedValue = data.toString();
+        }
+        if ( formattedValues.size() < MAX_MEMOIZED_VALUES_PER_COLUMN ) {
+          String existingValue = formattedValues.putIfAbsent( data, formattedValue );
+          if ( existingValue != null ) {
+            formattedValue = existingValue;
+          }
+        }
+      }
+      return formattedValue;
+    }
+  }
+
   public static IChartPlugin getPlugin( String pluginId ) {
     IChartPlugin plugin = null;
     for ( IChartPlugin tmpPlugin : chartPlugins ) {
@@ -91,6 +143,33 @@ public class ChartBeanFactory {
     }
   }
 
+  public static int getParallelAggregationThreshold() {
+    return PARALLEL_AGGREGATION_THRESHOLD;
+  }
+
+  /**
+   * Query results with more rows than <code>threshold</code> are split into partitions of <code>threshold</code> rows
+   * that are aggregated in parallel. Use 0 to always aggregate on the calling thread.
+   * <p>
+   * This only applies to the <code>Object[][]</code> query results taken by this factory. The streaming
+   * <code>Iterator</code> overload of {@link Aggregator#aggregate(java.util.Iterator, AggregationFunction,
+   * Aggregator.RowHandler, int, ForkJoinPool)} is not used here; callers that stream rows must call it directly.
+   */
+  public static void setParallelAggregationThreshold( int threshold ) {
+    if ( threshold >= 0 ) {
+      PARALLEL_AGGREGATION_THRESHOLD = threshold;
+    }
+  }
+
+  /**
+   * Sets the pool used for parallel aggregation. Defaults to the common fork join pool.
+   */
+  public static void setAggregationPool( ForkJoinPool pool ) {
+    if ( pool != null ) {
+      aggregationPool = pool;
+    }
+  }
+
   /**
    * This method is called from a platform system listener on startup, to initialize the available plugins from the
    * chartbeans configuration file.
@@ -116,17 +195,45 @@ public class ChartBeanFactory {
   public static IChartDataModel createChartDataModel( Object[][] queryResults, Number scalingFactor,
       boolean convertNullsToZero, int rangeColumnIndex, int seriesColumnIdx, int domainColumnIdx, ChartModel chartModel,
       IPentahoMetaData metadata ) throws ChartDataOverflowException, NoChartDataException {
+    return createChartDataModel( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex, seriesColumnIdx,
+        domainColumnIdx, chartModel, metadata, AggregationFunction.SUM );
+  }
+
+  public static IChartDataModel createChartDataModel( Object[][] queryResults, Number scalingFactor,
+      boolean convertNullsToZero, int rangeColumnIndex, int seriesColumnIdx, int domainColumnIdx, ChartModel chartModel,
+      IPentahoMetaData metadata, AggregationFunction aggregationFunction ) throws ChartDataOverflowException,
+    NoChartDataException {
+    return createChartDataModel( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex, seriesColumnIdx,
+        domainColumnIdx, chartModel, metadata, aggregationFunction, null );
+  }
+
+  /**
+   * Creates the data model for the given chart. Rows that share the same domain (and series) value are combined into
+   * a single data point using <code>aggregationFunction</code>, so the query does not have to aggregate the rows
+   * itself. Scatter charts are never aggregated.
+   * <p/>
+   * If <code>topN</code> is not <code>null</code>, pie and category charts are reduced to their largest slices or
+   * categories before the data point limit is checked, so high cardinality data no longer overflows.
+   */
+  public static IChartDataModel createChartDataModel( Object[][] queryResults, Number scalingFactor,
+      boolean convertNullsToZero, int rangeColumnIndex, int seriesColumnIdx, int domainColumnIdx, ChartModel chartModel,
+      IPentahoMetaData metadata, AggregationFunction aggregationFunction, TopNReducer topN )
+    throws ChartDataOverflowException, NoChartDataException {
     IChartDataModel chartDataModel = null;
     int numberOfDataPoints = 0;
 
     Plot plot = chartModel.getPlot();
     if ( ( plot instanceof PiePlot ) && ( seriesColumnIdx >= 0 ) && ( rangeColumnIndex >= 0 ) ) {
       NamedValuesDataModel namedValueDataModel =
-          createNamedValueDataModel( queryResults, seriesColumnIdx, rangeColumnIndex, convertNullsToZero, true );
+          createNamedValueDataModel( queryResults, seriesColumnIdx, rangeColumnIndex, convertNullsToZero,
+              aggregationFunction );
+      if ( topN != null ) {
+        namedValueDataModel = topN.reduce( namedValueDataModel );
+      }
       numberOfDataPoints = namedValueDataModel.size();
       chartDataModel = namedValueDataModel;
     } else if ( ( plot instanceof DialPlot ) && ( rangeColumnIndex >= 0 ) ) {
-      BasicDataModel basicDataModel = createBasicDataModel( queryResults, rangeColumnIndex, true, true );
+      BasicDataModel basicDataModel = createBasicDataModel( queryResults, rangeColumnIndex, true, aggregationFunction );
       numberOfDataPoints = basicDataModel.getData().size();
       chartDataModel = basicDataModel;
     } else if ( plot instanceof ScatterPlot ) {
@@ -148,17 +255,19 @@ public class ChartBeanFactory {
       if ( ( seriesColumnIdx >= 0 ) ) {
         MultiSeriesDataModel multiSeriesDataModel =
             createMultiSeriesDataModel( queryResults, seriesColumnIdx, domainColumnIdx, rangeColumnIndex,
-                convertNullsToZero, metadata );
-        List<DomainData> domainData = multiSeriesDataModel.getDomainData();
-        if ( domainData.size() > 0 ) {
-          for ( DomainData domain : domainData ) {
-            numberOfDataPoints += domain.size();
-          }
+                convertNullsToZero, metadata, aggregationFunction );
+        if ( topN != null ) {
+          multiSeriesDataModel = topN.reduce( multiSeriesDataModel );
         }
+        numberOfDataPoints = multiSeriesDataModel.getPointCount();
         chartDataModel = multiSeriesDataModel;
       } else {
         NamedValuesDataModel namedValueDataModel =
-            createNamedValueDataModel( queryResults, domainColumnIdx, rangeColumnIndex, convertNullsToZero, true );
+            createNamedValueDataModel( queryResults, domainColumnIdx, rangeColumnIndex, convertNullsToZero,
+              aggregationFunction );
+        if ( topN != null ) {
+          namedValueDataModel = topN.reduce( namedValueDataModel );
+        }
         numberOfDataPoints = namedValueDataModel.size();
         chartDataModel = namedValueDataModel;
       }
@@ -204,51 +313,77 @@ public class ChartBeanFactory {
     return inputStream;
   }
 
-  private static MultiSeriesDataModel createMultiSeriesDataModel( Object[][] queryResults, int seriesColumn,
-      int domainColumn, int rangeColumn, boolean convertNullValuesToZero, IPentahoMetaData metaData ) {
-    MultiSeriesDataModel multiSeriesDataModel = new MultiSeriesDataModel();
+  /**
+   * Renders the same chart at several sizes, for example a thumbnail, a dashboard tile and a full screen view. The
+   * data model and the chart are only built once and every size is drawn from that one chart.
+   * 
+   * @param maxDerivedSize
+   *          sizes whose edges all fit within this many pixels are scaled down from the largest render instead of
+   *          being rendered again. Use 0 to render every size.
+   * @return one encoded image per requested size, in the order of <code>sizes</code>
+   */
+  public static List<InputStream> createCharts( Object[][] queryResults, Number scalingFactor,
+      boolean convertNullsToZero, int rangeColumnIndex, int seriesColumnIdx, int domainColumnIdx,
+      ChartModel chartModel, IChartLinkGenerator contentLinkGenerator, List<Dimension> sizes, OutputTypes outputType,
+      int maxDerivedSize ) throws NoChartDataException, ChartDataOverflowException, ChartProcessingException,
+    PersistenceException {
 
-    for ( int i = 0; i < queryResults.length; i++ ) {
-      String domainValue =
-          domainColumn >= 0 && queryResults[i][domainColumn] != null ? formatSeriesString(
-              queryResults[i][domainColumn], metaData, i, domainColumn ) : "";
-      Object seriesValue =
-          queryResults[i][seriesColumn] != null ? formatSeriesString( queryResults[i][seriesColumn], metaData, i,
-              seriesColumn ) : "null";
-      Object rangeValue = queryResults[i][rangeColumn];
-      if ( rangeValue == null ) {
-        if ( convertNullValuesToZero ) {
-          rangeValue = new Integer( 0 );
-        }
-      } else if ( !( rangeValue instanceof Number ) ) {
-        rangeValue = null;
-      }
+    IChartDataModel chartDataModel =
+        createChartDataModel( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex, seriesColumnIdx,
+            domainColumnIdx, chartModel );
+    IOutput output = createChart( chartModel, chartDataModel, contentLinkGenerator );
 
-      multiSeriesDataModel.addValue( domainValue, seriesValue.toString(), (Number) rangeValue );
+    List<InputStream> inputStreams = new ArrayList<InputStream>( sizes.size() );
+    if ( output instanceof JFreeChartOutput ) {
+      for ( byte[] image : ( (JFreeChartOutput) output ).persistCharts( sizes, outputType, maxDerivedSize ) ) {
+        inputStreams.add( new ByteArrayInputStream( image ) );
+      }
+    } else {
+      for ( Dimension size : sizes ) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        output.persistChart( outputStream, outputType, size.width, size.height );
+        inputStreams.add( new ByteArrayInputStream( outputStream.toByteArray() ) );
+      }
     }
-
-    return multiSeriesDataModel;
+    return inputStreams;
   }
 
-  private static String formatSeriesString( Object data, IPentahoMetaData metaData, int rowNo, int columnNo ) {
-    if ( metaData != null ) {
-      String mask = (String) metaData.getAttribute( META_DATA_ROW_WITH_ATTRIBUTE, columnNo, META_DATA_MASK_ATTRIBUTE );
-      DataType datatype =
-          (DataType) metaData.getAttribute( META_DATA_ROW_WITH_ATTRIBUTE, columnNo, META_DATA_DATATYPE_ATTRIBUTE );
-      return DataFormatter.getFormatedString( datatype, mask, data );
-    }
-    return data.toString();
+  private static MultiSeriesDataModel createMultiSeriesDataModel( Object[][] queryResults, final int seriesColumn,
+      final int domainColumn, final int rangeColumn, final boolean convertNullValuesToZero,
+      final IPentahoMetaData metaData, AggregationFunction aggregationFunction ) {
+    final ColumnFormatter domainFormatter = new ColumnFormatter( metaData, domainColumn );
+    final ColumnFormatter seriesFormatter = new ColumnFormatter( metaData, seriesColumn );
+    Aggregator.RowHandler rowHandler = new Aggregator.RowHandler() {
+      public void aggregate( Object[] row, Aggregator aggregator ) {
+        String domainValue =
+            domainColumn >= 0 && row[domainColumn] != null ? domainFormatter.format( row[domainColumn] ) : "";
+        Object seriesValue = row[seriesColumn] != null ? seriesFormatter.format( row[seriesColumn] ) : "null";
+        Object rangeValue = row[rangeColumn];
+        if ( rangeValue == null ) {
+          if ( convertNullValuesToZero ) {
+            rangeValue = new Integer( 0 );
+          }
+        } else if ( !( rangeValue instanceof Number ) ) {
+          rangeValue = null;
+        }
+
+        aggregator.add( domainValue, seriesValue.toString(), (Number) rangeValue );
+      }
+    };
+
+    return Aggregator.aggregate( queryResults, aggregationFunction, rowHandler, PARALLEL_AGGREGATION_THRESHOLD,
+        aggregationPool ).toMultiSeriesDataModel();
   }
 
   private static MultiSeriesXYDataModel createMultiSeriesXYDataModel( Object[][] queryResults, int seriesColumn,
       int domainColumn, int rangeColumn, boolean convertNullValuesToZero, IPentahoMetaData metadata ) {
     MultiSeriesXYDataModel multiSeriesDataModel = new MultiSeriesXYDataModel();
+    ColumnFormatter seriesFormatter = new ColumnFormatter( metadata, seriesColumn );
 
     for ( int i = 0; i < queryResults.length; i++ ) {
       Object domainValue = queryResults[i][domainColumn];
       String seriesName =
-          queryResults[i][seriesColumn] != null ? formatSeriesString( queryResults[i][seriesColumn], metadata, i,
-              seriesColumn ) : "null";
+          queryResults[i][seriesColumn] != null ? seriesFormatter.format( queryResults[i][seriesColumn] ) : "null";
 
       if ( domainValue == null ) {
         if ( convertNullValuesToZero ) {
@@ -273,51 +408,53 @@ public class ChartBeanFactory {
     return multiSeriesDataModel;
   }
 
-  private static NamedValuesDataModel createNamedValueDataModel( Object[][] queryResults, int domainColumn,
-      int rangeColumn, boolean convertNullsToZero, boolean autoSum ) {
-    NamedValuesDataModel basicChartDataModel = new NamedValuesDataModel();
-
-    for ( int i = 0; i < queryResults.length; i++ ) {
-      Object domainValue = null;
-      if ( domainColumn > -1 ) {
-        domainValue = queryResults[i][domainColumn];
-      }
-      if ( domainValue == null ) {
-        domainValue = "null";
+  private static NamedValuesDataModel createNamedValueDataModel( Object[][] queryResults, final int domainColumn,
+      final int rangeColumn, final boolean convertNullsToZero, AggregationFunction aggregationFunction ) {
+    Aggregator.RowHandler rowHandler = new Aggregator.RowHandler() {
+      public void aggregate( Object[] row, Aggregator aggregator ) {
+        aggregator.add( getName( row, domainColumn ), getRangeValue( row, rangeColumn, convertNullsToZero ) );
       }
+    };
 
-      String name = domainValue.toString();
+    if ( aggregationFunction != null ) {
+      return Aggregator.aggregate( queryResults, aggregationFunction, rowHandler, PARALLEL_AGGREGATION_THRESHOLD,
+          aggregationPool ).toNamedValuesDataModel();
+    }
 
-      Object rangeValue = queryResults[i][rangeColumn];
-      if ( rangeValue == null ) {
-        if ( convertNullsToZero ) {
-          rangeValue = new Integer( 0 );
-        }
-      } else if ( !( rangeValue instanceof Number ) ) {
-        rangeValue = null;
-      }
+    NamedValuesDataModel basicChartDataModel = new NamedValuesDataModel();
+    for ( int i = 0; i < queryResults.length; i++ ) {
+      basicChartDataModel.add( new NamedValue( getName( queryResults[i], domainColumn ), getRangeValue( queryResults[i],
+          rangeColumn, convertNullsToZero ) ) );
+    }
+    return basicChartDataModel;
+  }
 
-      if ( autoSum ) {
-        NamedValue existingDataPoint = basicChartDataModel.getNamedValue( name );
-        if ( existingDataPoint == null ) {
-          basicChartDataModel.add( new NamedValue( name, (Number) rangeValue ) );
-        } else if ( existingDataPoint.getValue() == null ) {
-          existingDataPoint.setValue( (Number) rangeValue );
-        } else if ( rangeValue != null ) {
-          existingDataPoint.setValue( ( (Number) existingDataPoint.getValue() ).doubleValue() + ( (Number) rangeValue )
-              .doubleValue() );
-        }
-      } else {
-        basicChartDataModel.add( new NamedValue( name, (Number) rangeValue ) );
-      }
+  private static String getName( Object[] row, int domainColumn ) {
+    Object domainValue = null;
+    if ( domainColumn > -1 ) {
+      domainValue = row[domainColumn];
+    }
+    if ( domainValue == null ) {
+      domainValue = "null";
     }
+    return domainValue.toString();
+  }
 
-    return basicChartDataModel;
+  private static Number getRangeValue( Object[] row, int rangeColumn, boolean convertNullsToZero ) {
+    Object rangeValue = row[rangeColumn];
+    if ( rangeValue == null ) {
+      if ( convertNullsToZero ) {
+        rangeValue = new Integer( 0 );
+      }
+    } else if ( !( rangeValue instanceof Number ) ) {
+      rangeValue = null;
+    }
+    return (Number) rangeValue;
   }
 
   private static BasicDataModel createBasicDataModel( Object[][] queryResults, int rangeColumn,
-      boolean convertNullsToZero, boolean autoSum ) {
-    BasicDataModel oneDimensionalDataModel = new BasicDataModel( autoSum );
+      boolean convertNullsToZero, AggregationFunction aggregationFunction ) {
+    BasicDataModel oneDimensionalDataModel = new BasicDataModel( aggregationFunction );
 
     for ( int i = 0; i < queryResults.length; i++ ) {
       Object rangeValue = queryResults[i][rangeColumn];
@@ -25,6 +25,8 @@ import org.pentaho.reporting.libraries.css.model.StyleKeyRegistry;
 @SuppressWarnings({"StaticNonFinalField"})
 public class ChartBoot extends AbstractBoot {
   private static ChartBoot instance=null;
+  private volatile boolean ready;
+  private volatile ChartWarmup warmup;
 
   public static synchronized ChartBoot getInstance() {
     if (ChartBoot.instance == null) {
@@ -46,7 +48,44 @@ public class ChartBoot extends AbstractBoot {
   }
 
   protected void performBoot() {
-    // nothing required. Just gather the configuration.
+    final Configuration config = getGlobalConfig();
+    final String mode = config.getConfigProperty(ChartWarmup.MODE, ChartWarmup.MODE_NONE).trim();
+    if (ChartWarmup.MODE_NONE.equalsIgnoreCase(mode)) {
+      ready = true;
+      return;
+    }
+
+    warmup = new ChartWarmup(config);
+    final Runnable task = new Runnable() {
+      public void run() {
+        try {
+          warmup.run();
+        } finally {
+          ready = true;
+        }
+      }
+    };
+    if (ChartWarmup.MODE_BACKGROUND.equalsIgnoreCase(mode)) {
+      final Thread thread = new Thread(task, "chart-warmup"); //$NON-NLS-1$
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      task.run();
+    }
+  }
+
+  /**
+   * Returns true once the boot, including any warm-up, has finished. Health checks can use this as a readiness flag.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Returns how long the boot-time warm-up took in milliseconds, or -1 if it is disabled or still running.
+   */
+  public long getWarmupTime() {
+    return (warmup == null) ? -1 : warmup.getWarmupTime();
   }
 
   protected ProjectInformation getProjectInfo() {
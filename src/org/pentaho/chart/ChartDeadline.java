@@ -0,0 +1,124 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which a chart request must finish, and whether it has been cancelled. Long running work checks the
+ * deadline of the current thread at safe points, between rendering stages and between series, and gives up by throwing
+ * a {@link CancellationException}. Nothing is interrupted; a stage that never checks runs to completion.
+ */
+public final class ChartDeadline {
+
+  private static final ThreadLocal<ChartDeadline> CURRENT = new ThreadLocal<ChartDeadline>();
+
+  private final long deadlineNanos;
+  private final boolean timed;
+  private volatile boolean cancelled;
+
+  private ChartDeadline( long deadlineNanos, boolean timed ) {
+    this.deadlineNanos = deadlineNanos;
+    this.timed = timed;
+  }
+
+  /**
+   * Returns a deadline that expires after the given time. A timeout of 0 or less never expires.
+   */
+  public static ChartDeadline after( long timeout, TimeUnit unit ) {
+    if ( timeout <= 0 ) {
+      return new ChartDeadline( 0, false );
+    }
+    return new ChartDeadline( System.nanoTime() + unit.toNanos( timeout ), true );
+  }
+
+  public boolean hasTimeout() {
+    return timed;
+  }
+
+  /**
+   * Returns the time left before the deadline, 0 once it has passed or <code>Long.MAX_VALUE</code> if there is no
+   * timeout.
+   */
+  public long getRemaining( TimeUnit unit ) {
+    if ( !timed ) {
+      return Long.MAX_VALUE;
+    }
+    return unit.convert( Math.max( 0, deadlineNanos - System.nanoTime() ), TimeUnit.NANOSECONDS );
+  }
+
+  public boolean isExpired() {
+    return timed && ( deadlineNanos - System.nanoTime() <= 0 );
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @throws CancellationException if the request has been cancelled or the deadline has passed.
+   */
+  public void check() {
+    if ( cancelled ) {
+      throw new CancellationException( "Chart request cancelled" ); //$NON-NLS-1$
+    }
+    if ( isExpired() ) {
+      throw new CancellationException( "Chart request deadline exceeded" ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Returns the deadline of the request being processed on this thread, or <code>null</code>.
+   */
+  public static ChartDeadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Checks the deadline of the request being processed on this thread, if there is one.
+   */
+  public static void checkCurrent() {
+    ChartDeadline deadline = CURRENT.get();
+    if ( deadline != null ) {
+      deadline.check();
+    }
+  }
+
+  /**
+   * Makes this the deadline of the current thread and returns the previous one, which must be passed to
+   * {@link #restore(ChartDeadline)} when the work is done.
+   */
+  public ChartDeadline enter() {
+    ChartDeadline previous = CURRENT.get();
+    CURRENT.set( this );
+    return previous;
+  }
+
+  public static void restore( ChartDeadline previous ) {
+    if ( previous == null ) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set( previous );
+    }
+  }
+}
@@ -168,7 +168,7 @@ public class ChartDocumentContext implements DocumentContext
   protected StyleReference[] createStyleReferences(final ChartDocument chartDoc)
   {
     // Get the set of top-level document items which contain style sheet information
-    final ChartElement[] styleSheetElements = chartDoc.getRootElement().findChildrenByName(ChartElement.TAG_NAME_STYLESHEET);
+    final ChartElement[] styleSheetElements = chartDoc.getChildElements(ChartElement.TAG_NAME_STYLESHEET);
 
     // The list of StyleReferences created from the styleSheetElements
     final ArrayList<StyleReference> styleReferenceList = new ArrayList<StyleReference>(styleSheetElements.length);
@@ -18,6 +18,7 @@
 package org.pentaho.chart;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.pentaho.chart.core.ChartDocument;
@@ -155,4 +156,11 @@ public class ChartDocumentValidator {
   public int getMessageCount() {
     return messages.size();
   }
+
+  /**
+   * Returns the messages generated from the last validation test
+   */
+  public List<String> getMessages() {
+    return Collections.unmodifiableList(messages);
+  }
 }
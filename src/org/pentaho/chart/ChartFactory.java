@@ -51,7 +51,6 @@ import org.pentaho.reporting.libraries.css.dom.LayoutStyle;
 import org.pentaho.reporting.libraries.css.keys.color.ColorStyleKeys;
 import org.pentaho.reporting.libraries.css.keys.font.FontStyleKeys;
 import org.pentaho.reporting.libraries.css.resolver.StyleResolver;
-import org.pentaho.reporting.libraries.css.resolver.impl.DefaultStyleResolver;
 import org.pentaho.reporting.libraries.css.values.CSSColorValue;
 import org.pentaho.reporting.libraries.css.values.CSSConstant;
 import org.pentaho.reporting.libraries.css.values.CSSNumericType;
@@ -123,8 +122,8 @@ public class ChartFactory {
       // Create a ChartDocumentContext
       final ChartDocumentContext cdc = new ChartDocumentContext(chart);
 
-      // Resolve the style information
-      ChartFactory.resolveStyles(chart, cdc);
+      // Resolve the style information of each element when it is first used
+      ChartFactory.deferStyleResolution(chart, cdc);
     }
 
     return chart;
@@ -156,12 +155,38 @@ public class ChartFactory {
     return cdc;
   }
 
+  /**
+   * Prepares the chart document to be shared by concurrent chart renderings. The document is validated, set up to
+   * resolve the style information of its elements on demand, and then frozen so it can no longer be modified.
+   * Calling this on a document that is already frozen does nothing.
+   *
+   * @param chart the chart document to freeze
+   * @return the frozen chart document
+   * @throws ResourceException      indicates an error loading the chart resources
+   * @throws InvalidChartDefinition indicates the chart document did not pass validation
+   * @see ChartDocument#freeze()
+   */
+  public static ChartDocument freezeChartDocument(final ChartDocument chart)
+      throws ResourceException, InvalidChartDefinition {
+    synchronized (chart) {
+      if (!chart.isFrozen()) {
+        final ChartDocumentValidator validator = new ChartDocumentValidator(chart);
+        if (validator.getMessageCount() > 0) {
+          throw new InvalidChartDefinition(validator.getMessages().get(0));
+        }
+        ChartFactory.deferStyleResolution(chart, new ChartDocumentContext(chart));
+        chart.freeze();
+      }
+    }
+    return chart;
+  }
+
   /**
    * Returns the initialized <code>StyleResolver</code>.
    * NOTE: this method is protected for testing purposes only
    */
   protected static StyleResolver getStyleResolver(final ChartDocumentContext cdc) {
-    final StyleResolver sr = new DefaultStyleResolver();
+    final StyleResolver sr = new ChartStyleResolver();
     sr.initialize(cdc);
     return sr;
   }
@@ -189,6 +214,17 @@ public class ChartFactory {
     }
   }
 
+  /**
+   * Sets up the chart document to resolve the style information of each element the first time it is used. Only the
+   * elements a chart plugin actually reads, and their ancestors, are resolved.
+   *
+   * @param chart the chart document to process
+   * @param cdc   the chart document context used with the <code>StyleResolver</code>
+   * @see ChartDocument#setDeferredStyleResolver(StyleResolver)
+   */
+  protected static void deferStyleResolution(final ChartDocument chart, final ChartDocumentContext cdc) {
+    chart.setDeferredStyleResolver(ChartFactory.getStyleResolver(cdc));
+  }
 
   private static void setElementFont(ChartElement chartElement, String fontFamily, Integer fontSize,
       FontStyle fontStyle, FontWeight fontWeight) {
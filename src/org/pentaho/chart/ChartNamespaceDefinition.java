@@ -17,6 +17,10 @@
 
 package org.pentaho.chart;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.pentaho.chart.css.CompiledStyleSheet;
+import org.pentaho.chart.css.CompiledStyleSheetResourceFactory;
 import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
 import org.pentaho.reporting.libraries.resourceloader.ResourceKeyCreationException;
 import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
@@ -47,6 +51,12 @@ public class ChartNamespaceDefinition implements NamespaceDefinition {
   private static final String DEFAULT_CLASS_ATTRIBUTE_NAMES = "class"; //$NON-NLS-1$
   private static final String DEFAULT_STYLE_ATTRIBUTE_NAMES = "style"; //$NON-NLS-1$
   private static final String DEFAULT_CHART_STYLE_LOCATION = "res://org/pentaho/chart/css/chart.css"; //$NON-NLS-1$
+  private static final String CLASSPATH_SCHEME = "res://"; //$NON-NLS-1$
+
+  /**
+   * The style sheet locations to use, by configured location
+   */
+  private static final ConcurrentHashMap<String, String> styleSheetLocations = new ConcurrentHashMap<String, String>();
 
   public ChartNamespaceDefinition(final ResourceManager resourceManager) throws ResourceKeyCreationException {
     // Save the resource manager
@@ -63,7 +73,33 @@ public class ChartNamespaceDefinition implements NamespaceDefinition {
 
     // Load the chart style information and retain the key
     final String chartStyleLocation = config.getConfigProperty(ChartNamespaceDefinition.CHART_STYLE_LOCATION, ChartNamespaceDefinition.DEFAULT_CHART_STYLE_LOCATION);
-    chartStyleSheetKey = resourceManager.createKey(chartStyleLocation);
+    final String styleSheetLocation = getStyleSheetLocation(chartStyleLocation);
+    chartStyleSheetKey = resourceManager.createKey(styleSheetLocation);
+    if (!styleSheetLocation.equals(chartStyleLocation)) {
+      // The rule table was built into the classpath, so it may be read
+      CompiledStyleSheetResourceFactory.addTrustedRuleTable(chartStyleSheetKey);
+    }
+  }
+
+  /**
+   * Returns the location of the compiled rule table of a style sheet on the classpath if the build created one,
+   * so the chart styles are read from the table instead of being parsed. Otherwise the location is returned unchanged.
+   *
+   * @see CompiledStyleSheet
+   */
+  static String getStyleSheetLocation(final String location) {
+    String styleSheetLocation = styleSheetLocations.get(location);
+    if (styleSheetLocation == null) {
+      styleSheetLocation = location;
+      if (location.startsWith(CLASSPATH_SCHEME)) {
+        final String ruleTable = location.substring(CLASSPATH_SCHEME.length()) + CompiledStyleSheet.FILE_SUFFIX;
+        if (ChartNamespaceDefinition.class.getClassLoader().getResource(ruleTable) != null) {
+          styleSheetLocation = location + CompiledStyleSheet.FILE_SUFFIX;
+        }
+      }
+      styleSheetLocations.put(location, styleSheetLocation);
+    }
+    return styleSheetLocation;
   }
 
   public String getPreferredPrefix() {
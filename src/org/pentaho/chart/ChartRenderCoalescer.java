@@ -0,0 +1,257 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.chart.data.IChartDataModel;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.util.ChartSerializer;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+import org.pentaho.chart.plugin.ChartDataOverflowException;
+import org.pentaho.chart.plugin.ChartProcessingException;
+import org.pentaho.chart.plugin.NoChartDataException;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.PersistenceException;
+import org.pentaho.chart.plugin.api.IOutput.OutputTypes;
+
+/**
+ * Shares one render between concurrent requests for the same chart. The first request for a fingerprint renders the
+ * chart; requests for the same fingerprint that arrive while it is rendering wait for it and receive the same encoded
+ * image. Nothing is kept once the render finishes, so a later request renders again, and a failed render is reported
+ * to every waiting request and then forgotten.
+ * <p/>
+ * For query results the fingerprint is the serialized chart model, the query results, the data model options, the
+ * size and the output type. Link generators are not part of it, since only the encoded image is shared. The query
+ * results must not be changed while a render is in flight.
+ */
+public class ChartRenderCoalescer {
+
+  private final ConcurrentHashMap<Object, CompletableFuture<byte[]>> inFlight =
+      new ConcurrentHashMap<Object, CompletableFuture<byte[]>>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong renderCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+
+  /**
+   * Coalescing version of
+   * {@link ChartBeanFactory#createChart(Object[][], Number, boolean, int, int, int, ChartModel, IChartLinkGenerator, int, int, OutputTypes)}.
+   */
+  public InputStream createChart( final Object[][] queryResults, final Number scalingFactor,
+      final boolean convertNullsToZero, final int rangeColumnIndex, final int seriesColumnIdx,
+      final int domainColumnIdx, final ChartModel chartModel, final IChartLinkGenerator contentLinkGenerator,
+      final int width, final int height, final OutputTypes outputType ) throws NoChartDataException,
+    ChartDataOverflowException, ChartProcessingException, PersistenceException {
+    ChartFingerprint fingerprint =
+        new ChartFingerprint( ChartSerializer.serialize( chartModel, ChartSerializationFormat.JSON ), queryResults,
+            new Object[] { scalingFactor, convertNullsToZero, rangeColumnIndex, seriesColumnIdx, domainColumnIdx,
+              width, height, outputType } );
+    byte[] image = renderShared( fingerprint, new Callable<byte[]>() {
+      public byte[] call() throws Exception {
+        IChartDataModel chartDataModel =
+            ChartBeanFactory.createChartDataModel( queryResults, scalingFactor, convertNullsToZero, rangeColumnIndex,
+                seriesColumnIdx, domainColumnIdx, chartModel );
+        return persist( ChartBeanFactory.createChart( chartModel, chartDataModel, contentLinkGenerator ), outputType,
+            width, height );
+      }
+    } );
+    return new ByteArrayInputStream( image );
+  }
+
+  /**
+   * Coalescing version of the plugin render path, for callers that already have a data model. Data models have no
+   * content based equality, so the caller supplies a fingerprint of the data, for example the query and its
+   * parameters.
+   *
+   * @throws IllegalArgumentException if <code>dataFingerprint</code> is <code>null</code>, since requests for
+   *                                  different data would then share one image
+   */
+  public InputStream createChart( final ChartModel chartModel, final IChartDataModel chartDataModel,
+      Object dataFingerprint, final IChartLinkGenerator contentLinkGenerator, final int width, final int height,
+      final OutputTypes outputType ) throws ChartProcessingException, PersistenceException {
+    if ( dataFingerprint == null ) {
+      throw new IllegalArgumentException( "A data fingerprint is required" ); //$NON-NLS-1$
+    }
+    ChartFingerprint fingerprint =
+        new ChartFingerprint( ChartSerializer.serialize( chartModel, ChartSerializationFormat.JSON ), null,
+            new Object[] { dataFingerprint, width, height, outputType } );
+    byte[] image = renderShared( fingerprint, new Callable<byte[]>() {
+      public byte[] call() throws Exception {
+        return persist( ChartBeanFactory.createChart( chartModel, chartDataModel, contentLinkGenerator ), outputType,
+            width, height );
+      }
+    } );
+    return new ByteArrayInputStream( image );
+  }
+
+  /**
+   * Returns the encoded image for the fingerprint, rendering it with <code>render</code> unless a render of the same
+   * fingerprint is already in flight. Exceptions thrown by the render are rethrown unchanged to every caller. Each
+   * caller receives its own copy of the image, so changing it does not affect the other callers.
+   */
+  public byte[] render( Object fingerprint, Callable<byte[]> render ) throws NoChartDataException,
+    ChartDataOverflowException, ChartProcessingException, PersistenceException {
+    return renderShared( fingerprint, render ).clone();
+  }
+
+  /**
+   * Returns the image shared by every caller of the render. It must not be changed; the streams returned by
+   * <code>createChart</code> only read it.
+   */
+  private byte[] renderShared( Object fingerprint, Callable<byte[]> render ) throws NoChartDataException,
+    ChartDataOverflowException, ChartProcessingException, PersistenceException {
+    requestCount.incrementAndGet();
+    CompletableFuture<byte[]> flight = new CompletableFuture<byte[]>();
+    CompletableFuture<byte[]> existing = inFlight.putIfAbsent( fingerprint, flight );
+    if ( existing != null ) {
+      coalescedCount.incrementAndGet();
+      return await( existing );
+    }
+
+    renderCount.incrementAndGet();
+    try {
+      flight.complete( render.call() );
+    } catch ( Throwable t ) {
+      failureCount.incrementAndGet();
+      flight.completeExceptionally( t );
+    } finally {
+      inFlight.remove( fingerprint, flight );
+    }
+    return await( flight );
+  }
+
+  /**
+   * Returns the number of requests received.
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Returns the number of renders actually performed.
+   */
+  public long getRenderCount() {
+    return renderCount.get();
+  }
+
+  /**
+   * Returns the number of requests that were served by another request's render.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * Returns the number of renders that failed.
+   */
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  /**
+   * Returns the number of renders currently in flight.
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private static byte[] persist( IOutput output, OutputTypes outputType, int width, int height )
+    throws PersistenceException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    output.persistChart( outputStream, outputType, width, height );
+    return outputStream.toByteArray();
+  }
+
+  private static byte[] await( CompletableFuture<byte[]> flight ) throws NoChartDataException,
+    ChartDataOverflowException, ChartProcessingException, PersistenceException {
+    boolean interrupted = false;
+    try {
+      while ( true ) {
+        try {
+          return flight.get();
+        } catch ( InterruptedException e ) {
+          // The render belongs to another request; keep waiting for it.
+          interrupted = true;
+        } catch ( ExecutionException e ) {
+          Throwable cause = e.getCause();
+          if ( cause instanceof ChartProcessingException ) {
+            throw (ChartProcessingException) cause;
+          } else if ( cause instanceof PersistenceException ) {
+            throw (PersistenceException) cause;
+          } else if ( cause instanceof RuntimeException ) {
+            throw (RuntimeException) cause;
+          } else if ( cause instanceof Error ) {
+            throw (Error) cause;
+          }
+          throw new ChartProcessingException( cause );
+        }
+      }
+    } finally {
+      if ( interrupted ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Compares charts by their serialized model, their query results and their other options. The hash code is computed
+   * once, since the query results can be large.
+   */
+  private static final class ChartFingerprint {
+    private final String chartDefinition;
+    private final Object[][] queryResults;
+    private final Object[] options;
+    private final int hashCode;
+
+    ChartFingerprint( String chartDefinition, Object[][] queryResults, Object[] options ) {
+      this.chartDefinition = chartDefinition;
+      this.queryResults = queryResults;
+      this.options = options;
+      int hash = ( chartDefinition == null ) ? 0 : chartDefinition.hashCode();
+      hash = 31 * hash + Arrays.deepHashCode( queryResults );
+      hashCode = 31 * hash + Arrays.hashCode( options );
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+
+    public boolean equals( Object obj ) {
+      if ( this == obj ) {
+        return true;
+      }
+      if ( !( obj instanceof ChartFingerprint ) ) {
+        return false;
+      }
+      ChartFingerprint other = (ChartFingerprint) obj;
+      return ( hashCode == other.hashCode )
+          && ( ( chartDefinition == null ) ? other.chartDefinition == null : chartDefinition
+              .equals( other.chartDefinition ) ) && Arrays.equals( options, other.options )
+          && Arrays.deepEquals( queryResults, other.queryResults );
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import org.pentaho.chart.core.ChartElement;
+import org.pentaho.chart.css.StyleRuleIndex;
+import org.pentaho.reporting.libraries.css.dom.DocumentContext;
+import org.pentaho.reporting.libraries.css.dom.LayoutElement;
+import org.pentaho.reporting.libraries.css.dom.LayoutStyle;
+import org.pentaho.reporting.libraries.css.model.StyleKey;
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.pentaho.reporting.libraries.css.namespace.NamespaceCollection;
+import org.pentaho.reporting.libraries.css.namespace.NamespaceDefinition;
+import org.pentaho.reporting.libraries.css.resolver.impl.DefaultStyleResolver;
+import org.pentaho.reporting.libraries.css.values.CSSValue;
+import org.pentaho.reporting.libraries.resourceloader.ResourceException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+import org.pentaho.reporting.libraries.xmlns.LibXmlInfo;
+
+/**
+ * A style resolver for chart documents with many similar elements, such as charts with hundreds of series.
+ * <p/>
+ * The rules of all the style sheets that apply to the document are indexed by their selector. If the index shows that
+ * every rule that can match an element only tests the element's name, id and classes, the element's resolved style
+ * only depends on those, its style attributes and its parent's resolved style. Such an element is only matched
+ * against its candidate rules from the index, and its classes only count through the candidate rules they satisfy,
+ * so classes that no rule tests do not set elements apart. Elements that have the same <em>signature</em> share the
+ * style computed for the first of them, which is then copied instead of matching every rule against each element
+ * again. All other elements are resolved the usual way.
+ * <p/>
+ * The cascade itself is done by {@link DefaultStyleResolver}, once for each distinct signature. Rules with
+ * pseudo-class or attribute conditions or with combinators are not simple, and the elements they can match are never
+ * shared.
+ */
+public class ChartStyleResolver extends DefaultStyleResolver {
+
+  private StyleRuleIndex ruleIndex;
+  private NamespaceCollection namespaces;
+  private StyleKey[] keys;
+  private final HashMap<StyleSignature, SharedStyle> sharedStyles = new HashMap<StyleSignature, SharedStyle>();
+  private final IdentityHashMap<LayoutElement, StyleSignature> signatures = new IdentityHashMap<LayoutElement, StyleSignature>();
+  private int resolvedCount;
+  private int sharedCount;
+
+  public ChartStyleResolver() {
+  }
+
+  public void initialize(final DocumentContext documentContext) {
+    super.initialize(documentContext);
+    this.namespaces = documentContext.getNamespaces();
+    this.keys = documentContext.getStyleKeyRegistry().getKeys();
+    this.ruleIndex = createRuleIndex(documentContext);
+    sharedStyles.clear();
+    signatures.clear();
+  }
+
+  /**
+   * Indexes the default style sheets of the known namespaces and the style sheets referenced by the chart document.
+   */
+  protected StyleRuleIndex createRuleIndex(final DocumentContext documentContext) {
+    final StyleRuleIndex index = new StyleRuleIndex();
+    if (documentContext instanceof ChartDocumentContext == false) {
+      index.setIncomplete();
+      return index;
+    }
+    final ChartDocumentContext chartDocumentContext = (ChartDocumentContext) documentContext;
+    final ResourceManager resourceManager = chartDocumentContext.getResourceManager();
+    final ResourceKey contextKey = chartDocumentContext.getContextKey();
+    try {
+      final String[] namespaceURIs = namespaces.getNamespaces();
+      for (int i = 0; i < namespaceURIs.length; i++) {
+        final ResourceKey styleSheetKey = namespaces.getDefinition(namespaceURIs[i]).getDefaultStyleSheetLocation();
+        if (styleSheetKey != null) {
+          index.addStyleSheet(loadStyleSheet(resourceManager, styleSheetKey, null));
+        }
+      }
+
+      final ChartElement[] styleSheetElements =
+          chartDocumentContext.getChartDocument().getChildElements(ChartElement.TAG_NAME_STYLESHEET);
+      for (int i = 0; i < styleSheetElements.length; i++) {
+        final String hrefText = (String) styleSheetElements[i].getAttribute("href");//$NON-NLS-1$
+        if (hrefText != null) {
+          final ResourceKey styleSheetKey = (contextKey == null) ? resourceManager.createKey(hrefText)
+              : resourceManager.deriveKey(contextKey, hrefText);
+          index.addStyleSheet(loadStyleSheet(resourceManager, styleSheetKey, contextKey));
+        }
+        final String styleSheetText = styleSheetElements[i].getText();
+        if (styleSheetText != null) {
+          final ResourceKey styleSheetKey = resourceManager.createKey(styleSheetText.getBytes("UTF-8")); //$NON-NLS-1$
+          index.addStyleSheet(loadStyleSheet(resourceManager, styleSheetKey, contextKey));
+        }
+      }
+    } catch (ResourceException e) {
+      // The rules of the style sheet are unknown, so no element can share its style
+      index.setIncomplete();
+    } catch (UnsupportedEncodingException e) {
+      index.setIncomplete();
+    }
+    return index;
+  }
+
+  private static StyleSheet loadStyleSheet(final ResourceManager resourceManager, final ResourceKey key,
+                                           final ResourceKey contextKey) throws ResourceException {
+    return (StyleSheet) resourceManager.create(key, contextKey, StyleSheet.class).getResource();
+  }
+
+  public void resolveStyle(final LayoutElement element) {
+    resolvedCount++;
+    final StyleSignature signature = createSignature(element);
+    if (signature == null) {
+      super.resolveStyle(element);
+      return;
+    }
+
+    final SharedStyle sharedStyle = sharedStyles.get(signature);
+    if (sharedStyle == null) {
+      super.resolveStyle(element);
+      sharedStyles.put(signature, new SharedStyle(signature, keys, element.getLayoutStyle()));
+      signatures.put(element, signature);
+    } else {
+      sharedStyle.copyTo(keys, element.getLayoutStyle());
+      signatures.put(element, sharedStyle.signature);
+      sharedCount++;
+    }
+  }
+
+  /**
+   * Returns the element's signature, or <code>null</code> if its resolved style can not be shared.
+   */
+  private StyleSignature createSignature(final LayoutElement layoutElement) {
+    if (layoutElement instanceof ChartElement == false) {
+      return null;
+    }
+    final ChartElement element = (ChartElement) layoutElement;
+    final String namespace = element.getNamespace();
+    final NamespaceDefinition definition = (namespace == null) ? null : namespaces.getDefinition(namespace);
+    if (definition == null) {
+      return null;
+    }
+
+    final String tagName = element.getTagName();
+    final String id = element.getId();
+    final String xmlId = (String) element.getAttribute(LibXmlInfo.XML_NAMESPACE, ChartElement.ID_ATTRIBUTE);
+    final String[] classAttributes = definition.getClassAttribute(tagName);
+    final String[] styleAttributes = definition.getStyleAttribute(tagName);
+
+    String classNames = null;
+    for (int i = 0; i < classAttributes.length; i++) {
+      final String value = (String) element.getAttribute(namespace, classAttributes[i]);
+      if (value != null) {
+        classNames = (classNames == null) ? value : classNames + ' ' + value;
+      }
+    }
+    final String[] classes = StyleRuleIndex.splitClassNames(classNames);
+    if (ruleIndex.isSimpleMatch(tagName, id, classes) == false
+        || (xmlId != null && ruleIndex.isSimpleMatch(tagName, xmlId, classes) == false)) {
+      return null;
+    }
+
+    // The name and ids are part of the signature, so only the class conditions of the candidates need to be tested
+    final BitSet matchedRules = new BitSet();
+    addMatchedRules(matchedRules, tagName, id, classes);
+    if (xmlId != null) {
+      addMatchedRules(matchedRules, tagName, xmlId, classes);
+    }
+
+    final String[] values = new String[styleAttributes.length];
+    for (int i = 0; i < styleAttributes.length; i++) {
+      values[i] = (String) element.getAttribute(namespace, styleAttributes[i]);
+    }
+
+    // Children of elements that share a style share the parent's signature
+    final LayoutElement parent = element.getParentLayoutElement();
+    Object parentToken = null;
+    if (parent != null) {
+      parentToken = signatures.get(parent);
+      if (parentToken == null) {
+        parentToken = parent;
+      }
+    }
+    return new StyleSignature(parentToken, namespace, tagName, id, xmlId, matchedRules, values);
+  }
+
+  private void addMatchedRules(final BitSet matchedRules, final String tagName, final String id,
+                               final String[] classes) {
+    for (final StyleRuleIndex.IndexedRule rule : ruleIndex.getCandidateRules(tagName, id, classes)) {
+      if (rule.matchesClasses(classes)) {
+        matchedRules.set(rule.getOrdinal());
+      }
+    }
+  }
+
+  /**
+   * Returns the number of elements resolved by this resolver.
+   */
+  public int getResolvedCount() {
+    return resolvedCount;
+  }
+
+  /**
+   * Returns the number of elements whose style was copied from an element with the same signature.
+   */
+  public int getSharedCount() {
+    return sharedCount;
+  }
+
+  /**
+   * The inputs that determine an element's resolved style when only simple rules can match it: the rules its classes
+   * satisfy and its style attributes, among others. The parent token is the parent's signature or, if the parent's
+   * style is not shared, the parent itself.
+   */
+  private static class StyleSignature {
+    private final Object parentToken;
+    private final String namespace;
+    private final String tagName;
+    private final String id;
+    private final String xmlId;
+    private final BitSet matchedRules;
+    private final String[] values;
+    private final int hashCode;
+
+    StyleSignature(final Object parentToken, final String namespace, final String tagName, final String id,
+                   final String xmlId, final BitSet matchedRules, final String[] values) {
+      this.parentToken = parentToken;
+      this.namespace = namespace;
+      this.tagName = tagName;
+      this.id = id;
+      this.xmlId = xmlId;
+      this.matchedRules = matchedRules;
+      this.values = values;
+
+      int result = (parentToken == null) ? 0 : parentToken.hashCode();
+      result = 31 * result + namespace.hashCode();
+      result = 31 * result + (tagName == null ? 0 : tagName.hashCode());
+      result = 31 * result + (id == null ? 0 : id.hashCode());
+      result = 31 * result + (xmlId == null ? 0 : xmlId.hashCode());
+      result = 31 * result + matchedRules.hashCode();
+      this.hashCode = 31 * result + Arrays.hashCode(values);
+    }
+
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof StyleSignature == false) {
+        return false;
+      }
+      final StyleSignature that = (StyleSignature) o;
+      // Each resolver keeps a single instance of every parent signature, so parents are compared by identity
+      return hashCode == that.hashCode
+          && parentToken == that.parentToken
+          && namespace.equals(that.namespace)
+          && equal(tagName, that.tagName)
+          && equal(id, that.id)
+          && equal(xmlId, that.xmlId)
+          && matchedRules.equals(that.matchedRules)
+          && Arrays.equals(values, that.values);
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+
+    private static boolean equal(final Object a, final Object b) {
+      return (a == null) ? b == null : a.equals(b);
+    }
+  }
+
+  /**
+   * The resolved values of a style, in the order of the style key registry, and the signature of the elements that
+   * share them.
+   */
+  private static class SharedStyle {
+    private final StyleSignature signature;
+    private final CSSValue[] values;
+
+    SharedStyle(final StyleSignature signature, final StyleKey[] keys, final LayoutStyle style) {
+      this.signature = signature;
+      this.values = new CSSValue[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        values[i] = style.getValue(keys[i]);
+      }
+    }
+
+    void copyTo(final StyleKey[] keys, final LayoutStyle style) {
+      for (int i = 0; i < keys.length; i++) {
+        style.setValue(keys[i], values[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,358 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.chart.css.keys.ChartStyleKeys;
+import org.pentaho.chart.data.BasicDataModel;
+import org.pentaho.chart.data.IChartDataModel;
+import org.pentaho.chart.data.MultiSeriesDataModel;
+import org.pentaho.chart.data.NamedValue;
+import org.pentaho.chart.data.NamedValuesDataModel;
+import org.pentaho.chart.data.XYDataModel;
+import org.pentaho.chart.data.XYDataPoint;
+import org.pentaho.chart.model.AreaPlot;
+import org.pentaho.chart.model.BarPlot;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.ChartTitle;
+import org.pentaho.chart.model.DialPlot;
+import org.pentaho.chart.model.LinePlot;
+import org.pentaho.chart.model.PiePlot;
+import org.pentaho.chart.model.Plot;
+import org.pentaho.chart.model.ScatterPlot;
+import org.pentaho.chart.model.DialPlot.DialRange;
+import org.pentaho.chart.model.util.ChartSerializer;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+import org.pentaho.chart.plugin.IChartPlugin;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.jfreechart.JFreeChartPlugin;
+import org.pentaho.reporting.libraries.base.config.Configuration;
+import org.pentaho.reporting.libraries.base.util.ObjectUtilities;
+import org.pentaho.reporting.libraries.css.model.StyleKeyRegistry;
+
+/**
+ * Runs everything the first charts after a start would otherwise pay for: Java2D pipeline set up, font loading, style
+ * key registration, chart document parsing, XStream initialisation in {@link ChartSerializer}, ImageIO plugin discovery
+ * and a synthetic render of every plot type in every output format of each plugin, which also warms up the JIT.
+ * <p/>
+ * {@link ChartBoot} runs it at boot time when <code>org.pentaho.chart.warmup.mode</code> is <code>sync</code> or
+ * <code>background</code>. A step that fails is logged and skipped; warm-up never fails the boot.
+ */
+public class ChartWarmup implements Runnable {
+  private static final Log logger = LogFactory.getLog(ChartWarmup.class);
+
+  public static final String MODE = "org.pentaho.chart.warmup.mode"; //$NON-NLS-1$
+  public static final String PLUGINS = "org.pentaho.chart.warmup.plugins"; //$NON-NLS-1$
+  public static final String FONTS = "org.pentaho.chart.warmup.fonts"; //$NON-NLS-1$
+  public static final String THEME_FACTORY = "org.pentaho.chart.warmup.theme-factory"; //$NON-NLS-1$
+  public static final String ITERATIONS = "org.pentaho.chart.warmup.iterations"; //$NON-NLS-1$
+
+  public static final String MODE_NONE = "none"; //$NON-NLS-1$
+  public static final String MODE_SYNC = "sync"; //$NON-NLS-1$
+  public static final String MODE_BACKGROUND = "background"; //$NON-NLS-1$
+
+  private static final int WIDTH = 400;
+  private static final int HEIGHT = 300;
+  private static final String WARMUP_DOCUMENT = "warmup.xml"; //$NON-NLS-1$
+
+  private final List<String> pluginIds;
+  private final List<String> fontNames;
+  private final String themeFactoryClass;
+  private final int iterations;
+  private volatile long warmupTime = -1;
+  private volatile int failedSteps;
+
+  public ChartWarmup(Configuration config) {
+    this(split(config.getConfigProperty(PLUGINS, JFreeChartPlugin.PLUGIN_ID)),
+        split(config.getConfigProperty(FONTS, "")), //$NON-NLS-1$
+        config.getConfigProperty(THEME_FACTORY),
+        parseInt(config.getConfigProperty(ITERATIONS), 1));
+  }
+
+  /**
+   * @param pluginIds the plugins to render with.
+   * @param fontNames the font families to load, for example those used by the chart styles.
+   * @param themeFactoryClass the {@link IChartThemeFactory} whose themes are loaded, or <code>null</code>.
+   * @param iterations how many times every chart is rendered; more iterations give the JIT more to work with.
+   */
+  public ChartWarmup(List<String> pluginIds, List<String> fontNames, String themeFactoryClass, int iterations) {
+    this.pluginIds = Collections.unmodifiableList(new ArrayList<String>(pluginIds));
+    this.fontNames = Collections.unmodifiableList(new ArrayList<String>(fontNames));
+    this.themeFactoryClass = ((themeFactoryClass != null) && (themeFactoryClass.trim().length() > 0))
+        ? themeFactoryClass.trim() : null;
+    this.iterations = Math.max(1, iterations);
+  }
+
+  public void run() {
+    long start = System.currentTimeMillis();
+    failedSteps = 0;
+    warmUpJava2D();
+    warmUpFonts();
+    warmUpStyles();
+    warmUpImageIO();
+    warmUpSerializer();
+    warmUpThemes();
+    warmUpRenders();
+    warmupTime = System.currentTimeMillis() - start;
+    logger.info("Chart warm-up finished in " + warmupTime + " ms" //$NON-NLS-1$ //$NON-NLS-2$
+        + ((failedSteps > 0) ? ", " + failedSteps + " steps failed" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+
+  /**
+   * Returns how long the last warm-up took in milliseconds, or -1 if it has not finished yet.
+   */
+  public long getWarmupTime() {
+    return warmupTime;
+  }
+
+  /**
+   * Returns the number of steps of the last warm-up that failed.
+   */
+  public int getFailedSteps() {
+    return failedSteps;
+  }
+
+  protected void warmUpJava2D() {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = image.createGraphics();
+    try {
+      g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g2.setPaint(new GradientPaint(0, 0, Color.WHITE, WIDTH, HEIGHT, Color.LIGHT_GRAY));
+      g2.fillRect(0, 0, WIDTH, HEIGHT);
+      g2.setPaint(Color.BLUE);
+      g2.setStroke(new BasicStroke(2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1.0f, new float[] { 4.0f },
+          0.0f));
+      g2.drawLine(0, 0, WIDTH, HEIGHT);
+      g2.fillOval(WIDTH / 4, HEIGHT / 4, WIDTH / 2, HEIGHT / 2);
+    } catch (RuntimeException e) {
+      failed("Java2D", e); //$NON-NLS-1$
+    } finally {
+      g2.dispose();
+    }
+  }
+
+  protected void warmUpFonts() {
+    List<String> names = new ArrayList<String>(fontNames);
+    names.add(Font.SANS_SERIF);
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = image.createGraphics();
+    try {
+      g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      for (String name : names) {
+        for (int style : new int[] { Font.PLAIN, Font.BOLD, Font.ITALIC }) {
+          Font font = new Font(name, style, 12);
+          if (!font.getFamily().equalsIgnoreCase(name) && !font.getName().equalsIgnoreCase(name)) {
+            logger.warn("Font " + name + " is not installed, using " + font.getFamily()); //$NON-NLS-1$ //$NON-NLS-2$
+            break;
+          }
+          g2.setFont(font);
+          g2.drawString("0123456789 ABCDEFGHIJKLMNOPQRSTUVWXYZ abcdefghijklmnopqrstuvwxyz .,-%$", 0, HEIGHT / 2); //$NON-NLS-1$
+          g2.getFontMetrics().getStringBounds("0.0", g2); //$NON-NLS-1$
+        }
+      }
+    } catch (RuntimeException e) {
+      failed("fonts", e); //$NON-NLS-1$
+    } finally {
+      g2.dispose();
+    }
+  }
+
+  /**
+   * Registers the chart style keys and parses and styles a small chart document, which sets up the libcss style system
+   * and the chart parser.
+   */
+  protected void warmUpStyles() {
+    try {
+      ChartStyleKeys.CHART_TYPE.getName();
+      StyleKeyRegistry.getRegistry().getKeys();
+      URL warmupDocument = ChartWarmup.class.getResource(WARMUP_DOCUMENT);
+      if (warmupDocument != null) {
+        ChartFactory.getChartDocument(warmupDocument, true);
+      }
+    } catch (Exception e) {
+      failed("styles", e); //$NON-NLS-1$
+    }
+  }
+
+  protected void warmUpImageIO() {
+    try {
+      ImageIO.getImageWritersByFormatName("png").hasNext(); //$NON-NLS-1$
+      ImageIO.getImageWritersByFormatName("jpeg").hasNext(); //$NON-NLS-1$
+    } catch (RuntimeException e) {
+      failed("ImageIO", e); //$NON-NLS-1$
+    }
+  }
+
+  protected void warmUpSerializer() {
+    try {
+      for (Plot plot : createPlots()) {
+        ChartModel chartModel = createChartModel(plot, JFreeChartPlugin.PLUGIN_ID);
+        for (ChartSerializationFormat format : ChartSerializationFormat.values()) {
+          ChartSerializer.deSerialize(ChartSerializer.serialize(chartModel, format), format);
+        }
+      }
+    } catch (RuntimeException e) {
+      failed("serializer", e); //$NON-NLS-1$
+    }
+  }
+
+  protected void warmUpThemes() {
+    if (themeFactoryClass == null) {
+      return;
+    }
+    try {
+      IChartThemeFactory themeFactory = (IChartThemeFactory)
+          ObjectUtilities.loadAndInstantiate(themeFactoryClass, ChartWarmup.class, IChartThemeFactory.class);
+      if (themeFactory == null) {
+        logger.warn("Unable to instantiate the chart theme factory " + themeFactoryClass); //$NON-NLS-1$
+        failedSteps++;
+      } else {
+        themeFactory.getThemes();
+      }
+    } catch (RuntimeException e) {
+      failed("themes", e); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Renders every plot type with every plugin and encodes it in every output format the plugin supports.
+   */
+  protected void warmUpRenders() {
+    for (String pluginId : pluginIds) {
+      IChartPlugin plugin = ChartBeanFactory.getPlugin(pluginId);
+      if (plugin == null) {
+        logger.warn("Unknown chart plugin " + pluginId + ", not warmed up"); //$NON-NLS-1$ //$NON-NLS-2$
+        failedSteps++;
+        continue;
+      }
+      for (int i = 0; i < iterations; i++) {
+        for (Plot plot : createPlots()) {
+          String step = pluginId + " " + plot.getClass().getSimpleName(); //$NON-NLS-1$
+          try {
+            IOutput output = plugin.renderChartDocument(createChartModel(plot, pluginId), createDataModel(plot), null);
+            if (output == null) {
+              continue;
+            }
+            for (IOutput.OutputTypes outputType : plugin.getSupportedOutputs()) {
+              output.persistChart(new ByteArrayOutputStream(), outputType, WIDTH, HEIGHT);
+            }
+          } catch (Exception e) {
+            failed(step, e);
+          }
+        }
+      }
+    }
+  }
+
+  private void failed(String step, Throwable t) {
+    failedSteps++;
+    logger.warn("Chart warm-up step " + step + " failed", t); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static List<Plot> createPlots() {
+    List<Plot> plots = new ArrayList<Plot>();
+    for (BarPlot.BarPlotFlavor flavor : BarPlot.BarPlotFlavor.values()) {
+      plots.add(new BarPlot(flavor));
+    }
+    for (LinePlot.LinePlotFlavor flavor : LinePlot.LinePlotFlavor.values()) {
+      plots.add(new LinePlot(flavor));
+    }
+    plots.add(new AreaPlot());
+    plots.add(new PiePlot());
+    DialPlot dialPlot = new DialPlot();
+    dialPlot.getScale().addRange(new DialRange(0, 50, 0x00FF00));
+    dialPlot.getScale().addRange(new DialRange(50, 100, 0xFF0000));
+    plots.add(dialPlot);
+    plots.add(new ScatterPlot());
+    return plots;
+  }
+
+  private static ChartModel createChartModel(Plot plot, String pluginId) {
+    ChartModel chartModel = new ChartModel();
+    chartModel.setChartEngineId(pluginId);
+    ChartTitle title = new ChartTitle();
+    title.setText("Warm-up"); //$NON-NLS-1$
+    chartModel.setTitle(title);
+    chartModel.setPlot(plot);
+    return chartModel;
+  }
+
+  private static IChartDataModel createDataModel(Plot plot) {
+    if (plot instanceof PiePlot) {
+      NamedValuesDataModel dataModel = new NamedValuesDataModel();
+      for (int i = 0; i < 5; i++) {
+        dataModel.add(new NamedValue("Slice " + i, i + 1)); //$NON-NLS-1$
+      }
+      return dataModel;
+    } else if (plot instanceof DialPlot) {
+      BasicDataModel dataModel = new BasicDataModel();
+      dataModel.addDataPoint(42);
+      return dataModel;
+    } else if (plot instanceof ScatterPlot) {
+      XYDataModel dataModel = new XYDataModel();
+      for (int i = 0; i < 100; i++) {
+        dataModel.add(new XYDataPoint(i, Math.sin(i / 10.0) * 50));
+      }
+      return dataModel;
+    }
+    MultiSeriesDataModel dataModel = new MultiSeriesDataModel();
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 3; j++) {
+        dataModel.addValue("Category " + i, "Series " + j, (i + 1) * (j + 1)); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return dataModel;
+  }
+
+  private static List<String> split(String value) {
+    List<String> values = new ArrayList<String>();
+    if (value != null) {
+      for (String s : value.split(",")) { //$NON-NLS-1$
+        if (s.trim().length() > 0) {
+          values.add(s.trim());
+        }
+      }
+    }
+    return values;
+  }
+
+  private static int parseInt(String value, int defaultValue) {
+    try {
+      return (value == null) ? defaultValue : Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.pentaho.chart.model.Theme;
+
+/**
+ * The part of a theme file that charts use, its series colors, in an immutable form. Compiled themes can be written
+ * to and read from a compact binary form so that themes can be compiled when the application is built.
+ */
+public final class CompiledTheme {
+
+  private static final int MAGIC = 0x43544845; // "CTHE"
+  private static final int VERSION = 2;
+
+  private final String id;
+  private final int[] colors;
+  private final long lastModified;
+  private final long contentHash;
+
+  /**
+   * @param colors the series colors as RGB values.
+   * @param lastModified the modification time of the theme file the colors were read from.
+   * @param contentHash the {@link #contentHash(File) content hash} of the theme file the colors were read from.
+   */
+  public CompiledTheme(String id, int[] colors, long lastModified, long contentHash) {
+    this.id = id;
+    this.colors = colors.clone();
+    this.lastModified = lastModified;
+    this.contentHash = contentHash;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getColorCount() {
+    return colors.length;
+  }
+
+  public int getColor(int index) {
+    return colors[index];
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public long getContentHash() {
+    return contentHash;
+  }
+
+  CompiledTheme withId(String newId) {
+    return new CompiledTheme(newId, colors, lastModified, contentHash);
+  }
+
+  CompiledTheme withFile(String newId, long newLastModified) {
+    return new CompiledTheme(newId, colors, newLastModified, contentHash);
+  }
+
+  /**
+   * Returns a checksum of the file's contents, which identifies a theme file independently of where it was copied to
+   * and when.
+   */
+  public static long contentHash(File file) throws IOException {
+    CRC32 crc = new CRC32();
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        crc.update(buffer, 0, count);
+      }
+    } finally {
+      inputStream.close();
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Returns a new {@link Theme} with these colors. A new one is returned each time since themes are mutable.
+   */
+  public Theme toTheme() {
+    Theme theme = new Theme();
+    theme.setId(id);
+    for (int color : colors) {
+      theme.getColors().add(color);
+    }
+    return theme;
+  }
+
+  public static void write(Collection<CompiledTheme> themes, OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(themes.size());
+    for (CompiledTheme theme : themes) {
+      out.writeUTF(theme.id);
+      out.writeLong(theme.lastModified);
+      out.writeLong(theme.contentHash);
+      out.writeInt(theme.colors.length);
+      for (int color : theme.colors) {
+        out.writeInt(color);
+      }
+    }
+    out.flush();
+  }
+
+  public static List<CompiledTheme> read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a compiled theme file"); //$NON-NLS-1$
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported compiled theme version " + version); //$NON-NLS-1$
+    }
+    int count = in.readInt();
+    List<CompiledTheme> themes = new ArrayList<CompiledTheme>(count);
+    for (int i = 0; i < count; i++) {
+      String id = in.readUTF();
+      long lastModified = in.readLong();
+      long contentHash = in.readLong();
+      int[] colors = new int[in.readInt()];
+      for (int j = 0; j < colors.length; j++) {
+        colors[j] = in.readInt();
+      }
+      themes.add(new CompiledTheme(id, colors, lastModified, contentHash));
+    }
+    return themes;
+  }
+}
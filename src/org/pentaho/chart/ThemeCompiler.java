@@ -0,0 +1,58 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles theme files into one binary resource at build time, for use with
+ * {@link AbstractChartThemeFactory#getPrecompiledThemes()}.
+ * <p/>
+ * Usage: <code>ThemeCompiler &lt;output file&gt; &lt;theme file&gt;...</code>
+ */
+public class ThemeCompiler {
+
+  private ThemeCompiler() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: ThemeCompiler <output file> <theme file>..."); //$NON-NLS-1$
+      System.exit(1);
+    }
+    List<CompiledTheme> themes = new ArrayList<CompiledTheme>();
+    for (int i = 1; i < args.length; i++) {
+      File themeFile = new File(args[i]);
+      CompiledTheme theme = AbstractChartThemeFactory.compileTheme(themeFile);
+      // Precompiled themes are matched to theme files by name.
+      themes.add(theme.withId(themeFile.getName()));
+    }
+    OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(args[0]));
+    try {
+      CompiledTheme.write(themes, outputStream);
+    } finally {
+      outputStream.close();
+    }
+    System.out.println("Compiled " + themes.size() + " themes into " + args[0]); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+}
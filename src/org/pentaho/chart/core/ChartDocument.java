@@ -18,23 +18,31 @@
 package org.pentaho.chart.core;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
 import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
 import org.pentaho.chart.css.keys.ChartStyleKeys;
+import org.pentaho.util.collections.HeirarchicalLinkedListItem;
 import org.pentaho.reporting.libraries.base.util.StringUtils;
+import org.pentaho.reporting.libraries.css.resolver.StyleResolver;
 import org.pentaho.reporting.libraries.css.values.CSSValue;
 
 /**
  * This is the object that contains the root element of the parsed chart defintion
+ * <p/>
+ * A chart document is not thread safe while it is being built. Once it has been {@link #freeze() frozen} it can no
+ * longer be modified, and it can be shared by any number of threads rendering charts from it.
  */
 public class ChartDocument {
 
   /**
    * The top-most element in the parsed chart definition
    */
-  private ChartElement rootElement;
+  private final ChartElement rootElement;
 
   /**
    * The ResourceManager used to load the resources of the chart
@@ -47,47 +55,53 @@ public class ChartDocument {
    */
   private ResourceKey resourceKey;
   
-    /**
-   * Cache of the series elements
-   */
-  private ChartElement[] cachedSeriesElements = null;
-
-  /**
-   * Modification number when the series elements cache was created (used to invalidate the cache)
-   */
-  private long cachedSeriesElementModNumber = 0L;
-
   /**
-   * Cache of the group elements
+   * Empty result of the child element lookups
    */
-  private ChartElement[] cachedGroupElements = null;
+  private static final ChartElement[] NO_ELEMENTS = new ChartElement[0];
 
   /**
-   * Modification number when the group elements cache was created (used to invalidate the cache)
+   * The child elements of a parent element, grouped by tag name
    */
-  private long cachedGroupElementModNumber = 0L;
-
-  /**
-   * The cached version of the plot element
-   */
-  private ChartElement cachedPlotElement = null;
+  private static final class ChildIndex {
+    /**
+     * Modification number of the parent when the index was built (used to invalidate the index)
+     */
+    private final long modNumber;
 
-  /**
-   * Modification number of when the plot element was cached (used to invalidate the cache)
-   */
-  private long cachedPlotElementModNumber = 0L;
+    /**
+     * The children of the parent by tag name, in document order
+     */
+    private final HashMap<String, ChartElement[]> children;
+
+    private ChildIndex(final ChartElement parent) {
+      modNumber = parent.getModNumber();
+      final HashMap<String, ArrayList<ChartElement>> lists = new HashMap<String, ArrayList<ChartElement>>();
+      for (ChartElement child = parent.getFirstChildItem(); child != null; child = child.getNextItem()) {
+        ArrayList<ChartElement> list = lists.get(child.getTagName());
+        if (list == null) {
+          list = new ArrayList<ChartElement>(4);
+          lists.put(child.getTagName(), list);
+        }
+        list.add(child);
+      }
+      children = new HashMap<String, ChartElement[]>(lists.size() * 2);
+      for (final Map.Entry<String, ArrayList<ChartElement>> entry : lists.entrySet()) {
+        children.put(entry.getKey(), entry.getValue().toArray(new ChartElement[entry.getValue().size()]));
+      }
+    }
+  }
 
   /**
-   * The cached version of the plot element
+   * The child indexes of the elements whose children have been looked up
    */
-  private ChartElement[] cachedAxisElements = null;
+  private final IdentityHashMap<ChartElement, ChildIndex> childIndexes = new IdentityHashMap<ChartElement, ChildIndex>();
 
   /**
-   * Modification number of when the plot element was cached (used to invalidate the cache)
+   * Modification number of the root element when the child indexes were last pruned of removed elements
    */
-  private long cachedAxisElementModNumber = 0L;
+  private long prunedModNumber;
 
-  
   /**
    * Is true if we have processed the axis elements and retrieved pertinent information.
    * This is so that we can use the cache instead of processing the axis elements every time.
@@ -99,6 +113,12 @@ public class ChartDocument {
    */
   private AxisSeriesLinkInfo axisSeriesLinkInfo;
 
+  /**
+   * Is true once the document has been frozen. Everything cached by the document is computed before this is set,
+   * so a thread that reads <code>true</code> here also sees the complete cached state.
+   */
+  private volatile boolean frozen = false;
+
   /**
    * Constructor that creats the chart document.
    *
@@ -136,6 +156,7 @@ public class ChartDocument {
    * Sets the resource manager for this chart document
    */
   public void setResourceManager(final ResourceManager resourceManager) {
+    checkModifiable();
     this.resourceManager = resourceManager;
   }
 
@@ -143,6 +164,7 @@ public class ChartDocument {
    * Sets the resource key for this chart document
    */
   public void setResourceKey(final ResourceKey resourceKey) {
+    checkModifiable();
     this.resourceKey = resourceKey;
   }
 
@@ -224,12 +246,7 @@ public class ChartDocument {
    * the list will be empty.
    */
   public ChartElement[] getSeriesChartElements() {
-    final long currentModNumber = getModNumber();
-    if (cachedSeriesElementModNumber != currentModNumber) {
-      cachedSeriesElements = getChartLevelElements(ChartElement.TAG_NAME_SERIES);
-      cachedSeriesElementModNumber = currentModNumber;
-  }
-    return cachedSeriesElements;
+    return getChildElements(ChartElement.TAG_NAME_SERIES);
   }
 
   /**
@@ -239,12 +256,7 @@ public class ChartDocument {
    *         the list will be empty.
    */
   public ChartElement[] getGroupChartElements() {
-    final long currentModNumber = getModNumber();
-    if (cachedGroupElementModNumber != currentModNumber) {
-      cachedGroupElements = getChartLevelElements(ChartElement.TAG_NAME_GROUP);
-      cachedGroupElementModNumber = currentModNumber;
-    }
-    return cachedGroupElements;
+    return getChildElements(ChartElement.TAG_NAME_GROUP);
   }
 
   /**
@@ -253,12 +265,7 @@ public class ChartDocument {
    * @return ChartElement Returns the plot element for the given chart document.
    */
   public ChartElement getPlotElement() {
-    final long currentModNumber = getModNumber();
-    if (cachedPlotElementModNumber != currentModNumber) {
-      cachedPlotElement = getChartLevelElement(ChartElement.TAG_NAME_PLOT);
-      cachedPlotElementModNumber = currentModNumber;
-    }
-    return cachedPlotElement;
+    return getChartLevelElement(ChartElement.TAG_NAME_PLOT);
   }
 
   /**
@@ -267,12 +274,7 @@ public class ChartDocument {
    * @return ChartElement Returns the axis element for the given chart document.
    */
   public ChartElement[] getAxisElements() {
-    final long currentModNumber = getModNumber();
-    if (cachedAxisElementModNumber != currentModNumber) {
-      cachedAxisElements = getChartLevelElements(ChartElement.TAG_NAME_AXIS);
-      cachedAxisElementModNumber = currentModNumber;
-    }
-    return cachedAxisElements;
+    return getChildElements(ChartElement.TAG_NAME_AXIS);
   }
 
   /**
@@ -300,35 +302,82 @@ public class ChartDocument {
     ChartElement returnValue = null;
 
     if (rootElement != null && ChartElement.TAG_NAME_CHART.equals(rootElement.getTagName())) {
-      ChartElement element = rootElement.getFirstChildItem();
-
-      while (element != null) {
-        if (tagName.equals(element.getTagName())) {
-          returnValue = element;
-          break;
-        }
-        element = element.getNextItem();
+      final ChartElement[] elements = getChildElements(tagName);
+      if (elements.length > 0) {
+        returnValue = elements[0];
       }
     }
     return returnValue;
   }
 
   /**
-   * Creats a list of chart elements with the specified tag name that are child elements of the root level (chart) element
-   * @param tagname the tagname used in selecting elements
+   * Returns the child elements of the root level (chart) element with the specified tag name, in document order.
+   *
+   * @see #getChildElements(ChartElement, String)
+   */
+  public ChartElement[] getChildElements(final String tagName) {
+    return getChildElements(rootElement, tagName);
+  }
+
+  /**
+   * Returns the child elements of the parent element with the specified tag name, in document order. This gives the
+   * same elements as <code>parent.findChildrenByName(tagName)</code>, but the children are indexed by tag name the
+   * first time they are looked up, and the index is only rebuilt once the parent or anything below it is modified.
+   * <p/>
+   * The returned array is shared by all callers and must not be modified.
+   *
+   * @param parent  the element whose children are looked up; it should belong to this document
+   * @param tagName the tag name to match
+   * @return the matching elements; an empty array if there are none
+   */
+  public ChartElement[] getChildElements(final ChartElement parent, final String tagName) {
+    if (parent == null || tagName == null) {
+      return NO_ELEMENTS;
+    }
+    ChildIndex index;
+    if (frozen) {
+      // The index of every element in the document was built when it was frozen
+      index = childIndexes.get(parent);
+      if (index == null) {
+        index = new ChildIndex(parent);
+      }
+    } else {
+      if (prunedModNumber != rootElement.getModNumber()) {
+        pruneChildIndexes();
+      }
+      index = childIndexes.get(parent);
+      if (index == null || index.modNumber != parent.getModNumber()) {
+        index = new ChildIndex(parent);
+        childIndexes.put(parent, index);
+      }
+    }
+    final ChartElement[] elements = index.children.get(tagName);
+    return elements == null ? NO_ELEMENTS : elements;
+  }
+
+  /**
+   * Returns the number of elements whose children are currently indexed.
    */
-  private ChartElement[] getChartLevelElements(final String tagname) {
-    final List<ChartElement> elements = new ArrayList<ChartElement>();
-    ChartElement element = rootElement.getFirstChildItem();
-    while (element != null) {
-      if (tagname.equals(element.getTagName())) {
-        elements.add(element);
+  int getChildIndexCount() {
+    return childIndexes.size();
+  }
+
+  /**
+   * Drops the child indexes of elements that are no longer part of this document. Removing an element marks its old
+   * ancestors as modified, so this only has to run after the root element has been modified.
+   */
+  private void pruneChildIndexes() {
+    for (final Iterator<ChartElement> iterator = childIndexes.keySet().iterator(); iterator.hasNext(); ) {
+      HeirarchicalLinkedListItem item = iterator.next();
+      while (item.getParentItem() != null) {
+        item = item.getParentItem();
+      }
+      if (item != rootElement) {
+        iterator.remove();
       }
-      element = element.getNextItem();
     }
-    return elements.toArray(new ChartElement[elements.size()]);
+    prunedModNumber = rootElement.getModNumber();
   }
-  
 
   /**
    * Get all the axis elements from the chart document and store it in a multi key HashMap
@@ -351,7 +400,7 @@ public class ChartDocument {
             If the element is a series element then store the series element in the array for the given axis id.
             If the element is an axis element then create a new hash map entry for the given axis id. 
      */
-    if (!processedAxisElements) {
+    if (!frozen && !processedAxisElements) {
       axisSeriesLinkInfo = new AxisSeriesLinkInfo();
 
       ChartElement element = rootElement.getFirstChildItem();
@@ -377,4 +426,72 @@ public class ChartDocument {
     }
     return axisSeriesLinkInfo;
   }
+
+  /**
+   * Makes the document resolve the style of each element the first time its layout style is used, instead of the
+   * styles of all elements being resolved up front. Only the element and its ancestors are resolved then. Elements
+   * whose styles have already been resolved are left as they are.
+   *
+   * @param styleResolver the initialized style resolver used for all the elements of this document
+   * @throws IllegalStateException indicates the chart document has been frozen
+   */
+  public void setDeferredStyleResolver(final StyleResolver styleResolver) {
+    checkModifiable();
+    rootElement.setDeferredStyleResolution(new DeferredStyleResolution(styleResolver));
+  }
+
+  /**
+   * Returns the number of elements whose styles have been resolved on demand so far.
+   *
+   * @see #setDeferredStyleResolver(StyleResolver)
+   */
+  public int getResolvedStyleCount() {
+    final DeferredStyleResolution resolution = rootElement.getDeferredStyleResolution();
+    return (resolution == null) ? 0 : resolution.getResolvedCount();
+  }
+
+  /**
+   * Indicates if the chart document has been frozen.
+   *
+   * @see #freeze()
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Freezes the chart document. All the lookups cached by the document (the child element indexes and the axis series
+   * link information) are computed, and then the element tree is frozen: any later change to the elements, their
+   * attributes or this document fails with an <code>IllegalStateException</code>.
+   * <p/>
+   * A frozen document never changes its state again, so once it has been frozen it may be published to any number
+   * of threads without locking. The only exception are styles resolved on demand, which are resolved under a lock of
+   * their own. Freezing does not validate the document or resolve its styles; use
+   * <code>ChartFactory.freezeChartDocument()</code> to prepare a document for sharing. Freezing can not be undone.
+   */
+  public synchronized void freeze() {
+    if (frozen) {
+      return;
+    }
+    rootElement.freeze();
+    processedAxisElements = false;
+    getAxisSeriesLinkInfo();
+    // Index every element, dropping the indexes of elements that have been removed from the document
+    childIndexes.clear();
+    for (ChartElement element = rootElement; element != null; element = element.getNextDepthFirstItem()) {
+      childIndexes.put(element, new ChildIndex(element));
+    }
+    frozen = true;
+  }
+
+  /**
+   * Makes sure the chart document can be modified.
+   *
+   * @throws IllegalStateException indicates the chart document has been frozen
+   */
+  private void checkModifiable() throws IllegalStateException {
+    if (frozen) {
+      throw new IllegalStateException("Chart document is frozen and can not be modified"); //$NON-NLS-1$
+    }
+  }
 }
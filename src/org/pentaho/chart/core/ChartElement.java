@@ -18,6 +18,7 @@
 package org.pentaho.chart.core;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 
@@ -176,6 +177,17 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
    */
   private final DefaultLayoutStyle layoutStyle;
 
+  /**
+   * Is true once the layout style has been resolved on demand
+   */
+  private volatile boolean deferredStyleResolved;
+
+  /**
+   * Resolves the styles of the elements on demand, or <code>null</code> if they are resolved up front. Only set on
+   * the root element of a document.
+   */
+  private volatile DeferredStyleResolution deferredStyleResolution;
+
   /**
    * Constant used when generating the deep <code>toString</code> representation
    */
@@ -220,6 +232,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
   /**
    */
   public void setNamespace(final String id) {
+    checkModifiable();
     setAttribute(ChartElement.NAMESPACE, ChartElement.NAMESPACE_ATTRIBUTE, id);
 
     // Mark this item as modified
@@ -237,6 +250,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
    * Sets the id for this chart elements
    */
   public void setId(final String id) {
+    checkModifiable();
     setAttribute(LibXmlInfo.XML_NAMESPACE, ChartElement.ID_ATTRIBUTE, id);
 
     // Mark this item as modified
@@ -254,6 +268,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
    * Sets the tagname for this element.
    */
   public void setTagName(final String tagName) {
+    checkModifiable();
     if (StringUtils.isEmpty(tagName)) {
       throw new NullPointerException();
     }
@@ -272,6 +287,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
    * @param name the name of this element
    */
   public void setName(final String name) {
+    checkModifiable();
     setAttribute(LibXmlInfo.XML_NAMESPACE, ChartElement.NAME_ATTRIBUTE, name);
 
     // Mark this item as modified
@@ -304,6 +320,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
    * @param value
    */
   public void setAttribute(final String namespace, final String name, final Object value) {
+    checkModifiable();
     if (StringUtils.isEmpty(name)) {
       throw new NullPointerException();
     }
@@ -338,13 +355,17 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
 
   /**
    * @param namespace
-   * @return
+   * @return the attributes in the namespace; read-only once the element is frozen
    */
   public Map getAttributes(final String namespace) {
     if (this.attributes == null) {
       return Empty.MAP;
     }
-    return this.attributes.getAttributes(namespace);
+    final Map namespaceAttributes = this.attributes.getAttributes(namespace);
+    if (namespaceAttributes != null && isFrozen()) {
+      return Collections.unmodifiableMap(namespaceAttributes);
+    }
+    return namespaceAttributes;
   }
 
   /**
@@ -384,10 +405,40 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
     return Locale.getDefault();
   }
 
+  /**
+   * Returns the layout style of this element. If the document resolves its styles on demand, the styles of this
+   * element and of its ancestors are resolved first if that has not been done yet.
+   */
   public LayoutStyle getLayoutStyle() {
+    if (deferredStyleResolved == false) {
+      ChartElement root = this;
+      while (root.getParentItem() != null) {
+        root = root.getParentItem();
+      }
+      final DeferredStyleResolution resolution = root.deferredStyleResolution;
+      if (resolution != null) {
+        resolution.resolve(this);
+      }
+    }
     return layoutStyle;
   }
 
+  boolean isDeferredStyleResolved() {
+    return deferredStyleResolved;
+  }
+
+  void setDeferredStyleResolved() {
+    deferredStyleResolved = true;
+  }
+
+  DeferredStyleResolution getDeferredStyleResolution() {
+    return deferredStyleResolution;
+  }
+
+  void setDeferredStyleResolution(final DeferredStyleResolution deferredStyleResolution) {
+    this.deferredStyleResolution = deferredStyleResolution;
+  }
+
   public String getPseudoElement() {
     return null;
   }
@@ -417,6 +468,7 @@ public class ChartElement extends HeirarchicalLinkedListItem implements Cloneabl
   }
 
   public void setText(final String text) {
+    checkModifiable();
     this.text = text;
 
     // Mark this item as modified
@@ -201,24 +201,19 @@ public class ChartSeriesDataLinkInfoFactory {
                                            final ChartTableModel chartTableModel, final ChartSeriesDataLinkInfo seriesDataLinkInfo) {
     final String columnName = ((String) currentColumnName).trim();
     boolean foundColumn = false;
-    final int dataColumnCount = chartTableModel.getColumnCount();
 
     if (columnName.length() <= 0) {
       ChartSeriesDataLinkInfoFactory.logger.warn(Messages.getString("ChartSeriesDataLinkInfoFactory.WARN_COLUMN_NAME_IS_NULL")); //$NON-NLS-1$
     } else {
-      /* 
+      /*
        * We ignore case when matching the column names in the series tag to the metadata.
-       * We are iterating through the data array and getting the column name for each
-       * column in the data array. If found then we insert the given chart element into the
-       * hashmap with the given column position
+       * The chart table model keeps a case folded index of its column names. If found then
+       * we insert the given chart element into the hashmap with the given column position
        */
-      for (int i = 0; i < dataColumnCount; i++) {
-        final String columnNameFromChartTableModel = chartTableModel.getColumnName(i);
-        if (columnNameFromChartTableModel != null && columnNameFromChartTableModel.equalsIgnoreCase(columnName)) {
-          seriesDataLinkInfo.setColumnNum(currentChartElement, i);
-          foundColumn = true;
-          break;
-        }
+      final int columnNum = chartTableModel.findColumnIgnoreCase(columnName);
+      if (columnNum >= 0) {
+        seriesDataLinkInfo.setColumnNum(currentChartElement, columnNum);
+        foundColumn = true;
       }
     }
     return foundColumn;
@@ -0,0 +1,66 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.core;
+
+import org.pentaho.reporting.libraries.css.resolver.StyleResolver;
+
+/**
+ * Resolves the styles of the elements of a chart document the first time they are used. An element's ancestors are
+ * resolved before the element itself, as its style inherits from theirs. Each element is resolved once.
+ * <p/>
+ * Resolution is serialized on this object, so a document may be shared by several threads once it is frozen. The
+ * style resolver reads the layout styles of the element being resolved and of its ancestors; those nested reads get
+ * the style as it is rather than starting another resolution.
+ */
+final class DeferredStyleResolution {
+
+  private final StyleResolver styleResolver;
+
+  private boolean resolving;
+
+  private int resolvedCount;
+
+  DeferredStyleResolution(final StyleResolver styleResolver) {
+    this.styleResolver = styleResolver;
+  }
+
+  synchronized void resolve(final ChartElement element) {
+    if (resolving || element.isDeferredStyleResolved()) {
+      return;
+    }
+    final ChartElement parent = element.getParentItem();
+    if (parent != null) {
+      resolve(parent);
+    }
+    resolving = true;
+    try {
+      styleResolver.resolveStyle(element);
+    } finally {
+      resolving = false;
+    }
+    resolvedCount++;
+    element.setDeferredStyleResolved();
+  }
+
+  /**
+   * Returns the number of elements whose styles have been resolved.
+   */
+  synchronized int getResolvedCount() {
+    return resolvedCount;
+  }
+}
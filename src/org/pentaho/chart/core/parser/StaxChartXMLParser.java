@@ -0,0 +1,229 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.core.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.pentaho.chart.core.ChartDocument;
+import org.pentaho.chart.core.ChartElement;
+import org.pentaho.reporting.libraries.resourceloader.ResourceCreationException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceData;
+import org.pentaho.reporting.libraries.resourceloader.ResourceException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+
+/**
+ * Parses the chart XML document in a single forward pass with StAX. It builds the same <code>ChartElement</code> tree
+ * as {@link ChartXMLParser}, without going through the libxml read handler chain: no read handler is created per
+ * element, tag and attribute names are pooled, and character data is only collected once an element turns out to
+ * contain something other than whitespace.
+ * <p/>
+ * The document is still loaded through the <code>ResourceManager</code>, and the resulting <code>ChartDocument</code>
+ * carries the manager and the document's <code>ResourceKey</code>, so that stylesheets are resolved exactly as before.
+ * Elements without a namespace get the chart namespace, and attributes without a namespace get the namespace of
+ * their element.
+ */
+public class StaxChartXMLParser {
+  /**
+   * The StAX factory; factories are thread safe once configured.
+   */
+  private static final XMLInputFactory INPUT_FACTORY;
+
+  static {
+    INPUT_FACTORY = XMLInputFactory.newInstance();
+    INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+  }
+
+  /**
+   * The resource manager used to load chart definitions
+   */
+  private final ResourceManager resourceManager;
+
+  /**
+   * Initializes the chart parser by creating a default <code>ResourceManager</code>
+   */
+  public StaxChartXMLParser() {
+    resourceManager = new ResourceManager();
+    resourceManager.registerDefaults();
+  }
+
+  /**
+   * Initializes the chart parser with a <code>ResourceManager</code>
+   *
+   * @param resourceManager the <code>ResourceManager</code> to use while loading a chart definition
+   */
+  public StaxChartXMLParser(final ResourceManager resourceManager) {
+    this.resourceManager = resourceManager;
+  }
+
+  /**
+   * Parses the chart definition file into a <code>ChartDocument</code>.
+   *
+   * @param chartDefinitionURL the location of the chart definition file
+   * @return a <code>ChartDocument</code> that was created from the chart definition
+   * @throws ResourceException indicates an error occurred loading or parsing the chart definition
+   */
+  public ChartDocument parseChartDocument(final URL chartDefinitionURL) throws ResourceException {
+    return parseChartDocument(resourceManager.createKey(chartDefinitionURL));
+  }
+
+  /**
+   * Parses the chart definition identified by the resource key into a <code>ChartDocument</code>.
+   *
+   * @param key the key of the chart definition
+   * @return a <code>ChartDocument</code> that was created from the chart definition
+   * @throws ResourceException indicates an error occurred loading or parsing the chart definition
+   */
+  public ChartDocument parseChartDocument(final ResourceKey key) throws ResourceException {
+    final ResourceData data = resourceManager.load(key);
+    final InputStream in = data.getResourceAsStream(resourceManager);
+    final ChartDocument chart;
+    try {
+      chart = new ChartDocument(parse(in));
+    } catch (XMLStreamException e) {
+      throw new ResourceCreationException("Unable to parse the chart definition " + key, e); //$NON-NLS-1$
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // Nothing more to read from it.
+      }
+    }
+    chart.setResourceManager(resourceManager);
+    chart.setResourceKey(key);
+    return chart;
+  }
+
+  /**
+   * Returns the <code>ResourceManager</code> used by this instance of the chart parser
+   */
+  public ResourceManager getResourceManager() {
+    return resourceManager;
+  }
+
+  /**
+   * Reads the element tree from the stream and returns its root.
+   *
+   * @throws XMLStreamException if the stream is not well formed or holds no element
+   */
+  static ChartElement parse(final InputStream in) throws XMLStreamException {
+    final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+    try {
+      return parse(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static ChartElement parse(final XMLStreamReader reader) throws XMLStreamException {
+    final HashMap<String, String> names = new HashMap<String, String>();
+    final ArrayList<ChartElement> elements = new ArrayList<ChartElement>();
+    // Per open element: null or a String while it holds only whitespace, then a StringBuilder with all of its text.
+    final ArrayList<Object> texts = new ArrayList<Object>();
+    ChartElement root = null;
+
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT: {
+          final ChartElement element = new ChartElement();
+          final String namespace = namespaceOf(reader.getNamespaceURI(), ChartXmlFactoryModule.NAMESPACE, names);
+          element.setNamespace(namespace);
+          element.setTagName(pooled(reader.getLocalName(), names));
+          for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            element.setAttribute(namespaceOf(reader.getAttributeNamespace(i), namespace, names),
+                pooled(reader.getAttributeLocalName(i), names), reader.getAttributeValue(i));
+          }
+          if (elements.isEmpty()) {
+            root = element;
+          } else {
+            elements.get(elements.size() - 1).addChildElement(element);
+          }
+          elements.add(element);
+          texts.add(null);
+          break;
+        }
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE: {
+          if (elements.isEmpty()) {
+            break;
+          }
+          final int top = texts.size() - 1;
+          final Object text = texts.get(top);
+          if (text instanceof StringBuilder) {
+            ((StringBuilder) text).append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          } else if (reader.isWhiteSpace()) {
+            texts.set(top, text == null ? reader.getText() : text + reader.getText());
+          } else {
+            final StringBuilder builder = new StringBuilder();
+            if (text != null) {
+              builder.append((String) text);
+            }
+            builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            texts.set(top, builder);
+          }
+          break;
+        }
+        case XMLStreamConstants.END_ELEMENT: {
+          final ChartElement element = elements.remove(elements.size() - 1);
+          final Object text = texts.remove(texts.size() - 1);
+          if (text instanceof StringBuilder) {
+            element.setText(text.toString());
+          }
+          break;
+        }
+        default:
+          // Comments, processing instructions and the document events carry nothing for the chart
+          break;
+      }
+    }
+
+    if (root == null) {
+      throw new XMLStreamException("The chart definition has no root element"); //$NON-NLS-1$
+    }
+    return root;
+  }
+
+  private static String namespaceOf(final String namespace, final String defaultNamespace,
+                                    final HashMap<String, String> names) {
+    if (namespace == null || namespace.length() == 0) {
+      return defaultNamespace;
+    }
+    return pooled(namespace, names);
+  }
+
+  private static String pooled(final String name, final HashMap<String, String> names) {
+    final String pooled = names.get(name);
+    if (pooled != null) {
+      return pooled;
+    }
+    names.put(name, name);
+    return name;
+  }
+}
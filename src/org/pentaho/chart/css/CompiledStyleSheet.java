@@ -0,0 +1,441 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.css;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.reporting.libraries.css.model.CSSStyleRule;
+import org.pentaho.reporting.libraries.css.model.StyleKey;
+import org.pentaho.reporting.libraries.css.model.StyleKeyRegistry;
+import org.pentaho.reporting.libraries.css.model.StyleRule;
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.pentaho.reporting.libraries.css.selectors.CSSConditionFactory;
+import org.pentaho.reporting.libraries.css.selectors.CSSSelector;
+import org.pentaho.reporting.libraries.css.selectors.CSSSelectorFactory;
+import org.pentaho.reporting.libraries.css.values.CSSValue;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SimpleSelector;
+
+/**
+ * The style rules of a style sheet in an immutable form that can be written to and read from a compact binary rule
+ * table. Each rule holds its selector, its specificity and its declarations with their parsed <code>CSSValue</code>s,
+ * so reading a rule table needs neither the CSS parser nor the style read handlers.
+ * <p/>
+ * Only style rules with simple selectors (an optional element name with id, class and pseudo-class conditions) can
+ * be compiled. That covers the style sheets bundled with the library; other style sheets are parsed at run time.
+ */
+public final class CompiledStyleSheet {
+
+  /**
+   * The suffix added to the location of a style sheet to find its compiled rule table
+   */
+  public static final String FILE_SUFFIX = ".rules"; //$NON-NLS-1$
+
+  private static final int MAGIC = 0x43535352; // "CSSR"
+  private static final int VERSION = 1;
+
+  private static final String[] NO_NAMES = new String[0];
+
+  /**
+   * A style rule with a simple selector.
+   */
+  public static final class Rule {
+    private final String namespace;
+    private final String tagName;
+    private final String id;
+    private final String[] classNames;
+    private final String[] pseudoClasses;
+    private final int specificity;
+    private final StyleKey[] keys;
+    private final CSSValue[] values;
+    private final boolean[] important;
+
+    Rule(String namespace, String tagName, String id, String[] classNames, String[] pseudoClasses,
+        StyleKey[] keys, CSSValue[] values, boolean[] important) {
+      this.namespace = namespace;
+      this.tagName = tagName;
+      this.id = id;
+      this.classNames = classNames;
+      this.pseudoClasses = pseudoClasses;
+      this.keys = keys;
+      this.values = values;
+      this.important = important;
+      int ids = (id == null) ? 0 : 1;
+      int conditions = classNames.length + pseudoClasses.length;
+      int elements = (tagName == null) ? 0 : 1;
+      this.specificity = (ids << 16) | (Math.min(conditions, 0xFF) << 8) | elements;
+    }
+
+    /**
+     * Returns the namespace of the element name, or <code>null</code> if the rule matches any namespace.
+     */
+    public String getNamespace() {
+      return namespace;
+    }
+
+    /**
+     * Returns the element name, or <code>null</code> if the rule matches any element.
+     */
+    public String getTagName() {
+      return tagName;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public int getClassNameCount() {
+      return classNames.length;
+    }
+
+    public String getClassName(int index) {
+      return classNames[index];
+    }
+
+    public int getPseudoClassCount() {
+      return pseudoClasses.length;
+    }
+
+    public String getPseudoClass(int index) {
+      return pseudoClasses[index];
+    }
+
+    /**
+     * Returns the CSS specificity of the selector packed into one int (ids, then classes and pseudo-classes, then
+     * element names, eight bits each), so specificities compare as ints.
+     */
+    public int getSpecificity() {
+      return specificity;
+    }
+
+    public int getDeclarationCount() {
+      return keys.length;
+    }
+
+    public StyleKey getKey(int index) {
+      return keys[index];
+    }
+
+    public CSSValue getValue(int index) {
+      return values[index];
+    }
+
+    public boolean isImportant(int index) {
+      return important[index];
+    }
+  }
+
+  private final Rule[] rules;
+
+  private CompiledStyleSheet(Rule[] rules) {
+    this.rules = rules;
+  }
+
+  public int getRuleCount() {
+    return rules.length;
+  }
+
+  public Rule getRule(int index) {
+    return rules[index];
+  }
+
+  /**
+   * Compiles the style rules of a parsed style sheet, in style sheet order.
+   *
+   * @throws IllegalArgumentException if the style sheet holds rules or selectors that can not be compiled.
+   */
+  public static CompiledStyleSheet compile(StyleSheet styleSheet) {
+    List<Rule> rules = new ArrayList<Rule>();
+    for (int i = 0; i < styleSheet.getRuleCount(); i++) {
+      StyleRule styleRule = styleSheet.getRule(i);
+      if (!(styleRule instanceof CSSStyleRule)) {
+        throw new IllegalArgumentException("Unsupported rule: " + styleRule); //$NON-NLS-1$
+      }
+      rules.add(compileRule((CSSStyleRule) styleRule));
+    }
+    return new CompiledStyleSheet(rules.toArray(new Rule[rules.size()]));
+  }
+
+  private static Rule compileRule(CSSStyleRule styleRule) {
+    SelectorParts parts = new SelectorParts();
+    parts.addSelector(styleRule.getSelector());
+    StyleKey[] keys = styleRule.getPropertyKeysAsArray();
+    CSSValue[] values = new CSSValue[keys.length];
+    boolean[] important = new boolean[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = styleRule.getPropertyCSSValue(keys[i]);
+      important[i] = styleRule.isImportant(keys[i]);
+    }
+    return new Rule(parts.namespace, parts.tagName, parts.id, parts.classNames.toArray(NO_NAMES),
+        parts.pseudoClasses.toArray(NO_NAMES), keys, values, important);
+  }
+
+  /**
+   * Collects the parts of a simple selector.
+   */
+  private static class SelectorParts {
+    String namespace;
+    String tagName;
+    String id;
+    final List<String> classNames = new ArrayList<String>();
+    final List<String> pseudoClasses = new ArrayList<String>();
+
+    void addSelector(Selector selector) {
+      switch (selector.getSelectorType()) {
+        case Selector.SAC_ANY_NODE_SELECTOR:
+          break;
+        case Selector.SAC_ELEMENT_NODE_SELECTOR:
+          ElementSelector elementSelector = (ElementSelector) selector;
+          namespace = elementSelector.getNamespaceURI();
+          tagName = "*".equals(elementSelector.getLocalName()) ? null : elementSelector.getLocalName(); //$NON-NLS-1$
+          break;
+        case Selector.SAC_CONDITIONAL_SELECTOR:
+          ConditionalSelector conditionalSelector = (ConditionalSelector) selector;
+          addSelector(conditionalSelector.getSimpleSelector());
+          addCondition(conditionalSelector.getCondition());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported selector: " + selector); //$NON-NLS-1$
+      }
+    }
+
+    void addCondition(Condition condition) {
+      switch (condition.getConditionType()) {
+        case Condition.SAC_AND_CONDITION:
+          addCondition(((CombinatorCondition) condition).getFirstCondition());
+          addCondition(((CombinatorCondition) condition).getSecondCondition());
+          break;
+        case Condition.SAC_ID_CONDITION:
+          if (id != null) {
+            throw new IllegalArgumentException("Unsupported condition: " + condition); //$NON-NLS-1$
+          }
+          id = ((AttributeCondition) condition).getValue();
+          break;
+        case Condition.SAC_CLASS_CONDITION:
+          classNames.add(((AttributeCondition) condition).getValue());
+          break;
+        case Condition.SAC_PSEUDO_CLASS_CONDITION:
+          pseudoClasses.add(((AttributeCondition) condition).getValue());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported condition: " + condition); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Creates a style sheet holding the rules of this compiled style sheet, for the code that works on style sheets.
+   *
+   * @param source the location the style sheet was loaded from.
+   */
+  public StyleSheet toStyleSheet(ResourceKey source) {
+    StyleSheet styleSheet = new StyleSheet();
+    styleSheet.setSource(source);
+    CSSSelectorFactory selectorFactory = new CSSSelectorFactory();
+    CSSConditionFactory conditionFactory = new CSSConditionFactory();
+    for (Rule rule : rules) {
+      SimpleSelector selector = (rule.tagName == null)
+          ? selectorFactory.createAnyNodeSelector()
+          : selectorFactory.createElementSelector(rule.namespace, rule.tagName);
+      Condition condition = null;
+      if (rule.id != null) {
+        condition = conditionFactory.createIdCondition(rule.id);
+      }
+      for (String className : rule.classNames) {
+        condition = and(conditionFactory, condition, conditionFactory.createClassCondition(null, className));
+      }
+      for (String pseudoClass : rule.pseudoClasses) {
+        condition = and(conditionFactory, condition, conditionFactory.createPseudoClassCondition(null, pseudoClass));
+      }
+
+      CSSStyleRule styleRule = new CSSStyleRule(styleSheet, null);
+      styleRule.setSelector((CSSSelector) ((condition == null)
+          ? selector : selectorFactory.createConditionalSelector(selector, condition)));
+      for (int i = 0; i < rule.keys.length; i++) {
+        styleRule.setPropertyValue(rule.keys[i], rule.values[i]);
+        styleRule.setImportant(rule.keys[i], rule.important[i]);
+      }
+      styleSheet.addRule(styleRule);
+    }
+    return styleSheet;
+  }
+
+  private static Condition and(CSSConditionFactory conditionFactory, Condition first, Condition second) {
+    return (first == null) ? second : conditionFactory.createAndCondition(first, second);
+  }
+
+  /**
+   * Indicates if the data starts like a compiled rule table.
+   */
+  public static boolean isCompiledStyleSheet(byte[] data) {
+    return (data != null) && (data.length >= 4)
+        && ((((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF)) == MAGIC);
+  }
+
+  /**
+   * Reads the objects of a rule table, refusing every class that a rule table can not hold: strings, numbers, colors
+   * and the CSS values and constants of libcss and of the chart library.
+   */
+  private static class RuleTableInputStream extends ObjectInputStream {
+    private static final String[] ALLOWED_PACKAGES = {
+        "org.pentaho.reporting.libraries.css.", //$NON-NLS-1$
+        "org.pentaho.chart.css.", //$NON-NLS-1$
+    };
+    private static final String[] ALLOWED_CLASSES = {
+        "java.lang.String", //$NON-NLS-1$
+        "java.lang.Number", //$NON-NLS-1$
+        "java.lang.Integer", //$NON-NLS-1$
+        "java.lang.Long", //$NON-NLS-1$
+        "java.lang.Float", //$NON-NLS-1$
+        "java.lang.Double", //$NON-NLS-1$
+        "java.lang.Boolean", //$NON-NLS-1$
+        "java.lang.Enum", //$NON-NLS-1$
+        "java.awt.Color", //$NON-NLS-1$
+    };
+
+    RuleTableInputStream(InputStream inputStream) throws IOException {
+      super(inputStream);
+    }
+
+    protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+      if (!isAllowed(description.getName())) {
+        throw new InvalidClassException(description.getName(), "Not allowed in a compiled style sheet"); //$NON-NLS-1$
+      }
+      return super.resolveClass(description);
+    }
+
+    private static boolean isAllowed(String className) {
+      // Arrays are allowed if their component type is
+      int dimensions = 0;
+      while ((dimensions < className.length()) && (className.charAt(dimensions) == '[')) {
+        dimensions++;
+      }
+      if (dimensions > 0) {
+        String componentName = className.substring(dimensions);
+        if (componentName.length() == 1) {
+          // A primitive type
+          return true;
+        }
+        if (!componentName.startsWith("L") || !componentName.endsWith(";")) { //$NON-NLS-1$ //$NON-NLS-2$
+          return false;
+        }
+        className = componentName.substring(1, componentName.length() - 1);
+      }
+      for (String allowedClass : ALLOWED_CLASSES) {
+        if (allowedClass.equals(className)) {
+          return true;
+        }
+      }
+      for (String allowedPackage : ALLOWED_PACKAGES) {
+        if (className.startsWith(allowedPackage)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Writes the rule table. Style keys are written by name; repeated names and values are written once.
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    DataOutputStream dataOutput = new DataOutputStream(outputStream);
+    dataOutput.writeInt(MAGIC);
+    dataOutput.writeInt(VERSION);
+    dataOutput.flush();
+    ObjectOutputStream output = new ObjectOutputStream(outputStream);
+    output.writeInt(rules.length);
+    for (Rule rule : rules) {
+      output.writeObject(rule.namespace);
+      output.writeObject(rule.tagName);
+      output.writeObject(rule.id);
+      output.writeObject(rule.classNames);
+      output.writeObject(rule.pseudoClasses);
+      output.writeInt(rule.keys.length);
+      for (int i = 0; i < rule.keys.length; i++) {
+        output.writeObject(rule.keys[i].getName());
+        output.writeObject(rule.values[i]);
+        output.writeBoolean(rule.important[i]);
+      }
+    }
+    output.flush();
+  }
+
+  /**
+   * Reads a rule table written by {@link #write(OutputStream)}. Style keys are looked up in the style key registry, so
+   * the library must have been booted. Only the classes a rule table is written with can be read; any other class
+   * fails with an <code>InvalidClassException</code>. Rule tables should still only be read from trusted locations.
+   */
+  public static CompiledStyleSheet read(InputStream inputStream) throws IOException {
+    DataInputStream dataInput = new DataInputStream(inputStream);
+    if (dataInput.readInt() != MAGIC) {
+      throw new IOException("Not a compiled style sheet"); //$NON-NLS-1$
+    }
+    int version = dataInput.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported compiled style sheet version: " + version); //$NON-NLS-1$
+    }
+    ObjectInputStream input = new RuleTableInputStream(inputStream);
+    StyleKeyRegistry registry = StyleKeyRegistry.getRegistry();
+    try {
+      Rule[] rules = new Rule[input.readInt()];
+      for (int r = 0; r < rules.length; r++) {
+        String namespace = (String) input.readObject();
+        String tagName = (String) input.readObject();
+        String id = (String) input.readObject();
+        String[] classNames = (String[]) input.readObject();
+        String[] pseudoClasses = (String[]) input.readObject();
+        int declarationCount = input.readInt();
+        StyleKey[] keys = new StyleKey[declarationCount];
+        CSSValue[] values = new CSSValue[declarationCount];
+        boolean[] important = new boolean[declarationCount];
+        for (int i = 0; i < declarationCount; i++) {
+          String keyName = (String) input.readObject();
+          keys[i] = registry.findKeyByName(keyName);
+          if (keys[i] == null) {
+            throw new IOException("Unknown style key: " + keyName); //$NON-NLS-1$
+          }
+          values[i] = (CSSValue) input.readObject();
+          important[i] = input.readBoolean();
+        }
+        rules[r] = new Rule(namespace, tagName, id, classNames, pseudoClasses, keys, values, important);
+      }
+      return new CompiledStyleSheet(rules);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Invalid compiled style sheet: " + e.getMessage()); //$NON-NLS-1$
+    } catch (ClassCastException e) {
+      throw new IOException("Invalid compiled style sheet: " + e.getMessage()); //$NON-NLS-1$
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.css;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.pentaho.reporting.libraries.css.parser.StyleSheetLoader;
+import org.pentaho.reporting.libraries.resourceloader.Resource;
+import org.pentaho.reporting.libraries.resourceloader.ResourceCreationException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceData;
+import org.pentaho.reporting.libraries.resourceloader.ResourceFactory;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceLoadingException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+import org.pentaho.reporting.libraries.resourceloader.SimpleResource;
+
+/**
+ * Creates style sheets from compiled rule tables, and passes all other style sheet data to the CSS parser of libcss.
+ * Rule tables are read once per location and version.
+ * <p/>
+ * Only rule tables at trusted locations are read, which are the tables built into the classpath and registered with
+ * {@link #addTrustedRuleTable(ResourceKey)}. Style sheets from any other location, such as those referenced or
+ * embedded by chart documents, are always parsed as CSS.
+ *
+ * @see CompiledStyleSheet
+ */
+public class CompiledStyleSheetResourceFactory implements ResourceFactory {
+
+  private static final ConcurrentHashMap<ResourceKey, CachedRuleTable> ruleTables =
+      new ConcurrentHashMap<ResourceKey, CachedRuleTable>();
+
+  private static class CachedRuleTable {
+    final long version;
+    final CompiledStyleSheet styleSheet;
+
+    CachedRuleTable(long version, CompiledStyleSheet styleSheet) {
+      this.version = version;
+      this.styleSheet = styleSheet;
+    }
+  }
+
+  private static final Set<ResourceKey> trustedRuleTables =
+      Collections.newSetFromMap(new ConcurrentHashMap<ResourceKey, Boolean>());
+
+  private final StyleSheetLoader styleSheetLoader = new StyleSheetLoader();
+
+  public Resource create(ResourceManager manager, ResourceData data, ResourceKey context)
+      throws ResourceCreationException, ResourceLoadingException {
+    CompiledStyleSheet compiledStyleSheet = getCompiledStyleSheet(manager, data);
+    if (compiledStyleSheet == null) {
+      return styleSheetLoader.create(manager, data, context);
+    }
+    return new SimpleResource(data.getKey(), compiledStyleSheet.toStyleSheet(data.getKey()), StyleSheet.class,
+        data.getVersion(manager));
+  }
+
+  /**
+   * Allows the rule table at the given location to be read. Only register rule tables built into the classpath.
+   */
+  public static void addTrustedRuleTable(ResourceKey key) {
+    trustedRuleTables.add(key);
+  }
+
+  public static boolean isTrustedRuleTable(ResourceKey key) {
+    return trustedRuleTables.contains(key);
+  }
+
+  /**
+   * Returns the rule table held by the resource data, or <code>null</code> if the data is a CSS document or does not
+   * come from a trusted location.
+   */
+  public static CompiledStyleSheet getCompiledStyleSheet(ResourceManager manager, ResourceData data)
+      throws ResourceCreationException, ResourceLoadingException {
+    if (!isTrustedRuleTable(data.getKey())) {
+      return null;
+    }
+    long version = data.getVersion(manager);
+    CachedRuleTable cached = ruleTables.get(data.getKey());
+    if ((cached != null) && (cached.version == version)) {
+      return cached.styleSheet;
+    }
+    byte[] bytes = data.getResource(manager);
+    if (!CompiledStyleSheet.isCompiledStyleSheet(bytes)) {
+      return null;
+    }
+    try {
+      CompiledStyleSheet styleSheet = CompiledStyleSheet.read(new ByteArrayInputStream(bytes));
+      ruleTables.put(data.getKey(), new CachedRuleTable(version, styleSheet));
+      return styleSheet;
+    } catch (IOException e) {
+      throw new ResourceCreationException("Failed to read the compiled style sheet " + data.getKey(), e); //$NON-NLS-1$
+    }
+  }
+
+  public Class getFactoryType() {
+    return StyleSheet.class;
+  }
+
+  public void initializeDefaults() {
+    styleSheetLoader.initializeDefaults();
+  }
+}
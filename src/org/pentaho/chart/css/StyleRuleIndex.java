@@ -0,0 +1,305 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.css;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.pentaho.reporting.libraries.css.model.CSSStyleRule;
+import org.pentaho.reporting.libraries.css.model.StyleRule;
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SiblingSelector;
+
+/**
+ * Indexes the style rules of a set of style sheets by the id, class or element name of their selector's subject (the
+ * right-most part of the selector), so the rules that can match an element are found without testing every rule.
+ * <p/>
+ * A rule is <em>simple</em> if its selector only tests the element itself: its element name, id and classes. Which
+ * simple rules match an element therefore only depends on those, while other rules (combinators, attribute and
+ * pseudo-class conditions) may depend on the element's position in the document or its other attributes.
+ */
+public class StyleRuleIndex {
+
+  private static final String[] NO_CLASSES = new String[0];
+
+  /**
+   * A rule in the index.
+   */
+  public static final class IndexedRule {
+    private final CSSStyleRule rule;
+    private final boolean simple;
+    private final int ordinal;
+    private final String[] classNames;
+
+    IndexedRule(CSSStyleRule rule, boolean simple, int ordinal, String[] classNames) {
+      this.rule = rule;
+      this.simple = simple;
+      this.ordinal = ordinal;
+      this.classNames = classNames;
+    }
+
+    public CSSStyleRule getRule() {
+      return rule;
+    }
+
+    public boolean isSimple() {
+      return simple;
+    }
+
+    /**
+     * Returns the position of the rule in the index, in the order the rules were added.
+     */
+    public int getOrdinal() {
+      return ordinal;
+    }
+
+    /**
+     * Indicates if the element has all the classes the subject of the rule's selector tests.
+     */
+    public boolean matchesClasses(String[] elementClassNames) {
+      for (String className : classNames) {
+        if (!contains(elementClassNames, className)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean contains(String[] values, String value) {
+      for (String candidate : values) {
+        if (candidate.equals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private final HashMap<String, List<IndexedRule>> rulesById = new HashMap<String, List<IndexedRule>>();
+  private final HashMap<String, List<IndexedRule>> rulesByClass = new HashMap<String, List<IndexedRule>>();
+  private final HashMap<String, List<IndexedRule>> rulesByTagName = new HashMap<String, List<IndexedRule>>();
+  private final List<IndexedRule> universalRules = new ArrayList<IndexedRule>();
+  private int ruleCount;
+  private int complexRuleCount;
+  private boolean complete = true;
+
+  /**
+   * Adds the style rules of the style sheet and of the style sheets it imports. Rules other than style rules (such
+   * as page or media rules) can not be indexed; the index is then marked as incomplete.
+   */
+  public void addStyleSheet(StyleSheet styleSheet) {
+    for (int i = 0; i < styleSheet.getStyleSheetCount(); i++) {
+      addStyleSheet(styleSheet.getStyleSheet(i));
+    }
+    for (int i = 0; i < styleSheet.getRuleCount(); i++) {
+      StyleRule styleRule = styleSheet.getRule(i);
+      if (styleRule instanceof CSSStyleRule) {
+        addRule((CSSStyleRule) styleRule);
+      } else {
+        complete = false;
+      }
+    }
+  }
+
+  /**
+   * Marks the index as incomplete, for example because a style sheet could not be loaded.
+   */
+  public void setIncomplete() {
+    complete = false;
+  }
+
+  /**
+   * Indicates if all the rules that apply to the document are in the index.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public int getRuleCount() {
+    return ruleCount;
+  }
+
+  public int getComplexRuleCount() {
+    return complexRuleCount;
+  }
+
+  private void addRule(CSSStyleRule rule) {
+    Selector selector = rule.getSelector();
+    boolean simple = true;
+    // The subject of a selector is the right-most simple selector
+    while (true) {
+      short type = selector.getSelectorType();
+      if (type == Selector.SAC_DESCENDANT_SELECTOR || type == Selector.SAC_CHILD_SELECTOR) {
+        selector = ((DescendantSelector) selector).getSimpleSelector();
+        simple = false;
+      } else if (type == Selector.SAC_DIRECT_ADJACENT_SELECTOR) {
+        selector = ((SiblingSelector) selector).getSiblingSelector();
+        simple = false;
+      } else {
+        break;
+      }
+    }
+
+    SubjectKeys keys = new SubjectKeys();
+    simple &= keys.addSelector(selector);
+    IndexedRule indexedRule =
+        new IndexedRule(rule, simple, ruleCount, keys.classNames.toArray(new String[keys.classNames.size()]));
+    if (keys.id != null) {
+      add(rulesById, keys.id, indexedRule);
+    } else if (keys.className != null) {
+      add(rulesByClass, keys.className, indexedRule);
+    } else if (keys.tagName != null) {
+      add(rulesByTagName, keys.tagName, indexedRule);
+    } else {
+      universalRules.add(indexedRule);
+    }
+    ruleCount++;
+    if (!simple) {
+      complexRuleCount++;
+    }
+  }
+
+  private static void add(HashMap<String, List<IndexedRule>> map, String key, IndexedRule rule) {
+    List<IndexedRule> rules = map.get(key);
+    if (rules == null) {
+      rules = new ArrayList<IndexedRule>(4);
+      map.put(key, rules);
+    }
+    rules.add(rule);
+  }
+
+  /**
+   * The parts of a selector's subject used as index keys.
+   */
+  private static class SubjectKeys {
+    String id;
+    String className;
+    String tagName;
+    final List<String> classNames = new ArrayList<String>(2);
+
+    /**
+     * @return <code>false</code> if the selector tests more than the element's name, id and classes.
+     */
+    boolean addSelector(Selector selector) {
+      switch (selector.getSelectorType()) {
+        case Selector.SAC_ANY_NODE_SELECTOR:
+          return true;
+        case Selector.SAC_ELEMENT_NODE_SELECTOR:
+          String localName = ((ElementSelector) selector).getLocalName();
+          if (localName != null && !"*".equals(localName)) { //$NON-NLS-1$
+            tagName = localName;
+          }
+          return true;
+        case Selector.SAC_CONDITIONAL_SELECTOR:
+          ConditionalSelector conditionalSelector = (ConditionalSelector) selector;
+          boolean simple = addSelector(conditionalSelector.getSimpleSelector());
+          return addCondition(conditionalSelector.getCondition()) && simple;
+        default:
+          return false;
+      }
+    }
+
+    boolean addCondition(Condition condition) {
+      switch (condition.getConditionType()) {
+        case Condition.SAC_AND_CONDITION:
+          boolean simple = addCondition(((CombinatorCondition) condition).getFirstCondition());
+          return addCondition(((CombinatorCondition) condition).getSecondCondition()) && simple;
+        case Condition.SAC_ID_CONDITION:
+          id = ((AttributeCondition) condition).getValue();
+          return true;
+        case Condition.SAC_CLASS_CONDITION:
+          String value = ((AttributeCondition) condition).getValue();
+          if (className == null) {
+            className = value;
+          }
+          classNames.add(value);
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+
+  /**
+   * Returns the rules that can match an element with the given name, id and classes, in no particular order. Rules
+   * that can not match such an element are left out, but not all of the returned rules necessarily match it.
+   *
+   * @param id         the element's id, or <code>null</code>
+   * @param classNames the element's classes
+   */
+  public List<IndexedRule> getCandidateRules(String tagName, String id, String[] classNames) {
+    List<IndexedRule> candidates = new ArrayList<IndexedRule>(universalRules);
+    if (id != null) {
+      addAll(candidates, rulesById.get(id));
+    }
+    for (String className : classNames) {
+      addAll(candidates, rulesByClass.get(className));
+    }
+    if (tagName != null) {
+      addAll(candidates, rulesByTagName.get(tagName));
+    }
+    return candidates;
+  }
+
+  private static void addAll(List<IndexedRule> candidates, List<IndexedRule> rules) {
+    if (rules != null) {
+      candidates.addAll(rules);
+    }
+  }
+
+  /**
+   * Indicates if the index is complete and all the rules that can match an element with the given name, id and
+   * classes are simple. Which rules match such an element then only depends on its name, id and classes.
+   */
+  public boolean isSimpleMatch(String tagName, String id, String[] classNames) {
+    if (!complete) {
+      return false;
+    }
+    if (complexRuleCount == 0) {
+      return true;
+    }
+    for (IndexedRule rule : getCandidateRules(tagName, id, classNames)) {
+      if (!rule.simple) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits a class attribute value into its classes.
+   */
+  public static String[] splitClassNames(String classAttribute) {
+    if (classAttribute == null) {
+      return NO_CLASSES;
+    }
+    String trimmed = classAttribute.trim();
+    if (trimmed.length() == 0) {
+      return NO_CLASSES;
+    }
+    return trimmed.split("\\s+"); //$NON-NLS-1$
+  }
+}
@@ -0,0 +1,65 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.css;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.pentaho.chart.ChartBoot;
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+
+/**
+ * Compiles style sheets into rule tables at build time. The rule table of each style sheet is written to the output
+ * directory at the same relative path as the style sheet, with {@link CompiledStyleSheet#FILE_SUFFIX} appended.
+ * <p/>
+ * Usage: <code>StyleSheetCompiler &lt;source dir&gt; &lt;output dir&gt; &lt;style sheet&gt;...</code>
+ */
+public class StyleSheetCompiler {
+
+  private StyleSheetCompiler() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.err.println("Usage: StyleSheetCompiler <source dir> <output dir> <style sheet>..."); //$NON-NLS-1$
+      System.exit(1);
+    }
+    ChartBoot.getInstance().start();
+    ResourceManager resourceManager = new ResourceManager();
+    resourceManager.registerDefaults();
+    for (int i = 2; i < args.length; i++) {
+      File source = new File(args[0], args[i]);
+      StyleSheet styleSheet = (StyleSheet) resourceManager.createDirectly(source, StyleSheet.class).getResource();
+      CompiledStyleSheet compiledStyleSheet = CompiledStyleSheet.compile(styleSheet);
+
+      File target = new File(args[1], args[i] + CompiledStyleSheet.FILE_SUFFIX);
+      target.getParentFile().mkdirs();
+      OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(target));
+      try {
+        compiledStyleSheet.write(outputStream);
+      } finally {
+        outputStream.close();
+      }
+      System.out.println("Compiled " + compiledStyleSheet.getRuleCount() + " rules of " + source //$NON-NLS-1$ //$NON-NLS-2$
+          + " into " + target); //$NON-NLS-1$
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.HashSet;
+
+/**
+ * Aggregates a stream of values into a single value using primitive running totals. Null values are ignored. If no
+ * non-null value has been added the result is <code>null</code>, except for the counting functions which return 0.
+ */
+public class Accumulator {
+  final AggregationFunction function;
+  int count;
+  double sum;
+  Number first;
+  Number min;
+  Number max;
+  HashSet<Double> distinctValues;
+
+  public Accumulator(AggregationFunction function) {
+    if (function == null) {
+      throw new NullPointerException();
+    }
+    this.function = function;
+  }
+
+  public void add(Number value) {
+    if (value == null) {
+      return;
+    }
+    double doubleValue = value.doubleValue();
+    if (count == 0) {
+      first = value;
+      min = value;
+      max = value;
+    } else {
+      if (doubleValue < min.doubleValue()) {
+        min = value;
+      }
+      if (doubleValue > max.doubleValue()) {
+        max = value;
+      }
+    }
+    if (function == AggregationFunction.DISTINCT_COUNT) {
+      if (distinctValues == null) {
+        distinctValues = new HashSet<Double>();
+      }
+      distinctValues.add(doubleValue);
+    }
+    sum += doubleValue;
+    count++;
+  }
+
+  /**
+   * Folds the values of another accumulator of the same function into this one.
+   */
+  public void merge(Accumulator accumulator) {
+    if (accumulator.function != function) {
+      throw new IllegalArgumentException();
+    }
+    if (accumulator.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      first = accumulator.first;
+      min = accumulator.min;
+      max = accumulator.max;
+    } else {
+      if (accumulator.min.doubleValue() < min.doubleValue()) {
+        min = accumulator.min;
+      }
+      if (accumulator.max.doubleValue() > max.doubleValue()) {
+        max = accumulator.max;
+      }
+    }
+    if (accumulator.distinctValues != null) {
+      if (distinctValues == null) {
+        distinctValues = new HashSet<Double>();
+      }
+      distinctValues.addAll(accumulator.distinctValues);
+    }
+    sum += accumulator.sum;
+    count += accumulator.count;
+  }
+
+  public AggregationFunction getFunction() {
+    return function;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public Number getValue() {
+    switch (function) {
+      case COUNT:
+        return count;
+      case DISTINCT_COUNT:
+        return distinctValues == null ? 0 : distinctValues.size();
+      case MIN:
+        return min;
+      case MAX:
+        return max;
+      case AVG:
+        if (count <= 1) {
+          return first;
+        }
+        return sum / count;
+      default:
+        // A single value is handed back as is, just like the original summing code did.
+        if (count <= 1) {
+          return first;
+        }
+        return sum;
+    }
+  }
+}
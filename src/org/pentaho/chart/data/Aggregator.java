@@ -0,0 +1,242 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups values by name (and optionally by series name) and aggregates each group with an {@link Accumulator}. Each
+ * row costs one or two hash lookups. The groups are kept in the order in which they were first seen, so the data
+ * models built from an aggregator have the same category and series order as if the rows had been added one by one.
+ * <p/>
+ * Large inputs can be aggregated in parallel with {@link #aggregate(Object[][], AggregationFunction, RowHandler, int,
+ * ForkJoinPool)}. The rows are split into fixed size partitions which are aggregated independently and then merged in
+ * row order, so the result does not depend on the number of threads.
+ */
+public class Aggregator {
+  final AggregationFunction function;
+  final HashMap<String, Cell> namedCells = new HashMap<String, Cell>();
+  final HashMap<String, HashMap<String, Cell>> seriesCells = new HashMap<String, HashMap<String, Cell>>();
+  final List<Cell> cells = new ArrayList<Cell>();
+
+  /**
+   * Extracts the name, series name and value from a single row and adds them to an aggregator. Implementations are
+   * called concurrently when the rows are aggregated in parallel.
+   */
+  public interface RowHandler {
+    public void aggregate(Object[] row, Aggregator aggregator);
+  }
+
+  static class Cell extends Accumulator {
+    final String name;
+    final String seriesName;
+    final boolean named;
+
+    Cell(AggregationFunction function, String name, String seriesName, boolean named) {
+      super(function);
+      this.name = name;
+      this.seriesName = seriesName;
+      this.named = named;
+    }
+  }
+
+  static class AggregationTask extends RecursiveTask<Aggregator> {
+    private static final long serialVersionUID = 2316597367465094231L;
+
+    final Object[][] rows;
+    final int start;
+    final int end;
+    final AggregationFunction function;
+    final RowHandler rowHandler;
+    final int partitionSize;
+
+    AggregationTask(Object[][] rows, int start, int end, AggregationFunction function, RowHandler rowHandler,
+        int partitionSize) {
+      this.rows = rows;
+      this.start = start;
+      this.end = end;
+      this.function = function;
+      this.rowHandler = rowHandler;
+      this.partitionSize = partitionSize;
+    }
+
+    protected Aggregator compute() {
+      if ((end - start) <= partitionSize) {
+        Aggregator aggregator = new Aggregator(function);
+        for (int i = start; i < end; i++) {
+          rowHandler.aggregate(rows[i], aggregator);
+        }
+        return aggregator;
+      }
+      // Split on a partition boundary so the partitions only depend on the partition size.
+      int middle = start + (((end - start) / partitionSize + 1) / 2) * partitionSize;
+      AggregationTask right = new AggregationTask(rows, middle, end, function, rowHandler, partitionSize);
+      right.fork();
+      Aggregator left = new AggregationTask(rows, start, middle, function, rowHandler, partitionSize).compute();
+      left.merge(right.join());
+      return left;
+    }
+  }
+
+  public Aggregator(AggregationFunction function) {
+    if (function == null) {
+      throw new NullPointerException();
+    }
+    this.function = function;
+  }
+
+  public AggregationFunction getFunction() {
+    return function;
+  }
+
+  /**
+   * Adds a value to the group with the given name.
+   */
+  public void add(String name, Number value) {
+    getCell(name).add(value);
+  }
+
+  /**
+   * Adds a value to the group with the given category and series name.
+   */
+  public void add(String categoryName, String seriesName, Number value) {
+    getCell(categoryName, seriesName).add(value);
+  }
+
+  /**
+   * Merges the groups of an aggregator that saw later rows into this one. Groups that are new to this aggregator are
+   * appended in the order in which the other aggregator first saw them.
+   */
+  public void merge(Aggregator aggregator) {
+    for (Cell cell : aggregator.cells) {
+      if (cell.named) {
+        getCell(cell.name).merge(cell);
+      } else {
+        getCell(cell.name, cell.seriesName).merge(cell);
+      }
+    }
+  }
+
+  private Cell getCell(String name) {
+    Cell cell = namedCells.get(name);
+    if (cell == null) {
+      cell = new Cell(function, name, null, true);
+      namedCells.put(name, cell);
+      cells.add(cell);
+    }
+    return cell;
+  }
+
+  private Cell getCell(String categoryName, String seriesName) {
+    HashMap<String, Cell> series = seriesCells.get(categoryName);
+    if (series == null) {
+      series = new HashMap<String, Cell>();
+      seriesCells.put(categoryName, series);
+    }
+    Cell cell = series.get(seriesName);
+    if (cell == null) {
+      cell = new Cell(function, categoryName, seriesName, false);
+      series.put(seriesName, cell);
+      cells.add(cell);
+    }
+    return cell;
+  }
+
+  /**
+   * Returns the number of groups.
+   */
+  public int size() {
+    return cells.size();
+  }
+
+  public NamedValuesDataModel toNamedValuesDataModel() {
+    NamedValuesDataModel namedValuesDataModel = new NamedValuesDataModel();
+    for (Cell cell : cells) {
+      namedValuesDataModel.add(new NamedValue(cell.name, cell.getValue()));
+    }
+    return namedValuesDataModel;
+  }
+
+  public MultiSeriesDataModel toMultiSeriesDataModel() {
+    MultiSeriesDataModel multiSeriesDataModel = new MultiSeriesDataModel();
+    // Every cell is added exactly once in first seen order, which creates the categories and series in the same
+    // order as adding the original rows would.
+    for (Cell cell : cells) {
+      multiSeriesDataModel.addValue(cell.name, cell.seriesName, cell.getValue());
+    }
+    return multiSeriesDataModel;
+  }
+
+  /**
+   * Aggregates the given rows. If there are more than <code>partitionSize</code> rows they are split into partitions
+   * of <code>partitionSize</code> rows that are aggregated in parallel on <code>pool</code>.
+   */
+  public static Aggregator aggregate(Object[][] rows, AggregationFunction function, RowHandler rowHandler,
+      int partitionSize, ForkJoinPool pool) {
+    if ((partitionSize <= 0) || (rows.length <= partitionSize) || (pool == null)) {
+      Aggregator aggregator = new Aggregator(function);
+      for (int i = 0; i < rows.length; i++) {
+        rowHandler.aggregate(rows[i], aggregator);
+      }
+      return aggregator;
+    }
+    return pool.invoke(new AggregationTask(rows, 0, rows.length, function, rowHandler, partitionSize));
+  }
+
+  /**
+   * Aggregates a stream of rows. The rows are read in batches of <code>partitionSize</code> rows which are aggregated
+   * in parallel on <code>pool</code>. At most twice as many batches as the pool has threads are held in memory.
+   * <p>
+   * {@link org.pentaho.chart.ChartBeanFactory} only takes materialized query results and never calls this method.
+   */
+  public static Aggregator aggregate(Iterator<Object[]> rows, AggregationFunction function,
+      RowHandler rowHandler, int partitionSize, ForkJoinPool pool) {
+    Aggregator aggregator = new Aggregator(function);
+    if ((partitionSize <= 0) || (pool == null)) {
+      while (rows.hasNext()) {
+        rowHandler.aggregate(rows.next(), aggregator);
+      }
+      return aggregator;
+    }
+
+    int maxPending = Math.max(2, pool.getParallelism() * 2);
+    LinkedList<ForkJoinTask<Aggregator>> pending = new LinkedList<ForkJoinTask<Aggregator>>();
+    while (rows.hasNext()) {
+      Object[][] batch = new Object[partitionSize][];
+      int size = 0;
+      while ((size < partitionSize) && rows.hasNext()) {
+        batch[size++] = rows.next();
+      }
+      pending.add(pool.submit(new AggregationTask(batch, 0, size, function, rowHandler, partitionSize)));
+      if (pending.size() >= maxPending) {
+        aggregator.merge(pending.removeFirst().join());
+      }
+    }
+    while (!pending.isEmpty()) {
+      aggregator.merge(pending.removeFirst().join());
+    }
+    return aggregator;
+  }
+}
@@ -37,6 +37,11 @@ import org.pentaho.util.messages.Messages;
  *         of supporting cell level metadata. If in the future we decide that we do not need
  *         cell level support, then we can use simple hash map instead of multi-key hash map.
  *         4. Metadata supports only one level of key.
+ *         5. Row and column names are kept in plain arrays and the metadata map is only created when
+ *         metadata is actually set, since names are read in tight loops while metadata is rare.
+ *         6. The data can optionally be stored column by column in typed {@link ChartColumn}s (see
+ *         {@link #setColumnarData(Object[][])}), which keeps numbers in primitive arrays and
+ *         dictionary encodes strings.
  */
 class BaseChartTableModel extends AbstractTableModel implements ChartData {
 
@@ -64,14 +69,32 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
    * Column name.
    */
   public static final String COL_NAME = "col-name"; //$NON-NLS-1$
+  private static final String[] EMPTY_NAMES = new String[0];
   /**
-   * Metadata multi key hash map
+   * Metadata multi key hash map, created when the first piece of metadata is set
    */
-  private MultiKeyMap metadataMap = MultiKeyMap.decorate(new HashedMap());
+  private MultiKeyMap metadataMap;
+  /**
+   * Row names, indexed by row number
+   */
+  private String[] rowNames = EMPTY_NAMES;
+  /**
+   * Column names, indexed by column number
+   */
+  private String[] colNames = EMPTY_NAMES;
+  /**
+   * Name to index lookups, built on first use and discarded whenever a name changes
+   */
+  private NameIndex rowNameIndex;
+  private NameIndex colNameIndex;
   /**
    * Data array
    */
   private Object[][] data;
+  /**
+   * Typed data columns, used instead of the data array when the data is stored column by column
+   */
+  private ChartColumn[] columns;
   private int rowCount;
   private int colCount;
 
@@ -105,7 +128,9 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     String colName = null;
 
     if (col >= 0) {
-      colName = (String) metadataMap.get(COL, col, COL_NAME);
+      if (col < colNames.length) {
+        colName = colNames[col];
+      }
     } else {
       logger.error(Messages.getErrorString("ChartTableModel.ERROR_0001_COLUMN_NUM_LOWER_THAN_ZERO")); //$NON-NLS-1$
     }
@@ -122,7 +147,9 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     String rowName = null;
 
     if (row >= 0) {
-      rowName = (String) metadataMap.get(ROW, row, ROW_NAME);
+      if (row < rowNames.length) {
+        rowName = rowNames[row];
+      }
     } else {
       logger.error(Messages.getErrorString("ChartTableModel.ERROR_0009_INVALID_ROW_NUMBER", "" + row)); //$NON-NLS-2$
     }
@@ -140,7 +167,8 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     } else if (null == name || name.trim().length() == 0) {
       logger.warn(Messages.getErrorString("ChartTableModel.WARN_NAME_SHOULD_NOT_BE_NULL")); //$NON-NLS-1$
     } else {
-      metadataMap.put(COL, col, COL_NAME, name);
+      colNames = setName(colNames, col, name);
+      colNameIndex = null;
     }
   }
 
@@ -152,12 +180,37 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
    */
   public void setRowName(final int row, final String name) {
     if (row >= 0) {
-      metadataMap.put(ROW, row, ROW_NAME, name);
+      rowNames = setName(rowNames, row, name);
+      rowNameIndex = null;
     } else {
       logger.warn(Messages.getErrorString("ChartTableModel.ERROR_0010_ROW_NAME_NOT_SET", "" + row));
     }
   }
 
+  /**
+   * Names may be set as metadata of any type; they are kept as strings.
+   */
+  private static String toName(final Object value) {
+    return value == null ? null : String.valueOf(value);
+  }
+
+  private static String[] setName(String[] names, final int index, final String name) {
+    if (index >= names.length) {
+      final String[] newNames = new String[Math.max(index + 1, names.length * 2)];
+      System.arraycopy(names, 0, newNames, 0, names.length);
+      names = newNames;
+    }
+    names[index] = name;
+    return names;
+  }
+
+  private MultiKeyMap getMetadataMap() {
+    if (metadataMap == null) {
+      metadataMap = MultiKeyMap.decorate(new HashedMap());
+    }
+    return metadataMap;
+  }
+
   /**
    * (non-Javadoc)
    *
@@ -166,7 +219,12 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
   public Object getValueAt(final int row, final int col) {
     Object retData = null;
 
-    if (null == data) {
+    if (null != columns) {
+      if (row >= 0 && row < rowCount && col >= 0 && col < colCount) {
+        return columns[col].get(row);
+      }
+      logger.error(Messages.getErrorString("ChartTableModel.ERROR_0002_COLUMN_NUM_OUT_OF_BOUNDS")); //$NON-NLS-1$
+    } else if (null == data) {
       logger.error(Messages.getErrorString("ChartTableModel.ERROR_0005_NO_DATA_AVAILABLE")); //$NON-NLS-1$
     } else if (row < 0 || row > getRowCount()) {
       logger.error(Messages.getErrorString("ChartTableModel.ERROR_0004_ROW_NUM_OUT_OF_BOUNDS")); //$NON-NLS-1$
@@ -179,6 +237,23 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     return retData;
   }
 
+  /**
+   * Returns the value at the specified cell as a double, without boxing it when the data is stored in typed
+   * columns.
+   *
+   * @return the value, or <code>Double.NaN</code> if the cell is empty, is not a number or does not exist
+   */
+  public double getDoubleValueAt(final int row, final int col) {
+    if (null != columns) {
+      if (row >= 0 && row < rowCount && col >= 0 && col < colCount) {
+        return columns[col].getDouble(row);
+      }
+      return Double.NaN;
+    }
+    final Object value = getValueAt(row, col);
+    return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+  }
+
   /**
    * Set the value of the data array.
    *
@@ -193,6 +268,9 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new ArrayIndexOutOfBoundsException(Messages.getErrorString("ChartTableModel.ERROR_0004_ROW_NUM_OUT_OF_BOUNDS")); //$NON-NLS-1$
     } else if (col > getColumnCount() || col < 0) {
       throw new ArrayIndexOutOfBoundsException(Messages.getErrorString("ChartTableModel.ERROR_0002_COLUMN_NUM_OUT_OF_BOUNDS")); //$NON-NLS-1$
+    } else if (null != columns) {
+      columns[col] = columns[col].set(row, value);
+      return;
     } else if (null == data) {
       throw new IllegalStateException("Data array not initialized."); //$NON-NLS-1$
     }
@@ -210,6 +288,7 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     rowCount = 0;
     colCount = 0;
     data = null;
+    columns = null;
 
     /*
     * If we are passed null array then we reinitialize the data to null.
@@ -235,6 +314,51 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
     }
   }
 
+  /**
+   * Sets the data based on the input Object array passed, but stores it column by column in typed
+   * {@link ChartColumn}s instead of keeping the array. Rows shorter than the longest row are padded with
+   * <code>null</code>. The table behaves exactly as if {@link #setData(Object[][])} had been called.
+   *
+   * @param inData The input data
+   * @throws IllegalStateException if any data element within the array is null.
+   */
+  public void setColumnarData(final Object[][] inData) throws IllegalStateException {
+    setData(inData);
+    if (null != data) {
+      final ChartColumn[] newColumns = new ChartColumn[colCount];
+      final Object[] columnValues = new Object[rowCount];
+      for (int col = 0; col < colCount; col++) {
+        for (int row = 0; row < rowCount; row++) {
+          columnValues[row] = col < data[row].length ? data[row][col] : null;
+        }
+        newColumns[col] = ChartColumn.create(columnValues);
+      }
+      data = null;
+      columns = newColumns;
+    }
+  }
+
+  /**
+   * Sets the data as a set of typed columns. All columns must have the same size.
+   *
+   * @param inColumns the columns, or <code>null</code> to clear the data
+   * @throws IllegalStateException if a column is null or the columns differ in size
+   */
+  public void setColumns(final ChartColumn[] inColumns) throws IllegalStateException {
+    setData(null);
+    if (null != inColumns) {
+      final int size = inColumns.length > 0 && inColumns[0] != null ? inColumns[0].size() : 0;
+      for (int i = 0; i < inColumns.length; i++) {
+        if (null == inColumns[i] || inColumns[i].size() != size) {
+          throw new IllegalStateException(Messages.getErrorString("ChartTableModel.ERROR_0008_DATA_HAS_NULL_ELEMENTS")); //$NON-NLS-1$
+        }
+      }
+      columns = inColumns.clone();
+      colCount = inColumns.length;
+      rowCount = size;
+    }
+  }
+
   /**
    * Sets row specific information/metadata.
    *
@@ -250,7 +374,12 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0006_KEY_IS_NULL")); //$NON-NLS-1$
     }
 
-    metadataMap.put(ROW, row, key, value);
+    if (ROW_NAME.equals(key)) {
+      rowNames = setName(rowNames, row, toName(value));
+      rowNameIndex = null;
+    } else {
+      getMetadataMap().put(ROW, row, key, value);
+    }
   }
 
   /**
@@ -271,7 +400,11 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0005_KEY_IS_NULL")); //$NON-NLS-1$
     } else {
       // Row specific
-      metadata = metadataMap.get(ROW, row, key);
+      if (ROW_NAME.equals(key)) {
+        metadata = getRowName(row);
+      } else {
+        metadata = metadataMap == null ? null : metadataMap.get(ROW, row, key);
+      }
     }
 
     return metadata;
@@ -293,7 +426,12 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0006_KEY_IS_NULL")); //$NON-NLS-1$
     }
 
-    metadataMap.put(COL, col, key, value);
+    if (COL_NAME.equals(key)) {
+      colNames = setName(colNames, col, toName(value));
+      colNameIndex = null;
+    } else {
+      getMetadataMap().put(COL, col, key, value);
+    }
   }
 
   /**
@@ -314,7 +452,11 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0006_KEY_IS_NULL"));//$NON-NLS-1$
     } else {
       // Column specific
-      metadata = metadataMap.get(COL, col, key);
+      if (COL_NAME.equals(key)) {
+        metadata = getColumnName(col);
+      } else {
+        metadata = metadataMap == null ? null : metadataMap.get(COL, col, key);
+      }
     }
 
     return metadata;
@@ -337,7 +479,7 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0006_KEY_IS_NULL")); //$NON-NLS-1$
     }
 
-    metadataMap.put(CELL, row, col, key, value);
+    getMetadataMap().put(CELL, row, col, key, value);
   }
 
   /**
@@ -357,12 +499,34 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
       throw new IllegalArgumentException(Messages.getErrorString("ChartTableModel.ERROR_0006_KEY_IS_NULL"));//$NON-NLS-1$
     } else {
       // Cell specific
-      metadata = metadataMap.get(CELL, row, col, key);
+      metadata = metadataMap == null ? null : metadataMap.get(CELL, row, col, key);
     }
 
     return metadata;
   }
 
+  private NameIndex getRowNameIndex() {
+    if (rowNameIndex == null) {
+      rowNameIndex = new NameIndex(rowNames);
+    }
+    return rowNameIndex;
+  }
+
+  private NameIndex getColNameIndex() {
+    if (colNameIndex == null) {
+      colNameIndex = new NameIndex(colNames);
+    }
+    return colNameIndex;
+  }
+
+  private int checkRow(final int row) {
+    return row < rowCount ? row : -1;
+  }
+
+  private int checkCol(final int col) {
+    return col < colCount ? col : -1;
+  }
+
   /**
    * Returns the row number of the 1st row with the specified row name.
    *
@@ -370,12 +534,36 @@ class BaseChartTableModel extends AbstractTableModel implements ChartData {
    * @return the row number of the 1st row with the specified row name, or <code>-1</code> if none found.
    */
   public int findRow(String rowName) {
-    for (int i = 0; i < getRowCount(); i++) {
-      String name = getRowName(i);
-      if (name.equals(rowName)) {
-        return i;
-      }
-    }
-    return -1;
+    return checkRow(getRowNameIndex().find(rowName));
+  }
+
+  /**
+   * Returns the row number of the 1st row whose name equals the specified name, ignoring case.
+   *
+   * @param rowName the row name
+   * @return the row number, or <code>-1</code> if none found.
+   */
+  public int findRowIgnoreCase(String rowName) {
+    return checkRow(getRowNameIndex().findIgnoreCase(rowName));
+  }
+
+  /**
+   * Returns the number of the 1st column with the specified column name.
+   *
+   * @param columnName the column name
+   * @return the column number, or <code>-1</code> if none found.
+   */
+  public int findColumn(String columnName) {
+    return checkCol(getColNameIndex().find(columnName));
+  }
+
+  /**
+   * Returns the number of the 1st column whose name equals the specified name, ignoring case.
+   *
+   * @param columnName the column name
+   * @return the column number, or <code>-1</code> if none found.
+   */
+  public int findColumnIgnoreCase(String columnName) {
+    return checkCol(getColNameIndex().findIgnoreCase(columnName));
   }
 }
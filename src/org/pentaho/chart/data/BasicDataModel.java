@@ -20,39 +20,74 @@ package org.pentaho.chart.data;
 import java.util.ArrayList;
 import java.util.List;
 
-public class BasicDataModel implements IChartDataModel, IScalableDataModel {
+public class BasicDataModel implements IChartDataModel, IScalableDataModel, ISummarizedDataModel {
   
   Number scalingFactor = 1;
   
   List<Number> values = new ArrayList<Number>();
   boolean autoSum = true;
+  Accumulator accumulator;
+  SummaryStatistics statistics = new SummaryStatistics(false);
   
   public BasicDataModel() {
     this(true);
   }
   
   public BasicDataModel(boolean autoSum) {
-    this.autoSum = autoSum;
+    this(autoSum ? AggregationFunction.SUM : null);
+  }
+
+  /**
+   * Creates a data model that aggregates all data points into a single value using the given function, or keeps
+   * every data point if the function is <code>null</code>.
+   */
+  public BasicDataModel(AggregationFunction aggregationFunction) {
+    this.autoSum = aggregationFunction != null;
+    if (autoSum) {
+      accumulator = new Accumulator(aggregationFunction);
+    }
   }
 
   public void addDataPoint(Number rangeValue) {
-    if (values.size() == 0) {
-      values.add(rangeValue);
-    } else if (autoSum) {
-      if (values.get(0) != null) {
-        values.set(0, values.get(0).doubleValue() + rangeValue.doubleValue());
-      } else {
-        values.set(0, rangeValue);
+    if (autoSum) {
+      // The running total is kept in the accumulator and only boxed when the data is requested.
+      accumulator.add(rangeValue);
+      if (values.size() == 0) {
+        values.add(null);
       }
     } else {
       values.add(rangeValue);
+      statistics.add(rangeValue);
     }     
   }
   
   public List<Number> getData() {
+    if (autoSum && (values.size() > 0)) {
+      values.set(0, accumulator.getValue());
+    }
     return values;
   }
 
+  /**
+   * Returns the summary of the values returned by {@link #getData()}. When the model aggregates its data points this
+   * is the single aggregated value.
+   */
+  public DataSummary getSummary() {
+    if (autoSum) {
+      statistics.clear();
+      if (values.size() > 0) {
+        statistics.add(accumulator.getValue());
+      }
+    } else if (statistics.getCount() + statistics.getNullCount() != values.size()) {
+      // The list returned by getData() was changed directly.
+      statistics.clear();
+      for (Number value : values) {
+        statistics.add(value);
+      }
+    }
+    return statistics;
+  }
+
   public Number getScalingFactor() {
     return scalingFactor;
   }
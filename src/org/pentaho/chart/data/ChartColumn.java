@@ -0,0 +1,255 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * A single typed column of a columnar {@link ChartTableModel}. Numeric columns keep their values in primitive arrays
+ * and string columns are dictionary encoded, so a column of numbers or of repeated labels takes a fraction of the
+ * memory of an <code>Object[]</code> and can be read without unboxing through {@link #getDouble(int)}.
+ * <p/>
+ * Columns are created with {@link #create(Object[])}, which picks the most compact representation that returns equal
+ * values from {@link #get(int)}. Typed columns box their values again on each call, so the returned objects are not
+ * necessarily the ones that were passed in.
+ */
+public abstract class ChartColumn {
+
+  ChartColumn() {
+  }
+
+  /**
+   * Returns the number of values in this column.
+   */
+  public abstract int size();
+
+  /**
+   * Returns the value at the given row, or <code>null</code>.
+   */
+  public abstract Object get(int row);
+
+  /**
+   * Returns the value at the given row as a double, or <code>Double.NaN</code> if it is <code>null</code> or not a
+   * number.
+   */
+  public double getDouble(int row) {
+    Object value = get(row);
+    return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+  }
+
+  /**
+   * Sets the value at the given row. Returns the column that holds the value afterwards, which is a generic object
+   * column if the value does not fit into this column's type.
+   */
+  abstract ChartColumn set(int row, Object value);
+
+  /**
+   * Creates the most compact column that can hold the given values. The column never keeps the array, so the caller
+   * may reuse it.
+   */
+  public static ChartColumn create(Object[] values) {
+    boolean allDoubles = true;
+    boolean allLongs = true;
+    boolean allIntegers = true;
+    boolean allStrings = true;
+    for (Object value : values) {
+      if (value == null) {
+        continue;
+      }
+      allDoubles &= value instanceof Double;
+      allLongs &= value instanceof Long;
+      allIntegers &= value instanceof Integer;
+      allStrings &= value instanceof String;
+    }
+    if (allDoubles) {
+      return new DoubleColumn(values);
+    }
+    if (allLongs || allIntegers) {
+      return new LongColumn(values, allIntegers);
+    }
+    if (allStrings) {
+      return new DictionaryColumn(values);
+    }
+    return new ObjectColumn(values.clone());
+  }
+
+  static ObjectColumn toObjectColumn(ChartColumn column) {
+    Object[] values = new Object[column.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = column.get(i);
+    }
+    return new ObjectColumn(values);
+  }
+
+  static class DoubleColumn extends ChartColumn {
+    final double[] values;
+    final BitSet nulls = new BitSet();
+
+    DoubleColumn(Object[] source) {
+      values = new double[source.length];
+      for (int i = 0; i < source.length; i++) {
+        if (source[i] == null) {
+          nulls.set(i);
+        } else {
+          values[i] = ((Double) source[i]).doubleValue();
+        }
+      }
+    }
+
+    public int size() {
+      return values.length;
+    }
+
+    public Object get(int row) {
+      return nulls.get(row) ? null : Double.valueOf(values[row]);
+    }
+
+    public double getDouble(int row) {
+      return nulls.get(row) ? Double.NaN : values[row];
+    }
+
+    ChartColumn set(int row, Object value) {
+      if (value == null) {
+        nulls.set(row);
+      } else if (value instanceof Double) {
+        values[row] = ((Double) value).doubleValue();
+        nulls.clear(row);
+      } else {
+        return toObjectColumn(this).set(row, value);
+      }
+      return this;
+    }
+  }
+
+  static class LongColumn extends ChartColumn {
+    final long[] values;
+    final BitSet nulls = new BitSet();
+    final boolean integers;
+
+    LongColumn(Object[] source, boolean integers) {
+      this.integers = integers;
+      values = new long[source.length];
+      for (int i = 0; i < source.length; i++) {
+        if (source[i] == null) {
+          nulls.set(i);
+        } else {
+          values[i] = ((Number) source[i]).longValue();
+        }
+      }
+    }
+
+    public int size() {
+      return values.length;
+    }
+
+    public Object get(int row) {
+      if (nulls.get(row)) {
+        return null;
+      }
+      return integers ? (Object) Integer.valueOf((int) values[row]) : (Object) Long.valueOf(values[row]);
+    }
+
+    public double getDouble(int row) {
+      return nulls.get(row) ? Double.NaN : values[row];
+    }
+
+    ChartColumn set(int row, Object value) {
+      if (value == null) {
+        nulls.set(row);
+      } else if (integers ? value instanceof Integer : value instanceof Long) {
+        values[row] = ((Number) value).longValue();
+        nulls.clear(row);
+      } else {
+        return toObjectColumn(this).set(row, value);
+      }
+      return this;
+    }
+  }
+
+  static class DictionaryColumn extends ChartColumn {
+    final int[] codes;
+    Object[] dictionary = new Object[16];
+    final HashMap<Object, Integer> index = new HashMap<Object, Integer>();
+
+    DictionaryColumn(Object[] source) {
+      codes = new int[source.length];
+      // Code 0 is reserved for null.
+      index.put(null, 0);
+      for (int i = 0; i < source.length; i++) {
+        codes[i] = encode(source[i]);
+      }
+    }
+
+    int encode(Object value) {
+      Integer code = index.get(value);
+      if (code == null) {
+        code = index.size();
+        if (code >= dictionary.length) {
+          Object[] newDictionary = new Object[dictionary.length * 2];
+          System.arraycopy(dictionary, 0, newDictionary, 0, dictionary.length);
+          dictionary = newDictionary;
+        }
+        dictionary[code] = value;
+        index.put(value, code);
+      }
+      return code;
+    }
+
+    public int size() {
+      return codes.length;
+    }
+
+    public Object get(int row) {
+      return dictionary[codes[row]];
+    }
+
+    public double getDouble(int row) {
+      return Double.NaN;
+    }
+
+    ChartColumn set(int row, Object value) {
+      if ((value != null) && !(value instanceof String)) {
+        return toObjectColumn(this).set(row, value);
+      }
+      codes[row] = encode(value);
+      return this;
+    }
+  }
+
+  static class ObjectColumn extends ChartColumn {
+    final Object[] values;
+
+    ObjectColumn(Object[] values) {
+      this.values = values;
+    }
+
+    public int size() {
+      return values.length;
+    }
+
+    public Object get(int row) {
+      return values[row];
+    }
+
+    ChartColumn set(int row, Object value) {
+      values[row] = value;
+      return this;
+    }
+  }
+}
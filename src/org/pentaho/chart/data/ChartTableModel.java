@@ -99,6 +99,15 @@ public class ChartTableModel extends BaseChartTableModel {
     return (rotated ? super.getValueAt(col, row) : super.getValueAt(row, col));
   }
 
+  /**
+   * Returns the data at the specified (row, col) as a double
+   *
+   * @return the value, or <code>Double.NaN</code> if the cell is empty or is not a number
+   */
+  public double getDoubleValueAt(final int row, final int col) {
+    return (rotated ? super.getDoubleValueAt(col, row) : super.getDoubleValueAt(row, col));
+  }
+
   /**
    * Sets the data at the specified (row, col)
    *
@@ -220,7 +229,33 @@ public class ChartTableModel extends BaseChartTableModel {
     }
   }
 
+  /**
+   * Returns the 0-based number of the 1st row with the specified name, or <code>-1</code> if none found
+   */
   public int findRow(String rowName) {
-    return (rotated ? super.findColumn(rowName) : findRow(rowName));
+    return (rotated ? super.findColumn(rowName) : super.findRow(rowName));
+  }
+
+  /**
+   * Returns the 0-based number of the 1st row whose name matches the specified name ignoring case, or
+   * <code>-1</code> if none found
+   */
+  public int findRowIgnoreCase(String rowName) {
+    return (rotated ? super.findColumnIgnoreCase(rowName) : super.findRowIgnoreCase(rowName));
+  }
+
+  /**
+   * Returns the 0-based number of the 1st column with the specified name, or <code>-1</code> if none found
+   */
+  public int findColumn(String columnName) {
+    return (rotated ? super.findRow(columnName) : super.findColumn(columnName));
+  }
+
+  /**
+   * Returns the 0-based number of the 1st column whose name matches the specified name ignoring case, or
+   * <code>-1</code> if none found
+   */
+  public int findColumnIgnoreCase(String columnName) {
+    return (rotated ? super.findRowIgnoreCase(columnName) : super.findColumnIgnoreCase(columnName));
   }
 }
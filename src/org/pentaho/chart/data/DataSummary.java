@@ -0,0 +1,74 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+/**
+ * Summary statistics of the values in a chart data model. Models keep their summary up to date as values are added,
+ * so axis ranges and stacked totals can be read without another pass over the data.
+ * <p/>
+ * Values are unscaled. Models without categories treat each value as its own stack.
+ */
+public interface DataSummary {
+
+  /**
+   * Returns the number of data points that have a value.
+   */
+  public int getCount();
+
+  /**
+   * Returns the number of data points that have no value.
+   */
+  public int getNullCount();
+
+  /**
+   * Returns the smallest value, or <code>null</code> if there are no values.
+   */
+  public Number getMinValue();
+
+  /**
+   * Returns the largest value, or <code>null</code> if there are no values.
+   */
+  public Number getMaxValue();
+
+  public double getSum();
+
+  /**
+   * Returns the number of categories that values are stacked by, or 0 if the model has no categories.
+   */
+  public int getCategoryCount();
+
+  /**
+   * Returns the sum of the positive values in the given category.
+   */
+  public double getPositiveStackSum(int category);
+
+  /**
+   * Returns the sum of the negative values in the given category.
+   */
+  public double getNegativeStackSum(int category);
+
+  /**
+   * Returns the largest positive stack sum, or 0 if there are no positive values.
+   */
+  public double getMaxStackSum();
+
+  /**
+   * Returns the smallest negative stack sum, or 0 if there are no negative values.
+   */
+  public double getMinStackSum();
+}
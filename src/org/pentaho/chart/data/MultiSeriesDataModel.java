@@ -17,14 +17,27 @@
 
 package org.pentaho.chart.data;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 
-public class MultiSeriesDataModel implements IChartDataModel, IScalableDataModel {
+public class MultiSeriesDataModel implements IChartDataModel, IScalableDataModel, ISummarizedDataModel {
   
-  LinkedHashMap<String, NamedValuesDataModel> chartData = new LinkedHashMap<String, NamedValuesDataModel>();
+  private static final Number[] EMPTY_ROW = new Number[0];
+
+  // Values are held as one row per domain, indexed by series position. Rows grow lazily, so a row
+  // shorter than the series count holds nulls for the missing series.
+  ArrayList<String> domainNames = new ArrayList<String>();
+  ArrayList<String> seriesNames = new ArrayList<String>();
+  HashMap<String, Integer> domainIndexes = new HashMap<String, Integer>();
+  HashMap<String, Integer> seriesIndexes = new HashMap<String, Integer>();
+  ArrayList<Number[]> rows = new ArrayList<Number[]>();
+  SummaryStatistics statistics = new SummaryStatistics(true);
   Number scalingFactor = 1;
   
   public class SeriesData extends NamedValuesDataModel {
@@ -73,89 +86,293 @@ public class MultiSeriesDataModel implements IChartDataModel, IScalableDataModel
     }
   }
   
-  public void addValue(String categoryName, String seriesName, Number value) {    
-    NamedValuesDataModel namedValueDataModel = chartData.get(categoryName);
-    if (namedValueDataModel == null) {
-      namedValueDataModel = new NamedValuesDataModel();
-      if (chartData.size() > 0) {
-         for (NamedValue existingDataPoint : chartData.values().iterator().next()) {
-           namedValueDataModel.add(new NamedValue(existingDataPoint.getName(), null));
+  /**
+   * A read-only, live view of one row or column of the model. Values are read straight from the
+   * model's storage, so use the indexed accessors in hot loops; iterating creates a
+   * <code>NamedValue</code> per element.
+   */
+  public abstract class ValuesView implements Iterable<NamedValue> {
+    final int index;
+    
+    ValuesView(int index) {
+      this.index = index;
+    }
+    
+    public abstract int size();
+    
+    public abstract String getName(int i);
+    
+    public abstract Number getValue(int i);
+    
+    public Iterator<NamedValue> iterator() {
+      return new Iterator<NamedValue>() {
+        int i = 0;
+        
+        public boolean hasNext() {
+          return i < size();
         }
-      }
-      chartData.put(categoryName, namedValueDataModel);
+        
+        public NamedValue next() {
+          if (i >= size()) {
+            throw new NoSuchElementException();
+          }
+          NamedValue namedValue = new NamedValue(getName(i), getValue(i));
+          i++;
+          return namedValue;
+        }
+        
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+  
+  /**
+   * The values of every series for one domain, in series order.
+   */
+  public class DomainView extends ValuesView {
+    DomainView(int domainIndex) {
+      super(domainIndex);
+    }
+    
+    public String getDomainName() {
+      return domainNames.get(index);
+    }
+    
+    public int size() {
+      return seriesNames.size();
+    }
+    
+    public String getName(int i) {
+      return seriesNames.get(i);
     }
     
-    NamedValue existingDataPoint = namedValueDataModel.getNamedValue(seriesName);
-    if (existingDataPoint == null) {
-      namedValueDataModel.add(new NamedValue(seriesName.toString(), value));
-      for (String tmpCategory : chartData.keySet()) {
-        if (!categoryName.equals(tmpCategory)) {
-          chartData.get(tmpCategory).add(new NamedValue(seriesName.toString(), null));
+    public Number getValue(int i) {
+      return MultiSeriesDataModel.this.getValue(index, i);
+    }
+  }
+  
+  /**
+   * The values of one series across every domain, in domain order.
+   */
+  public class SeriesView extends ValuesView {
+    SeriesView(int seriesIndex) {
+      super(seriesIndex);
+    }
+    
+    public String getSeriesName() {
+      return seriesNames.get(index);
+    }
+    
+    public int size() {
+      return domainNames.size();
+    }
+    
+    public String getName(int i) {
+      return domainNames.get(i);
+    }
+    
+    public Number getValue(int i) {
+      return MultiSeriesDataModel.this.getValue(i, index);
+    }
+  }
+  
+  public void addValue(String categoryName, String seriesName, Number value) {    
+    Integer domainIndex = domainIndexes.get(categoryName);
+    if (domainIndex == null) {
+      domainIndex = domainNames.size();
+      domainNames.add(categoryName);
+      domainIndexes.put(categoryName, domainIndex);
+      rows.add(EMPTY_ROW);
+    }
+    
+    Integer seriesIndex = seriesIndexes.get(seriesName);
+    if (seriesIndex == null) {
+      seriesIndex = seriesNames.size();
+      seriesNames.add(seriesName.toString());
+      seriesIndexes.put(seriesName, seriesIndex);
+    }
+    
+    Number[] row = rows.get(domainIndex);
+    if (seriesIndex >= row.length) {
+      row = Arrays.copyOf(row, Math.max(seriesIndex + 1, seriesNames.size()));
+      rows.set(domainIndex, row);
+    }
+    
+    Number existingValue = row[seriesIndex];
+    if (existingValue == null) {
+      row[seriesIndex] = value;
+    } else if (value != null) {
+      row[seriesIndex] = existingValue.doubleValue() + value.doubleValue();
+    }
+    if ((existingValue == null) || (row[seriesIndex] != existingValue)) {
+      statistics.replace(domainIndex, existingValue, row[seriesIndex]);
+    }
+    statistics.setPointCount(getPointCount());
+  }
+  
+  /**
+   * Returns the summary of the model's values, stacked by domain.
+   */
+  public DataSummary getSummary() {
+    if (!statistics.isValid()) {
+      statistics.clear();
+      for (int i = 0; i < domainNames.size(); i++) {
+        for (int j = 0; j < seriesNames.size(); j++) {
+          statistics.add(i, getValue(i, j));
         }
       }
-    } else if (existingDataPoint.getValue() == null) {
-      existingDataPoint.setValue(value);
-    } else if (value != null){
-      existingDataPoint.setValue(((Number)existingDataPoint.getValue()).doubleValue() + value.doubleValue());
     }
+    return statistics;
+  }
+  
+  public int getDomainCount() {
+    return domainNames.size();
+  }
+  
+  public int getSeriesCount() {
+    return seriesNames.size();
+  }
+  
+  /**
+   * Returns the number of data points in the model, which is every domain paired with every
+   * series whether or not a value was supplied for it.
+   */
+  public int getPointCount() {
+    return domainNames.size() * seriesNames.size();
+  }
+  
+  public List<String> getDomainNames() {
+    return Collections.unmodifiableList(domainNames);
+  }
+  
+  public List<String> getSeriesNames() {
+    return Collections.unmodifiableList(seriesNames);
+  }
+  
+  public Number getValue(int domainIndex, int seriesIndex) {
+    if (seriesIndex >= seriesNames.size()) {
+      throw new IndexOutOfBoundsException("Series index: " + seriesIndex); //$NON-NLS-1$
+    }
+    Number[] row = rows.get(domainIndex);
+    return seriesIndex < row.length ? row[seriesIndex] : null;
+  }
+  
+  public Number getValue(String domainName, String seriesName) {
+    Integer domainIndex = domainIndexes.get(domainName);
+    Integer seriesIndex = seriesIndexes.get(seriesName);
+    return (domainIndex == null) || (seriesIndex == null) ? null : getValue(domainIndex, seriesIndex);
+  }
+  
+  public DomainView getDomainView(int domainIndex) {
+    if ((domainIndex < 0) || (domainIndex >= domainNames.size())) {
+      throw new IndexOutOfBoundsException("Domain index: " + domainIndex); //$NON-NLS-1$
+    }
+    return new DomainView(domainIndex);
+  }
+  
+  public SeriesView getSeriesView(int seriesIndex) {
+    if ((seriesIndex < 0) || (seriesIndex >= seriesNames.size())) {
+      throw new IndexOutOfBoundsException("Series index: " + seriesIndex); //$NON-NLS-1$
+    }
+    return new SeriesView(seriesIndex);
+  }
+  
+  public SeriesView getSeriesView(String seriesName) {
+    Integer seriesIndex = seriesIndexes.get(seriesName);
+    return seriesIndex == null ? null : new SeriesView(seriesIndex);
+  }
+  
+  /**
+   * Returns a read-only, live list of domain views. Nothing is copied; each view reads the model
+   * directly.
+   */
+  public List<DomainView> getDomainViews() {
+    return new AbstractList<DomainView>() {
+      public DomainView get(int index) {
+        return getDomainView(index);
+      }
+      
+      public int size() {
+        return domainNames.size();
+      }
+    };
+  }
+  
+  /**
+   * Returns a read-only, live list of series views. Nothing is copied; each view reads the model
+   * directly.
+   */
+  public List<SeriesView> getSeriesViews() {
+    return new AbstractList<SeriesView>() {
+      public SeriesView get(int index) {
+        return getSeriesView(index);
+      }
+      
+      public int size() {
+        return seriesNames.size();
+      }
+    };
   }
   
   public DomainData getDomainData(String domainName) {
     DomainData domainData = null;
-    NamedValuesDataModel namedValueDataModel = chartData.get(domainName);
-    if (namedValueDataModel != null) {
-      domainData = new DomainData(domainName);
-      domainData.addAll(namedValueDataModel);
+    Integer domainIndex = domainIndexes.get(domainName);
+    if (domainIndex != null) {
+      domainData = toDomainData(domainIndex);
     }
     return domainData;
   }
   
+  /**
+   * Returns a copy of the model by domain. Prefer {@link #getDomainViews()}, which does not copy.
+   */
   public List<DomainData> getDomainData() {
-    List<DomainData> domainData = new ArrayList<DomainData>();
-    for (Map.Entry<String, NamedValuesDataModel> mapEntry : chartData.entrySet()) {
-      DomainData domain = new DomainData(mapEntry.getKey());
-      domain.addAll(mapEntry.getValue());
-      domainData.add(domain);
+    List<DomainData> domainData = new ArrayList<DomainData>(domainNames.size());
+    for (int i = 0; i < domainNames.size(); i++) {
+      domainData.add(toDomainData(i));
     }
     return domainData;
   }
   
   public SeriesData getSeriesData(String seriesName) {
     SeriesData seriesData = null;
-    
-    if ((chartData.size() > 0) && chartData.values().iterator().next().getNames().contains(seriesName)) {
-      seriesData = new SeriesData(seriesName);
-      for (Map.Entry<String, NamedValuesDataModel> mapEntry : chartData.entrySet()) {
-        String domainName = mapEntry.getKey();
-        Number value = mapEntry.getValue().getNamedValue(seriesName).value; 
-        seriesData.add(new NamedValue(domainName, value));
-      }
+    Integer seriesIndex = seriesIndexes.get(seriesName);
+    if ((seriesIndex != null) && (domainNames.size() > 0)) {
+      seriesData = toSeriesData(seriesIndex);
     }
-       
     return seriesData;
   }
   
+  /**
+   * Returns a copy of the model by series. Prefer {@link #getSeriesViews()}, which does not copy.
+   */
   public List<SeriesData> getSeriesData() {
-    List<SeriesData> seriesList = new ArrayList<SeriesData>();
-    
-    List<String> seriesNames = new ArrayList<String>();
-    if (chartData.size() > 0) {
-      seriesNames.addAll(chartData.values().iterator().next().getNames());
-    }
-    
-    for (String seriesName : seriesNames) {
-      SeriesData series = new SeriesData(seriesName);
-      
-      for (Map.Entry<String, NamedValuesDataModel> mapEntry : chartData.entrySet()) {
-        String domainName = mapEntry.getKey();
-        Number value = mapEntry.getValue().getNamedValue(seriesName).value; 
-        series.add(new NamedValue(domainName, value));
+    List<SeriesData> seriesList = new ArrayList<SeriesData>(seriesNames.size());
+    if (domainNames.size() > 0) {
+      for (int i = 0; i < seriesNames.size(); i++) {
+        seriesList.add(toSeriesData(i));
       }
-      seriesList.add(series);
     }
-    
     return seriesList;
   }
+  
+  private DomainData toDomainData(int domainIndex) {
+    DomainData domain = new DomainData(domainNames.get(domainIndex));
+    for (int i = 0; i < seriesNames.size(); i++) {
+      domain.add(new NamedValue(seriesNames.get(i), getValue(domainIndex, i)));
+    }
+    return domain;
+  }
+  
+  private SeriesData toSeriesData(int seriesIndex) {
+    SeriesData series = new SeriesData(seriesNames.get(seriesIndex));
+    for (int i = 0; i < domainNames.size(); i++) {
+      series.add(new NamedValue(domainNames.get(i), getValue(i, seriesIndex)));
+    }
+    return series;
+  }
 
   public Number getScalingFactor() {
     return scalingFactor;
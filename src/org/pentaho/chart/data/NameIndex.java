@@ -0,0 +1,64 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Maps row or column names to the index of the first row or column with that name, both exactly and ignoring case.
+ * Names are case folded once when the index is built, so a lookup costs one hash lookup instead of a scan.
+ */
+class NameIndex {
+  private final HashMap<String, Integer> exactIndex = new HashMap<String, Integer>();
+  private final HashMap<String, Integer> foldedIndex = new HashMap<String, Integer>();
+
+  NameIndex(final String[] names) {
+    // Walk backwards so that the first occurrence of a name wins.
+    for (int i = names.length - 1; i >= 0; i--) {
+      final String name = names[i];
+      if (name != null) {
+        exactIndex.put(name, i);
+        foldedIndex.put(fold(name), i);
+      }
+    }
+  }
+
+  static String fold(final String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Returns the index of the first name that equals the given name, or <code>-1</code>.
+   */
+  int find(final String name) {
+    final Integer index = exactIndex.get(name);
+    return index == null ? -1 : index.intValue();
+  }
+
+  /**
+   * Returns the index of the first name that equals the given name ignoring case, or <code>-1</code>.
+   */
+  int findIgnoreCase(final String name) {
+    if (name == null) {
+      return -1;
+    }
+    final Integer index = foldedIndex.get(fold(name));
+    return index == null ? -1 : index.intValue();
+  }
+}
@@ -18,11 +18,77 @@
 package org.pentaho.chart.data;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 
-public class NamedValuesDataModel extends LinkedHashSet<NamedValue> implements IChartDataModel, IScalableDataModel {
+public class NamedValuesDataModel extends LinkedHashSet<NamedValue> implements IChartDataModel, IScalableDataModel,
+    ISummarizedDataModel {
   Number scalingFactor = 1;
+  SummaryStatistics statistics = new SummaryStatistics(false);
+  
+  public boolean add(NamedValue namedValue) {
+    boolean added = super.add(namedValue);
+    if (added) {
+      statistics.add(namedValue.getValue());
+    }
+    return added;
+  }
+  
+  public boolean remove(Object o) {
+    boolean removed = super.remove(o);
+    if (removed) {
+      statistics.invalidate();
+    }
+    return removed;
+  }
+  
+  public void clear() {
+    super.clear();
+    statistics.clear();
+  }
+  
+  /**
+   * Returns a shallow copy with its own summary, which is rebuilt from the copied values when it is first requested.
+   */
+  public Object clone() {
+    NamedValuesDataModel clone = (NamedValuesDataModel) super.clone();
+    clone.statistics = new SummaryStatistics(false);
+    clone.statistics.invalidate();
+    return clone;
+  }
+  
+  public Iterator<NamedValue> iterator() {
+    final Iterator<NamedValue> iterator = super.iterator();
+    return new Iterator<NamedValue>() {
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+      
+      public NamedValue next() {
+        return iterator.next();
+      }
+      
+      public void remove() {
+        iterator.remove();
+        statistics.invalidate();
+      }
+    };
+  }
+  
+  /**
+   * Returns the summary of the model's values. Values changed through {@link NamedValue#setValue(Number)} after they
+   * were added are not reflected.
+   */
+  public DataSummary getSummary() {
+    if (!statistics.isValid()) {
+      statistics.clear();
+      for (NamedValue namedValue : this) {
+        statistics.add(namedValue.getValue());
+      }
+    }
+    return statistics;
+  }
   
   public List<String> getNames() {
     List<String> names = new ArrayList<String>();
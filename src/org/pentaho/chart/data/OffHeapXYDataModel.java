@@ -0,0 +1,251 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * An XY data model for very large scatter plots that keeps its points outside the Java heap. Each series stores
+ * interleaved x/y doubles in fixed size chunks, either direct buffers or memory-mapped temporary files. A point costs
+ * 16 bytes off heap and nothing on heap. Missing values are stored as NaN.
+ * <p/>
+ * The model must be {@link #close() closed} once the chart has been rendered. Closing releases the buffers and deletes
+ * any temporary files; the model cannot be read afterwards, so do not close it while a chart is still rendering from
+ * it. The model is not thread safe for writing.
+ */
+public class OffHeapXYDataModel implements IChartDataModel, ISummarizedDataModel, Closeable {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final int POINT_BYTES = 16;
+
+  private static Object unsafe;
+  private static Method invokeCleaner;
+
+  static {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); //$NON-NLS-1$
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+    } catch (Exception e) {
+      // Not available before Java 9; buffers are released through their cleaner instead.
+      invokeCleaner = null;
+    }
+  }
+
+  public class Series {
+    final String seriesName;
+    final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    int size;
+
+    Series(String seriesName) {
+      this.seriesName = seriesName;
+    }
+
+    public String getSeriesName() {
+      return seriesName;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public double getX(int item) {
+      return chunks.get(item / chunkSize).getDouble((item % chunkSize) * POINT_BYTES);
+    }
+
+    public double getY(int item) {
+      return chunks.get(item / chunkSize).getDouble((item % chunkSize) * POINT_BYTES + 8);
+    }
+
+    void add(double x, double y) throws IOException {
+      int offset = size % chunkSize;
+      if (offset == 0) {
+        chunks.add(allocate());
+      }
+      ByteBuffer chunk = chunks.get(chunks.size() - 1);
+      chunk.putDouble(offset * POINT_BYTES, x);
+      chunk.putDouble(offset * POINT_BYTES + 8, y);
+      size++;
+    }
+  }
+
+  private final File directory;
+  private final int chunkSize;
+  private final LinkedHashMap<String, Series> series = new LinkedHashMap<String, Series>();
+  private final List<File> undeletedFiles = new ArrayList<File>();
+  private final SummaryStatistics domainStatistics = new SummaryStatistics(false);
+  private final SummaryStatistics rangeStatistics = new SummaryStatistics(false);
+  private boolean closed;
+
+  /**
+   * Creates a model backed by direct buffers.
+   */
+  public OffHeapXYDataModel() {
+    this(null, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a model backed by memory-mapped temporary files in the given directory, or by direct buffers if the
+   * directory is <code>null</code>.
+   */
+  public OffHeapXYDataModel(File directory) {
+    this(directory, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize the number of points held by each buffer or mapped file.
+   */
+  public OffHeapXYDataModel(File directory, int chunkSize) {
+    if ((chunkSize <= 0) || (chunkSize > Integer.MAX_VALUE / POINT_BYTES)) {
+      throw new IllegalArgumentException("chunkSize: " + chunkSize); //$NON-NLS-1$
+    }
+    this.directory = directory;
+    this.chunkSize = chunkSize;
+  }
+
+  public void addDataPoint(String seriesName, double domainValue, double rangeValue) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("closed"); //$NON-NLS-1$
+    }
+    Series target = series.get(seriesName);
+    if (target == null) {
+      target = new Series(seriesName);
+      series.put(seriesName, target);
+    }
+    target.add(domainValue, rangeValue);
+    domainStatistics.add(domainValue);
+    rangeStatistics.add(rangeValue);
+  }
+
+  public void addDataPoint(String seriesName, Number domainValue, Number rangeValue) throws IOException {
+    addDataPoint(seriesName, domainValue == null ? Double.NaN : domainValue.doubleValue(),
+        rangeValue == null ? Double.NaN : rangeValue.doubleValue());
+  }
+
+  public List<Series> getSeries() {
+    return Collections.unmodifiableList(new ArrayList<Series>(series.values()));
+  }
+
+  public Series getSeries(String seriesName) {
+    return series.get(seriesName);
+  }
+
+  /**
+   * Returns the total number of points in all series.
+   */
+  public long getPointCount() {
+    long pointCount = 0;
+    for (Series s : series.values()) {
+      pointCount += s.size;
+    }
+    return pointCount;
+  }
+
+  /**
+   * Returns the summary of the range (y) values of all series.
+   */
+  public DataSummary getSummary() {
+    return rangeStatistics;
+  }
+
+  /**
+   * Returns the summary of the domain (x) values of all series.
+   */
+  public DataSummary getDomainSummary() {
+    return domainStatistics;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Series s : series.values()) {
+      for (ByteBuffer chunk : s.chunks) {
+        release(chunk);
+      }
+      s.chunks.clear();
+      s.size = 0;
+    }
+    series.clear();
+    for (File file : undeletedFiles) {
+      file.delete();
+    }
+    undeletedFiles.clear();
+  }
+
+  private ByteBuffer allocate() throws IOException {
+    int chunkBytes = chunkSize * POINT_BYTES;
+    if (directory == null) {
+      return ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+    }
+    File file = File.createTempFile("chart-xy", ".dat", directory); //$NON-NLS-1$ //$NON-NLS-2$
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+    ByteBuffer chunk;
+    try {
+      chunk = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, chunkBytes);
+    } finally {
+      randomAccessFile.close();
+    }
+    // The mapping outlives the file on most platforms; elsewhere the file is deleted on close.
+    if (!file.delete()) {
+      undeletedFiles.add(file);
+    }
+    return chunk.order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Frees a direct or mapped buffer now rather than when it is garbage collected. Falls back to the garbage collector
+   * if the platform offers no way to do so.
+   */
+  private static void release(ByteBuffer buffer) {
+    try {
+      if (invokeCleaner != null) {
+        invokeCleaner.invoke(unsafe, buffer);
+      } else {
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner"); //$NON-NLS-1$
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner); //$NON-NLS-1$
+        }
+      }
+    } catch (Exception e) {
+      // Left to the garbage collector.
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.Arrays;
+
+/**
+ * Running {@link DataSummary} kept by the data models. Adding a value is O(1). Removing or replacing the current
+ * minimum or maximum invalidates the summary, and the owning model rebuilds it the next time it is requested.
+ */
+class SummaryStatistics implements DataSummary {
+
+  private static final double[] EMPTY_SUMS = new double[0];
+
+  private final boolean categorized;
+  private int pointCount;
+  private int count;
+  private double sum;
+  private Number minValue;
+  private Number maxValue;
+  private int categoryCount;
+  private double[] positiveStackSums = EMPTY_SUMS;
+  private double[] negativeStackSums = EMPTY_SUMS;
+  private boolean valid = true;
+
+  SummaryStatistics(boolean categorized) {
+    this.categorized = categorized;
+  }
+
+  void add(Number value) {
+    add(-1, value);
+  }
+
+  /**
+   * Adds an unboxed value to a summary without categories, treating NaN as a missing value. Only new extremes are
+   * boxed.
+   */
+  void add(double value) {
+    pointCount++;
+    if (Double.isNaN(value)) {
+      return;
+    }
+    count++;
+    sum += value;
+    if ((minValue == null) || (value < minValue.doubleValue())) {
+      minValue = value;
+    }
+    if ((maxValue == null) || (value > maxValue.doubleValue())) {
+      maxValue = value;
+    }
+  }
+
+  void add(int category, Number value) {
+    pointCount++;
+    if (categorized) {
+      ensureCategory(category);
+    }
+    if (value == null) {
+      return;
+    }
+    double doubleValue = value.doubleValue();
+    count++;
+    sum += doubleValue;
+    if ((minValue == null) || (doubleValue < minValue.doubleValue())) {
+      minValue = value;
+    }
+    if ((maxValue == null) || (doubleValue > maxValue.doubleValue())) {
+      maxValue = value;
+    }
+    if (categorized) {
+      if (doubleValue < 0) {
+        negativeStackSums[category] += doubleValue;
+      } else {
+        positiveStackSums[category] += doubleValue;
+      }
+    }
+  }
+
+  void replace(int category, Number oldValue, Number newValue) {
+    if (oldValue != null) {
+      double doubleValue = oldValue.doubleValue();
+      if ((doubleValue == minValue.doubleValue()) || (doubleValue == maxValue.doubleValue())) {
+        valid = false;
+      }
+      count--;
+      sum -= doubleValue;
+      if (categorized) {
+        if (doubleValue < 0) {
+          negativeStackSums[category] -= doubleValue;
+        } else {
+          positiveStackSums[category] -= doubleValue;
+        }
+      }
+    }
+    pointCount--;
+    add(category, newValue);
+  }
+
+  void setPointCount(int pointCount) {
+    this.pointCount = pointCount;
+  }
+
+  void clear() {
+    pointCount = 0;
+    count = 0;
+    sum = 0;
+    minValue = null;
+    maxValue = null;
+    categoryCount = 0;
+    positiveStackSums = EMPTY_SUMS;
+    negativeStackSums = EMPTY_SUMS;
+    valid = true;
+  }
+
+  void invalidate() {
+    valid = false;
+  }
+
+  boolean isValid() {
+    return valid;
+  }
+
+  private void ensureCategory(int category) {
+    if (category >= positiveStackSums.length) {
+      int length = Math.max(category + 1, positiveStackSums.length * 2);
+      positiveStackSums = Arrays.copyOf(positiveStackSums, length);
+      negativeStackSums = Arrays.copyOf(negativeStackSums, length);
+    }
+    categoryCount = Math.max(categoryCount, category + 1);
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public int getNullCount() {
+    return pointCount - count;
+  }
+
+  public Number getMinValue() {
+    return minValue;
+  }
+
+  public Number getMaxValue() {
+    return maxValue;
+  }
+
+  public double getSum() {
+    return sum;
+  }
+
+  public int getCategoryCount() {
+    return categoryCount;
+  }
+
+  public double getPositiveStackSum(int category) {
+    if ((category < 0) || (category >= categoryCount)) {
+      throw new IndexOutOfBoundsException("Category: " + category); //$NON-NLS-1$
+    }
+    return positiveStackSums[category];
+  }
+
+  public double getNegativeStackSum(int category) {
+    if ((category < 0) || (category >= categoryCount)) {
+      throw new IndexOutOfBoundsException("Category: " + category); //$NON-NLS-1$
+    }
+    return negativeStackSums[category];
+  }
+
+  public double getMaxStackSum() {
+    if (!categorized) {
+      return maxValue == null ? 0 : Math.max(0, maxValue.doubleValue());
+    }
+    double maxStackSum = 0;
+    for (int i = 0; i < categoryCount; i++) {
+      maxStackSum = Math.max(maxStackSum, positiveStackSums[i]);
+    }
+    return maxStackSum;
+  }
+
+  public double getMinStackSum() {
+    if (!categorized) {
+      return minValue == null ? 0 : Math.min(0, minValue.doubleValue());
+    }
+    double minStackSum = 0;
+    for (int i = 0; i < categoryCount; i++) {
+      minStackSum = Math.min(minStackSum, negativeStackSums[i]);
+    }
+    return minStackSum;
+  }
+}
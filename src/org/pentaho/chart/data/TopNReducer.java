@@ -0,0 +1,269 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Reduces a data model to its N largest entries by absolute value. The remaining entries are folded into a single
+ * "Other" entry whose value is the sum of the folded values. Named value models are reduced by value; multi series
+ * models are reduced by category, ranking each category by the sum of the absolute values of its series.
+ * <p/>
+ * The largest entries are selected with a bounded heap, so reducing <i>n</i> entries costs O(n log N). Ties are
+ * resolved in favour of the entry that came first.
+ */
+public class TopNReducer {
+
+  public static final String DEFAULT_OTHER_NAME = "Other";
+
+  /**
+   * The order in which the kept entries appear in the reduced model. The "Other" entry always comes last.
+   */
+  public enum Ordering {
+    /** Keep the order of the original model. */
+    ORIGINAL,
+    /** Largest absolute value first. */
+    VALUE_DESCENDING,
+    /** Smallest absolute value first. */
+    VALUE_ASCENDING,
+    /** Alphabetical by name. */
+    NAME
+  }
+
+  static class Entry {
+    final int index;
+    final String name;
+    final double weight;
+
+    Entry(int index, String name, double weight) {
+      this.index = index;
+      this.name = name;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Orders entries from the least to the most significant, so the heap head is the entry to evict.
+   */
+  static final Comparator<Entry> SIGNIFICANCE = new Comparator<Entry>() {
+    public int compare(Entry entry1, Entry entry2) {
+      int result = Double.compare(entry1.weight, entry2.weight);
+      if (result == 0) {
+        result = entry2.index - entry1.index;
+      }
+      return result;
+    }
+  };
+
+  int maxEntries;
+  String otherName = DEFAULT_OTHER_NAME;
+  boolean otherIncluded = true;
+  Ordering ordering = Ordering.ORIGINAL;
+
+  public TopNReducer(int maxEntries) {
+    setMaxEntries(maxEntries);
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException();
+    }
+    this.maxEntries = maxEntries;
+  }
+
+  public String getOtherName() {
+    return otherName;
+  }
+
+  public void setOtherName(String otherName) {
+    this.otherName = otherName;
+  }
+
+  /**
+   * Returns whether the entries that do not make the top N are folded into an "Other" entry or simply dropped.
+   */
+  public boolean isOtherIncluded() {
+    return otherIncluded;
+  }
+
+  public void setOtherIncluded(boolean otherIncluded) {
+    this.otherIncluded = otherIncluded;
+  }
+
+  public Ordering getOrdering() {
+    return ordering;
+  }
+
+  public void setOrdering(Ordering ordering) {
+    this.ordering = ordering == null ? Ordering.ORIGINAL : ordering;
+  }
+
+  /**
+   * Returns the name of the "Other" entry. If a kept entry already has that name, a suffix such as " (2)" is appended
+   * so the folded values are never merged into the kept entry.
+   */
+  String getUniqueOtherName(List<Entry> kept) {
+    Set<String> keptNames = new HashSet<String>();
+    for (Entry entry : kept) {
+      keptNames.add(entry.name);
+    }
+    String uniqueName = otherName;
+    for (int i = 2; keptNames.contains(uniqueName); i++) {
+      uniqueName = otherName + " (" + i + ")";
+    }
+    return uniqueName;
+  }
+
+  public NamedValuesDataModel reduce(NamedValuesDataModel namedValuesDataModel) {
+    if (namedValuesDataModel.size() <= maxEntries) {
+      return namedValuesDataModel;
+    }
+
+    List<NamedValue> namedValues = new ArrayList<NamedValue>(namedValuesDataModel);
+    List<Entry> entries = new ArrayList<Entry>(namedValues.size());
+    for (NamedValue namedValue : namedValues) {
+      entries.add(new Entry(entries.size(), namedValue.getName(), weight(namedValue.getValue())));
+    }
+    List<Entry> kept = select(entries);
+
+    boolean[] keep = new boolean[namedValues.size()];
+    NamedValuesDataModel reducedDataModel = new NamedValuesDataModel();
+    reducedDataModel.setScalingFactor(namedValuesDataModel.getScalingFactor());
+    for (Entry entry : kept) {
+      keep[entry.index] = true;
+      reducedDataModel.add(namedValues.get(entry.index));
+    }
+    if (otherIncluded) {
+      double otherValue = 0;
+      boolean hasValue = false;
+      for (int i = 0; i < keep.length; i++) {
+        Number value = namedValues.get(i).getValue();
+        if (!keep[i] && (value != null)) {
+          otherValue += value.doubleValue();
+          hasValue = true;
+        }
+      }
+      reducedDataModel.add(new NamedValue(getUniqueOtherName(kept), hasValue ? (Number) otherValue : null));
+    }
+    return reducedDataModel;
+  }
+
+  public MultiSeriesDataModel reduce(MultiSeriesDataModel multiSeriesDataModel) {
+    int domainCount = multiSeriesDataModel.getDomainCount();
+    if (domainCount <= maxEntries) {
+      return multiSeriesDataModel;
+    }
+
+    int seriesCount = multiSeriesDataModel.getSeriesCount();
+    List<String> domainNames = multiSeriesDataModel.getDomainNames();
+    List<Entry> entries = new ArrayList<Entry>(domainCount);
+    for (int i = 0; i < domainCount; i++) {
+      double weight = 0;
+      for (int j = 0; j < seriesCount; j++) {
+        weight += weight(multiSeriesDataModel.getValue(i, j));
+      }
+      entries.add(new Entry(i, domainNames.get(i), weight));
+    }
+    List<Entry> kept = select(entries);
+
+    List<String> seriesNames = multiSeriesDataModel.getSeriesNames();
+    boolean[] keep = new boolean[domainCount];
+    MultiSeriesDataModel reducedDataModel = new MultiSeriesDataModel();
+    reducedDataModel.setScalingFactor(multiSeriesDataModel.getScalingFactor());
+    for (Entry entry : kept) {
+      keep[entry.index] = true;
+      for (int j = 0; j < seriesCount; j++) {
+        reducedDataModel.addValue(entry.name, seriesNames.get(j), multiSeriesDataModel.getValue(entry.index, j));
+      }
+    }
+    if (otherIncluded) {
+      String uniqueOtherName = getUniqueOtherName(kept);
+      for (int j = 0; j < seriesCount; j++) {
+        String seriesName = seriesNames.get(j);
+        double otherValue = 0;
+        boolean hasValue = false;
+        for (int i = 0; i < keep.length; i++) {
+          Number value = multiSeriesDataModel.getValue(i, j);
+          if (!keep[i] && (value != null)) {
+            otherValue += value.doubleValue();
+            hasValue = true;
+          }
+        }
+        reducedDataModel.addValue(uniqueOtherName, seriesName, hasValue ? (Number) otherValue : null);
+      }
+    }
+    return reducedDataModel;
+  }
+
+  /**
+   * Returns the N most significant entries in the configured order.
+   */
+  List<Entry> select(List<Entry> entries) {
+    PriorityQueue<Entry> heap = new PriorityQueue<Entry>(maxEntries + 1, SIGNIFICANCE);
+    for (Entry entry : entries) {
+      if (heap.size() < maxEntries) {
+        heap.add(entry);
+      } else if (SIGNIFICANCE.compare(entry, heap.peek()) > 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+    }
+
+    List<Entry> kept = new ArrayList<Entry>(heap);
+    switch (ordering) {
+      case VALUE_DESCENDING:
+        Collections.sort(kept, Collections.reverseOrder(SIGNIFICANCE));
+        break;
+      case VALUE_ASCENDING:
+        Collections.sort(kept, SIGNIFICANCE);
+        break;
+      case NAME:
+        Collections.sort(kept, new Comparator<Entry>() {
+          public int compare(Entry entry1, Entry entry2) {
+            return entry1.name.compareTo(entry2.name);
+          }
+        });
+        break;
+      default:
+        Collections.sort(kept, new Comparator<Entry>() {
+          public int compare(Entry entry1, Entry entry2) {
+            return entry1.index - entry2.index;
+          }
+        });
+    }
+    return kept;
+  }
+
+  static double weight(Number value) {
+    if (value == null) {
+      return 0;
+    }
+    double weight = Math.abs(value.doubleValue());
+    return Double.isNaN(weight) ? 0 : weight;
+  }
+}
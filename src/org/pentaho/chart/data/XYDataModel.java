@@ -18,7 +18,94 @@
 package org.pentaho.chart.data;
 
 import java.util.ArrayList;
+import java.util.Collection;
 
-public class XYDataModel extends ArrayList<XYDataPoint> implements IChartDataModel {
+public class XYDataModel extends ArrayList<XYDataPoint> implements IChartDataModel, ISummarizedDataModel {
   
+  SummaryStatistics domainStatistics = new SummaryStatistics(false);
+  SummaryStatistics rangeStatistics = new SummaryStatistics(false);
+  // Appends keep the statistics current. Any other structural change shows up as a different modCount and
+  // causes a rebuild.
+  int summarizedModCount = modCount;
+  
+  public boolean add(XYDataPoint dataPoint) {
+    boolean summarized = summarizedModCount == modCount;
+    super.add(dataPoint);
+    if (summarized) {
+      summarize(dataPoint);
+      summarizedModCount = modCount;
+    }
+    return true;
+  }
+  
+  public void add(int index, XYDataPoint dataPoint) {
+    boolean summarized = summarizedModCount == modCount;
+    super.add(index, dataPoint);
+    if (summarized) {
+      summarize(dataPoint);
+      summarizedModCount = modCount;
+    }
+  }
+  
+  public boolean addAll(Collection<? extends XYDataPoint> dataPoints) {
+    boolean summarized = summarizedModCount == modCount;
+    boolean changed = super.addAll(dataPoints);
+    if (summarized) {
+      for (XYDataPoint dataPoint : dataPoints) {
+        summarize(dataPoint);
+      }
+      summarizedModCount = modCount;
+    }
+    return changed;
+  }
+  
+  public XYDataPoint set(int index, XYDataPoint dataPoint) {
+    XYDataPoint previous = super.set(index, dataPoint);
+    domainStatistics.invalidate();
+    return previous;
+  }
+  
+  /**
+   * Returns a shallow copy with its own summaries, which are rebuilt from the copied points when first requested.
+   */
+  public Object clone() {
+    XYDataModel clone = (XYDataModel) super.clone();
+    clone.domainStatistics = new SummaryStatistics(false);
+    clone.rangeStatistics = new SummaryStatistics(false);
+    clone.domainStatistics.invalidate();
+    return clone;
+  }
+  
+  private void summarize(XYDataPoint dataPoint) {
+    domainStatistics.add(dataPoint.getDomainValue());
+    rangeStatistics.add(dataPoint.getRangeValue());
+  }
+  
+  /**
+   * Returns the summary of the range (y) values. Points changed through their setters after they were added are not
+   * reflected.
+   */
+  public DataSummary getSummary() {
+    validateSummary();
+    return rangeStatistics;
+  }
+  
+  /**
+   * Returns the summary of the domain (x) values.
+   */
+  public DataSummary getDomainSummary() {
+    validateSummary();
+    return domainStatistics;
+  }
+  
+  private void validateSummary() {
+    if ((summarizedModCount != modCount) || !domainStatistics.isValid()) {
+      domainStatistics.clear();
+      rangeStatistics.clear();
+      for (XYDataPoint dataPoint : this) {
+        summarize(dataPoint);
+      }
+      summarizedModCount = modCount;
+    }
+  }
 }
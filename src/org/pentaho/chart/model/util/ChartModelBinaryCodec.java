@@ -0,0 +1,810 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.model.util;
+
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.pentaho.chart.model.AreaPlot;
+import org.pentaho.chart.model.Axis;
+import org.pentaho.chart.model.BarPlot;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.ChartTitle;
+import org.pentaho.chart.model.CssStyle;
+import org.pentaho.chart.model.DialPlot;
+import org.pentaho.chart.model.Grid;
+import org.pentaho.chart.model.LinePlot;
+import org.pentaho.chart.model.NumericAxis;
+import org.pentaho.chart.model.Palette;
+import org.pentaho.chart.model.PiePlot;
+import org.pentaho.chart.model.Plot;
+import org.pentaho.chart.model.ScatterPlot;
+import org.pentaho.chart.model.StyledText;
+import org.pentaho.chart.model.TwoAxisPlot;
+import org.pentaho.chart.model.Axis.LabelOrientation;
+import org.pentaho.chart.model.BarPlot.BarPlotFlavor;
+import org.pentaho.chart.model.ChartTitle.TitleLocation;
+import org.pentaho.chart.model.DialPlot.DialRange;
+import org.pentaho.chart.model.LinePlot.LinePlotFlavor;
+import org.pentaho.chart.model.Plot.Orientation;
+import org.pentaho.chart.model.Theme.ChartTheme;
+
+/**
+ * Reads and writes the binary form of a {@link ChartModel}. It carries exactly what the JSON and XML forms carry, so a
+ * model read back from any of the three forms is the same.
+ * <p/>
+ * The encoding starts with a magic number and a version, followed by a table of every string in the model and then
+ * the chart message. A message is a sequence of fields, each a varint tag (field number and wire type) followed by a
+ * varint, an eight byte double or a length prefixed value. Strings are written as indexes into the table, so font
+ * families, CSS property names and enum names are stored once. CSS styles are packed as pairs of string indexes and
+ * palettes as three bytes per color. Readers skip fields they do not know, so new fields can be added without
+ * changing the version.
+ */
+public class ChartModelBinaryCodec {
+
+  public static final int MAGIC = 0x50434D42;
+
+  public static final int VERSION = 1;
+
+  private static final Charset UTF_8 = Charset.forName( "UTF-8" ); //$NON-NLS-1$
+
+  private static final int VARINT = 0;
+  private static final int FIXED64 = 1;
+  private static final int LENGTH_DELIMITED = 2;
+
+  // Chart message. The plot type is given by the field that holds the plot.
+  private static final int CHART_ENGINE = 1;
+  private static final int CHART_THEME = 2;
+  private static final int CHART_STYLE = 3;
+  private static final int CHART_TITLE = 4;
+  private static final int CHART_SUBTITLE = 5;
+  private static final int CHART_LEGEND = 6;
+  private static final int CHART_BAR_PLOT = 7;
+  private static final int CHART_LINE_PLOT = 8;
+  private static final int CHART_AREA_PLOT = 9;
+  private static final int CHART_PIE_PLOT = 10;
+  private static final int CHART_DIAL_PLOT = 11;
+  private static final int CHART_SCATTER_PLOT = 12;
+
+  // Styled text message, used by titles, subtitles, axis legends and dial annotations.
+  private static final int TEXT_TEXT = 1;
+  private static final int TEXT_STYLE = 2;
+  private static final int TEXT_LOCATION = 3;
+
+  // Message holding only a style, used by the legend and pie labels.
+  private static final int STYLED_STYLE = 1;
+
+  // Plot message.
+  private static final int PLOT_ORIENTATION = 1;
+  private static final int PLOT_STYLE = 2;
+  private static final int PLOT_FLAVOR = 3;
+  private static final int PLOT_ANIMATE = 4;
+  private static final int PLOT_START_ANGLE = 5;
+  private static final int PLOT_PALETTE = 6;
+  private static final int PLOT_HORIZONTAL_AXIS = 7;
+  private static final int PLOT_VERTICAL_AXIS = 8;
+  private static final int PLOT_GRID = 9;
+  private static final int PLOT_RANGE = 10;
+  private static final int PLOT_LABELS = 11;
+  private static final int PLOT_ANNOTATION = 12;
+
+  // Axis message.
+  private static final int AXIS_LABEL_ORIENTATION = 1;
+  private static final int AXIS_STYLE = 2;
+  private static final int AXIS_MIN_VALUE = 3;
+  private static final int AXIS_MAX_VALUE = 4;
+  private static final int AXIS_LEGEND = 5;
+
+  // Grid message.
+  private static final int GRID_VERTICAL_LINES = 1;
+  private static final int GRID_HORIZONTAL_LINES = 2;
+
+  // Dial range message.
+  private static final int RANGE_MIN = 1;
+  private static final int RANGE_MAX = 2;
+  private static final int RANGE_COLOR = 3;
+
+  private ChartModelBinaryCodec() {
+  }
+
+  public static byte[] encode( ChartModel chartModel ) {
+    Encoder encoder = new Encoder();
+    Buffer body = encoder.encodeChart( chartModel );
+    Buffer out = new Buffer();
+    out.writeFixed32( MAGIC );
+    out.writeVarint( VERSION );
+    out.writeVarint( encoder.strings.size() );
+    for ( String string : encoder.strings.keySet() ) {
+      byte[] bytes = string.getBytes( UTF_8 );
+      out.writeVarint( bytes.length );
+      out.write( bytes, 0, bytes.length );
+    }
+    out.write( body.bytes, 0, body.size );
+    return out.toByteArray();
+  }
+
+  public static ChartModel decode( byte[] input ) {
+    Reader reader = new Reader( input, 0, input.length );
+    if ( reader.readFixed32() != MAGIC ) {
+      throw new IllegalArgumentException( "Not a binary chart model" ); //$NON-NLS-1$
+    }
+    int version = reader.readVarint();
+    if ( version != VERSION ) {
+      throw new IllegalArgumentException( "Unsupported binary chart model version: " + version ); //$NON-NLS-1$
+    }
+    int stringCount = reader.readLength();
+    String[] strings = new String[stringCount];
+    for ( int i = 0; i < stringCount; i++ ) {
+      int length = reader.readLength();
+      reader.require( length );
+      strings[i] = new String( input, reader.position, length, UTF_8 );
+      reader.position += length;
+    }
+    reader.strings = strings;
+    return decodeChart( reader );
+  }
+
+  private static class Encoder {
+    final LinkedHashMap<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+    int indexOf( String string ) {
+      Integer index = strings.get( string );
+      if ( index == null ) {
+        index = strings.size();
+        strings.put( string, index );
+      }
+      return index;
+    }
+
+    void writeString( Buffer buffer, int field, String string ) {
+      buffer.writeTag( field, VARINT );
+      buffer.writeVarint( indexOf( string ) );
+    }
+
+    void writeStyle( Buffer buffer, int field, CssStyle style ) {
+      if ( style.size() > 0 ) {
+        Buffer pairs = new Buffer();
+        for ( Map.Entry<String, String> entry : style.entrySet() ) {
+          // Same rules as CssStyle.setStyleString, which is how the text forms read a style back.
+          String name = String.valueOf( entry.getKey() ).trim();
+          String value = String.valueOf( entry.getValue() ).trim();
+          if ( isStyleToken( name ) && isStyleToken( value ) ) {
+            pairs.writeVarint( indexOf( name ) );
+            pairs.writeVarint( indexOf( value ) );
+          }
+        }
+        buffer.writeMessage( field, pairs );
+      }
+    }
+
+    void writeNumber( Buffer buffer, int field, Number number ) {
+      // The text forms read numbers back as an Integer if they can and as a Double otherwise.
+      String string = number.toString();
+      try {
+        int value = Integer.parseInt( string );
+        buffer.writeTag( field, VARINT );
+        buffer.writeVarint( zigZag( value ) );
+      } catch ( NumberFormatException ex ) {
+        try {
+          double value = Double.parseDouble( string );
+          buffer.writeTag( field, FIXED64 );
+          buffer.writeFixed64( Double.doubleToLongBits( value ) );
+        } catch ( NumberFormatException ex2 ) {
+          // Do nothing, the text forms drop it too.
+        }
+      }
+    }
+
+    Buffer encodeText( StyledText text ) {
+      Buffer buffer = new Buffer();
+      writeString( buffer, TEXT_TEXT, text.getText() );
+      writeStyle( buffer, TEXT_STYLE, text.getStyle() );
+      return buffer;
+    }
+
+    Buffer encodeStyled( CssStyle style ) {
+      Buffer buffer = new Buffer();
+      writeStyle( buffer, STYLED_STYLE, style );
+      return buffer;
+    }
+
+    Buffer encodeChart( ChartModel chartModel ) {
+      Buffer buffer = new Buffer();
+      if ( chartModel.getChartEngineId() != null ) {
+        writeString( buffer, CHART_ENGINE, chartModel.getChartEngineId() );
+      }
+      if ( chartModel.getTheme() != null ) {
+        writeString( buffer, CHART_THEME, chartModel.getTheme().toString() );
+      }
+      writeStyle( buffer, CHART_STYLE, chartModel.getStyle() );
+
+      if ( ( chartModel.getTitle() != null ) && ( chartModel.getTitle().getText() != null ) && (
+          chartModel.getTitle().getText().length() > 0 ) ) {
+        Buffer title = encodeText( chartModel.getTitle() );
+        TitleLocation location = chartModel.getTitle().getLocation();
+        if ( ( location != null ) && ( location != TitleLocation.TOP ) ) {
+          writeString( title, TEXT_LOCATION, location.toString() );
+        }
+        buffer.writeMessage( CHART_TITLE, title );
+      }
+
+      for ( StyledText subtitle : chartModel.getSubtitles() ) {
+        if ( ( subtitle.getText() != null ) && ( subtitle.getText().trim().length() > 0 ) ) {
+          buffer.writeMessage( CHART_SUBTITLE, encodeText( subtitle ) );
+        }
+      }
+
+      if ( ( chartModel.getLegend() != null ) && chartModel.getLegend().getVisible() ) {
+        buffer.writeMessage( CHART_LEGEND, encodeStyled( chartModel.getLegend().getStyle() ) );
+      }
+
+      Plot plot = chartModel.getPlot();
+      if ( plot != null ) {
+        int field = plotField( plot );
+        if ( field > 0 ) {
+          buffer.writeMessage( field, encodePlot( plot ) );
+        }
+      }
+      return buffer;
+    }
+
+    Buffer encodePlot( Plot plot ) {
+      Buffer buffer = new Buffer();
+      // Orientation comes first; setting it on a two axis plot swaps the axes the later fields apply to.
+      if ( plot.getOrientation() != null ) {
+        writeString( buffer, PLOT_ORIENTATION, plot.getOrientation().toString() );
+      }
+      writeStyle( buffer, PLOT_STYLE, plot.getStyle() );
+      if ( ( plot instanceof BarPlot ) && ( ( (BarPlot) plot ).getFlavor() != null ) ) {
+        writeString( buffer, PLOT_FLAVOR, ( (BarPlot) plot ).getFlavor().toString() );
+      } else if ( ( plot instanceof LinePlot ) && ( ( (LinePlot) plot ).getFlavor() != null ) ) {
+        writeString( buffer, PLOT_FLAVOR, ( (LinePlot) plot ).getFlavor().toString() );
+      } else if ( plot instanceof PiePlot ) {
+        PiePlot piePlot = (PiePlot) plot;
+        buffer.writeTag( PLOT_ANIMATE, VARINT );
+        buffer.writeVarint( piePlot.getAnimate() ? 1 : 0 );
+        buffer.writeTag( PLOT_START_ANGLE, VARINT );
+        buffer.writeVarint( zigZag( piePlot.getStartAngle() ) );
+      } else if ( plot instanceof DialPlot ) {
+        buffer.writeTag( PLOT_ANIMATE, VARINT );
+        buffer.writeVarint( ( (DialPlot) plot ).getAnimate() ? 1 : 0 );
+      }
+
+      Palette palette = plot.getPalette();
+      if ( palette != null ) {
+        Buffer colors = new Buffer();
+        for ( Integer rgb : palette ) {
+          if ( rgb != null ) {
+            colors.writeRgb( rgb );
+          }
+        }
+        if ( colors.size > 0 ) {
+          buffer.writeMessage( PLOT_PALETTE, colors );
+        }
+      }
+
+      if ( plot instanceof PiePlot ) {
+        PiePlot piePlot = (PiePlot) plot;
+        if ( piePlot.getLabels().getVisible() ) {
+          buffer.writeMessage( PLOT_LABELS, encodeStyled( piePlot.getLabels().getStyle() ) );
+        }
+      }
+
+      if ( plot instanceof TwoAxisPlot ) {
+        TwoAxisPlot twoAxisPlot = (TwoAxisPlot) plot;
+        buffer.writeMessage( PLOT_HORIZONTAL_AXIS, encodeAxis( twoAxisPlot.getHorizontalAxis() ) );
+        buffer.writeMessage( PLOT_VERTICAL_AXIS, encodeAxis( twoAxisPlot.getVerticalAxis() ) );
+        Grid grid = twoAxisPlot.getGrid();
+        if ( grid.getVisible() ) {
+          Buffer gridBuffer = new Buffer();
+          writeStyle( gridBuffer, GRID_VERTICAL_LINES, grid.getVerticalLineStyle() );
+          writeStyle( gridBuffer, GRID_HORIZONTAL_LINES, grid.getHorizontalLineStyle() );
+          buffer.writeMessage( PLOT_GRID, gridBuffer );
+        }
+      }
+
+      if ( plot instanceof DialPlot ) {
+        DialPlot dialPlot = (DialPlot) plot;
+        for ( DialRange dialRange : dialPlot.getScale() ) {
+          if ( ( dialRange.getMinValue() != null ) && ( dialRange.getMaxValue() != null ) ) {
+            Buffer range = new Buffer();
+            range.writeTag( RANGE_MIN, FIXED64 );
+            range.writeFixed64( Double.doubleToLongBits( Double.parseDouble( dialRange.getMinValue().toString() ) ) );
+            range.writeTag( RANGE_MAX, FIXED64 );
+            range.writeFixed64( Double.doubleToLongBits( Double.parseDouble( dialRange.getMaxValue().toString() ) ) );
+            if ( ( dialRange.getStyle().size() > 0 ) && ( dialRange.getStyle().getColor() != null ) ) {
+              range.writeTag( RANGE_COLOR, VARINT );
+              range.writeVarint( dialRange.getStyle().getColor() );
+            }
+            buffer.writeMessage( PLOT_RANGE, range );
+          }
+        }
+        StyledText annotation = dialPlot.getAnnotation();
+        if ( ( annotation != null ) && ( annotation.getText() != null ) && ( annotation.getText().length() > 0 ) ) {
+          buffer.writeMessage( PLOT_ANNOTATION, encodeText( annotation ) );
+        }
+      }
+      return buffer;
+    }
+
+    Buffer encodeAxis( Axis axis ) {
+      Buffer buffer = new Buffer();
+      if ( axis.getLabelOrientation() != LabelOrientation.HORIZONTAL ) {
+        writeString( buffer, AXIS_LABEL_ORIENTATION, String.valueOf( axis.getLabelOrientation() ) );
+      }
+      writeStyle( buffer, AXIS_STYLE, axis.getStyle() );
+      if ( axis instanceof NumericAxis ) {
+        NumericAxis numericAxis = (NumericAxis) axis;
+        if ( numericAxis.getMinValue() != null ) {
+          writeNumber( buffer, AXIS_MIN_VALUE, numericAxis.getMinValue() );
+        }
+        if ( numericAxis.getMaxValue() != null ) {
+          writeNumber( buffer, AXIS_MAX_VALUE, numericAxis.getMaxValue() );
+        }
+      }
+      if ( ( axis.getLegend().getText() != null ) && ( axis.getLegend().getText().length() > 0 ) ) {
+        buffer.writeMessage( AXIS_LEGEND, encodeText( axis.getLegend() ) );
+      }
+      return buffer;
+    }
+  }
+
+  private static int plotField( Plot plot ) {
+    // Like the text forms, only the plot classes of the model package are written.
+    Class<?> plotClass = plot.getClass();
+    int field = 0;
+    if ( plotClass == BarPlot.class ) {
+      field = CHART_BAR_PLOT;
+    } else if ( plotClass == LinePlot.class ) {
+      field = CHART_LINE_PLOT;
+    } else if ( plotClass == AreaPlot.class ) {
+      field = CHART_AREA_PLOT;
+    } else if ( plotClass == PiePlot.class ) {
+      field = CHART_PIE_PLOT;
+    } else if ( plotClass == DialPlot.class ) {
+      field = CHART_DIAL_PLOT;
+    } else if ( plotClass == ScatterPlot.class ) {
+      field = CHART_SCATTER_PLOT;
+    }
+    return field;
+  }
+
+  private static boolean isStyleToken( String token ) {
+    return ( token.length() > 0 ) && ( token.indexOf( ':' ) < 0 ) && ( token.indexOf( ';' ) < 0 );
+  }
+
+  private static int zigZag( int value ) {
+    return ( value << 1 ) ^ ( value >> 31 );
+  }
+
+  private static int unZigZag( int value ) {
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  private static <T extends Enum<T>> T toEnum( Class<T> enumClass, String name ) {
+    try {
+      return Enum.valueOf( enumClass, name.toUpperCase() );
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
+  private static ChartModel decodeChart( Reader reader ) {
+    ChartModel chartModel = new ChartModel();
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if ( ( field == CHART_ENGINE ) && ( wireType == VARINT ) ) {
+        chartModel.setChartEngineId( reader.readString() );
+      } else if ( ( field == CHART_THEME ) && ( wireType == VARINT ) ) {
+        ChartTheme theme = toEnum( ChartTheme.class, reader.readString() );
+        if ( theme != null ) {
+          chartModel.setTheme( theme );
+        }
+      } else if ( ( field == CHART_STYLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        reader.readStyle( chartModel.getStyle() );
+      } else if ( ( field == CHART_TITLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        decodeText( reader.readMessage(), chartModel.getTitle() );
+      } else if ( ( field == CHART_SUBTITLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        StyledText subtitle = new StyledText();
+        decodeText( reader.readMessage(), subtitle );
+        if ( ( subtitle.getText() != null ) && ( subtitle.getText().trim().length() > 0 ) ) {
+          chartModel.getSubtitles().add( subtitle );
+        }
+      } else if ( ( field == CHART_LEGEND ) && ( wireType == LENGTH_DELIMITED ) ) {
+        chartModel.getLegend().setVisible( true );
+        decodeStyled( reader.readMessage(), chartModel.getLegend().getStyle() );
+      } else if ( ( field >= CHART_BAR_PLOT ) && ( field <= CHART_SCATTER_PLOT ) && ( wireType == LENGTH_DELIMITED ) ) {
+        chartModel.setPlot( decodePlot( reader.readMessage(), field ) );
+      } else {
+        reader.skip( wireType );
+      }
+    }
+    return chartModel;
+  }
+
+  private static void decodeText( Reader reader, StyledText text ) {
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if ( ( field == TEXT_TEXT ) && ( wireType == VARINT ) ) {
+        text.setText( reader.readString() );
+      } else if ( ( field == TEXT_STYLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        reader.readStyle( text.getStyle() );
+      } else if ( ( field == TEXT_LOCATION ) && ( wireType == VARINT ) && ( text instanceof ChartTitle ) ) {
+        TitleLocation location = toEnum( TitleLocation.class, reader.readString() );
+        if ( location != null ) {
+          ( (ChartTitle) text ).setLocation( location );
+        }
+      } else {
+        reader.skip( wireType );
+      }
+    }
+  }
+
+  private static void decodeStyled( Reader reader, CssStyle style ) {
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      if ( tag == ( ( STYLED_STYLE << 3 ) | LENGTH_DELIMITED ) ) {
+        reader.readStyle( style );
+      } else {
+        reader.skip( tag & 7 );
+      }
+    }
+  }
+
+  private static Plot decodePlot( Reader reader, int plotField ) {
+    Plot plot;
+    switch ( plotField ) {
+      case CHART_BAR_PLOT:
+        plot = new BarPlot();
+        ( (TwoAxisPlot) plot ).getGrid().setVisible( false );
+        break;
+      case CHART_LINE_PLOT:
+        plot = new LinePlot();
+        ( (TwoAxisPlot) plot ).getGrid().setVisible( false );
+        break;
+      case CHART_AREA_PLOT:
+        plot = new AreaPlot();
+        ( (TwoAxisPlot) plot ).getGrid().setVisible( false );
+        break;
+      case CHART_SCATTER_PLOT:
+        plot = new ScatterPlot();
+        ( (TwoAxisPlot) plot ).getGrid().setVisible( false );
+        break;
+      case CHART_PIE_PLOT:
+        plot = new PiePlot();
+        ( (PiePlot) plot ).getLabels().setVisible( false );
+        break;
+      default:
+        plot = new DialPlot();
+        break;
+    }
+
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if ( ( field == PLOT_ORIENTATION ) && ( wireType == VARINT ) ) {
+        Orientation orientation = toEnum( Orientation.class, reader.readString() );
+        if ( orientation != null ) {
+          plot.setOrientation( orientation );
+        }
+      } else if ( ( field == PLOT_STYLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        reader.readStyle( plot.getStyle() );
+      } else if ( ( field == PLOT_FLAVOR ) && ( wireType == VARINT ) ) {
+        String flavor = reader.readString();
+        if ( plot instanceof BarPlot ) {
+          BarPlotFlavor barPlotFlavor = toEnum( BarPlotFlavor.class, flavor );
+          if ( barPlotFlavor != null ) {
+            ( (BarPlot) plot ).setFlavor( barPlotFlavor );
+          }
+        } else if ( plot instanceof LinePlot ) {
+          LinePlotFlavor linePlotFlavor = toEnum( LinePlotFlavor.class, flavor );
+          if ( linePlotFlavor != null ) {
+            ( (LinePlot) plot ).setFlavor( linePlotFlavor );
+          }
+        }
+      } else if ( ( field == PLOT_ANIMATE ) && ( wireType == VARINT ) ) {
+        boolean animate = reader.readVarint() != 0;
+        if ( plot instanceof PiePlot ) {
+          ( (PiePlot) plot ).setAnimate( animate );
+        } else if ( plot instanceof DialPlot ) {
+          ( (DialPlot) plot ).setAnimate( animate );
+        }
+      } else if ( ( field == PLOT_START_ANGLE ) && ( wireType == VARINT ) ) {
+        int startAngle = unZigZag( reader.readVarint() );
+        if ( plot instanceof PiePlot ) {
+          ( (PiePlot) plot ).setStartAngle( startAngle );
+        }
+      } else if ( ( field == PLOT_PALETTE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        Reader colors = reader.readMessage();
+        Palette palette = new Palette();
+        while ( colors.hasMore() ) {
+          palette.add( colors.readRgb() );
+        }
+        if ( palette.size() > 0 ) {
+          plot.setPalette( palette );
+        }
+      } else if ( ( ( field == PLOT_HORIZONTAL_AXIS ) || ( field == PLOT_VERTICAL_AXIS ) )
+          && ( wireType == LENGTH_DELIMITED ) && ( plot instanceof TwoAxisPlot ) ) {
+        TwoAxisPlot twoAxisPlot = (TwoAxisPlot) plot;
+        decodeAxis( reader.readMessage(), field == PLOT_VERTICAL_AXIS ? twoAxisPlot.getVerticalAxis()
+            : twoAxisPlot.getHorizontalAxis() );
+      } else if ( ( field == PLOT_GRID ) && ( wireType == LENGTH_DELIMITED ) && ( plot instanceof TwoAxisPlot ) ) {
+        Grid grid = ( (TwoAxisPlot) plot ).getGrid();
+        grid.setVisible( true );
+        Reader gridReader = reader.readMessage();
+        while ( gridReader.hasMore() ) {
+          int gridTag = gridReader.readVarint();
+          if ( gridTag == ( ( GRID_VERTICAL_LINES << 3 ) | LENGTH_DELIMITED ) ) {
+            gridReader.readStyle( grid.getVerticalLineStyle() );
+          } else if ( gridTag == ( ( GRID_HORIZONTAL_LINES << 3 ) | LENGTH_DELIMITED ) ) {
+            gridReader.readStyle( grid.getHorizontalLineStyle() );
+          } else {
+            gridReader.skip( gridTag & 7 );
+          }
+        }
+      } else if ( ( field == PLOT_RANGE ) && ( wireType == LENGTH_DELIMITED ) && ( plot instanceof DialPlot ) ) {
+        decodeRange( reader.readMessage(), (DialPlot) plot );
+      } else if ( ( field == PLOT_LABELS ) && ( wireType == LENGTH_DELIMITED ) && ( plot instanceof PiePlot ) ) {
+        PiePlot piePlot = (PiePlot) plot;
+        piePlot.getLabels().setVisible( true );
+        decodeStyled( reader.readMessage(), piePlot.getLabels().getStyle() );
+      } else if ( ( field == PLOT_ANNOTATION ) && ( wireType == LENGTH_DELIMITED ) && ( plot instanceof DialPlot ) ) {
+        decodeText( reader.readMessage(), ( (DialPlot) plot ).getAnnotation() );
+      } else {
+        reader.skip( wireType );
+      }
+    }
+    return plot;
+  }
+
+  private static void decodeAxis( Reader reader, Axis axis ) {
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if ( ( field == AXIS_LABEL_ORIENTATION ) && ( wireType == VARINT ) ) {
+        LabelOrientation labelOrientation = toEnum( LabelOrientation.class, reader.readString() );
+        if ( labelOrientation != null ) {
+          axis.setLabelOrientation( labelOrientation );
+        }
+      } else if ( ( field == AXIS_STYLE ) && ( wireType == LENGTH_DELIMITED ) ) {
+        reader.readStyle( axis.getStyle() );
+      } else if ( ( ( field == AXIS_MIN_VALUE ) || ( field == AXIS_MAX_VALUE ) ) && ( axis instanceof NumericAxis )
+          && ( ( wireType == VARINT ) || ( wireType == FIXED64 ) ) ) {
+        Number value = ( wireType == VARINT ) ? (Number) Integer.valueOf( unZigZag( reader.readVarint() ) )
+            : (Number) Double.valueOf( Double.longBitsToDouble( reader.readFixed64() ) );
+        if ( field == AXIS_MIN_VALUE ) {
+          ( (NumericAxis) axis ).setMinValue( value );
+        } else {
+          ( (NumericAxis) axis ).setMaxValue( value );
+        }
+      } else if ( ( field == AXIS_LEGEND ) && ( wireType == LENGTH_DELIMITED ) ) {
+        decodeText( reader.readMessage(), axis.getLegend() );
+      } else {
+        reader.skip( wireType );
+      }
+    }
+  }
+
+  private static void decodeRange( Reader reader, DialPlot dialPlot ) {
+    Double rangeMin = null;
+    Double rangeMax = null;
+    Integer color = null;
+    while ( reader.hasMore() ) {
+      int tag = reader.readVarint();
+      if ( tag == ( ( RANGE_MIN << 3 ) | FIXED64 ) ) {
+        rangeMin = Double.longBitsToDouble( reader.readFixed64() );
+      } else if ( tag == ( ( RANGE_MAX << 3 ) | FIXED64 ) ) {
+        rangeMax = Double.longBitsToDouble( reader.readFixed64() );
+      } else if ( tag == ( ( RANGE_COLOR << 3 ) | VARINT ) ) {
+        color = reader.readVarint();
+      } else {
+        reader.skip( tag & 7 );
+      }
+    }
+    if ( ( rangeMin != null ) && ( rangeMax != null ) ) {
+      dialPlot.getScale().addRange( new DialRange( rangeMin, rangeMax, color ) );
+    }
+  }
+
+  private static class Buffer {
+    byte[] bytes = new byte[64];
+    int size;
+
+    void ensure( int extra ) {
+      if ( size + extra > bytes.length ) {
+        byte[] grown = new byte[Math.max( bytes.length * 2, size + extra )];
+        System.arraycopy( bytes, 0, grown, 0, size );
+        bytes = grown;
+      }
+    }
+
+    void write( byte[] source, int offset, int length ) {
+      ensure( length );
+      System.arraycopy( source, offset, bytes, size, length );
+      size += length;
+    }
+
+    void writeVarint( int value ) {
+      ensure( 5 );
+      while ( ( value & ~0x7F ) != 0 ) {
+        bytes[size++] = (byte) ( ( value & 0x7F ) | 0x80 );
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    void writeFixed32( int value ) {
+      ensure( 4 );
+      for ( int shift = 24; shift >= 0; shift -= 8 ) {
+        bytes[size++] = (byte) ( value >>> shift );
+      }
+    }
+
+    void writeFixed64( long value ) {
+      ensure( 8 );
+      for ( int shift = 0; shift < 64; shift += 8 ) {
+        bytes[size++] = (byte) ( value >>> shift );
+      }
+    }
+
+    void writeRgb( int rgb ) {
+      ensure( 3 );
+      bytes[size++] = (byte) ( rgb >>> 16 );
+      bytes[size++] = (byte) ( rgb >>> 8 );
+      bytes[size++] = (byte) rgb;
+    }
+
+    void writeTag( int field, int wireType ) {
+      writeVarint( ( field << 3 ) | wireType );
+    }
+
+    void writeMessage( int field, Buffer message ) {
+      writeTag( field, LENGTH_DELIMITED );
+      writeVarint( message.size );
+      write( message.bytes, 0, message.size );
+    }
+
+    byte[] toByteArray() {
+      byte[] result = new byte[size];
+      System.arraycopy( bytes, 0, result, 0, size );
+      return result;
+    }
+  }
+
+  private static class Reader {
+    final byte[] bytes;
+    final int limit;
+    int position;
+    String[] strings;
+
+    Reader( byte[] bytes, int position, int limit ) {
+      this.bytes = bytes;
+      this.position = position;
+      this.limit = limit;
+    }
+
+    boolean hasMore() {
+      return position < limit;
+    }
+
+    void require( int count ) {
+      if ( ( count < 0 ) || ( count > limit - position ) ) {
+        throw new IllegalArgumentException( "Truncated binary chart model" ); //$NON-NLS-1$
+      }
+    }
+
+    int readVarint() {
+      int value = 0;
+      for ( int shift = 0; shift < 35; shift += 7 ) {
+        require( 1 );
+        byte b = bytes[position++];
+        value |= ( b & 0x7F ) << shift;
+        if ( b >= 0 ) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException( "Malformed varint in binary chart model" ); //$NON-NLS-1$
+    }
+
+    int readLength() {
+      int length = readVarint();
+      if ( length < 0 ) {
+        throw new IllegalArgumentException( "Malformed length in binary chart model" ); //$NON-NLS-1$
+      }
+      return length;
+    }
+
+    int readFixed32() {
+      require( 4 );
+      int value = 0;
+      for ( int i = 0; i < 4; i++ ) {
+        value = ( value << 8 ) | ( bytes[position++] & 0xFF );
+      }
+      return value;
+    }
+
+    long readFixed64() {
+      require( 8 );
+      long value = 0;
+      for ( int shift = 0; shift < 64; shift += 8 ) {
+        value |= ( bytes[position++] & 0xFFL ) << shift;
+      }
+      return value;
+    }
+
+    int readRgb() {
+      require( 3 );
+      int rgb = ( ( bytes[position] & 0xFF ) << 16 ) | ( ( bytes[position + 1] & 0xFF ) << 8 ) | ( bytes[position + 2]
+          & 0xFF );
+      position += 3;
+      return rgb;
+    }
+
+    String readString() {
+      int index = readVarint();
+      if ( ( index < 0 ) || ( index >= strings.length ) ) {
+        throw new IllegalArgumentException( "Bad string index in binary chart model: " + index ); //$NON-NLS-1$
+      }
+      return strings[index];
+    }
+
+    Reader readMessage() {
+      int length = readLength();
+      require( length );
+      Reader message = new Reader( bytes, position, position + length );
+      message.strings = strings;
+      position += length;
+      return message;
+    }
+
+    void readStyle( CssStyle style ) {
+      Reader pairs = readMessage();
+      style.clear();
+      while ( pairs.hasMore() ) {
+        String name = pairs.readString();
+        style.put( name, pairs.readString() );
+      }
+    }
+
+    void skip( int wireType ) {
+      switch ( wireType ) {
+        case VARINT:
+          readVarint();
+          break;
+        case FIXED64:
+          require( 8 );
+          position += 8;
+          break;
+        case LENGTH_DELIMITED:
+          int length = readLength();
+          require( length );
+          position += length;
+          break;
+        default:
+          throw new IllegalArgumentException( "Unknown wire type in binary chart model: " + wireType ); //$NON-NLS-1$
+      }
+    }
+  }
+}
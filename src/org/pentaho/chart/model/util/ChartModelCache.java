@@ -0,0 +1,189 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.model.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+
+/**
+ * A bounded cache of deserialized chart models, keyed by a 64 bit hash of the serialized form and its format. The least
+ * recently used entries are evicted first.
+ * <p/>
+ * Each entry keeps an immutable snapshot of the model in the binary form of {@link ChartModelBinaryCodec}.
+ * {@link #get(String, ChartSerializationFormat)} decodes a new copy from it, which costs a fraction of parsing the JSON
+ * or XML again. Chart models are mutable, so the cache never hands out the same instance twice and callers may change
+ * the model they get.
+ * <p/>
+ * The cache is safe for concurrent use. Parsing happens outside the lock, so two threads missing on the same input at
+ * the same time may both parse it.
+ */
+public class ChartModelCache {
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final class Key {
+    final long hash;
+    final ChartSerializationFormat format;
+
+    Key( long hash, ChartSerializationFormat format ) {
+      this.hash = hash;
+      this.format = format;
+    }
+
+    public boolean equals( Object obj ) {
+      if ( !( obj instanceof Key ) ) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return ( hash == other.hash ) && ( format == other.format );
+    }
+
+    public int hashCode() {
+      return (int) ( hash ^ ( hash >>> 32 ) ) * 31 + format.ordinal();
+    }
+  }
+
+  private static final class Entry {
+    final String input;
+    final byte[] snapshot;
+
+    Entry( String input, byte[] snapshot ) {
+      this.input = input;
+      this.snapshot = snapshot;
+    }
+  }
+
+  private final int maximumSize;
+  private final LinkedHashMap<Key, Entry> entries;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  public ChartModelCache() {
+    this( DEFAULT_MAXIMUM_SIZE );
+  }
+
+  /**
+   * @param maximumSize the number of models to keep; 0 disables caching.
+   */
+  public ChartModelCache( int maximumSize ) {
+    if ( maximumSize < 0 ) {
+      throw new IllegalArgumentException( "maximumSize: " + maximumSize ); //$NON-NLS-1$
+    }
+    this.maximumSize = maximumSize;
+    this.entries = new LinkedHashMap<Key, Entry>( 16, 0.75f, true );
+  }
+
+  /**
+   * Returns a new model equal to <code>ChartSerializer.deSerialize(input, format)</code>. The caller owns it.
+   */
+  public ChartModel get( String input, ChartSerializationFormat format ) {
+    Entry entry = lookup( input, format );
+    return entry == null ? ChartSerializer.deSerialize( input, format ) : ChartModelBinaryCodec.decode( entry.snapshot );
+  }
+
+  private Entry lookup( String input, ChartSerializationFormat format ) {
+    if ( ( input == null ) || ( maximumSize == 0 ) ) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    Key key = new Key( hash( input ), format );
+    Entry entry;
+    synchronized ( entries ) {
+      entry = entries.get( key );
+    }
+    // The hash is only a key; a different input with the same hash is a miss and replaces the entry.
+    if ( ( entry != null ) && entry.input.equals( input ) ) {
+      hitCount.incrementAndGet();
+      return entry;
+    }
+    missCount.incrementAndGet();
+
+    ChartModel chartModel = ChartSerializer.deSerialize( input, format );
+    entry = new Entry( input, ChartModelBinaryCodec.encode( chartModel ) );
+    synchronized ( entries ) {
+      entries.put( key, entry );
+      Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+      while ( entries.size() > maximumSize ) {
+        iterator.next();
+        iterator.remove();
+        evictionCount.incrementAndGet();
+      }
+    }
+    return entry;
+  }
+
+  static long hash( String input ) {
+    long hash = FNV_OFFSET_BASIS;
+    for ( int i = 0, length = input.length(); i < length; i++ ) {
+      hash = ( hash ^ input.charAt( i ) ) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public int size() {
+    synchronized ( entries ) {
+      return entries.size();
+    }
+  }
+
+  public void clear() {
+    synchronized ( entries ) {
+      entries.clear();
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Returns the share of lookups served from the cache, or 0 before the first lookup.
+   */
+  public double getHitRate() {
+    long hits = hitCount.get();
+    long lookups = hits + missCount.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public void resetStatistics() {
+    hitCount.set( 0 );
+    missCount.set( 0 );
+    evictionCount.set( 0 );
+  }
+}
@@ -17,6 +17,8 @@
 
 package org.pentaho.chart.model.util;
 
+import java.util.Base64;
+
 import org.pentaho.chart.model.ChartDataDefinition;
 import org.pentaho.chart.model.ChartLegend;
 import org.pentaho.chart.model.ChartModel;
@@ -35,12 +37,19 @@ import com.thoughtworks.xstream.io.json.JettisonMappedXmlDriver;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 
 public class ChartSerializer {
-  public enum ChartSerializationFormat {JSON, XML};
+  public enum ChartSerializationFormat {JSON, XML, BINARY};
+  
+  /**
+   * The formats of chart data definitions. There is no binary form, since the default parameter values can be of any
+   * type.
+   */
+  public enum DataDefinitionFormat {JSON, XML};
   
   private static XStream jsonChartWriter = new XStream(new JettisonMappedXmlDriver());  
   private static XStream jsonChartDefWriter = new XStream(new JettisonMappedXmlDriver());
   private static XStream xmlChartWriter = new XStream(new DomDriver());  
   private static XStream xmlChartDefWriter = new XStream(new DomDriver());
+  private static volatile ChartModelCache chartModelCache = new ChartModelCache();
   
   static{
     jsonChartWriter.setMode(XStream.NO_REFERENCES);
@@ -109,6 +118,9 @@ public class ChartSerializer {
       case XML:
         result = xmlChartWriter.toXML(model);
         break;
+      case BINARY:
+        result = Base64.getEncoder().encodeToString(serializeBinary(model));
+        break;
     }
     return result;
   }
@@ -122,12 +134,51 @@ public class ChartSerializer {
       case XML:
         chartModel = (ChartModel)xmlChartWriter.fromXML(input);
         break;
+      case BINARY:
+        chartModel = deSerializeBinary(Base64.getDecoder().decode(input));
+        break;
     }
     return chartModel;
   }
+
+  /**
+   * Same as {@link #deSerialize(String, ChartSerializationFormat)}, but served from the shared
+   * {@link ChartModelCache} when the same input was read before. The caller owns the returned model.
+   */
+  public static ChartModel deSerializeCached(String input, ChartSerializationFormat inputFormat){
+    return chartModelCache.get(input, inputFormat);
+  }
+
+  public static ChartModelCache getChartModelCache(){
+    return chartModelCache;
+  }
+
+  /**
+   * Replaces the shared cache, for example with one of a different size. <code>new ChartModelCache(0)</code> turns
+   * caching off.
+   */
+  public static void setChartModelCache(ChartModelCache cache){
+    if (cache == null) {
+      throw new NullPointerException();
+    }
+    chartModelCache = cache;
+  }
+
+  /**
+   * Writes the chart model in the binary format; see {@link ChartModelBinaryCodec}. The
+   * {@link ChartSerializationFormat#BINARY} form of {@link #serialize(ChartModel, ChartSerializationFormat)} is the
+   * same bytes in base64.
+   */
+  public static byte[] serializeBinary(ChartModel model){
+    return ChartModelBinaryCodec.encode(model);
+  }
+
+  public static ChartModel deSerializeBinary(byte[] input){
+    return ChartModelBinaryCodec.decode(input);
+  }
   
   
-  public static String serializeDataDefinition(ChartDataDefinition def, ChartSerializationFormat outputFormat){
+  public static String serializeDataDefinition(ChartDataDefinition def, DataDefinitionFormat outputFormat){
     String result = null;
     switch (outputFormat) {
       case JSON:
@@ -140,7 +191,7 @@ public class ChartSerializer {
     return result;
   }
   
-  public static ChartDataDefinition deSerializeDataDefinition(String input, ChartSerializationFormat inputFormat){
+  public static ChartDataDefinition deSerializeDataDefinition(String input, DataDefinitionFormat inputFormat){
     ChartDataDefinition chartDataDefinition = null;
     switch (inputFormat) {
       case JSON:
@@ -152,4 +203,33 @@ public class ChartSerializer {
     }
     return chartDataDefinition;
   }
+  
+  /**
+   * @deprecated use {@link #serializeDataDefinition(ChartDataDefinition, DataDefinitionFormat)}
+   * @throws IllegalArgumentException for {@link ChartSerializationFormat#BINARY}
+   */
+  @Deprecated
+  public static String serializeDataDefinition(ChartDataDefinition def, ChartSerializationFormat outputFormat){
+    return serializeDataDefinition(def, toDataDefinitionFormat(outputFormat));
+  }
+  
+  /**
+   * @deprecated use {@link #deSerializeDataDefinition(String, DataDefinitionFormat)}
+   * @throws IllegalArgumentException for {@link ChartSerializationFormat#BINARY}
+   */
+  @Deprecated
+  public static ChartDataDefinition deSerializeDataDefinition(String input, ChartSerializationFormat inputFormat){
+    return deSerializeDataDefinition(input, toDataDefinitionFormat(inputFormat));
+  }
+  
+  private static DataDefinitionFormat toDataDefinitionFormat(ChartSerializationFormat format){
+    switch (format) {
+      case JSON:
+        return DataDefinitionFormat.JSON;
+      case XML:
+        return DataDefinitionFormat.XML;
+      default:
+        throw new IllegalArgumentException("Chart data definitions have no " + format + " form"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
 }
@@ -0,0 +1,211 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin;
+
+/**
+ * Computes "nice" axis scales: tick steps of 1, 2 or 5 times a power of ten, and axis bounds that are multiples of
+ * the step. The scale only depends on the smallest and largest value to show, which the chart data models keep in
+ * their summaries, so the chart engines do not need to look at the data again to lay out a numeric axis.
+ * <p/>
+ * Every method runs in constant time and allocates nothing. Fractional and very large ranges are supported; the
+ * values must be finite. Bounds are rounded to the decimal digits of the step, so a bound of 0.7 is 0.7 and not
+ * 0.7000000000000001.
+ */
+public final class AxisScale {
+
+  /**
+   * The default largest number of ticks on an axis.
+   */
+  public static final int DEFAULT_TICK_COUNT = 10;
+
+  private static final int MIN_EXPONENT = -323;
+  private static final int MAX_EXPONENT = 308;
+
+  /**
+   * The largest power of ten, and the largest whole number, that a double holds exactly.
+   */
+  private static final int MAX_EXACT_POWER = 22;
+  private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+  /**
+   * The relative distance from a whole number below which a quotient is taken as that number.
+   */
+  private static final double SNAP_TOLERANCE = 1e-9;
+
+  /**
+   * The powers of ten from 1e-323 to 1e308, parsed so that each is the closest double to the exact value.
+   */
+  private static final double[] POWERS_OF_TEN = new double[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+  static {
+    for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = Double.parseDouble("1e" + (i + MIN_EXPONENT)); //$NON-NLS-1$
+    }
+  }
+
+  private AxisScale() {
+  }
+
+  /**
+   * Returns the tick step for an axis from <code>minValue</code> to <code>maxValue</code>: the smallest nice number
+   * that divides the range into at most <code>maxTickCount</code> steps. If both values are the same, the step is
+   * chosen for a range of that size (or of 1 for zero).
+   *
+   * @param maxTickCount the largest number of steps, at least 1
+   * @throws IllegalArgumentException if a value is not finite, <code>minValue</code> is greater than
+   *                                  <code>maxValue</code> or <code>maxTickCount</code> is less than 1
+   */
+  public static double getTickStep(double minValue, double maxValue, int maxTickCount) {
+    if (Double.isNaN(minValue) || Double.isInfinite(minValue) || Double.isNaN(maxValue)
+        || Double.isInfinite(maxValue) || (minValue > maxValue)) {
+      throw new IllegalArgumentException("range: " + minValue + " - " + maxValue); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    if (maxTickCount < 1) {
+      throw new IllegalArgumentException("maxTickCount: " + maxTickCount); //$NON-NLS-1$
+    }
+    // Divided before subtracting so that ranges wider than Double.MAX_VALUE do not overflow
+    double rawStep = (maxValue / maxTickCount) - (minValue / maxTickCount);
+    if (rawStep == 0) {
+      double magnitude = Math.abs(minValue);
+      rawStep = (magnitude == 0) ? 1.0 / maxTickCount : magnitude / maxTickCount;
+    }
+    return getNiceNumber(rawStep);
+  }
+
+  /**
+   * Returns the smallest number of the form 1, 2 or 5 times a power of ten that is at least <code>value</code>.
+   *
+   * @param value a positive finite number
+   */
+  public static double getNiceNumber(double value) {
+    if (!(value > 0) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("value: " + value); //$NON-NLS-1$
+    }
+    int exponent = getExponent(value);
+    double powerOfTen = getPowerOfTen(exponent);
+    double niceNumber;
+    if (value <= powerOfTen) {
+      niceNumber = powerOfTen;
+    } else if (value <= 2 * powerOfTen) {
+      niceNumber = 2 * powerOfTen;
+    } else if (value <= 5 * powerOfTen) {
+      niceNumber = 5 * powerOfTen;
+    } else if (exponent < MAX_EXPONENT) {
+      niceNumber = getPowerOfTen(exponent + 1);
+    } else {
+      niceNumber = Double.POSITIVE_INFINITY;
+    }
+    // Above 1e308 there is no nice number left
+    return Double.isInfinite(niceNumber) ? Double.MAX_VALUE : niceNumber;
+  }
+
+  /**
+   * Returns the largest multiple of <code>stepSize</code> that is not greater than <code>minValue</code>.
+   */
+  public static double getLowerBound(double minValue, double stepSize) {
+    return getMultiple(minValue, stepSize, false);
+  }
+
+  /**
+   * Returns the smallest multiple of <code>stepSize</code> that is not less than <code>maxValue</code>.
+   */
+  public static double getUpperBound(double maxValue, double stepSize) {
+    return getMultiple(maxValue, stepSize, true);
+  }
+
+  /**
+   * Returns the upper bound for an axis from <code>lowerBound</code> to <code>maxValue</code>; one step above the
+   * lower bound if the upper bound would be the same, so that the axis never has an empty range.
+   */
+  public static double getUpperBound(double lowerBound, double maxValue, double stepSize) {
+    double upperBound = getUpperBound(maxValue, stepSize);
+    return (upperBound > lowerBound) ? upperBound : clamp(lowerBound + stepSize);
+  }
+
+  /**
+   * Returns the multiple of <code>stepSize</code> next to <code>value</code>, rounding down or up. A quotient within a
+   * small relative tolerance of a whole number is taken as that number, so that rounding noise in the division does
+   * not add a step, and the product is rounded to the decimal digits of the step. Bounds beyond the range of double
+   * are clamped to <code>Double.MAX_VALUE</code>.
+   */
+  private static double getMultiple(double value, double stepSize, boolean up) {
+    if (!(stepSize > 0) || Double.isInfinite(stepSize)) {
+      throw new IllegalArgumentException("stepSize: " + stepSize); //$NON-NLS-1$
+    }
+    double quotient = value / stepSize;
+    if (Double.isInfinite(quotient)) {
+      return clamp(quotient);
+    }
+    double multiple = Math.rint(quotient);
+    if (Math.abs(quotient - multiple) > SNAP_TOLERANCE * Math.max(1, Math.abs(quotient))) {
+      multiple = up ? Math.ceil(quotient) : Math.floor(quotient);
+    }
+    // Avoids a bound of -0
+    multiple += 0.0;
+
+    // Steps with a whole mantissa, such as 0.05, are multiplied in whole numbers and divided by the power of ten,
+    // which gives the double closest to the decimal result
+    int exponent = getExponent(stepSize);
+    double scaledStep = stepSize / getPowerOfTen(exponent);
+    double mantissa = Math.rint(scaledStep);
+    if (Math.abs(scaledStep - mantissa) <= SNAP_TOLERANCE * mantissa) {
+      double digits = multiple * mantissa;
+      if (Math.abs(digits) < MAX_EXACT_INTEGER) {
+        if ((exponent < 0) && (exponent >= -MAX_EXACT_POWER)) {
+          return digits / getPowerOfTen(-exponent);
+        } else if ((exponent >= 0) && (exponent <= MAX_EXACT_POWER)) {
+          return digits * getPowerOfTen(exponent);
+        }
+      }
+    }
+    return clamp(multiple * stepSize);
+  }
+
+  private static double clamp(double value) {
+    if (value == Double.POSITIVE_INFINITY) {
+      return Double.MAX_VALUE;
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      return -Double.MAX_VALUE;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the exponent of the largest power of ten that is not greater than <code>value</code>, within the range of
+   * the power of ten table.
+   */
+  private static int getExponent(double value) {
+    int exponent = (int) Math.floor(Math.log10(value));
+    if (exponent < MIN_EXPONENT) {
+      exponent = MIN_EXPONENT;
+    } else if (exponent > MAX_EXPONENT) {
+      exponent = MAX_EXPONENT;
+    }
+    // log10 may be off by one next to a power of ten
+    if ((exponent > MIN_EXPONENT) && (value < getPowerOfTen(exponent))) {
+      exponent--;
+    } else if ((exponent < MAX_EXPONENT) && (value >= getPowerOfTen(exponent + 1))) {
+      exponent++;
+    }
+    return exponent;
+  }
+
+  private static double getPowerOfTen(int exponent) {
+    return POWERS_OF_TEN[exponent - MIN_EXPONENT];
+  }
+}
@@ -0,0 +1,120 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.chart.core.ChartDocument;
+import org.pentaho.chart.core.ChartElement;
+
+/**
+ * Counts, per chart type, how many elements of the rendered chart documents had their styles resolved, against how
+ * many elements the documents have. Chart documents resolve the style of an element the first time it is used, so
+ * this shows how much of the style resolution each type of chart actually needs.
+ * <p/>
+ * The counts are kept for the lifetime of the class loader and are safe for concurrent use. Every render counts as a
+ * chart, but the elements of a document that is rendered several times, such as a frozen document shared between
+ * renders, are only counted the first time. Elements whose styles are resolved by later renders are added then.
+ */
+public final class StyleResolutionStatistics {
+
+  private static final class Counts {
+    final AtomicLong chartCount = new AtomicLong();
+    final AtomicLong elementCount = new AtomicLong();
+    final AtomicLong resolvedCount = new AtomicLong();
+  }
+
+  private static final ConcurrentHashMap<String, Counts> countsByChartType = new ConcurrentHashMap<String, Counts>();
+
+  /**
+   * The resolved style count of each recorded document when it was last recorded.
+   */
+  private static final Map<ChartDocument, Integer> recordedDocuments = new WeakHashMap<ChartDocument, Integer>();
+
+  private StyleResolutionStatistics() {
+  }
+
+  /**
+   * Records that a chart of the given type has been rendered from the chart document.
+   */
+  public static void record(final String chartType, final ChartDocument chartDocument) {
+    Counts counts = countsByChartType.get(chartType);
+    if (counts == null) {
+      final Counts newCounts = new Counts();
+      counts = countsByChartType.putIfAbsent(chartType, newCounts);
+      if (counts == null) {
+        counts = newCounts;
+      }
+    }
+    counts.chartCount.incrementAndGet();
+
+    final int resolvedCount = chartDocument.getResolvedStyleCount();
+    final Integer recordedCount;
+    synchronized (recordedDocuments) {
+      recordedCount = recordedDocuments.put(chartDocument, Integer.valueOf(resolvedCount));
+    }
+    if (recordedCount != null) {
+      counts.resolvedCount.addAndGet(Math.max(0, resolvedCount - recordedCount.intValue()));
+      return;
+    }
+    int elementCount = 0;
+    for (ChartElement element = chartDocument.getRootElement(); element != null;
+         element = element.getNextDepthFirstItem()) {
+      elementCount++;
+    }
+    counts.elementCount.addAndGet(elementCount);
+    counts.resolvedCount.addAndGet(resolvedCount);
+  }
+
+  /**
+   * Returns the number of charts of the given type that have been recorded, counting every render.
+   */
+  public static long getChartCount(final String chartType) {
+    final Counts counts = countsByChartType.get(chartType);
+    return (counts == null) ? 0 : counts.chartCount.get();
+  }
+
+  /**
+   * Returns the total number of elements in the chart documents of the given chart type.
+   */
+  public static long getElementCount(final String chartType) {
+    final Counts counts = countsByChartType.get(chartType);
+    return (counts == null) ? 0 : counts.elementCount.get();
+  }
+
+  /**
+   * Returns the total number of elements whose styles were resolved in the chart documents of the given chart type.
+   */
+  public static long getResolvedCount(final String chartType) {
+    final Counts counts = countsByChartType.get(chartType);
+    return (counts == null) ? 0 : counts.resolvedCount.get();
+  }
+
+  /**
+   * Forgets all the recorded counts.
+   */
+  public static void reset() {
+    countsByChartType.clear();
+    synchronized (recordedDocuments) {
+      recordedDocuments.clear();
+    }
+  }
+}
@@ -45,9 +45,13 @@ import org.jfree.chart.plot.dial.DialBackground;
 import org.jfree.chart.plot.dial.DialCap;
 import org.jfree.chart.plot.dial.DialTextAnnotation;
 import org.jfree.chart.plot.dial.DialValueIndicator;
+import org.jfree.chart.renderer.AbstractRenderer;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.chart.title.TextTitle;
 import org.jfree.chart.urls.CategoryURLGenerator;
 import org.jfree.chart.urls.PieURLGenerator;
+import org.jfree.data.Range;
 import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
@@ -59,6 +63,7 @@ import org.jfree.ui.GradientPaintTransformType;
 import org.jfree.ui.HorizontalAlignment;
 import org.jfree.ui.RectangleEdge;
 import org.jfree.ui.StandardGradientPaintTransformer;
+import org.pentaho.chart.ChartDeadline;
 import org.pentaho.chart.ChartDocumentContext;
 import org.pentaho.chart.ChartUtils;
 import org.pentaho.chart.IChartLinkGenerator;
@@ -67,15 +72,16 @@ import org.pentaho.chart.core.ChartElement;
 import org.pentaho.chart.css.keys.ChartStyleKeys;
 import org.pentaho.chart.css.styles.ChartSeriesType;
 import org.pentaho.chart.data.BasicDataModel;
+import org.pentaho.chart.data.DataSummary;
 import org.pentaho.chart.data.MultiSeriesDataModel;
 import org.pentaho.chart.data.ChartTableModel;
 import org.pentaho.chart.data.IChartDataModel;
 import org.pentaho.chart.data.MultiSeriesXYDataModel;
 import org.pentaho.chart.data.NamedValue;
 import org.pentaho.chart.data.NamedValuesDataModel;
+import org.pentaho.chart.data.OffHeapXYDataModel;
 import org.pentaho.chart.data.XYDataModel;
 import org.pentaho.chart.data.XYDataPoint;
-import org.pentaho.chart.data.MultiSeriesDataModel.DomainData;
 import org.pentaho.chart.data.MultiSeriesXYDataModel.Series;
 import org.pentaho.chart.model.AreaPlot;
 import org.pentaho.chart.model.BarPlot;
@@ -94,6 +100,7 @@ import org.pentaho.chart.model.CssStyle.FontWeight;
 import org.pentaho.chart.model.DialPlot.DialRange;
 import org.pentaho.chart.model.LinePlot.LinePlotFlavor;
 import org.pentaho.chart.model.Plot.Orientation;
+import org.pentaho.chart.plugin.AxisScale;
 import org.pentaho.chart.plugin.IChartPlugin;
 import org.pentaho.chart.plugin.api.ChartResult;
 import org.pentaho.chart.plugin.api.IOutput;
@@ -108,7 +115,11 @@ import org.pentaho.chart.plugin.jfreechart.chart.dial.JFreeDialChartGenerator.Va
 import org.pentaho.chart.plugin.jfreechart.chart.line.JFreeLineChartGeneratorFactory;
 import org.pentaho.chart.plugin.jfreechart.chart.multi.JFreeMultiChartGeneratorFactory;
 import org.pentaho.chart.plugin.jfreechart.chart.pie.JFreePieChartGeneratorFactory;
+import org.pentaho.chart.plugin.jfreechart.dataset.OffHeapXYDataset;
+import org.pentaho.chart.plugin.jfreechart.dataset.SummarizedCategoryDataset;
 import org.pentaho.chart.plugin.jfreechart.outputs.JFreeChartOutput;
+import org.pentaho.chart.plugin.jfreechart.renderer.CullingLineAndShapeRenderer;
+import org.pentaho.chart.plugin.jfreechart.renderer.CullingXYLineAndShapeRenderer;
 import org.pentaho.chart.plugin.jfreechart.utils.JFreeChartUtils;
 import org.pentaho.reporting.libraries.css.values.CSSConstant;
 import org.pentaho.reporting.libraries.css.values.CSSValue;
@@ -146,6 +157,8 @@ public class JFreeChartFactoryEngine implements Serializable {
     } else if (chartModel.getPlot() instanceof ScatterPlot) {
       if (chartDataModel instanceof MultiSeriesXYDataModel) {
         chartOutput = new JFreeChartOutput(makeScatterChart(chartModel, (MultiSeriesXYDataModel)chartDataModel));
+      } else if (chartDataModel instanceof OffHeapXYDataModel) {
+        chartOutput = new JFreeChartOutput(makeScatterChart(chartModel, (OffHeapXYDataModel)chartDataModel));
       } else {
         chartOutput = new JFreeChartOutput(makeScatterChart(chartModel, (XYDataModel)chartDataModel));
       }
@@ -411,7 +424,8 @@ public class JFreeChartFactoryEngine implements Serializable {
     
     JFreeChart chart = ChartFactory.createAreaChart(title, axesLabels.domainAxisLabel, axesLabels.rangeAxisLabel, categoryDataset, plotOrientation, showLegend, true, false);
     
-    initCategoryPlot(chart, chartModel, linkGenerator);    
+    initCategoryPlot(chart, chartModel, linkGenerator);
+    initRangeAxisScale(chart, chartModel, dataModel);
     initChart(chart, chartModel);
     
 
@@ -441,11 +455,13 @@ public class JFreeChartFactoryEngine implements Serializable {
     } else {
       chart = ChartFactory.createLineChart(title, axesLabels.domainAxisLabel, axesLabels.rangeAxisLabel, categoryDataset, plotOrientation,
           showLegend, true, false);
+      useCullingRenderer((CategoryPlot)chart.getPlot());
       Stroke stroke = getLineStyleStroke(linePlot.getFlavor(), linePlot.getLineWidth());
       ((CategoryPlot)chart.getPlot()).getRenderer().setStroke(stroke);
     }
 
-    initCategoryPlot(chart, chartModel, linkGenerator);    
+    initCategoryPlot(chart, chartModel, linkGenerator);
+    initRangeAxisScale(chart, chartModel, dataModel);
     initChart(chart, chartModel);
     
     return chart;
@@ -482,6 +498,7 @@ public class JFreeChartFactoryEngine implements Serializable {
     PlotOrientation plotOrientation = (twoAxisPlot.getOrientation() == Orientation.HORIZONTAL) ? PlotOrientation.HORIZONTAL : PlotOrientation.VERTICAL;
     boolean showLegend = (chartModel.getLegend() != null) && (chartModel.getLegend().getVisible());
     JFreeChart chart = ChartFactory.createScatterPlot(title, axesLabels.domainAxisLabel, axesLabels.rangeAxisLabel, dataset, plotOrientation, showLegend, true, false);
+    useCullingRenderer(chart.getXYPlot());
 
     initXYPlot(chart, chartModel);    
     initChart(chart, chartModel);
@@ -494,6 +511,7 @@ public class JFreeChartFactoryEngine implements Serializable {
     XYSeriesCollection dataset = new XYSeriesCollection();
     
     for (Series series : data.getSeries()) {
+      ChartDeadline.checkCurrent();
       dataset.addSeries(createXYSeries(series));
     }
     
@@ -508,6 +526,7 @@ public class JFreeChartFactoryEngine implements Serializable {
     PlotOrientation plotOrientation = (twoAxisPlot.getOrientation() == Orientation.HORIZONTAL) ? PlotOrientation.HORIZONTAL : PlotOrientation.VERTICAL;
     boolean showLegend = (chartModel.getLegend() != null) && (chartModel.getLegend().getVisible());
     JFreeChart chart = ChartFactory.createScatterPlot(title, axesLabels.domainAxisLabel, axesLabels.rangeAxisLabel, dataset, plotOrientation, showLegend, true, false);
+    useCullingRenderer(chart.getXYPlot());
 
     initXYPlot(chart, chartModel);    
     initChart(chart, chartModel);
@@ -515,11 +534,75 @@ public class JFreeChartFactoryEngine implements Serializable {
     return chart;
   }
   
+  /**
+   * Renders a scatter chart straight from off-heap storage. Tooltips and item entities are turned off because they
+   * would create heap objects for every point.
+   */
+  protected JFreeChart makeScatterChart(ChartModel chartModel, OffHeapXYDataModel data) {
+    OffHeapXYDataset dataset = new OffHeapXYDataset(data);
+    
+    org.pentaho.chart.model.TwoAxisPlot twoAxisPlot = (org.pentaho.chart.model.TwoAxisPlot)chartModel.getPlot();       
+    
+    String title = "";
+    if ((chartModel.getTitle() != null) && (chartModel.getTitle().getText() != null) && (chartModel.getTitle().getText().trim().length() > 0)) {
+      title = chartModel.getTitle().getText();
+    }    
+    
+    AxesLabels axesLabels = getAxesLabels(chartModel);    
+    PlotOrientation plotOrientation = (twoAxisPlot.getOrientation() == Orientation.HORIZONTAL) ? PlotOrientation.HORIZONTAL : PlotOrientation.VERTICAL;
+    boolean showLegend = (chartModel.getLegend() != null) && (chartModel.getLegend().getVisible());
+    JFreeChart chart = ChartFactory.createScatterPlot(title, axesLabels.domainAxisLabel, axesLabels.rangeAxisLabel, dataset, plotOrientation, showLegend, false, false);
+    ((AbstractRenderer)chart.getXYPlot().getRenderer()).setBaseCreateEntities(false);
+    useCullingRenderer(chart.getXYPlot());
+
+    initXYPlot(chart, chartModel);    
+    initChart(chart, chartModel);
+    
+    return chart;
+  }
+  
+  /**
+   * Replaces the plot's renderer with one that decimates lines and skips shapes drawn over already painted pixels once
+   * there are more items than pixels along the domain axis. Sparser plots render as before.
+   */
+  private void useCullingRenderer(XYPlot xyPlot) {
+    XYLineAndShapeRenderer renderer = (XYLineAndShapeRenderer)xyPlot.getRenderer();
+    CullingXYLineAndShapeRenderer cullingRenderer = new CullingXYLineAndShapeRenderer(renderer.getBaseLinesVisible(), renderer.getBaseShapesVisible());
+    cullingRenderer.setBaseToolTipGenerator(renderer.getBaseToolTipGenerator());
+    cullingRenderer.setURLGenerator(renderer.getURLGenerator());
+    cullingRenderer.setBaseCreateEntities(renderer.getBaseCreateEntities());
+    xyPlot.setRenderer(cullingRenderer);
+  }
+  
+  /**
+   * Replaces the plot's renderer with one that decimates lines and skips shapes drawn over already painted pixels once
+   * there are more items than pixels along the domain axis. Sparser plots render as before.
+   */
+  private void useCullingRenderer(CategoryPlot categoryPlot) {
+    LineAndShapeRenderer renderer = (LineAndShapeRenderer)categoryPlot.getRenderer();
+    CullingLineAndShapeRenderer cullingRenderer = new CullingLineAndShapeRenderer(renderer.getBaseLinesVisible(), renderer.getBaseShapesVisible());
+    cullingRenderer.setBaseToolTipGenerator(renderer.getBaseToolTipGenerator());
+    cullingRenderer.setBaseItemURLGenerator(renderer.getBaseItemURLGenerator());
+    cullingRenderer.setBaseCreateEntities(renderer.getBaseCreateEntities());
+    categoryPlot.setRenderer(cullingRenderer);
+  }
+  
   protected DefaultCategoryDataset createCategoryDataset(MultiSeriesDataModel data) {
-    DefaultCategoryDataset categoryDataset = new DefaultCategoryDataset();
-    for (DomainData category : data.getDomainData()) {
-      for (NamedValue dataPoint : category) {
-        categoryDataset.setValue(scaleNumber(dataPoint.getValue(), data.getScalingFactor()), dataPoint.getName(), category.getDomainName());
+    // Let JFreeChart take the auto-range from the model's summary rather than scanning the dataset.
+    DataSummary summary = data.getSummary();
+    Range rangeBounds = null;
+    if (summary.getCount() > 0) {
+      double minValue = scaleNumber(summary.getMinValue(), data.getScalingFactor()).doubleValue();
+      double maxValue = scaleNumber(summary.getMaxValue(), data.getScalingFactor()).doubleValue();
+      rangeBounds = new Range(Math.min(minValue, maxValue), Math.max(minValue, maxValue));
+    }
+    DefaultCategoryDataset categoryDataset = new SummarizedCategoryDataset(rangeBounds);
+    List<String> domainNames = data.getDomainNames();
+    List<String> seriesNames = data.getSeriesNames();
+    for (int i = 0; i < domainNames.size(); i++) {
+      ChartDeadline.checkCurrent();
+      for (int j = 0; j < seriesNames.size(); j++) {
+        categoryDataset.setValue(scaleNumber(data.getValue(i, j), data.getScalingFactor()), seriesNames.get(j), domainNames.get(i));
       }
     }
     return categoryDataset;
@@ -653,6 +736,66 @@ public class JFreeChartFactoryEngine implements Serializable {
     }  
   }
   
+  /**
+   * Sets the range axis of a category chart to nice bounds computed from the data model's summary, so that JFreeChart
+   * does not need to find the range of the dataset. The upper bound leaves at least the axis' upper margin above the
+   * data, as the auto range would. Explicit axis bounds are kept.
+   */
+  private void initRangeAxisScale(JFreeChart chart, ChartModel chartModel, MultiSeriesDataModel dataModel) {
+    ValueAxis rangeAxis = chart.getCategoryPlot().getRangeAxis();
+    NumericAxis numericAxis = ((org.pentaho.chart.model.TwoAxisPlot)chartModel.getPlot()).getRangeAxis();
+    DataSummary summary = dataModel.getSummary();
+    if (!(rangeAxis instanceof NumberAxis) || (summary.getCount() == 0)
+        || ((numericAxis.getMinValue() != null) && (numericAxis.getMaxValue() != null))) {
+      return;
+    }
+
+    double dataMinValue;
+    double dataMaxValue;
+    if ((chartModel.getPlot() instanceof BarPlot) && (((BarPlot)chartModel.getPlot()).getFlavor() == BarPlotFlavor.STACKED)) {
+      dataMinValue = summary.getMinStackSum();
+      dataMaxValue = summary.getMaxStackSum();
+    } else {
+      dataMinValue = summary.getMinValue().doubleValue();
+      dataMaxValue = summary.getMaxValue().doubleValue();
+    }
+    dataMinValue = scaleNumber(dataMinValue, dataModel.getScalingFactor()).doubleValue();
+    dataMaxValue = scaleNumber(dataMaxValue, dataModel.getScalingFactor()).doubleValue();
+    
+    // A negative scaling factor swaps the ends of the range.
+    double minValue = Math.min(dataMinValue, dataMaxValue);
+    double maxValue = Math.max(dataMinValue, dataMaxValue);
+    if (((NumberAxis)rangeAxis).getAutoRangeIncludesZero()) {
+      minValue = Math.min(0, minValue);
+      maxValue = Math.max(0, maxValue);
+    }
+    if (numericAxis.getMinValue() != null) {
+      minValue = numericAxis.getMinValue().doubleValue();
+      maxValue = Math.max(minValue, maxValue);
+    } else if (numericAxis.getMaxValue() != null) {
+      maxValue = numericAxis.getMaxValue().doubleValue();
+      minValue = Math.min(minValue, maxValue);
+    }
+
+    double stepSize = AxisScale.getTickStep(minValue, maxValue, AxisScale.DEFAULT_TICK_COUNT);
+    double lowerBound = (numericAxis.getMinValue() != null) ? minValue : AxisScale.getLowerBound(minValue, stepSize);
+    double upperBound = maxValue;
+    if (numericAxis.getMaxValue() == null) {
+      // Keeps the upper margin JFreeChart's auto range leaves above the data, unless the axis ends at zero because
+      // all the data is below it
+      double marginValue = maxValue;
+      double upperMargin = rangeAxis.getUpperMargin();
+      if ((upperMargin > 0)
+          && (!((NumberAxis)rangeAxis).getAutoRangeIncludesZero() || (Math.max(dataMinValue, dataMaxValue) > 0))) {
+        marginValue += (maxValue - minValue) * upperMargin;
+      }
+      upperBound = AxisScale.getUpperBound(lowerBound, marginValue, stepSize);
+    }
+    if (upperBound > lowerBound) {
+      rangeAxis.setRange(lowerBound, upperBound);
+    }
+  }
+  
   private void initXYPlot(JFreeChart chart, ChartModel chartModel) {
     initPlot(chart, chartModel);
     
@@ -748,6 +891,7 @@ public class JFreeChartFactoryEngine implements Serializable {
     }
 
     initCategoryPlot(chart, chartModel, linkGenerator);
+    initRangeAxisScale(chart, chartModel, dataModel);
     initChart(chart, chartModel);
 
     return chart;
@@ -909,7 +1053,7 @@ public class JFreeChartFactoryEngine implements Serializable {
    * @return a ChartType that represents the type of chart the chartDocument is requesting.
    */
   public CSSConstant determineChartType(final ChartDocument chartDocument) {
-    final ChartElement[] elements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] elements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     for (final ChartElement element : elements) {
       final CSSValue value = element.getLayoutStyle().getValue(ChartStyleKeys.CHART_TYPE);
       if (value != null) {
@@ -28,6 +28,7 @@ import org.pentaho.chart.data.IChartDataModel;
 import org.pentaho.chart.model.ChartModel;
 import org.pentaho.chart.plugin.AbstractChartPlugin;
 import org.pentaho.chart.plugin.IChartPlugin;
+import org.pentaho.chart.plugin.StyleResolutionStatistics;
 import org.pentaho.chart.plugin.api.ChartResult;
 import org.pentaho.chart.plugin.api.IOutput;
 
@@ -58,7 +59,9 @@ public class JFreeChartPlugin extends AbstractChartPlugin
 //    IOutput output = new JFreeChartOutput();
     if (chartResult.getErrorCode() == IChartPlugin.RESULT_VALIDATED)
     {  // The superclass so now we'll render
-      return chartFactory.makeChart(data, chartDocumentContext, chartResult);
+      final IOutput output = chartFactory.makeChart(data, chartDocumentContext, chartResult);
+      StyleResolutionStatistics.record(chartFactory.determineChartType(chartDocument).getCSSText(), chartDocument);
+      return output;
     }
 
     return null;
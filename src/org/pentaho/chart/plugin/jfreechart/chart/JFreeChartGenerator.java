@@ -99,7 +99,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
    * @return String - the title
    */
   public static String getTitle(final ChartDocument chartDocument) {
-    final ChartElement[] children = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       return children[0].getText();
     }
@@ -124,7 +124,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
    * @return String - the value category label
    */
   public static String getValueCategoryLabel(final ChartDocument chartDocument) {
-    final ChartElement[] children = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_DOMAIN_LABEL); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_DOMAIN_LABEL); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       return children[0].getText();
     }
@@ -138,7 +138,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
    * @return String - the value axis label
    */
   public static String getValueAxisLabel(final ChartDocument chartDocument) {
-    final ChartElement[] children = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_RANGE_LABEL); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_RANGE_LABEL); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       return children[0].getText();
     }
@@ -150,7 +150,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
    * @return a boolean that indicates of if a legend should be included in the chart
    */
   public static boolean getShowLegend(final ChartDocument chartDocument) {
-    final ChartElement[] children = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
     return (children != null) && (children.length > 0);
   }
 
@@ -243,12 +243,14 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
   /**
    * Sets the axis label and tick label color.
    * </p>
+   * @param chartDocument Current chart document
    * @param axisElement Current axis element from the chart document
    * @param valueAxis   Current value axis. NOTE: This object will be updated in this method.
    * @param labelType   Tag name label or tag name tick label.
    */
-  private void setAxisColor(final ChartElement axisElement, final ValueAxis valueAxis, final String labelType) {
-    final ChartElement[] labelElements = axisElement.findChildrenByName(labelType);
+  private void setAxisColor(final ChartDocument chartDocument, final ChartElement axisElement,
+                            final ValueAxis valueAxis, final String labelType) {
+    final ChartElement[] labelElements = chartDocument.getChildElements(axisElement, labelType);
     if (labelElements != null && labelElements.length > 0) {
       final CSSValue colorCSSValue = labelElements[0].getLayoutStyle().getValue(ColorStyleKeys.COLOR);
       final Color axisLabelColor = JFreeChartUtils.getColorFromCSSValue(colorCSSValue);
@@ -304,8 +306,8 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
         final ValueAxis valueAxis = createRangeAxis(axisElement);
         if (valueAxis != null) {
           plot.setRangeAxis(i, valueAxis);
-          setAxisColor(axisElement, valueAxis, ChartElement.TAG_NAME_LABEL);
-          setAxisColor(axisElement, valueAxis, ChartElement.TAG_NAME_TICK_LABEL);
+          setAxisColor(chartDocument, axisElement, valueAxis, ChartElement.TAG_NAME_LABEL);
+          setAxisColor(chartDocument, axisElement, valueAxis, ChartElement.TAG_NAME_TICK_LABEL);
           setRangeAxisLocation(plot, axisElement, i);
           setRenderer(plot, i);
         }
@@ -488,7 +490,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
     }
     
     ChartElement rootElement = chartDocContext.getChartDocument().getRootElement();    
-    ChartElement[] children = rootElement.findChildrenByName(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
+    ChartElement[] children = chartDocContext.getChartDocument().getChildElements(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       Font font = ChartUtils.getFont(children[0]);
       if (font != null) {
@@ -497,7 +499,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
     }
     
     if (getShowLegend(chartDocContext.getChartDocument())) {
-      children = chartDocContext.getChartDocument().getRootElement().findChildrenByName(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
+      children = chartDocContext.getChartDocument().getChildElements(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
       if ((children != null) && (children.length > 0)) {
         ChartElement legendElement = children[0];
         Font font = JFreeChartUtils.getFont(legendElement);
@@ -529,7 +531,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
     if (plot instanceof CategoryPlot) {
       CategoryPlot categoryPlot = (CategoryPlot)plot;
       
-      children = chartDocContext.getChartDocument().getRootElement().findChildrenByName(ChartElement.TAG_NAME_RANGE_LABEL); //$NON-NLS-1$
+      children = chartDocContext.getChartDocument().getChildElements(ChartElement.TAG_NAME_RANGE_LABEL); //$NON-NLS-1$
       if (children != null && children.length > 0) {
         Font font = ChartUtils.getFont(children[0]);
         if (font != null) {
@@ -537,7 +539,7 @@ public abstract class JFreeChartGenerator implements IJFreeChartGenerator {
         }
       }
       
-      children = chartDocContext.getChartDocument().getRootElement().findChildrenByName(ChartElement.TAG_NAME_DOMAIN_LABEL); //$NON-NLS-1$
+      children = chartDocContext.getChartDocument().getChildElements(ChartElement.TAG_NAME_DOMAIN_LABEL); //$NON-NLS-1$
       if (children != null && children.length > 0) {
         Font font = ChartUtils.getFont(children[0]);
         if (font != null) {
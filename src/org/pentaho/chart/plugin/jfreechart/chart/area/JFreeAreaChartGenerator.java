@@ -81,7 +81,7 @@ public abstract class JFreeAreaChartGenerator extends JFreeChartGenerator {
     }
 
     if (chart != null) {
-      final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+      final ChartElement[] seriesElements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
       final CategoryPlot categoryPlot = chart.getCategoryPlot();
       if (seriesElements != null && categoryPlot != null) {
         setSeriesAttributes(seriesElements, data, categoryPlot);
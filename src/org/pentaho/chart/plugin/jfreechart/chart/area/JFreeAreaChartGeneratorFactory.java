@@ -41,7 +41,7 @@ public class JFreeAreaChartGeneratorFactory {
     boolean xy = false;
 
     final ChartDocument chartDocument = chartDocContext.getChartDocument();
-    final ChartElement[] elements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] elements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     for (final ChartElement element : elements) {
       final CSSValue value = element.getLayoutStyle().getValue(ChartStyleKeys.AREA_STYLE);
       stacked |= value.equals(ChartAreaStyle.STACKED);
@@ -100,7 +100,7 @@ public abstract class JFreeBarChartGenerator extends JFreeChartGenerator {
       chart = ChartFactory.createBarChart(title, valueCategoryLabel, valueAxisLabel, categoryDataset, orientation, legend, toolTips, false);
     } 
 
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] seriesElements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     final CategoryPlot categoryPlot = chart.getCategoryPlot();
     if (seriesElements != null && categoryPlot != null) {
       setSeriesAttributes(seriesElements, data, categoryPlot);
@@ -46,7 +46,7 @@ public class JFreeBarChartGeneratorFactory {
     boolean stacked100Pct = false;
 
     final ChartDocument chartDocument = chartDocContext.getChartDocument();
-    final ChartElement[] elements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] elements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     for (final ChartElement element : elements) {
       final CSSValue value = element.getLayoutStyle().getValue(ChartStyleKeys.BAR_STYLE);
       stacked |= ChartBarStyle.STACKED.equals(value);
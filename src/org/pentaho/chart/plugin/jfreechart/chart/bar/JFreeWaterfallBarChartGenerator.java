@@ -63,9 +63,9 @@ public class JFreeWaterfallBarChartGenerator extends JFreeBarChartGenerator {
         categoryDataset, orientation, legend, toolTips, toolTips);
 
     final CategoryPlot categoryPlot = chart.getCategoryPlot();
-    final ChartElement plotElement = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_PLOT)[0];
+    final ChartElement plotElement = chartDocument.getChildElements(ChartElement.TAG_NAME_PLOT)[0];
     setPlotAttributes(categoryPlot, plotElement);
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(
+    final ChartElement[] seriesElements = chartDocument.getChildElements(
         ChartElement.TAG_NAME_SERIES);
     if (categoryPlot != null && seriesElements != null) {
       setSeriesAttributes(seriesElements, data, categoryPlot);
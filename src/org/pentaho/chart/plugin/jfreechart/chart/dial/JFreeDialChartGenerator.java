@@ -466,9 +466,9 @@ public class JFreeDialChartGenerator extends JFreeChartGenerator {
     } else if (DIALRANGE.equals(name)) {
       ChartElement plotElem = doc.getPlotElement();
       if (plotElem != null) {
-        ChartElement[] dialRanges = plotElem.findChildrenByName(DIALRANGES);
+        ChartElement[] dialRanges = doc.getChildElements(plotElem, DIALRANGES);
         if (dialRanges.length > 0) {
-          return dialRanges[0].findChildrenByName(name);
+          return doc.getChildElements(dialRanges[0], name);
         } else {
           return null;
         }
@@ -476,9 +476,9 @@ public class JFreeDialChartGenerator extends JFreeChartGenerator {
         return null;
       }
     } else if (TICKLABEL.equals(name) || MAJORTICK.equals(name) || MINORTICK.equals(name)) {
-      return doc.getPlotElement().findChildrenByName(SCALE)[0].findChildrenByName(name);
+      return doc.getChildElements(doc.getChildElements(doc.getPlotElement(), SCALE)[0], name);
     } else {
-      ChartElement[] elems = doc.getPlotElement().findChildrenByName(name);
+      ChartElement[] elems = doc.getChildElements(doc.getPlotElement(), name);
       return elems;
     }
   }
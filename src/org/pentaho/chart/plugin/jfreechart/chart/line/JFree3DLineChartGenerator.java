@@ -67,7 +67,7 @@ public class JFree3DLineChartGenerator extends JFreeLineChartGenerator {
     final CategoryPlot categoryPlot = chart.getCategoryPlot();
     categoryPlot.setRenderer(new LineRenderer3D());
     
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] seriesElements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     if (categoryPlot != null && seriesElements != null) {
       setSeriesAttributes(seriesElements, data, categoryPlot);
     }
@@ -63,7 +63,7 @@ public class JFreeLineChartGenerator extends JFreeChartGenerator {
 
 
     final CategoryPlot categoryPlot = chart.getCategoryPlot();
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] seriesElements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     if (categoryPlot != null && seriesElements != null) {
       setSeriesAttributes(seriesElements, data, categoryPlot);
     }
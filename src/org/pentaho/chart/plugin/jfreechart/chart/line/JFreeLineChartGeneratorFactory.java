@@ -41,7 +41,7 @@ public class JFreeLineChartGeneratorFactory {
     boolean threeD = false;
 
     final ChartDocument chartDocument = chartDocumentContext.getChartDocument();
-    final ChartElement[] elements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] elements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     for (final ChartElement element : elements) {
       CSSValue value = element.getLayoutStyle().getValue(ChartStyleKeys.LINE_STYLE);
       threeD |= ChartLineStyle.THREE_D.equals(value);
@@ -102,7 +102,7 @@ public abstract class JFreeMultiChartGenerator extends JFreeChartGenerator {
     } 
     
     final CategoryPlot categoryPlot = chart.getCategoryPlot();
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(
+    final ChartElement[] seriesElements = chartDocument.getChildElements(
         ChartElement.TAG_NAME_SERIES);
     if (categoryPlot != null && seriesElements != null) {
       setSeriesAttributes(seriesElements, data, categoryPlot);
@@ -100,7 +100,7 @@ public class JFreePieChartGenerator extends JFreeChartGenerator {
    * @param data          - Actual data.
    */
   private void setSeriesAttributes(final PiePlot piePlot, final ChartDocument chartDocument, final ChartTableModel data) {
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] seriesElements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     setSeriesPaint(piePlot, seriesElements, data);
     setLabelFont(piePlot, seriesElements);
     setExplode(piePlot, seriesElements, data);
@@ -0,0 +1,110 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.dataset;
+
+import java.util.List;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.general.DatasetUtilities;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.XYDomainInfo;
+import org.jfree.data.xy.XYRangeInfo;
+import org.pentaho.chart.data.DataSummary;
+import org.pentaho.chart.data.OffHeapXYDataModel;
+import org.pentaho.chart.data.OffHeapXYDataModel.Series;
+
+/**
+ * Exposes an {@link OffHeapXYDataModel} to JFreeChart without copying it. Values are read straight from the model's
+ * buffers through the primitive accessors, and axis bounds come from the model's summaries, so no per-point objects
+ * are created on the heap.
+ */
+public class OffHeapXYDataset extends AbstractXYDataset implements XYDomainInfo, XYRangeInfo {
+
+  private static final long serialVersionUID = -2914052281945470125L;
+
+  private final transient OffHeapXYDataModel dataModel;
+  private final transient List<Series> series;
+
+  public OffHeapXYDataset(OffHeapXYDataModel dataModel) {
+    this.dataModel = dataModel;
+    this.series = dataModel.getSeries();
+  }
+
+  public int getSeriesCount() {
+    return series.size();
+  }
+
+  public Comparable getSeriesKey(int seriesIndex) {
+    String seriesName = series.get(seriesIndex).getSeriesName();
+    return seriesName == null ? "" : seriesName; //$NON-NLS-1$
+  }
+
+  public int getItemCount(int seriesIndex) {
+    return series.get(seriesIndex).size();
+  }
+
+  public DomainOrder getDomainOrder() {
+    return DomainOrder.NONE;
+  }
+
+  public double getXValue(int seriesIndex, int item) {
+    return series.get(seriesIndex).getX(item);
+  }
+
+  public double getYValue(int seriesIndex, int item) {
+    return series.get(seriesIndex).getY(item);
+  }
+
+  public Number getX(int seriesIndex, int item) {
+    double x = getXValue(seriesIndex, item);
+    return Double.isNaN(x) ? null : (Number) x;
+  }
+
+  public Number getY(int seriesIndex, int item) {
+    double y = getYValue(seriesIndex, item);
+    return Double.isNaN(y) ? null : (Number) y;
+  }
+
+  public Range getDomainBounds(List visibleSeriesKeys, boolean includeInterval) {
+    if (visibleSeriesKeys.size() == series.size()) {
+      return toRange(dataModel.getDomainSummary());
+    }
+    return DatasetUtilities.iterateToFindDomainBounds(this, visibleSeriesKeys, includeInterval);
+  }
+
+  public Range getRangeBounds(List visibleSeriesKeys, Range xRange, boolean includeInterval) {
+    if ((visibleSeriesKeys.size() == series.size()) && ((xRange == null) || covers(xRange, dataModel.getDomainSummary()))) {
+      return toRange(dataModel.getSummary());
+    }
+    return DatasetUtilities.iterateToFindRangeBounds(this, visibleSeriesKeys, xRange, includeInterval);
+  }
+
+  private static boolean covers(Range range, DataSummary summary) {
+    return (summary.getCount() == 0)
+        || ((range.getLowerBound() <= summary.getMinValue().doubleValue())
+        && (range.getUpperBound() >= summary.getMaxValue().doubleValue()));
+  }
+
+  private static Range toRange(DataSummary summary) {
+    if (summary.getCount() == 0) {
+      return null;
+    }
+    return new Range(summary.getMinValue().doubleValue(), summary.getMaxValue().doubleValue());
+  }
+}
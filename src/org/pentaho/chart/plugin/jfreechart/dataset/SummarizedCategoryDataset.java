@@ -0,0 +1,51 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.dataset;
+
+import java.util.List;
+
+import org.jfree.data.Range;
+import org.jfree.data.category.CategoryRangeInfo;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DatasetUtilities;
+
+/**
+ * A category dataset that reports range bounds known in advance, typically from the {@link
+ * org.pentaho.chart.data.DataSummary} of the model it was built from. JFreeChart asks the dataset for its bounds
+ * before falling back to scanning every value for the axis auto-range.
+ * <p/>
+ * The bounds are only used while every series is visible. They must cover the values in the dataset; they are not
+ * updated when values are changed.
+ */
+public class SummarizedCategoryDataset extends DefaultCategoryDataset implements CategoryRangeInfo {
+
+  private static final long serialVersionUID = 6313950227318651412L;
+
+  private final Range rangeBounds;
+
+  public SummarizedCategoryDataset(Range rangeBounds) {
+    this.rangeBounds = rangeBounds;
+  }
+
+  public Range getRangeBounds(List visibleSeriesKeys, boolean includeInterval) {
+    if ((rangeBounds != null) && (visibleSeriesKeys.size() == getRowCount())) {
+      return rangeBounds;
+    }
+    return DatasetUtilities.iterateToFindRangeBounds(this, visibleSeriesKeys, includeInterval);
+  }
+}
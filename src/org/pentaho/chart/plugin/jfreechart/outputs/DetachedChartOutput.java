@@ -0,0 +1,215 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.outputs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.entity.StandardEntityCollection;
+import org.jfree.chart.imagemap.ImageMapUtilities;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.PersistenceException;
+
+/**
+ * A chart output that keeps nothing but the encoded image of a chart and its image map. It is made by
+ * {@link JFreeChartOutput#detach(IOutput.OutputTypes, int, int)} for callers that hold on to outputs, for example in a
+ * web session to serve the image map with a later request: the chart, its datasets and the rendering info with all its
+ * entities can be garbage collected as soon as the original output is dropped.
+ * <p/>
+ * The image map is kept deflated without its name, which is filled in when the map is requested. The image can only
+ * be persisted again in the type and size it was encoded in. Detached outputs are immutable and serializable.
+ */
+public class DetachedChartOutput implements IOutput, Serializable {
+
+  private static final long serialVersionUID = -3128704541734981637L;
+
+  private static final String MAP_END = "</map>"; //$NON-NLS-1$
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  /**
+   * Rough size of this object and its two arrays besides their contents.
+   */
+  private static final int OVERHEAD_BYTES = 96;
+
+  private final byte[] image;
+  private final IOutput.OutputTypes fileType;
+  private final int width;
+  private final int height;
+  private final byte[] map;
+  private final int mapLength;
+
+  /**
+   * @param image         the encoded image
+   * @param fileType      the image encoding
+   * @param renderingInfo the rendering info filled in when the image was drawn
+   */
+  DetachedChartOutput(final byte[] image, final IOutput.OutputTypes fileType, final int width, final int height,
+      final ChartRenderingInfo renderingInfo) throws PersistenceException {
+    this.image = image;
+    this.fileType = (fileType == null) ? IOutput.OutputTypes.FILE_TYPE_PNG : fileType;
+    this.width = width;
+    this.height = height;
+
+    // Keep the areas only; the map element around them depends on the map name
+    final String imageMap = ImageMapUtilities.getImageMap("", renderingInfo); //$NON-NLS-1$
+    final String mapStart = getMapStart(""); //$NON-NLS-1$
+    final String areas = imageMap.substring(mapStart.length(), imageMap.length() - MAP_END.length());
+    try {
+      final byte[] areaBytes = areas.getBytes(ENCODING);
+      this.mapLength = areaBytes.length;
+      this.map = deflate(areaBytes);
+    } catch (UnsupportedEncodingException e) {
+      throw new PersistenceException(e);
+    }
+  }
+
+  private static String getMapStart(final String mapName) {
+    final String emptyMap = ImageMapUtilities.getImageMap(mapName,
+        new ChartRenderingInfo(new StandardEntityCollection()));
+    return emptyMap.substring(0, emptyMap.length() - MAP_END.length());
+  }
+
+  private static byte[] deflate(final byte[] bytes) {
+    final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4 + 16);
+      final byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        outputStream.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return outputStream.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private byte[] inflate() throws PersistenceException {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(map);
+      final byte[] bytes = new byte[mapLength];
+      int length = 0;
+      while (length < mapLength) {
+        final int inflated = inflater.inflate(bytes, length, mapLength - length);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new PersistenceException("Truncated image map"); //$NON-NLS-1$
+        }
+        length += inflated;
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new PersistenceException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Writes the encoded image to the output stream. The file type and size must be the ones the image was encoded in.
+   *
+   * @param outputStream the stream to write to, or <code>null</code> to write to a new byte array stream
+   * @param fileType     the image encoding; <code>null</code> means PNG
+   * @throws PersistenceException if the image was encoded in another type or size, or can not be written
+   */
+  public OutputStream persistChart(OutputStream outputStream, final IOutput.OutputTypes fileType, final int width,
+      final int height) throws PersistenceException {
+    final IOutput.OutputTypes requestedType = (fileType == null) ? IOutput.OutputTypes.FILE_TYPE_PNG : fileType;
+    if (requestedType != this.fileType || width != this.width || height != this.height) {
+      throw new PersistenceException("The chart has been detached and is only available as " + this.fileType //$NON-NLS-1$
+          + " at " + this.width + "x" + this.height); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    if (outputStream == null) {
+      outputStream = new ByteArrayOutputStream(image.length);
+    }
+    try {
+      outputStream.write(image);
+      outputStream.flush();
+    } catch (IOException e) {
+      throw new PersistenceException(e);
+    }
+    return outputStream;
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.chart.plugin.api.IOutput#persistMap(java.io.Writer, java.lang.String)
+   */
+  public Writer persistMap(Writer outputStream, final String mapName) throws PersistenceException {
+    if (outputStream == null) {
+      outputStream = new StringWriter();
+    }
+
+    final String mapString = getMap(mapName);
+    try {
+      outputStream.write(mapString);
+      outputStream.flush();
+    } catch (IOException e) {
+      throw new PersistenceException(e);
+    }
+    return outputStream;
+  }
+
+  /**
+   * Returns the image map with the given name, the same as {@link JFreeChartOutput#getMap(String)} returned for the
+   * chart this output was detached from.
+   */
+  public String getMap(final String mapName) throws PersistenceException {
+    try {
+      return getMapStart(mapName) + new String(inflate(), ENCODING) + MAP_END;
+    } catch (UnsupportedEncodingException e) {
+      throw new PersistenceException(e);
+    }
+  }
+
+  /**
+   * Returns <code>null</code>; the chart has been released.
+   */
+  public Object getDrawable() {
+    return null;
+  }
+
+  public IOutput.OutputTypes getFileType() {
+    return fileType;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the approximate number of bytes of heap this output keeps alive: the encoded image, the deflated image map
+   * and the objects holding them.
+   */
+  public long getRetainedSize() {
+    return (long) image.length + map.length + OVERHEAD_BYTES;
+  }
+}
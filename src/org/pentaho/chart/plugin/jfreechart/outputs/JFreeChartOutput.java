@@ -17,11 +17,17 @@
 
 package org.pentaho.chart.plugin.jfreechart.outputs;
 
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jfree.chart.ChartRenderingInfo;
 import org.jfree.chart.ChartUtilities;
@@ -103,6 +109,132 @@ public class JFreeChartOutput implements IOutput {
     return outputStream;
   }
 
+  /**
+   * Renders this chart at each of the given sizes and returns the encoded images in the same order as the sizes.
+   * <p/>
+   * All sizes are drawn from this same chart instance, so the dataset and chart construction are only paid once.
+   * If <code>maxDerivedSize</code> is greater than zero, any size whose width and height both fit within it and
+   * whose aspect ratio matches the largest requested size is scaled down from the largest render instead of being
+   * drawn again. The image map available through {@link #persistMap(Writer, String)} afterwards belongs to the
+   * largest size.
+   *
+   * @param sizes the target sizes
+   * @param fileType the image encoding; <code>null</code> means PNG
+   * @param maxDerivedSize the largest edge length that may be derived by downscaling, or 0 to render every size
+   * @return the encoded images
+   * @throws PersistenceException
+   */
+  public List<byte[]> persistCharts(final List<Dimension> sizes, final IOutput.OutputTypes fileType,
+      final int maxDerivedSize) throws PersistenceException {
+    final List<byte[]> results = new ArrayList<byte[]>(sizes.size());
+    if (sizes.isEmpty()) {
+      return results;
+    }
+
+    Dimension largest = sizes.get(0);
+    for (final Dimension size : sizes) {
+      if (((long) size.width * size.height) > ((long) largest.width * largest.height)) {
+        largest = size;
+      }
+    }
+
+    final ChartRenderingInfo largestInfo = new ChartRenderingInfo(new StandardEntityCollection());
+    final BufferedImage largestImage = createImage(fileType, largest.width, largest.height, largestInfo);
+
+    for (final Dimension size : sizes) {
+      final BufferedImage image;
+      if (size.equals(largest)) {
+        image = largestImage;
+      } else if (canDerive(size, largest, maxDerivedSize)) {
+        image = downscale(largestImage, size.width, size.height);
+      } else {
+        image = createImage(fileType, size.width, size.height, null);
+      }
+      results.add(encode(image, fileType));
+    }
+    info = largestInfo;
+    return results;
+  }
+
+  /**
+   * Renders the chart once at the given size and returns an output that keeps only the encoded image and a compact
+   * copy of its image map. Callers that hold on to outputs, for example to serve the image map with a later request,
+   * should keep the detached output instead of this one, so the chart and its entities can be garbage collected.
+   *
+   * @param fileType the image encoding; <code>null</code> means PNG
+   * @return the detached output
+   * @throws PersistenceException
+   */
+  public DetachedChartOutput detach(final IOutput.OutputTypes fileType, final int width, final int height)
+      throws PersistenceException {
+    final ChartRenderingInfo renderingInfo = new ChartRenderingInfo(new StandardEntityCollection());
+    final byte[] image = encode(createImage(fileType, width, height, renderingInfo), fileType);
+    return new DetachedChartOutput(image, fileType, width, height, renderingInfo);
+  }
+
+  private BufferedImage createImage(final IOutput.OutputTypes fileType, final int width, final int height,
+      final ChartRenderingInfo renderingInfo) {
+    // Match ChartUtilities.writeChartAsJPEG / writeChartAsPNG so the output is identical to persistChart().
+    if (fileType == IOutput.OutputTypes.FILE_TYPE_JPEG) {
+      return chart.createBufferedImage(width, height, BufferedImage.TYPE_INT_RGB, renderingInfo);
+    }
+    return chart.createBufferedImage(width, height, renderingInfo);
+  }
+
+  private static byte[] encode(final BufferedImage image, final IOutput.OutputTypes fileType)
+      throws PersistenceException {
+    try {
+      if (fileType == IOutput.OutputTypes.FILE_TYPE_JPEG) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ChartUtilities.writeBufferedImageAsJPEG(outputStream, image);
+        return outputStream.toByteArray();
+      }
+      return ChartUtilities.encodeAsPNG(image);
+    } catch (IOException e) {
+      throw new PersistenceException(e);
+    }
+  }
+
+  private static boolean canDerive(final Dimension size, final Dimension source, final int maxDerivedSize) {
+    if (maxDerivedSize <= 0 || size.width > maxDerivedSize || size.height > maxDerivedSize) {
+      return false;
+    }
+    if (size.width <= 0 || size.height <= 0 || size.width > source.width || size.height > source.height) {
+      return false;
+    }
+    // Only derive when the aspect ratio is kept, otherwise the thumbnail would be distorted.
+    final double sourceRatio = (double) source.width / source.height;
+    final double targetRatio = (double) size.width / size.height;
+    return Math.abs(sourceRatio - targetRatio) <= sourceRatio * 0.01;
+  }
+
+  /**
+   * Scales the image down by repeated bilinear halving followed by one final bilinear step. This gives results close
+   * to a bicubic or area-averaging filter at a fraction of the cost.
+   */
+  private static BufferedImage downscale(final BufferedImage source, final int width, final int height) {
+    final int type = source.getTransparency() == BufferedImage.OPAQUE ?
+        BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    BufferedImage current = source;
+    int currentWidth = source.getWidth();
+    int currentHeight = source.getHeight();
+    do {
+      currentWidth = Math.max(width, currentWidth / 2);
+      currentHeight = Math.max(height, currentHeight / 2);
+      final BufferedImage scaled = new BufferedImage(currentWidth, currentHeight, type);
+      final Graphics2D g2 = scaled.createGraphics();
+      try {
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+      } finally {
+        g2.dispose();
+      }
+      current = scaled;
+    } while (currentWidth != width || currentHeight != height);
+    return current;
+  }
+
   /* (non-Javadoc)
    * @see org.pentaho.chart.plugin.api.IOutput#persistMap(java.io.OutputStream, java.lang.String)
    */
@@ -0,0 +1,161 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.renderer;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.renderer.category.CategoryItemRendererState;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.util.SortOrder;
+import org.pentaho.chart.ChartDeadline;
+
+/**
+ * A {@link LineAndShapeRenderer} for category series with many more columns than the plot has pixels. It decimates
+ * and culls the same way as {@link CullingXYLineAndShapeRenderer}. Because a category plot renders column by column,
+ * each row's line is collected while the plot renders and drawn when its last column is reached, and a shape drawn for
+ * one row frees its pixel in the other rows.
+ * <p/>
+ * Plots with fewer columns per pixel than the {@link #setCullingThreshold(double) culling threshold} are rendered by
+ * the base class unchanged. The {@link ChartDeadline} of the current thread is checked before each column, which is
+ * where the rows meet.
+ */
+public class CullingLineAndShapeRenderer extends LineAndShapeRenderer {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The decimated lines and painted pixels of each row for one rendering of the plot.
+   */
+  static class CullingState extends CategoryItemRendererState {
+    final M4Decimator[] decimators;
+    final PixelOccupancy[] occupancies;
+
+    CullingState(CategoryItemRendererState state, int rowCount) {
+      super(state.getInfo());
+      setVisibleSeriesArray(state.getVisibleSeriesArray());
+      setBarWidth(state.getBarWidth());
+      setCrosshairState(state.getCrosshairState());
+      decimators = new M4Decimator[rowCount];
+      occupancies = new PixelOccupancy[rowCount];
+    }
+  }
+
+  private double cullingThreshold = 1.0;
+
+  public CullingLineAndShapeRenderer() {
+    super();
+  }
+
+  public CullingLineAndShapeRenderer(boolean lines, boolean shapes) {
+    super(lines, shapes);
+  }
+
+  /**
+   * Returns the number of columns per pixel of the domain axis above which lines are decimated and shapes culled.
+   */
+  public double getCullingThreshold() {
+    return cullingThreshold;
+  }
+
+  public void setCullingThreshold(double cullingThreshold) {
+    this.cullingThreshold = cullingThreshold;
+    fireChangeEvent();
+  }
+
+  public CategoryItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, CategoryPlot plot,
+      int rendererIndex, PlotRenderingInfo info) {
+    CategoryItemRendererState state = super.initialise(g2, dataArea, plot, rendererIndex, info);
+    CategoryDataset dataset = plot.getDataset(rendererIndex);
+    if (dataset == null) {
+      return state;
+    }
+    double pixels = (plot.getOrientation() == PlotOrientation.HORIZONTAL) ? dataArea.getHeight() : dataArea.getWidth();
+    if (dataset.getColumnCount() <= pixels * cullingThreshold) {
+      return state;
+    }
+    return new CullingState(state, dataset.getRowCount());
+  }
+
+  public void drawItem(Graphics2D g2, CategoryItemRendererState state, Rectangle2D dataArea, CategoryPlot plot,
+      CategoryAxis domainAxis, ValueAxis rangeAxis, CategoryDataset dataset, int row, int column, int pass) {
+    if (!(state instanceof CullingState) || (row >= ((CullingState) state).decimators.length)) {
+      super.drawItem(g2, state, dataArea, plot, domainAxis, rangeAxis, dataset, row, column, pass);
+      return;
+    }
+    CullingState cullingState = (CullingState) state;
+    boolean horizontal = plot.getOrientation() == PlotOrientation.HORIZONTAL;
+    Number value = getItemVisible(row, column) ? dataset.getValue(row, column) : null;
+    double x = Double.NaN;
+    double y = Double.NaN;
+    if (value != null) {
+      if (getUseSeriesOffset()) {
+        x = domainAxis.getCategorySeriesMiddle(column, dataset.getColumnCount(), state.getVisibleSeriesIndex(row),
+            state.getVisibleSeriesCount(), getItemMargin(), dataArea, plot.getDomainAxisEdge());
+      } else {
+        x = domainAxis.getCategoryMiddle(column, getColumnCount(), dataArea, plot.getDomainAxisEdge());
+      }
+      y = rangeAxis.valueToJava2D(value.doubleValue(), dataArea, plot.getRangeAxisEdge());
+    }
+
+    if (pass == 0) {
+      if (row == 0) {
+        ChartDeadline.checkCurrent();
+      }
+      M4Decimator[] decimators = cullingState.decimators;
+      if (decimators[row] == null) {
+        decimators[row] = new M4Decimator(horizontal);
+      }
+      M4Decimator decimator = decimators[row];
+      if ((value == null) || !getItemLineVisible(row, column)) {
+        decimator.breakLine();
+      } else {
+        decimator.add(x, y);
+      }
+      // The row's line is drawn at its last column even when that column itself has nothing to draw.
+      int lastColumn = (plot.getColumnRenderingOrder() == SortOrder.ASCENDING) ? dataset.getColumnCount() - 1 : 0;
+      if (column == lastColumn) {
+        g2.setStroke(getItemStroke(row, column));
+        g2.setPaint(getItemPaint(row, column));
+        M4Decimator.drawSegments(g2, decimator.finish());
+      }
+    } else if (value != null) {
+      PixelOccupancy[] occupancies = cullingState.occupancies;
+      if (occupancies[row] == null) {
+        occupancies[row] = new PixelOccupancy(dataArea);
+      }
+      double screenX = horizontal ? y : x;
+      double screenY = horizontal ? x : y;
+      if (occupancies[row].mark(screenX, screenY)) {
+        // Rows are rendered interleaved, so this shape may cover pixels the other rows have already painted.
+        for (int i = 0; i < occupancies.length; i++) {
+          if ((i != row) && (occupancies[i] != null)) {
+            occupancies[i].unmark(screenX, screenY);
+          }
+        }
+        super.drawItem(g2, state, dataArea, plot, domainAxis, rangeAxis, dataset, row, column, pass);
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.renderer;
+
+import java.awt.Graphics2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYDataset;
+import org.pentaho.chart.ChartDeadline;
+
+/**
+ * An {@link XYLineAndShapeRenderer} for series with many more items than the plot has pixels. Lines are decimated to
+ * the first, minimum, maximum and last point of every pixel column. Shapes are only drawn for the first item of a
+ * series to land on each pixel; later items on the same pixel get neither a shape nor an entity. The image is visually
+ * the same as the one drawn by the base class, with far fewer draw calls.
+ * <p/>
+ * Plots whose longest series has fewer items per pixel than the {@link #setCullingThreshold(double) culling threshold}
+ * are rendered by the base class unchanged. The {@link ChartDeadline} of the current thread is checked before each
+ * series.
+ */
+public class CullingXYLineAndShapeRenderer extends XYLineAndShapeRenderer {
+
+  private static final long serialVersionUID = 1L;
+
+  static class CullingState extends XYLineAndShapeRenderer.State {
+    final M4Decimator decimator;
+    final PixelOccupancy occupancy;
+
+    CullingState(XYItemRendererState state, Rectangle2D dataArea, boolean horizontal) {
+      super(state.getInfo());
+      setProcessVisibleItemsOnly(state.getProcessVisibleItemsOnly());
+      decimator = new M4Decimator(horizontal);
+      occupancy = new PixelOccupancy(dataArea);
+    }
+
+    public void startSeriesPass(XYDataset dataset, int series, int firstItem, int lastItem, int pass, int passCount) {
+      ChartDeadline.checkCurrent();
+      super.startSeriesPass(dataset, series, firstItem, lastItem, pass, passCount);
+      decimator.finish();
+      occupancy.clear();
+    }
+  }
+
+  private double cullingThreshold = 1.0;
+
+  public CullingXYLineAndShapeRenderer() {
+    super();
+  }
+
+  public CullingXYLineAndShapeRenderer(boolean lines, boolean shapes) {
+    super(lines, shapes);
+  }
+
+  /**
+   * Returns the number of items per pixel of the domain axis above which lines are decimated and shapes culled.
+   */
+  public double getCullingThreshold() {
+    return cullingThreshold;
+  }
+
+  public void setCullingThreshold(double cullingThreshold) {
+    this.cullingThreshold = cullingThreshold;
+    fireChangeEvent();
+  }
+
+  public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, XYDataset data,
+      PlotRenderingInfo info) {
+    XYItemRendererState state = super.initialise(g2, dataArea, plot, data, info);
+    if (data == null) {
+      return state;
+    }
+    boolean horizontal = plot.getOrientation() == PlotOrientation.HORIZONTAL;
+    int itemCount = 0;
+    for (int series = 0; series < data.getSeriesCount(); series++) {
+      itemCount = Math.max(itemCount, data.getItemCount(series));
+    }
+    if (itemCount <= (horizontal ? dataArea.getHeight() : dataArea.getWidth()) * cullingThreshold) {
+      return state;
+    }
+    CullingState cullingState = new CullingState(state, dataArea, horizontal);
+    cullingState.seriesPath = new GeneralPath();
+    return cullingState;
+  }
+
+  public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea, PlotRenderingInfo info,
+      XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, XYDataset dataset, int series, int item,
+      CrosshairState crosshairState, int pass) {
+    if (!(state instanceof CullingState)) {
+      super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item, crosshairState,
+          pass);
+      return;
+    }
+    CullingState cullingState = (CullingState) state;
+    boolean visible = getItemVisible(series, item);
+    double transX = Double.NaN;
+    double transY = Double.NaN;
+    if (visible) {
+      transX = domainAxis.valueToJava2D(dataset.getXValue(series, item), dataArea, plot.getDomainAxisEdge());
+      transY = rangeAxis.valueToJava2D(dataset.getYValue(series, item), dataArea, plot.getRangeAxisEdge());
+    }
+
+    if (isLinePass(pass)) {
+      if (!visible || !getItemLineVisible(series, item) || Double.isNaN(transX) || Double.isNaN(transY)) {
+        cullingState.decimator.breakLine();
+      } else {
+        cullingState.decimator.add(transX, transY);
+      }
+      // The series' line is drawn at its last item even when that item itself has nothing to draw.
+      if (item == state.getLastItemIndex()) {
+        g2.setStroke(getItemStroke(series, item));
+        g2.setPaint(getItemPaint(series, item));
+        GeneralPath path = cullingState.decimator.finish();
+        if (getDrawSeriesLineAsPath()) {
+          g2.draw(path);
+        } else {
+          M4Decimator.drawSegments(g2, path);
+        }
+      }
+    } else if (isItemPass(pass) && visible) {
+      boolean horizontal = plot.getOrientation() == PlotOrientation.HORIZONTAL;
+      if (cullingState.occupancy.mark(horizontal ? transY : transX, horizontal ? transX : transY)) {
+        super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item, crosshairState,
+            pass);
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.renderer;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+
+/**
+ * Builds the path of a line series, keeping at most four points per pixel column of the domain axis: the first, the
+ * minimum, the maximum and the last (M4 decimation). The resulting polyline covers the same pixels as the full one.
+ * Points are given as (domain, range) Java2D coordinates and written to the path in screen order.
+ */
+class M4Decimator {
+
+  private final boolean horizontal;
+  private GeneralPath path = new GeneralPath();
+  private boolean penDown;
+  private boolean columnOpen;
+  private int column;
+  private int count;
+  private int lastEmitted;
+  private double firstX, firstY;
+  private double minX, minY;
+  private int minIndex;
+  private double maxX, maxY;
+  private int maxIndex;
+  private double lastX, lastY;
+  private int pathPointCount;
+
+  /**
+   * @param horizontal <code>true</code> if the domain axis runs vertically.
+   */
+  M4Decimator(boolean horizontal) {
+    this.horizontal = horizontal;
+  }
+
+  void add(double domain, double range) {
+    int c = (int) Math.floor(domain);
+    if (columnOpen && (c != column)) {
+      flushColumn();
+    }
+    if (!columnOpen) {
+      columnOpen = true;
+      column = c;
+      count = 0;
+      firstX = minX = maxX = domain;
+      firstY = minY = maxY = range;
+      minIndex = maxIndex = 0;
+    } else if (range < minY) {
+      minX = domain;
+      minY = range;
+      minIndex = count;
+    } else if (range > maxY) {
+      maxX = domain;
+      maxY = range;
+      maxIndex = count;
+    }
+    lastX = domain;
+    lastY = range;
+    count++;
+  }
+
+  /**
+   * Ends the current line segment, as for a missing value.
+   */
+  void breakLine() {
+    flushColumn();
+    penDown = false;
+  }
+
+  /**
+   * Returns the decimated path. The decimator starts a new path afterwards.
+   */
+  GeneralPath finish() {
+    breakLine();
+    GeneralPath result = path;
+    path = new GeneralPath();
+    return result;
+  }
+
+  /**
+   * Draws a decimated path one segment at a time, so that lines are joined the way the base renderers join them.
+   */
+  static void drawSegments(Graphics2D g2, Shape path) {
+    Line2D line = new Line2D.Double();
+    double[] coords = new double[6];
+    double lastX = 0;
+    double lastY = 0;
+    for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+      if (iterator.currentSegment(coords) == PathIterator.SEG_LINETO) {
+        line.setLine(lastX, lastY, coords[0], coords[1]);
+        g2.draw(line);
+      }
+      lastX = coords[0];
+      lastY = coords[1];
+    }
+  }
+
+  /**
+   * Returns the number of points written to paths so far.
+   */
+  int getPathPointCount() {
+    return pathPointCount;
+  }
+
+  private void flushColumn() {
+    if (!columnOpen) {
+      return;
+    }
+    columnOpen = false;
+    lastEmitted = -1;
+    emit(0, firstX, firstY);
+    if (minIndex < maxIndex) {
+      emit(minIndex, minX, minY);
+      emit(maxIndex, maxX, maxY);
+    } else {
+      emit(maxIndex, maxX, maxY);
+      emit(minIndex, minX, minY);
+    }
+    emit(count - 1, lastX, lastY);
+  }
+
+  private void emit(int index, double domain, double range) {
+    if (index <= lastEmitted) {
+      return;
+    }
+    lastEmitted = index;
+    float x = (float) (horizontal ? range : domain);
+    float y = (float) (horizontal ? domain : range);
+    if (penDown) {
+      path.lineTo(x, y);
+    } else {
+      path.moveTo(x, y);
+      penDown = true;
+    }
+    pathPointCount++;
+  }
+}
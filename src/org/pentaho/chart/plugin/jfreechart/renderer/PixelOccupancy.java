@@ -0,0 +1,83 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.renderer;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+
+/**
+ * One bit per device pixel of a data area, recording which pixels a series has already painted an item on.
+ */
+class PixelOccupancy {
+
+  private final double left;
+  private final double top;
+  private final int width;
+  private final int height;
+  private final BitSet pixels;
+
+  PixelOccupancy(Rectangle2D dataArea) {
+    left = dataArea.getMinX();
+    top = dataArea.getMinY();
+    width = Math.max(0, (int) Math.ceil(dataArea.getWidth()) + 1);
+    height = Math.max(0, (int) Math.ceil(dataArea.getHeight()) + 1);
+    pixels = new BitSet();
+  }
+
+  /**
+   * Marks the pixel containing the given point. Returns <code>false</code> if it was already marked; points outside
+   * the data area or not a number are never considered painted.
+   */
+  boolean mark(double x, double y) {
+    int index = indexOf(x, y);
+    if (index < 0) {
+      return true;
+    }
+    if (pixels.get(index)) {
+      return false;
+    }
+    pixels.set(index);
+    return true;
+  }
+
+  /**
+   * Forgets the pixel containing the given point, as when another series has painted over it.
+   */
+  void unmark(double x, double y) {
+    int index = indexOf(x, y);
+    if (index >= 0) {
+      pixels.clear(index);
+    }
+  }
+
+  void clear() {
+    pixels.clear();
+  }
+
+  private int indexOf(double x, double y) {
+    if (Double.isNaN(x) || Double.isNaN(y)) {
+      return -1;
+    }
+    int px = (int) Math.floor(x - left);
+    int py = (int) Math.floor(y - top);
+    if ((px < 0) || (py < 0) || (px >= width) || (py >= height)) {
+      return -1;
+    }
+    return py * width + px;
+  }
+}
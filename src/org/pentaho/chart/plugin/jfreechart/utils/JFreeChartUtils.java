@@ -79,7 +79,7 @@ public class JFreeChartUtils extends ChartUtils {
           final String columnName = currentGroup.getAttribute(ChartElement.COLUMN_NAME).toString();
           final int columnIndex = data.findColumn(columnName);
           syntheticColumnName.append(data.getValueAt(row, columnIndex)).append(SEPERATOR);
-          currentGroup = getChildGroup(currentGroup);
+          currentGroup = getChildGroup(chartDocument, currentGroup);
         }
     }
 
@@ -151,13 +151,7 @@ public class JFreeChartUtils extends ChartUtils {
    *         Returns -1 if columnName not found
    */
   private static int lookupPosition(final ChartTableModel data, final String columnName) {
-    final int colCount = data.getColumnCount();
-    for (int i = 0; i < colCount; i++) {
-      if (data.getColumnName(i).equalsIgnoreCase(columnName)) {
-        return i;
-      }
-    }
-    return -1;
+    return data.findColumnIgnoreCase(columnName);
   }
 
   /**
@@ -401,6 +395,18 @@ public class JFreeChartUtils extends ChartUtils {
     
     return null;
   }
+
+  /**
+   * Same as {@link #getChildGroup(ChartElement)}, but uses the child element index of the chart document.
+   */
+  public static ChartElement getChildGroup(final ChartDocument chartDocument, final ChartElement parentGroup) {
+    final ChartElement[] groupElements = chartDocument.getChildElements(parentGroup, ChartElement.TAG_NAME_GROUP);
+    if (groupElements.length > 0) {
+      return groupElements[0];
+    }
+
+    return null;
+  }
   /**
    * @param chartDocument
    * @return
@@ -422,12 +428,12 @@ public class JFreeChartUtils extends ChartUtils {
     final int rowCount = data.getRowCount();
     for (int row = 0; row < rowCount; row++) {
       final StringBuffer keyStr = new StringBuffer();
-      final int groupDepth = getGroupDepth(groupElement);
+      final int groupDepth = getGroupDepth(chartDocument, groupElement);
       for (int i=0; i<groupDepth; i++) {
         final String columnName = groupElement.getAttribute(ChartElement.COLUMN_NAME).toString();
         final int columnNum = data.findColumn(columnName);
         keyStr.append(data.getValueAt(row, columnNum)).append(SEPERATOR);
-        groupElement = getChildGroup(groupElement);
+        groupElement = getChildGroup(chartDocument, groupElement);
       }
       matchSet.add(keyStr.toString());
       groupElement = getBaseStackedGroupElement(chartDocument);
@@ -451,17 +457,18 @@ public class JFreeChartUtils extends ChartUtils {
   }
 
   /**
+   * @param chartDocument
    * @param groupElementParam
    * @return
    */
-  private static int getGroupDepth(final ChartElement groupElementParam) {
+  private static int getGroupDepth(final ChartDocument chartDocument, final ChartElement groupElementParam) {
     int depth = 0;
 
     if (groupElementParam != null) {
       ChartElement groupElement = groupElementParam;
       while(groupElement != null) {
         depth ++;
-        groupElement = getChildGroup(groupElement);
+        groupElement = getChildGroup(chartDocument, groupElement);
       }
     }
 
@@ -56,16 +56,18 @@ import org.pentaho.chart.core.ChartElement;
 import org.pentaho.chart.css.keys.ChartStyleKeys;
 import org.pentaho.chart.css.styles.ChartOrientationStyle;
 import org.pentaho.chart.css.styles.ChartSeriesType;
+import org.pentaho.chart.data.DataSummary;
 import org.pentaho.chart.data.MultiSeriesDataModel;
 import org.pentaho.chart.data.ChartTableModel;
 import org.pentaho.chart.data.IChartDataModel;
 import org.pentaho.chart.data.MultiSeriesXYDataModel;
 import org.pentaho.chart.data.NamedValue;
 import org.pentaho.chart.data.NamedValuesDataModel;
+import org.pentaho.chart.data.OffHeapXYDataModel;
 import org.pentaho.chart.data.XYDataModel;
 import org.pentaho.chart.data.XYDataPoint;
-import org.pentaho.chart.data.MultiSeriesDataModel.DomainData;
-import org.pentaho.chart.data.MultiSeriesDataModel.SeriesData;
+import org.pentaho.chart.data.MultiSeriesDataModel.DomainView;
+import org.pentaho.chart.data.MultiSeriesDataModel.SeriesView;
 import org.pentaho.chart.model.AreaPlot;
 import org.pentaho.chart.model.BarPlot;
 import org.pentaho.chart.model.ChartModel;
@@ -81,6 +83,7 @@ import org.pentaho.chart.model.TwoAxisPlot;
 import org.pentaho.chart.model.Axis.LabelOrientation;
 import org.pentaho.chart.model.BarPlot.BarPlotFlavor;
 import org.pentaho.chart.model.Plot.Orientation;
+import org.pentaho.chart.plugin.AxisScale;
 import org.pentaho.chart.plugin.IChartPlugin;
 import org.pentaho.chart.plugin.api.ChartResult;
 import org.pentaho.chart.plugin.api.IOutput;
@@ -100,19 +103,16 @@ public class OpenFlashChartFactoryEngine implements Serializable {
 
   private static final long serialVersionUID = -1079376910255750394L;
   
-  private static final int STACK_MIN_INDEX = 0;
-  private static final int STACK_MAX_INDEX = 1;
-  
   private class AxisConfiguration {
-    private AxisConfiguration(int minValue, int maxValue, int stepSize) {
+    private AxisConfiguration(double minValue, double maxValue, double stepSize) {
       this.maxValue= maxValue;
       this.minValue = minValue;
       this.stepSize = stepSize;
     }
     
-    int minValue;
-    int maxValue;
-    int stepSize;
+    double minValue;
+    double maxValue;
+    double stepSize;
   }
 
   public OpenFlashChartFactoryEngine() {
@@ -133,6 +133,8 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     } else if (chartModel.getPlot() instanceof ScatterPlot) {
       if (chartTableModel instanceof MultiSeriesXYDataModel) {
         chartOutput = new OpenFlashChartOutput(makeScatterChart(chartModel, (MultiSeriesXYDataModel)chartTableModel));
+      } else if (chartTableModel instanceof OffHeapXYDataModel) {
+        chartOutput = new OpenFlashChartOutput(makeScatterChart(chartModel, (OffHeapXYDataModel)chartTableModel));
       } else {
         chartOutput = new OpenFlashChartOutput(makeScatterChart(chartModel, (XYDataModel)chartTableModel));
       }
@@ -201,13 +203,9 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     return ya;
   }
   
-  private YAxis createYAxis(TwoAxisPlot twoAxisPlot, List<DomainData> categories) {
+  private YAxis createYAxis(TwoAxisPlot twoAxisPlot, List<String> categories) {
     YAxis ya = createYAxis(twoAxisPlot);
-    ArrayList<String> labels = new ArrayList<String>();
-    for (DomainData category : categories) {
-      labels.add(category.getDomainName());
-    }
-    ya.setLabels(labels.toArray(new String[0]));
+    ya.setLabels(categories.toArray(new String[categories.size()]));
     
     // HACK: If you try to set the max size, OFC2 will add one to max; otherwise, allow 
     // him to calculate the max, and the axis will render the appropriate steps.
@@ -247,13 +245,9 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     return xa;
   }
   
-  private XAxis createXAxis(TwoAxisPlot twoAxisPlot, List<DomainData> categories) {
+  private XAxis createXAxis(TwoAxisPlot twoAxisPlot, List<String> categories) {
     XAxis xa = createXAxis(twoAxisPlot);    
-    List<String> labels = new ArrayList<String>();
-    for (DomainData category : categories) {
-      labels.add(category.getDomainName());
-    }
-    xa.setLabels(labels);
+    xa.setLabels(new ArrayList<String>(categories));
     xa.getLabels().setRotation(getLabelRotation(twoAxisPlot.getHorizontalAxis()));
     return xa;
   }
@@ -298,11 +292,11 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     Chart chart = createBasicGraphChart(chartModel);
     AreaPlot areaPlot = (AreaPlot)chartModel.getPlot();
 
-    chart.setXAxis(createXAxis(areaPlot, chartTableModel.getDomainData()));
+    chart.setXAxis(createXAxis(areaPlot, chartTableModel.getDomainNames()));
     Palette palette = getPalette(areaPlot);
     
     int idx = 0;
-    for (SeriesData series : chartTableModel.getSeriesData()) {
+    for (SeriesView series : chartTableModel.getSeriesViews()) {
       
       AreaHollowChart areaChart = new AreaHollowChart();
       areaChart.setHaloSize(0);
@@ -328,14 +322,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       
       ArrayList<Dot> dots = new ArrayList<Dot>();
       
-      for (NamedValue namedValue : series) {
-        Number value = namedValue.getValue();
+      for (int i = 0; i < series.size(); i++) {
+        Number value = series.getValue(i);
         if (value == null) {
           dots.add(null);
         } else {
           Dot dot = new Dot(scaleNumber(value, chartTableModel.getScalingFactor()));
           if (linkGenerator != null) {
-            String dotLink = linkGenerator.generateLink(series.getSeriesName(), namedValue.getName(), namedValue.getValue());
+            String dotLink = linkGenerator.generateLink(series.getSeriesName(), series.getName(i), value);
             if (dotLink != null) {
               dot.setOnClick(dotLink.replaceAll("javascript:", "")); //$NON-NLS-1$ //$NON-NLS-2$
             }
@@ -454,36 +448,23 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       hasChartData = hasChartData || (value != null);
     }
     
-    AxisConfiguration rangeDescription = null;
-    
-    if (hasChartData) {
-      if (calculateMinValue) {
-        minValue = Math.min(0, minValue.doubleValue());
-      } 
-      minValue = Math.floor(minValue.doubleValue());
-      maxValue = Math.ceil(maxValue.doubleValue());
-      
-      if (maxValue.equals(minValue)) {
-        maxValue = maxValue.intValue() + 1;
-      }
-      
-      Number spread = maxValue.doubleValue() - minValue.doubleValue();
-      
-      int exponent = Integer.toString(Math.abs(spread.intValue())).length() - 1;
+    return createAxisConfiguration(minValue, maxValue, calculateMinValue, hasChartData);
+  }
+  
+  private AxisConfiguration getAxisConfiguration(NumericAxis axis, DataSummary summary) {
+    Number minValue = axis.getMinValue();
+    Number maxValue = axis.getMaxValue();
 
-      int stepSize = (int) (((long) (spread.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1)) * 2;
-      if (stepSize < 1) {
-        stepSize = 1;
-      }
-      
-      if ((maxValue.doubleValue() % stepSize) != 0) {
-        maxValue = (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize;
-      }
-      
-      rangeDescription = new AxisConfiguration(minValue.intValue(), maxValue.intValue(), stepSize);
+    boolean calculateMinValue = (minValue == null);
+    
+    if (calculateMinValue) {
+      minValue = summary.getMinValue();
+    }
+    if (maxValue == null) {
+      maxValue = summary.getMaxValue();
     }
     
-    return rangeDescription;
+    return createAxisConfiguration(minValue, maxValue, calculateMinValue, summary.getCount() > 0);
   }
   
   private AxisConfiguration getAxisConfiguration(TwoAxisPlot twoAxisPlot, MultiSeriesDataModel chartTableModel) {
@@ -493,114 +474,52 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     boolean calculateMinValue = (minValue == null);
     boolean calculateMaxValue = (maxValue == null);
     
-    boolean hasChartData = false;
-    
-    List<SeriesData> seriesList = chartTableModel.getSeriesData();
+    DataSummary summary = chartTableModel.getSummary();
+    boolean hasChartData = summary.getCount() > 0;
     
-    if ((twoAxisPlot instanceof BarPlot) && (((BarPlot)twoAxisPlot).getFlavor() == BarPlotFlavor.STACKED)) {
-      int numCategories = chartTableModel.getDomainData().size();
-      Number[][] stackRanges = new Number[numCategories][];
-      for (SeriesData series : seriesList) {
-        int index = 0;
-        for (NamedValue namedValue : series) {
-          Number value = namedValue.getValue();
-          hasChartData = hasChartData || (value != null);
-          if (value != null) {
-            value = scaleNumber(value, chartTableModel.getScalingFactor());
-            Number[] stackRange = stackRanges[index];
-            if (stackRange == null) {
-              if (value.doubleValue() < 0) {
-                stackRanges[index] = new Number[] { value, 0 };
-              } else {
-                stackRanges[index] = new Number[] { 0, value };
-              }
-            } else {
-              if (value.doubleValue() < 0) {
-                stackRange[STACK_MIN_INDEX] = stackRange[STACK_MIN_INDEX].doubleValue() + value.doubleValue();
-              } else {
-                stackRange[STACK_MAX_INDEX] = stackRange[STACK_MAX_INDEX].doubleValue() + value.doubleValue();
-              }
-            }
-          }
-          index++;
-        }
+    if (hasChartData) {
+      Number dataMinValue = null;
+      Number dataMaxValue = null;
+      if ((twoAxisPlot instanceof BarPlot) && (((BarPlot)twoAxisPlot).getFlavor() == BarPlotFlavor.STACKED)) {
+        dataMinValue = summary.getMinStackSum();
+        dataMaxValue = summary.getMaxStackSum();
+      } else {
+        dataMinValue = summary.getMinValue();
+        dataMaxValue = summary.getMaxValue();
       }
-      if (hasChartData) {
-        for (int column = 0; column < numCategories; column++) {
-          Number[] stackRange = stackRanges[column];
-          
-          if (calculateMaxValue) {
-            if (maxValue == null) {
-              maxValue = stackRange[STACK_MAX_INDEX];
-            } else if (stackRange[STACK_MAX_INDEX] != null) {
-              maxValue = Math.max(maxValue.doubleValue(), stackRange[STACK_MAX_INDEX].doubleValue());
-            }
-          }
-          
-          if (calculateMinValue) {
-            if (minValue == null) {
-              minValue = stackRange[STACK_MIN_INDEX];
-            } else if (stackRange[STACK_MIN_INDEX] != null) {
-              minValue = Math.min(minValue.doubleValue(), stackRange[STACK_MIN_INDEX].doubleValue());
-            }
-          }
-        }
+      dataMinValue = scaleNumber(dataMinValue, chartTableModel.getScalingFactor());
+      dataMaxValue = scaleNumber(dataMaxValue, chartTableModel.getScalingFactor());
+      
+      // A negative scaling factor swaps the ends of the range.
+      if (calculateMinValue) {
+        minValue = Math.min(dataMinValue.doubleValue(), dataMaxValue.doubleValue());
       }
-    } else {
-      for (SeriesData series : seriesList) {
-        for (NamedValue namedValue : series) {
-          Number value = namedValue.getValue();
-          hasChartData = hasChartData || (value != null);
-          if (value != null) {
-            value = scaleNumber(value, chartTableModel.getScalingFactor());
-          }
-          if (calculateMaxValue) {
-            if (maxValue == null) {
-              maxValue = value;
-            } else if (value != null) {
-              maxValue = Math.max(maxValue.doubleValue(), value.doubleValue());
-            }
-          }
-          
-          if (calculateMinValue) {
-            if (minValue == null) {
-              minValue = value;
-            } else if (value != null) {
-              minValue = Math.min(minValue.doubleValue(), value.doubleValue());
-            }
-          }
-          
-        }
+      if (calculateMaxValue) {
+        maxValue = Math.max(dataMinValue.doubleValue(), dataMaxValue.doubleValue());
       }
     }
-
+    
+    return createAxisConfiguration(minValue, maxValue, calculateMinValue, hasChartData);
+  }
+  
+  private AxisConfiguration createAxisConfiguration(Number minValue, Number maxValue, boolean calculateMinValue, boolean hasChartData) {
     AxisConfiguration rangeDescription = null;
     
     if (hasChartData) {
-    	if (calculateMinValue) {
-    		minValue = Math.min(0, minValue.doubleValue());
-    	}	
-      minValue = Math.floor(minValue.doubleValue());
-      maxValue = Math.ceil(maxValue.doubleValue());
-      
-      if (maxValue.equals(minValue)) {
-        maxValue = maxValue.intValue() + 1;
-      }
-      
-      Number spread = maxValue.doubleValue() - minValue.doubleValue();
-      
-      int exponent = Integer.toString(Math.abs(spread.intValue())).length() - 1;
-
-      int stepSize = (int) (((long) (spread.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1)) * 2;
-      if (stepSize < 1) {
-        stepSize = 1;
+      double min = minValue.doubleValue();
+      double max = maxValue.doubleValue();
+      if (calculateMinValue) {
+        min = Math.min(0, min);
       }
+      // With an explicit minimum above the data, the axis shows a single step from the minimum.
+      max = Math.max(min, max);
       
-      if ((maxValue.doubleValue() % stepSize) != 0) {
-        maxValue = (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize;
+      double stepSize = AxisScale.getTickStep(min, max, AxisScale.DEFAULT_TICK_COUNT);
+      if (calculateMinValue) {
+        min = AxisScale.getLowerBound(min, stepSize);
       }
       
-      rangeDescription = new AxisConfiguration(minValue.intValue(), maxValue.intValue(), stepSize);
+      rangeDescription = new AxisConfiguration(min, AxisScale.getUpperBound(min, max, stepSize), stepSize);
     }
     
     return rangeDescription;
@@ -618,14 +537,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     }
     
     boolean firstCategory = true;
-    for (DomainData category : chartTableModel.getDomainData()) {
+    for (DomainView category : chartTableModel.getDomainViews()) {
       Stack stack = stackedBarChart.newStack();
-      int index = 0;
-      for (NamedValue namedValue : category) {
+      for (int index = 0; index < category.size(); index++) {
+        String seriesName = category.getName(index);
         String color = "#" + Integer.toHexString(0x00FFFFFF & palette.get(index));
         if (firstCategory && (chartModel.getLegend() != null) && chartModel.getLegend().getVisible()) {
           StackKey key = new StackKey();
-          key.setText(namedValue.getName());
+          key.setText(seriesName);
           key.setColour(color);
           Integer legendSize = chartModel.getLegend().getFontSize();
           if ((legendSize != null) && (legendSize > 0)) {
@@ -634,18 +553,17 @@ public class OpenFlashChartFactoryEngine implements Serializable {
           stackedBarChart.addKeys(key);
         }
         
-        Number value = namedValue.getValue();
+        Number value = category.getValue(index);
         if ((value != null) && !value.equals(0)) {
           StackValue stackValue = new StackValue(scaleNumber(value, chartTableModel.getScalingFactor()), color);
           if (chartLinkGenerator != null) {
-            String barLink = chartLinkGenerator.generateLink(namedValue.getName(), category.getDomainName(), namedValue.getValue());
+            String barLink = chartLinkGenerator.generateLink(seriesName, category.getDomainName(), value);
             if (barLink != null) {
               stackValue.setOnClick(barLink.replaceAll("javascript:", "")); //$NON-NLS-1$ //$NON-NLS-2$
             }
           }
           stack.addStackValues(stackValue);
         }
-        index++;
       }
       firstCategory = false;
     }
@@ -657,17 +575,8 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     ScatterPlot scatterPlot = (ScatterPlot)chartModel.getPlot();
     Chart chart = null;
     
-    List<Number> axisValues = new ArrayList<Number>();
-    for (XYDataPoint xyDataPoint : chartTableModel) {
-      axisValues.add(xyDataPoint.getX());
-    }
-    AxisConfiguration xAxisConfiguration = getAxisConfiguration(scatterPlot.getXAxis(), axisValues);
-    
-    axisValues.clear();
-    for (XYDataPoint xyDataPoint : chartTableModel) {
-      axisValues.add(xyDataPoint.getY());
-    }    
-    AxisConfiguration yAxisConfiguration = getAxisConfiguration(scatterPlot.getYAxis(), axisValues);
+    AxisConfiguration xAxisConfiguration = getAxisConfiguration(scatterPlot.getXAxis(), chartTableModel.getDomainSummary());
+    AxisConfiguration yAxisConfiguration = getAxisConfiguration(scatterPlot.getYAxis(), chartTableModel.getSummary());
     
     if ((xAxisConfiguration != null) && (yAxisConfiguration != null)) {
       chart = createBasicGraphChart(chartModel);
@@ -744,7 +653,48 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     return chart;
   }
   
-  private HorizontalBarChart makeHorizontalBarChart(ChartModel chartModel, SeriesData dataSeries, int seriesIdx, Number scalingFactor, IChartLinkGenerator chartLinkGenerator) {
+  /**
+   * Off heap models are read point by point through their series, using the model's summaries for the axes.
+   */
+  private Chart makeScatterChart(ChartModel chartModel, OffHeapXYDataModel chartTableModel) {        
+    ScatterPlot scatterPlot = (ScatterPlot)chartModel.getPlot();
+    Chart chart = null;
+    
+    AxisConfiguration xAxisConfiguration = getAxisConfiguration(scatterPlot.getXAxis(), chartTableModel.getDomainSummary());
+    AxisConfiguration yAxisConfiguration = getAxisConfiguration(scatterPlot.getYAxis(), chartTableModel.getSummary());
+    
+    if ((xAxisConfiguration != null) && (yAxisConfiguration != null)) {
+      chart = createBasicGraphChart(chartModel);
+      chart.setXAxis(createXAxis(scatterPlot, xAxisConfiguration));
+      chart.setYAxis(createYAxis(scatterPlot, yAxisConfiguration));
+      
+      int index = 0;
+      for (OffHeapXYDataModel.Series series : chartTableModel.getSeries()) {
+        ScatterChart sc = new ScatterChart(series.getSeriesName());
+        sc.setText(series.getSeriesName());
+        String color = "#000000";
+        if (scatterPlot.getPalette().size() > index) {
+          color = "#" + Integer.toHexString(0x00FFFFFF & scatterPlot.getPalette().get(index));
+        }
+        sc.setColour(color);
+        sc.setDotSize(3);
+        if (scatterPlot.getOpacity() != null) {
+          sc.setAlpha(scatterPlot.getOpacity());
+        }
+        
+        for (int i = 0; i < series.size(); i++) {
+          sc.addPoint(series.getX(i), series.getY(i));
+        }
+        
+        chart.addElements(sc);
+        index++;
+      }
+    }
+    
+    return chart;
+  }
+  
+  private HorizontalBarChart makeHorizontalBarChart(ChartModel chartModel, SeriesView dataSeries, int seriesIdx, Number scalingFactor, IChartLinkGenerator chartLinkGenerator) {
     HorizontalBarChart horizontalBarChart = new HorizontalBarChart();
     
     if ((chartModel.getLegend() != null) && chartModel.getLegend().getVisible()) {
@@ -766,15 +716,15 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     }
     
     ArrayList<ofc4j.model.elements.HorizontalBarChart.Bar> bars = new ArrayList<ofc4j.model.elements.HorizontalBarChart.Bar>();
-    for (NamedValue namedValue : dataSeries) {
-      Number value = namedValue.getValue();
+    for (int i = 0; i < dataSeries.size(); i++) {
+      Number value = dataSeries.getValue(i);
       ofc4j.model.elements.HorizontalBarChart.Bar bar = null;
       if (value == null) {
         bar = null;
       } else {
         bar = new ofc4j.model.elements.HorizontalBarChart.Bar((scaleNumber(value, scalingFactor)));
         if (chartLinkGenerator != null) {
-          String barLink = chartLinkGenerator.generateLink(dataSeries.getSeriesName(), namedValue.getName(), namedValue.getValue());
+          String barLink = chartLinkGenerator.generateLink(dataSeries.getSeriesName(), dataSeries.getName(i), value);
           if (barLink != null) {
             bar.setOnClick(barLink.replaceAll("javascript:", "")); //$NON-NLS-1$ //$NON-NLS-2$
           }
@@ -787,7 +737,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     return horizontalBarChart;
   }
   
-  private BarChart makeVerticalBarChart(ChartModel chartModel, SeriesData dataSeries, int seriesIdx, Number scalingFactor, IChartLinkGenerator chartLinkGenerator) {
+  private BarChart makeVerticalBarChart(ChartModel chartModel, SeriesView dataSeries, int seriesIdx, Number scalingFactor, IChartLinkGenerator chartLinkGenerator) {
     BarChart verticalBarChart = null;
     BarPlot barPlot = (BarPlot) chartModel.getPlot();
     Palette palette = getPalette(barPlot);
@@ -829,15 +779,15 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     }
     
     ArrayList<Bar> bars = new ArrayList<Bar>();
-    for (NamedValue namedValue : dataSeries) {
+    for (int i = 0; i < dataSeries.size(); i++) {
       Bar bar = null;
-      Number value = namedValue.getValue();
+      Number value = dataSeries.getValue(i);
       if (value == null) {
         bar = new Bar(null);
       } else {
         bar = new Bar(scaleNumber(value, scalingFactor));
         if (chartLinkGenerator != null) {
-          String barLink = chartLinkGenerator.generateLink(dataSeries.getSeriesName(), namedValue.getName(), namedValue.getValue());
+          String barLink = chartLinkGenerator.generateLink(dataSeries.getSeriesName(), dataSeries.getName(i), value);
           if (barLink != null) {
             bar.setOnClick(barLink.replaceAll("javascript:", ""));//$NON-NLS-1$ //$NON-NLS-2$
           }
@@ -860,12 +810,12 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       // Fix for BISERVER-3027, incorrect hover tip placement on hbar
       chart.setTooltip(new Tooltip());
 
-      for (SeriesData series : dataModel.getSeriesData()) {
+      for (SeriesView series : dataModel.getSeriesViews()) {
         chart.addElements(makeHorizontalBarChart(chartModel, series, index, dataModel.getScalingFactor(), linkGenerator));
         index++;
       }
 
-      List<DomainData> categories = dataModel.getDomainData();
+      List<String> categories = new ArrayList<String>(dataModel.getDomainNames());
       // BISERVER-3075 hack for bug in OFC2 where categories are rendered backwards...
       Collections.reverse(categories);
       chart.setYAxis(createYAxis(barPlot, categories));
@@ -879,13 +829,13 @@ public class OpenFlashChartFactoryEngine implements Serializable {
         chart.addElements(makeStackedBarChart(chartModel, dataModel, linkGenerator));
       } else {
         int index = 0;
-        for (SeriesData series : dataModel.getSeriesData()) {
+        for (SeriesView series : dataModel.getSeriesViews()) {
           chart.addElements(makeVerticalBarChart(chartModel, series, index, dataModel.getScalingFactor(), linkGenerator));
           index++;
         }
       }
       
-      chart.setXAxis(createXAxis(barPlot, dataModel.getDomainData()));
+      chart.setXAxis(createXAxis(barPlot, dataModel.getDomainNames()));
       if (barPlot.getFlavor() == BarPlotFlavor.THREED) {
         chart.getXAxis().set3D(3);
       }
@@ -904,12 +854,12 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     Chart chart = createBasicGraphChart(chartModel);
     LinePlot linePlot = (LinePlot)chartModel.getPlot();
 
-    chart.setXAxis(createXAxis(linePlot, chartTableModel.getDomainData()));
+    chart.setXAxis(createXAxis(linePlot, chartTableModel.getDomainNames()));
 
     Palette palette = getPalette(linePlot);
 
     int index = 0;
-    for (SeriesData dataSeries : chartTableModel.getSeriesData()) {
+    for (SeriesView dataSeries : chartTableModel.getSeriesViews()) {
       LineChart lineChart = new LineChart(LineChart.Style.DOT);
       lineChart.setHaloSize(0);
       
@@ -935,14 +885,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       }
       
       ArrayList<Dot> dots = new ArrayList<Dot>();
-      for (NamedValue namedValue : dataSeries) {
-        Number value = namedValue.getValue();
+      for (int i = 0; i < dataSeries.size(); i++) {
+        Number value = dataSeries.getValue(i);
         if (value == null) {
           dots.add(null);
         } else {
           Dot dot = new Dot(scaleNumber(value, chartTableModel.getScalingFactor()));
           if (linkGenerator != null) {
-            String dotLink = linkGenerator.generateLink(dataSeries.getSeriesName(), namedValue.getName(), namedValue.getValue());
+            String dotLink = linkGenerator.generateLink(dataSeries.getSeriesName(), dataSeries.getName(i), value);
             if (dotLink != null) {
               dot.setOnClick(dotLink.replaceAll("javascript:", "")); //$NON-NLS-1$ //$NON-NLS-2$
             }
@@ -1012,7 +962,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       chart.setXAxis(xa);
     }
 
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(
+    final ChartElement[] seriesElements = chartDocument.getChildElements(
         ChartElement.TAG_NAME_SERIES);
     CSSNumericValue opacity = (CSSNumericValue) chartDocument.getPlotElement().getLayoutStyle().getValue(
         ColorStyleKeys.OPACITY);
@@ -1063,13 +1013,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     }
 
     if ((maxValue != null) && (minValue != null)) {
-      int exponent = Integer.toString(Math.abs(maxValue.intValue())).length() - 1;
+      // OFC starts the axis at 0.
+      double axisMax = Math.max(0, maxValue.doubleValue());
+      double stepSize = AxisScale.getTickStep(0, axisMax, AxisScale.DEFAULT_TICK_COUNT);
 
       YAxis ya = new YAxis();
-      int stepSize = (int) (((long) (maxValue.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1));
       ya.setSteps(stepSize);
 
-      ya.setMax((int) (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize);
+      ya.setMax(AxisScale.getUpperBound(0, axisMax, stepSize));
       chart.setYAxis(ya);
     }
 
@@ -1106,7 +1057,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     pieChart.addSlices(slices);
 
     ArrayList<String> colors = new ArrayList<String>();
-    for (ChartElement seriesElement : chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES)) {
+    for (ChartElement seriesElement : chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES)) {
       LayoutStyle layoutStyle = seriesElement.getLayoutStyle();
       Paint color = (layoutStyle != null ? (Paint) layoutStyle.getValue(ColorStyleKeys.COLOR) : null);
       if (color instanceof Color) {
@@ -1186,7 +1137,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     ChartElement rootElement = chartDocument.getRootElement();
     ChartElement plot = chartDocument.getPlotElement();
 
-    final ChartElement[] children = rootElement.findChildrenByName(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_TITLE); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       chartTitle = children[0].getText();
       cssFontStyleString = createCssFontStyleString(children[0]);
@@ -1219,7 +1170,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
    * @deprecated
    */
   private boolean showLegend(ChartDocument chartDocument) {
-    ChartElement[] children = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
+    ChartElement[] children = chartDocument.getChildElements(ChartElement.TAG_NAME_LEGEND); //$NON-NLS-1$
     return (children != null) && (children.length > 0);
   }
 
@@ -1237,7 +1188,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     CSSNumericValue opacity = (CSSNumericValue) chartDocument.getPlotElement().getLayoutStyle().getValue(
         ColorStyleKeys.OPACITY);
 
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(
+    final ChartElement[] seriesElements = chartDocument.getChildElements(
         ChartElement.TAG_NAME_SERIES);
     BarPlotFlavor flavor = null;
     for (final ChartElement element : seriesElements) {
@@ -1304,13 +1255,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       }
 
       if ((maxValue != null) && (minValue != null)) {
-        int exponent = Integer.toString(Math.abs(maxValue.intValue())).length() - 1;
+        // OFC starts the axis at 0.
+        double axisMax = Math.max(0, maxValue.doubleValue());
+        double stepSize = AxisScale.getTickStep(0, axisMax, AxisScale.DEFAULT_TICK_COUNT);
 
         XAxis xa = new XAxis();
-        int stepSize = (int) (((long) (maxValue.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1)) * 2;
         xa.setSteps(stepSize);
 
-        xa.setMax((int) (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize);
+        xa.setMax(AxisScale.getUpperBound(0, axisMax, stepSize));
         chart.setXAxis(xa);
       }
     } else {
@@ -1380,13 +1332,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
       }
 
       if ((maxValue != null) && (minValue != null)) {
-        int exponent = Integer.toString(Math.abs(maxValue.intValue())).length() - 1;
+        // OFC starts the axis at 0.
+        double axisMax = Math.max(0, maxValue.doubleValue());
+        double stepSize = AxisScale.getTickStep(0, axisMax, AxisScale.DEFAULT_TICK_COUNT);
 
         YAxis ya = new YAxis();
-        int stepSize = (int) (((long) (maxValue.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1));
         ya.setSteps(stepSize);
 
-        ya.setMax((int) (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize);
+        ya.setMax(AxisScale.getUpperBound(0, axisMax, stepSize));
         chart.setYAxis(ya);
       }
     }
@@ -1398,7 +1351,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
    * @deprecated
    */
   public boolean getAnimate(ChartDocument chartDocument) {
-    final ChartElement[] children = chartDocument.getRootElement().findChildrenByName("animate"); //$NON-NLS-1$
+    final ChartElement[] children = chartDocument.getChildElements("animate"); //$NON-NLS-1$
     return children != null && (children.length > 0) && Boolean.valueOf(children[0].getText());
   }
 
@@ -1441,7 +1394,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     CSSNumericValue opacity = (CSSNumericValue) chartDocument.getPlotElement().getLayoutStyle().getValue(
         ColorStyleKeys.OPACITY);
 
-    final ChartElement[] seriesElements = chartDocument.getRootElement().findChildrenByName(
+    final ChartElement[] seriesElements = chartDocument.getChildElements(
         ChartElement.TAG_NAME_SERIES);
 
     Number maxValue = null;
@@ -1487,13 +1440,14 @@ public class OpenFlashChartFactoryEngine implements Serializable {
     }
 
     if ((maxValue != null) && (minValue != null)) {
-      int exponent = Integer.toString(Math.abs(maxValue.intValue())).length() - 1;
+      // OFC starts the axis at 0.
+      double axisMax = Math.max(0, maxValue.doubleValue());
+      double stepSize = AxisScale.getTickStep(0, axisMax, AxisScale.DEFAULT_TICK_COUNT);
 
       YAxis ya = new YAxis();
-      int stepSize = (int) (((long) (maxValue.intValue() / Math.pow(10, exponent))) * Math.pow(10, exponent - 1));
       ya.setSteps(stepSize);
 
-      ya.setMax((int) (maxValue.doubleValue() - (maxValue.doubleValue() % stepSize)) + stepSize);
+      ya.setMax(AxisScale.getUpperBound(0, axisMax, stepSize));
       chart.setYAxis(ya);
     }
 
@@ -1504,7 +1458,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
    * @deprecated
    */
   public CSSConstant determineChartType(final ChartDocument chartDocument) {
-    final ChartElement[] elements = chartDocument.getRootElement().findChildrenByName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement[] elements = chartDocument.getChildElements(ChartElement.TAG_NAME_SERIES);
     for (final ChartElement element : elements) {
       final CSSValue value = element.getLayoutStyle().getValue(ChartStyleKeys.CHART_TYPE);
       if (value != null) {
@@ -1529,7 +1483,7 @@ public class OpenFlashChartFactoryEngine implements Serializable {
    */
   public Text getText(final ChartDocument chartDocument, String elementName) {
     Text text = null;
-    ChartElement[] children = chartDocument.getRootElement().findChildrenByName(elementName); //$NON-NLS-1$
+    ChartElement[] children = chartDocument.getChildElements(elementName); //$NON-NLS-1$
     if (children != null && children.length > 0) {
       String label = children[0].getText().trim();
       if (label.length() > 0) {
@@ -28,6 +28,7 @@ import org.pentaho.chart.data.IChartDataModel;
 import org.pentaho.chart.model.ChartModel;
 import org.pentaho.chart.plugin.AbstractChartPlugin;
 import org.pentaho.chart.plugin.IChartPlugin;
+import org.pentaho.chart.plugin.StyleResolutionStatistics;
 import org.pentaho.chart.plugin.api.ChartResult;
 import org.pentaho.chart.plugin.api.IOutput;
 
@@ -67,7 +68,9 @@ public class OpenFlashChartPlugin extends AbstractChartPlugin
     final ChartResult chartResult = validateChartDocument(chartDocument);
     if (chartResult.getErrorCode() == IChartPlugin.RESULT_VALIDATED)
     {  
-      return chartFactory.makeChart(data, chartDocumentContext, chartResult);
+      final IOutput output = chartFactory.makeChart(data, chartDocumentContext, chartResult);
+      StyleResolutionStatistics.record(chartFactory.determineChartType(chartDocument).getCSSText(), chartDocument);
+      return output;
     }
 
     return null;
@@ -54,6 +54,11 @@ public class HeirarchicalLinkedListItem implements Cloneable {
    */
   private long modNumber = 0L;
 
+  /**
+   * Indicates that this item (and all of its children) can no longer be modified.
+   */
+  private boolean frozen = false;
+
   /**
    * Returns the modification number for this item. This number can be used
    * to determine if a cache is invalid by comparing this number to the value when the
@@ -106,6 +111,8 @@ public class HeirarchicalLinkedListItem implements Cloneable {
    * Removes this item from the heirarchy.
    */
   public void removeItem() {
+    checkModifiable();
+
     // Remove this item from the current heirarchy
     boolean modified = false;
     if (prev != null) {
@@ -211,6 +218,8 @@ public class HeirarchicalLinkedListItem implements Cloneable {
     if (newChild == null || target == null) {
       throw new IllegalArgumentException();
     }
+    checkModifiable();
+    newChild.checkModifiable();
 
     // Find the child in the list of children
     final HeirarchicalLinkedListItem foundTarget = findChildItem(target);
@@ -241,6 +250,8 @@ public class HeirarchicalLinkedListItem implements Cloneable {
     if (newChild == null || target == null) {
       throw new IllegalArgumentException();
     }
+    checkModifiable();
+    newChild.checkModifiable();
 
     // Find the child in the list of children
     final HeirarchicalLinkedListItem foundTarget = findChildItem(target);
@@ -287,6 +298,8 @@ public class HeirarchicalLinkedListItem implements Cloneable {
     if (newChild == null) {
       throw new IllegalArgumentException();
     }
+    checkModifiable();
+    newChild.checkModifiable();
 
     if (lastChild != null) {
       insertAfter(newChild, lastChild);
@@ -398,6 +411,37 @@ public class HeirarchicalLinkedListItem implements Cloneable {
     markModified();
   }
 
+  /**
+   * Indicates if this item has been frozen.
+   *
+   * @see #freeze()
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Freezes this item and all of its children. Any later attempt to change the structure of the frozen items
+   * will fail with an <code>IllegalStateException</code>. Freezing can not be undone.
+   */
+  public void freeze() {
+    frozen = true;
+    for (HeirarchicalLinkedListItem item = firstChild; item != null; item = item.next) {
+      item.freeze();
+    }
+  }
+
+  /**
+   * Makes sure this item can be modified.
+   *
+   * @throws IllegalStateException indicates this item has been frozen
+   */
+  protected void checkModifiable() throws IllegalStateException {
+    if (frozen) {
+      throw new IllegalStateException("Item is frozen and can not be modified"); // TODO: externalize
+    }
+  }
+
   /**
    * Indicates that the item (or one of its children) has been modified.
    */
@@ -0,0 +1,179 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.chart.data.IChartDataModel;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.plugin.ChartTimeoutException;
+import org.pentaho.chart.plugin.IChartPlugin;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.IOutput.OutputTypes;
+
+public class AsyncChartBeanFactoryTest {
+
+  private static final String PLUGIN_ID = "async-test";
+
+  private static final byte[] IMAGE = new byte[] { 1, 2, 3 };
+
+  private IChartPlugin plugin;
+
+  private ChartModel chartModel;
+
+  private AsyncChartBeanFactory factory;
+
+  @Before
+  public void setUp() throws Exception {
+    final IOutput output = mock( IOutput.class );
+    when( output.persistChart( any( OutputStream.class ), any( OutputTypes.class ), anyInt(), anyInt() ) ).thenAnswer(
+        new Answer<OutputStream>() {
+          public OutputStream answer( InvocationOnMock invocation ) throws Throwable {
+            OutputStream outputStream = (OutputStream) invocation.getArguments()[0];
+            outputStream.write( IMAGE );
+            return outputStream;
+          }
+        } );
+    plugin = mock( IChartPlugin.class );
+    when( plugin.getPluginId() ).thenReturn( PLUGIN_ID );
+    when( plugin.renderChartDocument( any( ChartModel.class ), any( IChartDataModel.class ),
+        any( IChartLinkGenerator.class ) ) ).thenReturn( output );
+    ChartBeanFactory.loadDefaultChartPlugins( Collections.singletonList( plugin ) );
+
+    chartModel = new ChartModel();
+    chartModel.setChartEngineId( PLUGIN_ID );
+    factory = new AsyncChartBeanFactory();
+  }
+
+  @After
+  public void tearDown() {
+    factory.shutdown();
+    ChartBeanFactory.loadDefaultChartPlugins( new ArrayList<IChartPlugin>() );
+  }
+
+  @Test
+  public void testCreateChart() throws Exception {
+    Object[][] queryResults = new Object[][] { { "a", 1 }, { "b", 2 } };
+    InputStream image =
+        factory.createChart( queryResults, null, true, 1, -1, 0, chartModel, null, 100, 100, OutputTypes.FILE_TYPE_PNG,
+            10, TimeUnit.SECONDS ).get();
+    byte[] bytes = new byte[IMAGE.length];
+    assertEquals( IMAGE.length, image.read( bytes ) );
+    assertArrayEquals( IMAGE, bytes );
+    assertEquals( 0, factory.getPendingRequestCount() );
+  }
+
+  @Test
+  public void testDeadlineAbortsRendering() throws Exception {
+    renderUntilAborted( null );
+    CompletableFuture<InputStream> future =
+        factory.createChart( new Object[][] { { "a", 1 } }, null, true, 1, -1, 0, chartModel, null, 100, 100,
+            OutputTypes.FILE_TYPE_PNG, 50, TimeUnit.MILLISECONDS );
+    try {
+      future.get( 10, TimeUnit.SECONDS );
+      fail();
+    } catch ( ExecutionException e ) {
+      assertTrue( e.getCause() instanceof ChartTimeoutException );
+    }
+    awaitNoPendingRequests();
+  }
+
+  @Test
+  public void testCancelAbortsRendering() throws Exception {
+    CountDownLatch started = new CountDownLatch( 1 );
+    renderUntilAborted( started );
+    CompletableFuture<IOutput> future =
+        factory.createChart( chartModel, mock( IChartDataModel.class ), null, ChartDeadline.after( 0,
+            TimeUnit.SECONDS ) );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    assertEquals( 1, factory.getPendingRequestCount() );
+    future.cancel( true );
+    awaitNoPendingRequests();
+  }
+
+  @Test
+  public void testRejectsWhenSaturated() throws Exception {
+    factory.shutdown();
+    factory = new AsyncChartBeanFactory( AsyncChartBeanFactory.createDefaultExecutor(), 1 );
+    CountDownLatch started = new CountDownLatch( 1 );
+    renderUntilAborted( started );
+    ChartDeadline deadline = ChartDeadline.after( 0, TimeUnit.SECONDS );
+    factory.createChart( chartModel, mock( IChartDataModel.class ), null, deadline );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+    CompletableFuture<IOutput> rejected = factory.createChart( chartModel, mock( IChartDataModel.class ), null,
+        ChartDeadline.after( 0, TimeUnit.SECONDS ) );
+    assertTrue( rejected.isCompletedExceptionally() );
+    try {
+      rejected.get();
+      fail();
+    } catch ( ExecutionException e ) {
+      assertTrue( e.getCause() instanceof RejectedExecutionException );
+    }
+    deadline.cancel();
+    awaitNoPendingRequests();
+  }
+
+  /**
+   * Makes the plugin render until the current deadline stops it.
+   */
+  private void renderUntilAborted( final CountDownLatch started ) {
+    when( plugin.renderChartDocument( any( ChartModel.class ), any( IChartDataModel.class ),
+        any( IChartLinkGenerator.class ) ) ).thenAnswer( new Answer<IOutput>() {
+          public IOutput answer( InvocationOnMock invocation ) throws Throwable {
+            if ( started != null ) {
+              started.countDown();
+            }
+            while ( true ) {
+              ChartDeadline.checkCurrent();
+              Thread.sleep( 1 );
+            }
+          }
+        } );
+  }
+
+  private void awaitNoPendingRequests() throws InterruptedException {
+    long end = System.currentTimeMillis() + 10000;
+    while ( ( factory.getPendingRequestCount() > 0 ) && ( System.currentTimeMillis() < end ) ) {
+      Thread.sleep( 5 );
+    }
+    assertEquals( 0, factory.getPendingRequestCount() );
+  }
+}
@@ -24,8 +24,11 @@ package org.pentaho.chart;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -117,4 +120,35 @@ public class ChartBeanFactoryTest {
     assertEquals( expected, model.getSeriesData( expected ).getSeriesName() );
   }
 
+  @Test
+  public void testCreateChartDataModel_FormatsEachColumnOnce() throws ChartDataOverflowException,
+    NoChartDataException {
+    IPentahoMetaData metadata = mock( IPentahoMetaData.class );
+    when( metadata.getAttribute( anyInt(), anyInt(), anyString() ) ).then( new Answer<Object>() {
+      @Override
+      public Object answer( InvocationOnMock invocation ) throws Throwable {
+        if ( ARG_NAME_MASK.equalsIgnoreCase( (String) invocation.getArguments()[ARG_NAME_INDEX] ) ) {
+          return SAMPLE_INTEGER_MASK;
+        } else if ( ARG_NAME_TYPE.equalsIgnoreCase( (String) invocation.getArguments()[ARG_NAME_INDEX] ) ) {
+          return DataType.NUMERIC;
+        }
+        return (String) invocation.getArguments()[ARG_NAME_INDEX];
+      }
+    } );
+    Object[][] queryResults =
+        new Object[][] { { "domain1", SAMPLE_INTEGER, 1 }, { "domain2", SAMPLE_INTEGER, 2 },
+          { "domain1", SAMPLE_INTEGER, 3 } };
+    ChartModel chartModel = mock( ChartModel.class );
+
+    MultiSeriesDataModel model =
+        (MultiSeriesDataModel) ChartBeanFactory.createChartDataModel( queryResults, 1, false, 2, 1, 0, chartModel,
+            metadata );
+    verify( metadata, times( 1 ) ).getAttribute( 0, 1, ARG_NAME_MASK );
+    verify( metadata, times( 1 ) ).getAttribute( 0, 1, ARG_NAME_TYPE );
+    assertEquals( 2, model.getDomainData().size() );
+    assertSame( model.getDomainData().get( 0 ).getSeries().get( 0 ), model.getDomainData().get( 1 ).getSeries().get(
+        0 ) );
+    assertEquals( EXPECTED_INTEGER, model.getSeriesData( EXPECTED_INTEGER ).getSeriesName() );
+  }
+
 }
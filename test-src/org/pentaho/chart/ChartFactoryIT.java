@@ -173,4 +173,25 @@ public class ChartFactoryIT extends TestCase
       }
     }
   }
+
+  /**
+   * Tests that the styles of the elements are resolved when they are first used, together with their ancestors
+   */
+  public void testDeferredStyleResolution() throws ResourceException
+  {
+    final ChartDocument cd = ChartFactory.getChartDocument(this.getClass().getResource("style_test.xml"));
+    assertEquals(0, cd.getResolvedStyleCount());
+
+    // Resolving the plot resolves the chart element as well, but not the title
+    final ChartElement plot = cd.getRootElement().getLastChildItem();
+    final StyleKey color = StyleKeyRegistry.getRegistry().findKeyByName("color");
+    assertNotNull(plot.getStyle(color));
+    assertEquals(2, cd.getResolvedStyleCount());
+    assertTrue(cd.getRootElement().isStyleResolved());
+    assertFalse(cd.getRootElement().getFirstChildItem().isStyleResolved());
+
+    // The style is only resolved once
+    assertSame(plot.getLayoutStyle().getValue(color), plot.getStyle(color));
+    assertEquals(2, cd.getResolvedStyleCount());
+  }
 }
@@ -0,0 +1,205 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.chart.data.IChartDataModel;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.plugin.ChartProcessingException;
+import org.pentaho.chart.plugin.IChartPlugin;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.IOutput.OutputTypes;
+
+public class ChartRenderCoalescerTest {
+
+  private static final int REQUESTS = 8;
+
+  private ChartRenderCoalescer coalescer;
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    coalescer = new ChartRenderCoalescer();
+    executor = Executors.newFixedThreadPool( REQUESTS );
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    ChartBeanFactory.loadDefaultChartPlugins( new ArrayList<IChartPlugin>() );
+  }
+
+  @Test
+  public void testConcurrentRequestsShareOneRender() throws Exception {
+    final AtomicInteger renders = new AtomicInteger();
+    final byte[] image = new byte[] { 1, 2, 3 };
+    List<Future<byte[]>> results = submit( new Callable<byte[]>() {
+      public byte[] call() throws Exception {
+        renders.incrementAndGet();
+        awaitCoalesced( REQUESTS - 1 );
+        return image;
+      }
+    } );
+    List<byte[]> images = new ArrayList<byte[]>();
+    for ( Future<byte[]> result : results ) {
+      byte[] bytes = result.get( 10, TimeUnit.SECONDS );
+      assertArrayEquals( image, bytes );
+      for ( byte[] other : images ) {
+        assertNotSame( other, bytes );
+      }
+      images.add( bytes );
+    }
+    images.get( 0 )[0] = 9;
+    assertArrayEquals( new byte[] { 1, 2, 3 }, images.get( 1 ) );
+    assertEquals( 1, renders.get() );
+    assertEquals( REQUESTS, coalescer.getRequestCount() );
+    assertEquals( 1, coalescer.getRenderCount() );
+    assertEquals( REQUESTS - 1, coalescer.getCoalescedCount() );
+    assertEquals( 0, coalescer.getInFlightCount() );
+  }
+
+  @Test
+  public void testFailureReachesEveryRequestAndIsNotCached() throws Exception {
+    final ChartProcessingException failure = new ChartProcessingException( "render failed" );
+    List<Future<byte[]>> results = submit( new Callable<byte[]>() {
+      public byte[] call() throws Exception {
+        awaitCoalesced( REQUESTS - 1 );
+        throw failure;
+      }
+    } );
+    for ( Future<byte[]> result : results ) {
+      try {
+        result.get( 10, TimeUnit.SECONDS );
+        fail();
+      } catch ( ExecutionException e ) {
+        assertSame( failure, e.getCause() );
+      }
+    }
+    assertEquals( 1, coalescer.getFailureCount() );
+    assertEquals( 0, coalescer.getInFlightCount() );
+
+    assertArrayEquals( new byte[] { 4 }, coalescer.render( "chart", new Callable<byte[]>() {
+      public byte[] call() {
+        return new byte[] { 4 };
+      }
+    } ) );
+    assertEquals( 2, coalescer.getRenderCount() );
+  }
+
+  @Test
+  public void testEqualQueryResultsAreCoalesced() throws Exception {
+    final AtomicInteger renders = new AtomicInteger();
+    final IOutput output = mock( IOutput.class );
+    when( output.persistChart( any( OutputStream.class ), any( OutputTypes.class ), anyInt(), anyInt() ) ).thenAnswer(
+        new Answer<OutputStream>() {
+          public OutputStream answer( InvocationOnMock invocation ) throws Throwable {
+            OutputStream outputStream = (OutputStream) invocation.getArguments()[0];
+            outputStream.write( 7 );
+            return outputStream;
+          }
+        } );
+    IChartPlugin plugin = mock( IChartPlugin.class );
+    when( plugin.getPluginId() ).thenReturn( "coalescing-test" );
+    when( plugin.renderChartDocument( any( ChartModel.class ), any( IChartDataModel.class ),
+        any( IChartLinkGenerator.class ) ) ).thenAnswer( new Answer<IOutput>() {
+          public IOutput answer( InvocationOnMock invocation ) throws Throwable {
+            renders.incrementAndGet();
+            awaitCoalesced( 1 );
+            return output;
+          }
+        } );
+    ChartBeanFactory.loadDefaultChartPlugins( Collections.singletonList( plugin ) );
+    final ChartModel chartModel = new ChartModel();
+    chartModel.setChartEngineId( "coalescing-test" );
+
+    List<Future<InputStream>> results = new ArrayList<Future<InputStream>>();
+    for ( int i = 0; i < 2; i++ ) {
+      results.add( executor.submit( new Callable<InputStream>() {
+        public InputStream call() throws Exception {
+          // Equal but distinct arrays, as two requests would read them.
+          Object[][] queryResults = new Object[][] { { "a", 1 }, { "b", 2 } };
+          return coalescer.createChart( queryResults, null, true, 1, -1, 0, chartModel, null, 100, 100,
+              OutputTypes.FILE_TYPE_PNG );
+        }
+      } ) );
+    }
+    for ( Future<InputStream> result : results ) {
+      byte[] bytes = new byte[1];
+      assertEquals( 1, result.get( 10, TimeUnit.SECONDS ).read( bytes ) );
+      assertArrayEquals( new byte[] { 7 }, bytes );
+    }
+    assertEquals( 1, renders.get() );
+    assertEquals( 1, coalescer.getCoalescedCount() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testDataFingerprintIsRequired() throws Exception {
+    coalescer.createChart( new ChartModel(), mock( IChartDataModel.class ), null, null, 100, 100,
+        OutputTypes.FILE_TYPE_PNG );
+  }
+
+  private List<Future<byte[]>> submit( final Callable<byte[]> render ) {
+    List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+    for ( int i = 0; i < REQUESTS; i++ ) {
+      results.add( executor.submit( new Callable<byte[]>() {
+        public byte[] call() throws Exception {
+          return coalescer.render( "chart", render );
+        }
+      } ) );
+    }
+    return results;
+  }
+
+  /**
+   * Holds the render until the other requests have joined it.
+   */
+  private void awaitCoalesced( int count ) throws InterruptedException {
+    long end = System.currentTimeMillis() + 10000;
+    while ( ( coalescer.getCoalescedCount() < count ) && ( System.currentTimeMillis() < end ) ) {
+      Thread.sleep( 1 );
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.net.URL;
+
+import junit.framework.TestCase;
+import org.pentaho.chart.core.ChartDocument;
+import org.pentaho.chart.core.ChartElement;
+import org.pentaho.chart.core.parser.ChartXMLParser;
+import org.pentaho.reporting.libraries.css.dom.LayoutStyle;
+import org.pentaho.reporting.libraries.css.model.StyleKey;
+import org.pentaho.reporting.libraries.css.model.StyleKeyRegistry;
+import org.pentaho.reporting.libraries.css.resolver.StyleResolver;
+import org.pentaho.reporting.libraries.css.resolver.impl.DefaultStyleResolver;
+import org.pentaho.reporting.libraries.css.values.CSSValue;
+
+/**
+ * Tests for the <code>ChartStyleResolver</code> class
+ */
+public class ChartStyleResolverIT extends TestCase {
+
+  private static final String[] DOCUMENTS = {
+      "test1.xml", //$NON-NLS-1$
+      "style_test.xml", //$NON-NLS-1$
+      "MultiAxisChart1.xml", //$NON-NLS-1$
+      "css/BarMaxWidthStyleTest.xml", //$NON-NLS-1$
+      "css/BarStyleTest.xml", //$NON-NLS-1$
+      "css/ChartAxisDimensionTest.xml", //$NON-NLS-1$
+      "css/ChartAxisLocationTest.xml", //$NON-NLS-1$
+      "css/ChartAxisOrderTest.xml", //$NON-NLS-1$
+      "css/ChartAxisPositionTest.xml", //$NON-NLS-1$
+      "css/ChartAxisTypeTest.xml", //$NON-NLS-1$
+      "css/ChartBackgroundColorTest.xml", //$NON-NLS-1$
+      "css/ChartGradientColorStyleTest.xml", //$NON-NLS-1$
+      "css/ChartGradientEndTest.xml", //$NON-NLS-1$
+      "css/ChartGradientStartTest.xml", //$NON-NLS-1$
+      "css/ChartGradientTest.xml", //$NON-NLS-1$
+      "css/ChartGradientTypeTest.xml", //$NON-NLS-1$
+      "css/ChartItemLabelTextTest.xml", //$NON-NLS-1$
+      "css/ChartItemLabelVisibleTest.xml", //$NON-NLS-1$
+      "css/ChartLineVisibleTest.xml", //$NON-NLS-1$
+      "css/ChartMarginTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerFillColorTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerFilledTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerHeightTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerShapeTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerVisibleTest.xml", //$NON-NLS-1$
+      "css/ChartMarkerWidthTest.xml", //$NON-NLS-1$
+      "css/ChartOrientationStyleTest.xml", //$NON-NLS-1$
+      "css/ChartScaleTest.xml", //$NON-NLS-1$
+      "css/ChartSeriesTypeTest.xml", //$NON-NLS-1$
+      "css/DrillUrlTest.xml", //$NON-NLS-1$
+      "css/FirstBarColorTest.xml", //$NON-NLS-1$
+      "css/LastBarColorTest.xml", //$NON-NLS-1$
+      "css/LineStyleTest.xml", //$NON-NLS-1$
+      "css/NegativeBarColorTest.xml", //$NON-NLS-1$
+      "css/PieExplodePercentStyleTest.xml", //$NON-NLS-1$
+      "css/PieLabelInsideChartTypeTest.xml", //$NON-NLS-1$
+      "css/PositiveBarColorTest.xml", //$NON-NLS-1$
+  };
+
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    // Boot the charting library - required for parsing configuration
+    ChartBoot.getInstance().start();
+  }
+
+  /**
+   * Tests that every element gets the same style as with the default resolver.
+   */
+  public void testSameStylesAsDefaultResolver() throws Exception {
+    final StyleKey[] keys = StyleKeyRegistry.getRegistry().getKeys();
+    for (final String document : DOCUMENTS) {
+      final URL url = getClass().getResource(document);
+      assertNotNull(document, url);
+      final ChartDocument expected = resolve(url, new DefaultStyleResolver());
+      final ChartDocument actual = resolve(url, new ChartStyleResolver());
+
+      ChartElement expectedElement = expected.getRootElement();
+      ChartElement actualElement = actual.getRootElement();
+      while (expectedElement != null) {
+        assertNotNull(document, actualElement);
+        final LayoutStyle expectedStyle = expectedElement.getLayoutStyle();
+        final LayoutStyle actualStyle = actualElement.getLayoutStyle();
+        for (final StyleKey key : keys) {
+          final CSSValue expectedValue = expectedStyle.getValue(key);
+          final CSSValue actualValue = actualStyle.getValue(key);
+          final String message = document + " " + expectedElement.getTagName() + " " + key.getName(); //$NON-NLS-1$ //$NON-NLS-2$
+          if (expectedValue == null) {
+            assertNull(message, actualValue);
+          } else {
+            assertNotNull(message, actualValue);
+            assertEquals(message, expectedValue.getCSSText(), actualValue.getCSSText());
+          }
+        }
+        expectedElement = expectedElement.getNextDepthFirstItem();
+        actualElement = actualElement.getNextDepthFirstItem();
+      }
+      assertNull(document, actualElement);
+    }
+  }
+
+  /**
+   * Tests that series with the same name, classes and style attributes share their style.
+   */
+  public void testSharedStyles() throws Exception {
+    final ChartDocument chart = new ChartXMLParser().parseChartDocument(getClass().getResource("css/ChartSeriesTypeTest.xml")); //$NON-NLS-1$
+    for (int i = 0; i < 10; i++) {
+      final ChartElement series = new ChartElement();
+      series.setTagName(ChartElement.TAG_NAME_SERIES);
+      chart.getRootElement().addChildElement(series);
+    }
+
+    final ChartStyleResolver resolver = new ChartStyleResolver();
+    resolver.initialize(new ChartDocumentContext(chart));
+    ChartElement element = chart.getRootElement();
+    while (element != null) {
+      resolver.resolveStyle(element);
+      element = element.getNextDepthFirstItem();
+    }
+    // The first series has no style attribute either
+    assertEquals(10, resolver.getSharedCount());
+  }
+
+  /**
+   * Tests that classes no rule tests do not keep series from sharing their style.
+   */
+  public void testUnmatchedClassesAreShared() throws Exception {
+    final ChartDocument chart = new ChartXMLParser().parseChartDocument(getClass().getResource("css/ChartSeriesTypeTest.xml")); //$NON-NLS-1$
+    for (int i = 0; i < 10; i++) {
+      final ChartElement series = new ChartElement();
+      series.setTagName(ChartElement.TAG_NAME_SERIES);
+      series.setAttribute("class", "series-" + i); //$NON-NLS-1$ //$NON-NLS-2$
+      chart.getRootElement().addChildElement(series);
+    }
+
+    final ChartStyleResolver resolver = new ChartStyleResolver();
+    resolver.initialize(new ChartDocumentContext(chart));
+    ChartElement element = chart.getRootElement();
+    while (element != null) {
+      resolver.resolveStyle(element);
+      element = element.getNextDepthFirstItem();
+    }
+    assertEquals(10, resolver.getSharedCount());
+  }
+
+  private static ChartDocument resolve(final URL url, final StyleResolver resolver) throws Exception {
+    final ChartDocument chart = new ChartXMLParser().parseChartDocument(url);
+    resolver.initialize(new ChartDocumentContext(chart));
+    ChartElement element = chart.getRootElement();
+    while (element != null) {
+      resolver.resolveStyle(element);
+      element = element.getNextDepthFirstItem();
+    }
+    return chart;
+  }
+}
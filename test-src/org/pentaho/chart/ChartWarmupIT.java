@@ -0,0 +1,52 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.pentaho.chart.plugin.jfreechart.JFreeChartPlugin;
+
+/**
+ * Warms up real plugins, so it needs the boot and the chart libraries on the classpath.
+ */
+public class ChartWarmupIT extends TestCase {
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    ChartBoot.getInstance().start();
+  }
+
+  public void testWarmup() {
+    ChartWarmup warmup =
+        new ChartWarmup(Arrays.asList(JFreeChartPlugin.PLUGIN_ID), Arrays.asList("Dialog"), null, 1); //$NON-NLS-1$
+    assertEquals(-1, warmup.getWarmupTime());
+    warmup.run();
+    assertEquals(0, warmup.getFailedSteps());
+    assertTrue(warmup.getWarmupTime() >= 0);
+  }
+
+  public void testUnknownPluginIsReported() {
+    ChartWarmup warmup =
+        new ChartWarmup(Arrays.asList("unknown"), Collections.<String>emptyList(), null, 1); //$NON-NLS-1$
+    warmup.warmUpRenders();
+    assertEquals(1, warmup.getFailedSteps());
+  }
+}
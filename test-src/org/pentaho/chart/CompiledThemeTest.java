@@ -0,0 +1,131 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.pentaho.chart.model.Theme;
+import org.pentaho.chart.model.Theme.ChartTheme;
+
+public class CompiledThemeTest extends TestCase {
+
+  public void testReadWrite() throws Exception {
+    CompiledTheme theme = new CompiledTheme("theme1.xml", new int[] { 0xFF0000, 0x00FF00 }, 1234L, 5678L); //$NON-NLS-1$
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    CompiledTheme.write(Arrays.asList(theme, new CompiledTheme("theme2.xml", new int[0], 0, 0)), outputStream); //$NON-NLS-1$
+
+    List<CompiledTheme> themes = CompiledTheme.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(2, themes.size());
+    assertEquals("theme1.xml", themes.get(0).getId()); //$NON-NLS-1$
+    assertEquals(1234L, themes.get(0).getLastModified());
+    assertEquals(5678L, themes.get(0).getContentHash());
+    assertEquals(2, themes.get(0).getColorCount());
+    assertEquals(0x00FF00, themes.get(0).getColor(1));
+    assertEquals(0, themes.get(1).getColorCount());
+
+    try {
+      CompiledTheme.read(new ByteArrayInputStream(new byte[8]));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  public void testThemesAreCopies() {
+    CompiledTheme compiledTheme = new CompiledTheme("theme1.xml", new int[] { 0xFF0000 }, 0, 0); //$NON-NLS-1$
+    Theme theme = compiledTheme.toTheme();
+    theme.getColors().clear();
+    assertEquals(Arrays.asList(0xFF0000), compiledTheme.toTheme().getColors());
+  }
+
+  public void testPrecompiledThemes() throws Exception {
+    final File precompiled = File.createTempFile("themes", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      FileOutputStream outputStream = new FileOutputStream(precompiled);
+      try {
+        CompiledTheme.write(Arrays.asList(new CompiledTheme("theme1.xml", new int[] { 0x336699 }, 0, 0)), //$NON-NLS-1$
+            outputStream);
+      } finally {
+        outputStream.close();
+      }
+
+      // The theme file does not exist, so only the precompiled theme can provide its colors.
+      AbstractChartThemeFactory factory =
+          createFactory(new File(precompiled.getParentFile(), "theme1.xml"), precompiled); //$NON-NLS-1$
+      assertEquals(Arrays.asList(0x336699), factory.getTheme(ChartTheme.THEME1).getColors());
+      assertNull(factory.getTheme(ChartTheme.THEME2));
+      assertEquals(1, factory.getThemes().size());
+    } finally {
+      precompiled.delete();
+    }
+  }
+
+  public void testPrecompiledThemesMatchContent() throws Exception {
+    final File themeFile = File.createTempFile("theme", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+    final File precompiled = File.createTempFile("themes", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      FileOutputStream outputStream = new FileOutputStream(themeFile);
+      try {
+        outputStream.write("not parsed".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+      } finally {
+        outputStream.close();
+      }
+      // A copied theme file has a new modification time but the same contents as the file that was compiled.
+      assertTrue(themeFile.setLastModified(1000000L));
+      outputStream = new FileOutputStream(precompiled);
+      try {
+        CompiledTheme.write(Arrays.asList(new CompiledTheme(themeFile.getName(), new int[] { 0x336699 }, 2000000L,
+            CompiledTheme.contentHash(themeFile))), outputStream);
+      } finally {
+        outputStream.close();
+      }
+
+      AbstractChartThemeFactory factory = createFactory(themeFile, precompiled);
+      assertEquals(Arrays.asList(0x336699), factory.getTheme(ChartTheme.THEME1).getColors());
+      assertEquals(1000000L, factory.getCompiledTheme(themeFile).getLastModified());
+    } finally {
+      themeFile.delete();
+      precompiled.delete();
+    }
+  }
+
+  private static AbstractChartThemeFactory createFactory(final File themeFile, final File precompiled) {
+    return new AbstractChartThemeFactory() {
+      protected List<File> getThemeFiles() {
+        return Arrays.asList(themeFile);
+      }
+
+      protected URL getPrecompiledThemes() {
+        try {
+          return precompiled.toURI().toURL();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+  }
+}
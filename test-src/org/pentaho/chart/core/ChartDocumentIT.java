@@ -187,4 +187,98 @@ public class ChartDocumentIT extends TestCase {
       }
     }
   }
+
+  /**
+   * Tests for the <code>getChildElements()</code> tag name index
+   */
+  public void testGetChildElements() {
+    final ChartElement rootElement = new ChartElement();
+    rootElement.setTagName(ChartElement.TAG_NAME_CHART);
+    final ChartElement series1 = new ChartElement(); series1.setTagName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement series2 = new ChartElement(); series2.setTagName(ChartElement.TAG_NAME_SERIES);
+    final ChartElement label1 = new ChartElement(); label1.setTagName(ChartElement.TAG_NAME_LABEL);
+    final ChartDocument doc = new ChartDocument(rootElement);
+    rootElement.addChildElement(series1);
+    series1.addChildElement(label1);
+
+    final ChartElement[] elements = doc.getChildElements(ChartElement.TAG_NAME_SERIES);
+    assertEquals(1, elements.length);
+    assertEquals(series1, elements[0]);
+    // Unchanged documents share the same lookup result
+    assertSame(elements, doc.getChildElements(ChartElement.TAG_NAME_SERIES));
+    assertSame(doc.getChildElements("foo"), doc.getChildElements(ChartElement.TAG_NAME_AXIS)); //$NON-NLS-1$
+    assertEquals(0, doc.getChildElements(null).length);
+    assertEquals(0, doc.getChildElements(ChartElement.TAG_NAME_LABEL).length);
+    assertEquals(label1, doc.getChildElements(series1, ChartElement.TAG_NAME_LABEL)[0]);
+
+    // Changes anywhere below the parent invalidate its index
+    final ChartElement[] labels = doc.getChildElements(series1, ChartElement.TAG_NAME_LABEL);
+    rootElement.addChildElement(series2);
+    assertEquals(2, doc.getChildElements(ChartElement.TAG_NAME_SERIES).length);
+    assertSame(labels, doc.getChildElements(series1, ChartElement.TAG_NAME_LABEL));
+    series1.addChildElement(new ChartElement());
+    assertNotSame(labels, doc.getChildElements(series1, ChartElement.TAG_NAME_LABEL));
+    label1.setTagName(ChartElement.TAG_NAME_TICK_LABEL);
+    assertEquals(0, doc.getChildElements(series1, ChartElement.TAG_NAME_LABEL).length);
+    assertEquals(label1, doc.getChildElements(series1, ChartElement.TAG_NAME_TICK_LABEL)[0]);
+
+    // Removed elements do not keep their indexes
+    doc.getChildElements(label1, ChartElement.TAG_NAME_LABEL);
+    assertEquals(3, doc.getChildIndexCount());
+    series1.removeItem();
+    assertEquals(1, doc.getChildElements(ChartElement.TAG_NAME_SERIES).length);
+    assertEquals(1, doc.getChildIndexCount());
+  }
+
+  /**
+   * Tests for the <code>freeze()</code> method
+   */
+  public void testFreeze() {
+    final ChartElement rootElement = new ChartElement();
+    rootElement.setTagName(ChartElement.TAG_NAME_CHART);
+    final ChartElement axis = new ChartElement(); axis.setTagName(ChartElement.TAG_NAME_AXIS);
+    axis.setAttribute("id", "axis1"); //$NON-NLS-1$ //$NON-NLS-2$
+    final ChartElement series = new ChartElement(); series.setTagName(ChartElement.TAG_NAME_SERIES);
+    series.setAttribute("axis-id", "axis1"); //$NON-NLS-1$ //$NON-NLS-2$
+    final ChartElement label = new ChartElement(); label.setTagName(ChartElement.TAG_NAME_LABEL);
+    final ChartDocument doc = new ChartDocument(rootElement);
+    rootElement.addChildElement(axis);
+    rootElement.addChildElement(series);
+    axis.addChildElement(label);
+
+    doc.freeze();
+    assertTrue(doc.isFrozen());
+    assertTrue(label.isFrozen());
+    assertEquals(axis, doc.getAxisSeriesLinkInfo().getAxisElement("axis1")); //$NON-NLS-1$
+    assertEquals(series, doc.getSeriesChartElements()[0]);
+    assertEquals(label, doc.getChildElements(axis, ChartElement.TAG_NAME_LABEL)[0]);
+    assertSame(doc.getChildElements(axis, ChartElement.TAG_NAME_LABEL),
+        doc.getChildElements(axis, ChartElement.TAG_NAME_LABEL));
+
+    try {
+      series.setAttribute(ChartElement.COLUMN_NAME, "sales"); //$NON-NLS-1$
+      fail("Should not be able to change the attributes of a frozen element"); //$NON-NLS-1$
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    try {
+      series.getAttributes(series.getNamespace()).clear();
+      fail("Should not be able to change the attribute map of a frozen element"); //$NON-NLS-1$
+    } catch (UnsupportedOperationException uoe) {
+      // correct
+    }
+    try {
+      rootElement.addChildElement(new ChartElement());
+      fail("Should not be able to add elements to a frozen document"); //$NON-NLS-1$
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    try {
+      doc.setResourceKey(null);
+      fail("Should not be able to change a frozen document"); //$NON-NLS-1$
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    assertEquals(1, doc.getSeriesChartElements().length);
+  }
 }
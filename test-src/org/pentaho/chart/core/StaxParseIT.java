@@ -0,0 +1,128 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.core;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.pentaho.chart.ChartBoot;
+import org.pentaho.chart.core.parser.ChartXMLParser;
+import org.pentaho.chart.core.parser.StaxChartXMLParser;
+import org.pentaho.reporting.libraries.resourceloader.ResourceException;
+
+/**
+ * Tests that the StaxChartXMLParser builds the same ChartElement tree as the ChartXMLParser for every XML document in
+ * the test sources.
+ */
+public class StaxParseIT extends TestCase {
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    ChartBoot.getInstance().start();
+  }
+
+  public void testSameTreeAsChartXMLParser() throws Exception {
+    // ParseTest.xml is in org/pentaho/chart/core, four levels below the root of the test sources
+    File root = new File(getClass().getResource("ParseTest.xml").toURI()).getParentFile();
+    for (int i = 0; i < 4; i++) {
+      root = root.getParentFile();
+    }
+    final List<File> files = new ArrayList<File>();
+    collectXmlFiles(root, files);
+    assertTrue(files.size() > 50);
+
+    final ChartXMLParser chartParser = new ChartXMLParser();
+    final StaxChartXMLParser staxParser = new StaxChartXMLParser(chartParser.getResourceManager());
+    for (final File file : files) {
+      final URL url = file.toURI().toURL();
+      ChartDocument expected = null;
+      try {
+        expected = chartParser.parseChartDocument(url);
+      } catch (ResourceException e) {
+        // Checked below: the StAX parser must fail too
+      }
+      if (expected == null) {
+        try {
+          staxParser.parseChartDocument(url);
+          fail(file + " should not parse");
+        } catch (ResourceException e) {
+          continue;
+        }
+      }
+      final ChartDocument actual = staxParser.parseChartDocument(url);
+      assertEquals(file.toString(), expected.getResourceKey(), actual.getResourceKey());
+      assertSame(chartParser.getResourceManager(), actual.getResourceManager());
+      assertSameTree(file.toString(), expected.getRootElement(), actual.getRootElement());
+    }
+  }
+
+  public void testDefaultNamespaceAndText() throws Exception {
+    final ChartDocument doc = new StaxChartXMLParser().parseChartDocument(getClass().getResource("ParseTest.xml"));
+    final ChartElement rootElement = doc.getRootElement();
+    assertEquals("chart", rootElement.getTagName());
+    assertEquals(ChartElement.NAMESPACE, rootElement.getNamespace());
+    assertNull(rootElement.getText());
+
+    final ChartElement axis = rootElement.findChildrenByName("axis")[0];
+    assertEquals("y1", axis.getAttribute("id"));
+    assertEquals("", axis.getAttribute("style"));
+    assertNull(axis.getText());
+    assertEquals("This is <b>my</b> chart", axis.getFirstChildItem().getText());
+  }
+
+  private static void collectXmlFiles(final File directory, final List<File> files) {
+    final File[] children = directory.listFiles();
+    if (children == null) {
+      return;
+    }
+    Arrays.sort(children);
+    for (final File child : children) {
+      if (child.isDirectory()) {
+        collectXmlFiles(child, files);
+      } else if (child.getName().endsWith(".xml")) {
+        files.add(child);
+      }
+    }
+  }
+
+  private static void assertSameTree(final String path, final ChartElement expected, final ChartElement actual) {
+    final String location = path + " " + expected.getTagName();
+    assertEquals(location, expected.getTagName(), actual.getTagName());
+    assertEquals(location, expected.getNamespace(), actual.getNamespace());
+    assertEquals(location, expected.getText(), actual.getText());
+    final String[] namespaces = expected.getAttributeNameSpaces();
+    final String[] actualNamespaces = actual.getAttributeNameSpaces();
+    Arrays.sort(namespaces);
+    Arrays.sort(actualNamespaces);
+    assertTrue(location, Arrays.equals(namespaces, actualNamespaces));
+    for (final String namespace : namespaces) {
+      assertEquals(location, expected.getAttributes(namespace), actual.getAttributes(namespace));
+    }
+    assertEquals(location, expected.getChildCount(), actual.getChildCount());
+    ChartElement actualChild = actual.getFirstChildItem();
+    for (ChartElement child = expected.getFirstChildItem(); child != null; child = child.getNextItem()) {
+      assertSameTree(path, child, actualChild);
+      actualChild = actualChild.getNextItem();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.css;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+import org.pentaho.chart.ChartBoot;
+import org.pentaho.chart.css.keys.ChartStyleKeys;
+import org.pentaho.reporting.libraries.css.model.CSSStyleRule;
+import org.pentaho.reporting.libraries.css.model.StyleSheet;
+import org.pentaho.reporting.libraries.resourceloader.ResourceException;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+
+public class CompiledStyleSheetIT extends TestCase {
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    // Boot the charting library - required for parsing configuration
+    ChartBoot.getInstance().start();
+  }
+
+  private static StyleSheet parseChartStyleSheet() throws ResourceException {
+    final ResourceManager resourceManager = new ResourceManager();
+    resourceManager.registerDefaults();
+    return (StyleSheet) resourceManager.createDirectly(
+        CompiledStyleSheetIT.class.getResource("chart.css"), StyleSheet.class).getResource(); //$NON-NLS-1$
+  }
+
+  public void testRoundTrip() throws ResourceException, IOException {
+    final StyleSheet styleSheet = parseChartStyleSheet();
+    final CompiledStyleSheet compiled = CompiledStyleSheet.compile(styleSheet);
+    assertEquals(styleSheet.getRuleCount(), compiled.getRuleCount());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    compiled.write(out);
+    final byte[] data = out.toByteArray();
+    assertTrue(CompiledStyleSheet.isCompiledStyleSheet(data));
+    assertFalse(CompiledStyleSheet.isCompiledStyleSheet("chart {}".getBytes("US-ASCII"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+    final CompiledStyleSheet read = CompiledStyleSheet.read(new ByteArrayInputStream(data));
+    assertEquals(compiled.getRuleCount(), read.getRuleCount());
+    for (int r = 0; r < compiled.getRuleCount(); r++) {
+      final CompiledStyleSheet.Rule expected = compiled.getRule(r);
+      final CompiledStyleSheet.Rule actual = read.getRule(r);
+      assertEquals(expected.getTagName(), actual.getTagName());
+      assertEquals(expected.getNamespace(), actual.getNamespace());
+      assertEquals(expected.getSpecificity(), actual.getSpecificity());
+      assertEquals(expected.getDeclarationCount(), actual.getDeclarationCount());
+      for (int i = 0; i < expected.getDeclarationCount(); i++) {
+        assertSame(expected.getKey(i), actual.getKey(i));
+        assertEquals(expected.getValue(i), actual.getValue(i));
+        assertEquals(expected.isImportant(i), actual.isImportant(i));
+      }
+    }
+  }
+
+  public void testToStyleSheet() throws ResourceException {
+    final StyleSheet styleSheet = parseChartStyleSheet();
+    final CompiledStyleSheet compiled = CompiledStyleSheet.compile(styleSheet);
+    final StyleSheet rebuilt = compiled.toStyleSheet(styleSheet.getSource());
+    assertEquals(styleSheet.getRuleCount(), rebuilt.getRuleCount());
+    final CompiledStyleSheet recompiled = CompiledStyleSheet.compile(rebuilt);
+    for (int r = 0; r < styleSheet.getRuleCount(); r++) {
+      final CSSStyleRule expected = (CSSStyleRule) styleSheet.getRule(r);
+      final CSSStyleRule actual = (CSSStyleRule) rebuilt.getRule(r);
+      assertEquals(compiled.getRule(r).getTagName(), recompiled.getRule(r).getTagName());
+      assertEquals(compiled.getRule(r).getSpecificity(), recompiled.getRule(r).getSpecificity());
+      assertEquals(expected.getPropertyCSSValue(ChartStyleKeys.CHART_TYPE),
+          actual.getPropertyCSSValue(ChartStyleKeys.CHART_TYPE));
+    }
+  }
+
+  public void testOnlyRuleTableClassesAreRead() throws ResourceException, IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledStyleSheet.compile(parseChartStyleSheet()).write(out);
+    final byte[] header = new byte[8];
+    System.arraycopy(out.toByteArray(), 0, header, 0, header.length);
+
+    final ByteArrayOutputStream forged = new ByteArrayOutputStream();
+    forged.write(header);
+    final ObjectOutputStream objectOutput = new ObjectOutputStream(forged);
+    objectOutput.writeInt(1);
+    objectOutput.writeObject(new HashMap<String, String>());
+    objectOutput.flush();
+    try {
+      CompiledStyleSheet.read(new ByteArrayInputStream(forged.toByteArray()));
+      fail();
+    } catch (InvalidClassException e) {
+      // expected
+    }
+  }
+
+  public void testUntrustedRuleTableIsNotRead() throws ResourceException, IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledStyleSheet.compile(parseChartStyleSheet()).write(out);
+    final ResourceManager resourceManager = new ResourceManager();
+    resourceManager.registerDefaults();
+    final ResourceKey key = resourceManager.createKey(out.toByteArray());
+    assertFalse(CompiledStyleSheetResourceFactory.isTrustedRuleTable(key));
+    assertNull(CompiledStyleSheetResourceFactory.getCompiledStyleSheet(resourceManager, resourceManager.load(key)));
+  }
+}
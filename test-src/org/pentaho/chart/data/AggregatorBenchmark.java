@@ -0,0 +1,75 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how partitioned aggregation scales with the number of threads. This is not a unit test; run it by hand
+ * with a large enough heap, for example <code>-Xmx4g</code>. The optional arguments are the number of rows and the
+ * partition size.
+ * <p>
+ * No results are recorded here: the benchmark has only been run on a single core machine, so the scaling from 1 to
+ * 32 cores is unverified.
+ */
+public class AggregatorBenchmark {
+
+  public static void main(String[] args) {
+    int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    int partitionSize = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    String[] categories = new String[300];
+    for (int i = 0; i < categories.length; i++) {
+      categories[i] = "category " + i;
+    }
+    String[] series = new String[8];
+    for (int i = 0; i < series.length; i++) {
+      series[i] = "series " + i;
+    }
+    Object[][] rows = new Object[rowCount][];
+    for (int i = 0; i < rowCount; i++) {
+      rows[i] = new Object[] { categories[(i * 31) % categories.length], series[i % series.length], (double) (i % 1000) };
+    }
+
+    Aggregator.RowHandler rowHandler = new Aggregator.RowHandler() {
+      public void aggregate(Object[] row, Aggregator aggregator) {
+        aggregator.add((String) row[0], (String) row[1], (Number) row[2]);
+      }
+    };
+
+    long baseline = 0;
+    for (int threads = 1; threads <= 32; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+          long start = System.nanoTime();
+          Aggregator.aggregate(rows, AggregationFunction.SUM, rowHandler, partitionSize, pool);
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        if (threads == 1) {
+          baseline = best;
+        }
+        System.out.println(String.format("%2d threads: %8.1f ms  speedup %.2fx", threads, best / 1e6,
+            (double) baseline / best));
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+}
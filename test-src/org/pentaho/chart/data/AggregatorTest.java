@@ -0,0 +1,148 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class AggregatorTest extends TestCase {
+
+  private NamedValuesDataModel aggregate(AggregationFunction function) {
+    Aggregator aggregator = new Aggregator(function);
+    aggregator.add("b", 1);
+    aggregator.add("a", 4);
+    aggregator.add("b", 3);
+    aggregator.add("a", null);
+    aggregator.add("c", null);
+    aggregator.add("b", 3);
+    return aggregator.toNamedValuesDataModel();
+  }
+
+  public void testFunctions() {
+    NamedValuesDataModel model = aggregate(AggregationFunction.SUM);
+    assertEquals(Arrays.asList("b", "a", "c"), model.getNames());
+    assertEquals(7.0, model.getNamedValue("b").getValue().doubleValue());
+    assertEquals(Integer.valueOf(4), model.getNamedValue("a").getValue());
+    assertNull(model.getNamedValue("c").getValue());
+
+    model = aggregate(AggregationFunction.COUNT);
+    assertEquals(3, model.getNamedValue("b").getValue().intValue());
+    assertEquals(1, model.getNamedValue("a").getValue().intValue());
+    assertEquals(0, model.getNamedValue("c").getValue().intValue());
+
+    model = aggregate(AggregationFunction.MIN);
+    assertEquals(1, model.getNamedValue("b").getValue().intValue());
+
+    model = aggregate(AggregationFunction.MAX);
+    assertEquals(3, model.getNamedValue("b").getValue().intValue());
+
+    model = aggregate(AggregationFunction.AVG);
+    assertEquals(7.0 / 3, model.getNamedValue("b").getValue().doubleValue(), 1e-9);
+
+    model = aggregate(AggregationFunction.DISTINCT_COUNT);
+    assertEquals(2, model.getNamedValue("b").getValue().intValue());
+  }
+
+  public void testMultiSeriesOrder() {
+    Aggregator aggregator = new Aggregator(AggregationFunction.SUM);
+    MultiSeriesDataModel expected = new MultiSeriesDataModel();
+    Object[][] rows = { { "c1", "s1", 1 }, { "c2", "s3", 2 }, { "c1", "s2", 3 }, { "c3", "s1", 4 }, { "c2", "s3", 5 } };
+    for (Object[] row : rows) {
+      aggregator.add((String) row[0], (String) row[1], (Number) row[2]);
+      expected.addValue((String) row[0], (String) row[1], (Number) row[2]);
+    }
+    MultiSeriesDataModel actual = aggregator.toMultiSeriesDataModel();
+
+    List<MultiSeriesDataModel.DomainData> expectedDomains = expected.getDomainData();
+    List<MultiSeriesDataModel.DomainData> actualDomains = actual.getDomainData();
+    assertEquals(expectedDomains.size(), actualDomains.size());
+    for (int i = 0; i < expectedDomains.size(); i++) {
+      assertEquals(expectedDomains.get(i).getDomainName(), actualDomains.get(i).getDomainName());
+      assertEquals(expectedDomains.get(i).getSeries(), actualDomains.get(i).getSeries());
+      for (String series : expectedDomains.get(i).getSeries()) {
+        Number expectedValue = expectedDomains.get(i).getNamedValue(series).getValue();
+        Number actualValue = actualDomains.get(i).getNamedValue(series).getValue();
+        if (expectedValue == null) {
+          assertNull(actualValue);
+        } else {
+          assertEquals(expectedValue.doubleValue(), actualValue.doubleValue());
+        }
+      }
+    }
+  }
+
+  public void testBasicDataModel() {
+    BasicDataModel model = new BasicDataModel(true);
+    model.addDataPoint(2);
+    model.addDataPoint(5);
+    assertEquals(1, model.getData().size());
+    assertEquals(7.0, model.getData().get(0).doubleValue());
+
+    model = new BasicDataModel(AggregationFunction.MAX);
+    model.addDataPoint(2);
+    model.addDataPoint(5);
+    assertEquals(5, model.getData().get(0).intValue());
+
+    model = new BasicDataModel(false);
+    model.addDataPoint(2);
+    model.addDataPoint(5);
+    assertEquals(2, model.getData().size());
+  }
+
+  public void testParallelMatchesSequential() {
+    Object[][] rows = new Object[10007][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = new Object[] { "category " + ((i * 7) % 13), "series " + ((i * 3) % 5), i % 100 };
+    }
+    Aggregator.RowHandler rowHandler = new Aggregator.RowHandler() {
+      public void aggregate(Object[] row, Aggregator aggregator) {
+        aggregator.add((String) row[0], (String) row[1], (Number) row[2]);
+      }
+    };
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<MultiSeriesDataModel.DomainData> expected =
+          Aggregator.aggregate(rows, AggregationFunction.SUM, rowHandler, 0, null).toMultiSeriesDataModel()
+              .getDomainData();
+      List<MultiSeriesDataModel.DomainData> actual =
+          Aggregator.aggregate(rows, AggregationFunction.SUM, rowHandler, 100, pool).toMultiSeriesDataModel()
+              .getDomainData();
+      List<MultiSeriesDataModel.DomainData> streamed =
+          Aggregator.aggregate(Arrays.asList(rows).iterator(), AggregationFunction.SUM, rowHandler, 100, pool)
+              .toMultiSeriesDataModel().getDomainData();
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected.size(), streamed.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getDomainName(), actual.get(i).getDomainName());
+        assertEquals(expected.get(i).getSeries(), actual.get(i).getSeries());
+        assertEquals(expected.get(i).getDomainName(), streamed.get(i).getDomainName());
+        assertEquals(expected.get(i).getSeries(), streamed.get(i).getSeries());
+        for (String series : expected.get(i).getSeries()) {
+          double expectedValue = expected.get(i).getNamedValue(series).getValue().doubleValue();
+          assertEquals(expectedValue, actual.get(i).getNamedValue(series).getValue().doubleValue());
+          assertEquals(expectedValue, streamed.get(i).getNamedValue(series).getValue().doubleValue());
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -446,6 +446,87 @@ public class ChartTableModelTest extends TestCase {
     assertEquals(3, data1.getColumnCount());
   }
 
+  @Test
+  /**
+   * Tests that columnar storage returns the same values as row storage
+   */
+  public void testColumnarData() {
+    final ChartTableModel rows = new ChartTableModel();
+    rows.setData(dataSample);
+    final ChartTableModel columns = new ChartTableModel();
+    columns.setColumnarData(dataSample);
+
+    assertEquals(rows.getRowCount(), columns.getRowCount());
+    assertEquals(rows.getColumnCount(), columns.getColumnCount());
+    for (int row = 0; row < rows.getRowCount(); row++) {
+      for (int col = 0; col < rows.getColumnCount(); col++) {
+        assertEquals(rows.getValueAt(row, col), columns.getValueAt(row, col));
+      }
+    }
+    assertEquals(5.0, columns.getDoubleValueAt(0, 3));
+    assertTrue(Double.isNaN(columns.getDoubleValueAt(0, 0)));
+    assertNull(columns.getValueAt(100, 0));
+
+    columns.setRotated(true);
+    assertEquals("Campione", columns.getValueAt(1, 0)); //$NON-NLS-1$
+    assertEquals(3.0, columns.getDoubleValueAt(3, 1));
+
+    // Values that do not fit a typed column still round trip
+    columns.setRotated(false);
+    columns.setValueAt("many", 0, 3); //$NON-NLS-1$
+    assertEquals("many", columns.getValueAt(0, 3)); //$NON-NLS-1$
+    assertEquals(3, columns.getValueAt(1, 3));
+    columns.setValueAt(null, 1, 0);
+    assertNull(columns.getValueAt(1, 0));
+
+    // Mixed columns before other columns keep their own values
+    final ChartTableModel mixed = new ChartTableModel();
+    mixed.setColumnarData(new Object[][] {
+        {Boolean.TRUE, "a", 1.0}, //$NON-NLS-1$
+        {"yes", "b", Boolean.FALSE}, //$NON-NLS-1$ //$NON-NLS-2$
+    });
+    assertEquals(Boolean.TRUE, mixed.getValueAt(0, 0));
+    assertEquals("yes", mixed.getValueAt(1, 0)); //$NON-NLS-1$
+    assertEquals("b", mixed.getValueAt(1, 1)); //$NON-NLS-1$
+    assertEquals(1.0, mixed.getValueAt(0, 2));
+    assertEquals(Boolean.FALSE, mixed.getValueAt(1, 2));
+  }
+
+  @Test
+  /**
+   * Tests the name lookups with and without rotation
+   */
+  public void testFindByName() {
+    final ChartTableModel data = new ChartTableModel();
+    populateModel(data);
+    data.setColumnName(3, "COL1"); //$NON-NLS-1$
+
+    assertEquals(1, data.findColumn("col1")); //$NON-NLS-1$
+    assertEquals(3, data.findColumn("COL1")); //$NON-NLS-1$
+    assertEquals(1, data.findColumnIgnoreCase("Col1")); //$NON-NLS-1$
+    assertEquals(-1, data.findColumn("col5")); //$NON-NLS-1$
+    assertEquals(2, data.findRow("row2")); //$NON-NLS-1$
+    assertEquals(2, data.findRowIgnoreCase("ROW2")); //$NON-NLS-1$
+    assertEquals(-1, data.findRow("row3")); //$NON-NLS-1$
+
+    data.setColumnName(1, "renamed"); //$NON-NLS-1$
+    assertEquals(3, data.findColumnIgnoreCase("col1")); //$NON-NLS-1$
+
+    data.setRotated(true);
+    assertEquals(2, data.findColumn("row2")); //$NON-NLS-1$
+    assertEquals(1, data.findRowIgnoreCase("RENAMED")); //$NON-NLS-1$
+    assertEquals(-1, data.findRow("row2")); //$NON-NLS-1$
+
+    data.setRotated(false);
+    data.setRowMetadata(1, ChartTableModel.ROW_NAME, Integer.valueOf(2008));
+    data.setColMetadata(4, ChartTableModel.COL_NAME, Integer.valueOf(42));
+    assertEquals("2008", data.getRowName(1)); //$NON-NLS-1$
+    assertEquals(1, data.findRow("2008")); //$NON-NLS-1$
+    assertEquals("42", data.getColumnName(4)); //$NON-NLS-1$
+    data.setRowMetadata(1, ChartTableModel.ROW_NAME, null);
+    assertNull(data.getRowName(1));
+  }
+
   /**
    * Adds data and metadata to a ChartTableModel
    */
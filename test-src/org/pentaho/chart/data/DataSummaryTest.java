@@ -0,0 +1,138 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+public class DataSummaryTest extends TestCase {
+
+  public void testMultiSeriesSummary() {
+    MultiSeriesDataModel model = new MultiSeriesDataModel();
+    model.addValue("c1", "s1", 4);
+    model.addValue("c1", "s2", -2);
+    model.addValue("c2", "s1", 1);
+    model.addValue("c2", "s2", 6);
+    model.addValue("c3", "s1", null);
+
+    DataSummary summary = model.getSummary();
+    assertEquals(4, summary.getCount());
+    assertEquals(2, summary.getNullCount());
+    assertEquals(-2.0, summary.getMinValue().doubleValue());
+    assertEquals(6.0, summary.getMaxValue().doubleValue());
+    assertEquals(9.0, summary.getSum());
+    assertEquals(3, summary.getCategoryCount());
+    assertEquals(4.0, summary.getPositiveStackSum(0));
+    assertEquals(-2.0, summary.getNegativeStackSum(0));
+    assertEquals(7.0, summary.getPositiveStackSum(1));
+    assertEquals(0.0, summary.getPositiveStackSum(2));
+    assertEquals(7.0, summary.getMaxStackSum());
+    assertEquals(-2.0, summary.getMinStackSum());
+
+    // Adding to an existing cell replaces its value, including the current maximum.
+    model.addValue("c2", "s2", -10);
+    summary = model.getSummary();
+    assertEquals(-4.0, summary.getMinValue().doubleValue());
+    assertEquals(4.0, summary.getMaxValue().doubleValue());
+    assertEquals(-1.0, summary.getSum());
+    assertEquals(-4.0, summary.getNegativeStackSum(1));
+    assertEquals(1.0, summary.getPositiveStackSum(1));
+
+    model.addValue("c3", "s1", 3);
+    assertEquals(1, model.getSummary().getNullCount());
+  }
+
+  public void testNamedValuesSummary() {
+    NamedValuesDataModel model = new NamedValuesDataModel();
+    model.add(new NamedValue("a", 5));
+    model.add(new NamedValue("b", -1));
+    model.add(new NamedValue("c", null));
+    DataSummary summary = model.getSummary();
+    assertEquals(2, summary.getCount());
+    assertEquals(1, summary.getNullCount());
+    assertEquals(5.0, summary.getMaxStackSum());
+    assertEquals(-1.0, summary.getMinStackSum());
+
+    Iterator<NamedValue> iterator = model.iterator();
+    iterator.next();
+    iterator.remove();
+    summary = model.getSummary();
+    assertEquals(1, summary.getCount());
+    assertEquals(-1.0, summary.getMaxValue().doubleValue());
+
+    model.clear();
+    assertNull(model.getSummary().getMinValue());
+  }
+
+  public void testXYSummary() {
+    XYDataModel model = new XYDataModel();
+    model.add(new XYDataPoint(1, 10));
+    model.add(new XYDataPoint(5, -3));
+    model.add(new XYDataPoint(null, 7));
+    assertEquals(5.0, model.getDomainSummary().getMaxValue().doubleValue());
+    assertEquals(1, model.getDomainSummary().getNullCount());
+    assertEquals(-3.0, model.getSummary().getMinValue().doubleValue());
+    assertEquals(14.0, model.getSummary().getSum());
+
+    model.remove(0);
+    assertEquals(5.0, model.getDomainSummary().getMinValue().doubleValue());
+    assertEquals(7.0, model.getSummary().getMaxValue().doubleValue());
+
+    XYDataModel copy = new XYDataModel();
+    copy.addAll(model);
+    assertEquals(2, copy.getSummary().getCount());
+  }
+
+  public void testClonedSummary() {
+    NamedValuesDataModel namedValues = new NamedValuesDataModel();
+    namedValues.add(new NamedValue("a", 5));
+    namedValues.add(new NamedValue("b", -1));
+    NamedValuesDataModel namedValuesClone = (NamedValuesDataModel) namedValues.clone();
+    assertEquals(2, namedValuesClone.getSummary().getCount());
+    namedValuesClone.add(new NamedValue("c", 20));
+    assertEquals(20.0, namedValuesClone.getSummary().getMaxValue().doubleValue());
+    assertEquals(2, namedValues.getSummary().getCount());
+    assertEquals(5.0, namedValues.getSummary().getMaxValue().doubleValue());
+
+    XYDataModel xy = new XYDataModel();
+    xy.add(new XYDataPoint(1, 10));
+    xy.add(new XYDataPoint(5, -3));
+    XYDataModel xyClone = (XYDataModel) xy.clone();
+    xyClone.add(new XYDataPoint(9, 30));
+    assertEquals(3, xyClone.getSummary().getCount());
+    assertEquals(9.0, xyClone.getDomainSummary().getMaxValue().doubleValue());
+    assertEquals(2, xy.getSummary().getCount());
+    assertEquals(10.0, xy.getSummary().getMaxValue().doubleValue());
+    assertEquals(5.0, xy.getDomainSummary().getMaxValue().doubleValue());
+  }
+
+  public void testBasicSummary() {
+    BasicDataModel summed = new BasicDataModel();
+    summed.addDataPoint(2);
+    summed.addDataPoint(3);
+    assertEquals(1, summed.getSummary().getCount());
+    assertEquals(5.0, summed.getSummary().getMaxValue().doubleValue());
+
+    BasicDataModel raw = new BasicDataModel(false);
+    raw.addDataPoint(2);
+    raw.addDataPoint(3);
+    assertEquals(2, raw.getSummary().getCount());
+    assertEquals(2.0, raw.getSummary().getMinValue().doubleValue());
+  }
+}
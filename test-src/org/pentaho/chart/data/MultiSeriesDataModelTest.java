@@ -0,0 +1,103 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class MultiSeriesDataModelTest extends TestCase {
+
+  private MultiSeriesDataModel createModel() {
+    MultiSeriesDataModel model = new MultiSeriesDataModel();
+    model.addValue("c1", "s1", 1);
+    model.addValue("c2", "s1", 2);
+    model.addValue("c2", "s2", 3);
+    model.addValue("c2", "s2", 4);
+    model.addValue("c3", "s3", null);
+    return model;
+  }
+
+  public void testViews() {
+    MultiSeriesDataModel model = createModel();
+    assertEquals(3, model.getDomainCount());
+    assertEquals(3, model.getSeriesCount());
+    assertEquals(9, model.getPointCount());
+    assertEquals(Arrays.asList("c1", "c2", "c3"), model.getDomainNames());
+    assertEquals(Arrays.asList("s1", "s2", "s3"), model.getSeriesNames());
+
+    MultiSeriesDataModel.DomainView c2 = model.getDomainViews().get(1);
+    assertEquals("c2", c2.getDomainName());
+    assertEquals(3, c2.size());
+    assertEquals("s2", c2.getName(1));
+    assertEquals(7.0, c2.getValue(1).doubleValue());
+    assertNull(c2.getValue(2));
+
+    MultiSeriesDataModel.SeriesView s1 = model.getSeriesView("s1");
+    assertEquals(Arrays.asList(1, 2, null), Arrays.asList(s1.getValue(0), s1.getValue(1), s1.getValue(2)));
+    Iterator<NamedValue> iterator = s1.iterator();
+    assertEquals("c1", iterator.next().getName());
+    assertEquals("c2", iterator.next().getName());
+    assertEquals("c3", iterator.next().getName());
+    assertFalse(iterator.hasNext());
+    assertNull(model.getSeriesView("missing"));
+
+    // Views are live.
+    model.addValue("c4", "s1", 5);
+    assertEquals(4, s1.size());
+    assertEquals(5, s1.getValue(3));
+    assertEquals(12, model.getPointCount());
+  }
+
+  public void testCopiesMatchViews() {
+    MultiSeriesDataModel model = createModel();
+    List<MultiSeriesDataModel.SeriesData> series = model.getSeriesData();
+    assertEquals(model.getSeriesCount(), series.size());
+    for (int i = 0; i < series.size(); i++) {
+      MultiSeriesDataModel.SeriesView view = model.getSeriesViews().get(i);
+      assertEquals(view.getSeriesName(), series.get(i).getSeriesName());
+      int j = 0;
+      for (NamedValue namedValue : series.get(i)) {
+        assertEquals(view.getName(j), namedValue.getName());
+        assertEquals(view.getValue(j), namedValue.getValue());
+        j++;
+      }
+    }
+    assertEquals(Arrays.asList("s1", "s2", "s3"), model.getDomainData("c3").getSeries());
+    assertEquals(Arrays.asList("c1", "c2", "c3"), model.getSeriesData("s3").getDomains());
+    assertEquals(7.0, model.getValue("c2", "s2").doubleValue());
+  }
+
+  public void testViewsAreReadOnly() {
+    MultiSeriesDataModel model = createModel();
+    try {
+      model.getDomainNames().add("c4");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      model.getSeriesViews().remove(0);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class OffHeapXYDataModelTest extends TestCase {
+
+  private void fill(OffHeapXYDataModel model) throws Exception {
+    for (int i = 0; i < 10; i++) {
+      model.addDataPoint("even", i * 2, -i);
+    }
+    model.addDataPoint("odd", 1, null);
+    model.addDataPoint("odd", 3.5, 7.25);
+  }
+
+  private void verify(OffHeapXYDataModel model) {
+    assertEquals(2, model.getSeries().size());
+    assertEquals(12, model.getPointCount());
+    OffHeapXYDataModel.Series even = model.getSeries("even");
+    assertEquals(10, even.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i * 2.0, even.getX(i));
+      assertEquals(-i * 1.0, even.getY(i));
+    }
+    OffHeapXYDataModel.Series odd = model.getSeries().get(1);
+    assertEquals("odd", odd.getSeriesName());
+    assertTrue(Double.isNaN(odd.getY(0)));
+    assertEquals(7.25, odd.getY(1));
+
+    assertEquals(0.0, model.getDomainSummary().getMinValue().doubleValue());
+    assertEquals(18.0, model.getDomainSummary().getMaxValue().doubleValue());
+    assertEquals(-9.0, model.getSummary().getMinValue().doubleValue());
+    assertEquals(7.25, model.getSummary().getMaxValue().doubleValue());
+    assertEquals(1, model.getSummary().getNullCount());
+  }
+
+  public void testDirectBuffers() throws Exception {
+    // A small chunk size makes the series span several buffers.
+    OffHeapXYDataModel model = new OffHeapXYDataModel(null, 3);
+    fill(model);
+    verify(model);
+    model.close();
+    assertTrue(model.isClosed());
+    assertTrue(model.getSeries().isEmpty());
+    try {
+      model.addDataPoint("even", 1, 1);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testMappedFiles() throws Exception {
+    File directory = File.createTempFile("offheap", "");
+    assertTrue(directory.delete());
+    assertTrue(directory.mkdir());
+    try {
+      OffHeapXYDataModel model = new OffHeapXYDataModel(directory, 4);
+      fill(model);
+      verify(model);
+      model.close();
+      assertEquals(0, directory.list().length);
+    } finally {
+      directory.delete();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TopNReducerTest extends TestCase {
+
+  private NamedValuesDataModel createNamedValues() {
+    NamedValuesDataModel model = new NamedValuesDataModel();
+    model.add(new NamedValue("a", 5));
+    model.add(new NamedValue("b", -20));
+    model.add(new NamedValue("c", 1));
+    model.add(new NamedValue("d", 10));
+    model.add(new NamedValue("e", null));
+    model.add(new NamedValue("f", 2));
+    return model;
+  }
+
+  public void testReduceNamedValues() {
+    TopNReducer reducer = new TopNReducer(3);
+    NamedValuesDataModel reduced = reducer.reduce(createNamedValues());
+    assertEquals(Arrays.asList("a", "b", "d", "Other"), reduced.getNames());
+    assertEquals(3.0, reduced.getNamedValue("Other").getValue().doubleValue());
+
+    reducer.setOrdering(TopNReducer.Ordering.VALUE_DESCENDING);
+    reducer.setOtherName("Rest");
+    reduced = reducer.reduce(createNamedValues());
+    assertEquals(Arrays.asList("b", "d", "a", "Rest"), reduced.getNames());
+
+    reducer.setOtherIncluded(false);
+    reducer.setOrdering(TopNReducer.Ordering.NAME);
+    reduced = reducer.reduce(createNamedValues());
+    assertEquals(Arrays.asList("a", "b", "d"), reduced.getNames());
+  }
+
+  public void testSmallModelIsUnchanged() {
+    NamedValuesDataModel model = createNamedValues();
+    assertSame(model, new TopNReducer(6).reduce(model));
+  }
+
+  public void testReduceMultiSeries() {
+    MultiSeriesDataModel model = new MultiSeriesDataModel();
+    model.addValue("c1", "s1", 1);
+    model.addValue("c2", "s1", 10);
+    model.addValue("c2", "s2", 10);
+    model.addValue("c3", "s2", 3);
+    model.addValue("c4", "s1", 2);
+    model.addValue("c4", "s2", 2);
+
+    MultiSeriesDataModel reduced = new TopNReducer(2).reduce(model);
+    List<MultiSeriesDataModel.DomainData> domains = reduced.getDomainData();
+    assertEquals(3, domains.size());
+    assertEquals("c2", domains.get(0).getDomainName());
+    assertEquals("c4", domains.get(1).getDomainName());
+    assertEquals("Other", domains.get(2).getDomainName());
+    assertEquals(Arrays.asList("s1", "s2"), domains.get(2).getSeries());
+    assertEquals(1.0, domains.get(2).getNamedValue("s1").getValue().doubleValue());
+    assertEquals(3.0, domains.get(2).getNamedValue("s2").getValue().doubleValue());
+  }
+
+  public void testOtherNameClash() {
+    NamedValuesDataModel model = createNamedValues();
+    model.add(new NamedValue("Other", 100));
+    model.add(new NamedValue("Other (2)", 50));
+    NamedValuesDataModel reduced = new TopNReducer(3).reduce(model);
+    assertEquals(Arrays.asList("b", "Other", "Other (2)", "Other (3)"), reduced.getNames());
+    assertEquals(100.0, reduced.getNamedValue("Other").getValue().doubleValue());
+    assertEquals(18.0, reduced.getNamedValue("Other (3)").getValue().doubleValue());
+
+    MultiSeriesDataModel multiSeries = new MultiSeriesDataModel();
+    multiSeries.addValue("Other", "s1", 10);
+    multiSeries.addValue("c1", "s1", 1);
+    multiSeries.addValue("c2", "s1", 2);
+    List<MultiSeriesDataModel.DomainData> domains = new TopNReducer(1).reduce(multiSeries).getDomainData();
+    assertEquals(2, domains.size());
+    assertEquals(10.0, domains.get(0).getNamedValue("s1").getValue().doubleValue());
+    assertEquals("Other (2)", domains.get(1).getDomainName());
+    assertEquals(3.0, domains.get(1).getNamedValue("s1").getValue().doubleValue());
+  }
+}
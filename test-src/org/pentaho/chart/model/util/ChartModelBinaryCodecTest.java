@@ -0,0 +1,194 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.pentaho.chart.model.AreaPlot;
+import org.pentaho.chart.model.BarPlot;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.DialPlot;
+import org.pentaho.chart.model.LinePlot;
+import org.pentaho.chart.model.Palette;
+import org.pentaho.chart.model.PiePlot;
+import org.pentaho.chart.model.ScatterPlot;
+import org.pentaho.chart.model.StyledText;
+import org.pentaho.chart.model.TwoAxisPlot;
+import org.pentaho.chart.model.Axis.LabelOrientation;
+import org.pentaho.chart.model.BarPlot.BarPlotFlavor;
+import org.pentaho.chart.model.ChartTitle.TitleLocation;
+import org.pentaho.chart.model.CssStyle.FontStyle;
+import org.pentaho.chart.model.CssStyle.FontWeight;
+import org.pentaho.chart.model.DialPlot.DialRange;
+import org.pentaho.chart.model.LinePlot.LinePlotFlavor;
+import org.pentaho.chart.model.Plot.Orientation;
+import org.pentaho.chart.model.Theme.ChartTheme;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+
+public class ChartModelBinaryCodecTest {
+
+  static ChartModel createChartModel( int plotType ) {
+    ChartModel chartModel = new ChartModel();
+    chartModel.setTheme( ChartTheme.THEME2 );
+    chartModel.setChartEngineId( "JFreeChart" );
+    chartModel.setBackground( 0x343434 );
+    chartModel.setBorderColor( 0x987654 );
+    chartModel.getTitle().setText( "Chart Title" );
+    chartModel.getTitle().setLocation( TitleLocation.LEFT );
+    chartModel.getTitle().setFont( "verdana", 20, FontStyle.OBLIQUE, FontWeight.BOLD );
+    chartModel.getLegend().setFont( "verdana", 18, FontStyle.ITALIC, FontWeight.BOLD );
+    chartModel.getSubtitles().add( new StyledText( "subtitle", "verdana", FontStyle.ITALIC, FontWeight.BOLD, 12 ) );
+    chartModel.getSubtitles().add( new StyledText( "  " ) );
+    chartModel.getSubtitles().add( new StyledText( "subtitle \u00e9 2" ) );
+
+    switch ( plotType ) {
+      case 0:
+        BarPlot barPlot = new BarPlot( BarPlotFlavor.GLASS );
+        barPlot.setOrientation( Orientation.HORIZONTAL );
+        barPlot.setPalette( new Palette( 0x123456, null, 0xFF00FF00 ) );
+        chartModel.setPlot( barPlot );
+        break;
+      case 1:
+        LinePlot linePlot = new LinePlot( LinePlotFlavor.DASHDOT );
+        linePlot.setLineWidth( 3 );
+        chartModel.setPlot( linePlot );
+        break;
+      case 2:
+        chartModel.setPlot( new AreaPlot() );
+        break;
+      case 3:
+        ScatterPlot scatterPlot = new ScatterPlot();
+        scatterPlot.getXAxis().setMinValue( -3 );
+        scatterPlot.getXAxis().setMaxValue( 12.25 );
+        scatterPlot.getYAxis().setMinValue( 0.1f );
+        scatterPlot.getYAxis().setMaxValue( 12345678901L );
+        chartModel.setPlot( scatterPlot );
+        break;
+      case 4:
+        PiePlot piePlot = new PiePlot();
+        piePlot.setAnimate( true );
+        piePlot.setStartAngle( -40 );
+        piePlot.getLabels().setFont( "verdana", 9 );
+        chartModel.setPlot( piePlot );
+        break;
+      default:
+        DialPlot dialPlot = new DialPlot();
+        dialPlot.setAnimate( true );
+        dialPlot.setOpacity( 0.75f );
+        dialPlot.getScale().addRange( new DialRange( 0, 100, 0xFF0000 ) );
+        dialPlot.getScale().addRange( new DialRange( 100, 200.5 ) );
+        dialPlot.getAnnotation().setText( "annotation" );
+        dialPlot.getAnnotation().setFont( "verdana", 10, FontStyle.ITALIC, FontWeight.BOLD );
+        chartModel.setPlot( dialPlot );
+        break;
+    }
+
+    if ( chartModel.getPlot() instanceof TwoAxisPlot ) {
+      TwoAxisPlot twoAxisPlot = (TwoAxisPlot) chartModel.getPlot();
+      twoAxisPlot.getHorizontalAxis().setLabelOrientation( LabelOrientation.DIAGONAL );
+      twoAxisPlot.getHorizontalAxis().getLegend().setText( "domain" );
+      twoAxisPlot.getHorizontalAxis().setFont( "verdana", 11 );
+      twoAxisPlot.getVerticalAxis().getLegend().setText( "range" );
+      twoAxisPlot.getGrid().setHorizontalLineColor( 0xABCDEF );
+      twoAxisPlot.getGrid().setVerticalLinesVisible( false );
+    }
+    return chartModel;
+  }
+
+  @Test
+  public void testReadsBackLikeTextForms() {
+    for ( int plotType = 0; plotType < 6; plotType++ ) {
+      ChartModel chartModel = createChartModel( plotType );
+      String expected = ChartSerializer.serialize( chartModel, ChartSerializationFormat.XML );
+      expected = ChartSerializer.serialize( ChartSerializer.deSerialize( expected, ChartSerializationFormat.XML ),
+          ChartSerializationFormat.XML );
+      String fromJson = ChartSerializer.serialize( ChartSerializer.deSerialize( ChartSerializer.serialize( chartModel,
+          ChartSerializationFormat.JSON ), ChartSerializationFormat.JSON ), ChartSerializationFormat.XML );
+      String fromBinary = ChartSerializer.serialize( ChartSerializer.deSerializeBinary( ChartSerializer
+          .serializeBinary( chartModel ) ), ChartSerializationFormat.XML );
+      assertEquals( expected, fromJson );
+      assertEquals( expected, fromBinary );
+
+      String base64 = ChartSerializer.serialize( chartModel, ChartSerializationFormat.BINARY );
+      assertEquals( expected, ChartSerializer.serialize( ChartSerializer.deSerialize( base64,
+          ChartSerializationFormat.BINARY ), ChartSerializationFormat.XML ) );
+    }
+  }
+
+  @Test
+  public void testNumbersKeepTheirType() {
+    ChartModel chartModel = ChartSerializer.deSerializeBinary( ChartSerializer.serializeBinary( createChartModel( 3 ) ) );
+    ScatterPlot scatterPlot = (ScatterPlot) chartModel.getPlot();
+    assertEquals( Integer.valueOf( -3 ), scatterPlot.getXAxis().getMinValue() );
+    assertEquals( Double.valueOf( 12.25 ), scatterPlot.getXAxis().getMaxValue() );
+    assertEquals( Double.valueOf( 0.1 ), scatterPlot.getYAxis().getMinValue() );
+    assertEquals( Double.valueOf( 12345678901.0 ), scatterPlot.getYAxis().getMaxValue() );
+  }
+
+  @Test
+  public void testStringsAreStoredOnce() {
+    byte[] bytes = ChartSerializer.serializeBinary( createChartModel( 0 ) );
+    byte[] family = "verdana".getBytes( Charset.forName( "UTF-8" ) );
+    int count = 0;
+    for ( int i = 0; i + family.length <= bytes.length; i++ ) {
+      if ( Arrays.equals( family, Arrays.copyOfRange( bytes, i, i + family.length ) ) ) {
+        count++;
+      }
+    }
+    assertEquals( 1, count );
+    assertTrue( bytes.length < ChartSerializer.serialize( createChartModel( 0 ), ChartSerializationFormat.JSON )
+        .length() / 2 );
+  }
+
+  @Test
+  public void testSkipsUnknownFields() {
+    ChartModel chartModel = createChartModel( 5 );
+    byte[] bytes = ChartSerializer.serializeBinary( chartModel );
+    // Field 20 as a varint, field 21 as a double and field 22 as a length prefixed value.
+    byte[] unknown = new byte[] { (byte) 0xA0, 0x01, (byte) 0xAC, 0x02, (byte) 0xA9, 0x01, 1, 2, 3, 4, 5, 6, 7, 8,
+      (byte) 0xB2, 0x01, 3, 9, 9, 9 };
+    byte[] extended = Arrays.copyOf( bytes, bytes.length + unknown.length );
+    System.arraycopy( unknown, 0, extended, bytes.length, unknown.length );
+    assertEquals( ChartSerializer.serialize( ChartSerializer.deSerializeBinary( bytes ), ChartSerializationFormat.XML ),
+        ChartSerializer.serialize( ChartSerializer.deSerializeBinary( extended ), ChartSerializationFormat.XML ) );
+  }
+
+  @Test
+  public void testRejectsBadInput() {
+    byte[] bytes = ChartSerializer.serializeBinary( createChartModel( 1 ) );
+    try {
+      ChartSerializer.deSerializeBinary( Arrays.copyOf( bytes, bytes.length - 3 ) );
+      fail();
+    } catch ( IllegalArgumentException e ) {
+      // Expected.
+    }
+    bytes[0] = 'X';
+    try {
+      ChartSerializer.deSerializeBinary( bytes );
+      fail();
+    } catch ( IllegalArgumentException e ) {
+      // Expected.
+    }
+  }
+}
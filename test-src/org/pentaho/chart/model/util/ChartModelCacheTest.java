@@ -0,0 +1,137 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+
+public class ChartModelCacheTest {
+
+  @Test
+  public void testHitsReturnCopies() {
+    ChartModelCache cache = new ChartModelCache( 10 );
+    for ( ChartSerializationFormat format : ChartSerializationFormat.values() ) {
+      String input = ChartSerializer.serialize( ChartModelBinaryCodecTest.createChartModel( 5 ), format );
+      String expected = ChartSerializer.serialize( ChartSerializer.deSerialize( input, format ),
+          ChartSerializationFormat.XML );
+
+      ChartModel first = cache.get( input, format );
+      first.getTitle().setText( "changed" );
+      ChartModel second = cache.get( input, format );
+      assertNotSame( first, second );
+      assertEquals( expected, ChartSerializer.serialize( second, ChartSerializationFormat.XML ) );
+    }
+    assertEquals( 3, cache.getMissCount() );
+    assertEquals( 3, cache.getHitCount() );
+    assertEquals( 0.5, cache.getHitRate(), 0 );
+  }
+
+  @Test
+  public void testEqualInputsShareAnEntry() {
+    ChartModelCache cache = new ChartModelCache( 10 );
+    String input = ChartSerializer.serialize( ChartModelBinaryCodecTest.createChartModel( 0 ),
+        ChartSerializationFormat.JSON );
+    ChartModel first = cache.get( input, ChartSerializationFormat.JSON );
+    assertNotSame( first, cache.get( new String( input ), ChartSerializationFormat.JSON ) );
+    assertEquals( 1, cache.size() );
+    assertEquals( 1, cache.getHitCount() );
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    ChartModelCache cache = new ChartModelCache( 2 );
+    String[] inputs = new String[3];
+    for ( int i = 0; i < inputs.length; i++ ) {
+      inputs[i] = ChartSerializer.serialize( ChartModelBinaryCodecTest.createChartModel( i ),
+          ChartSerializationFormat.XML );
+    }
+    cache.get( inputs[0], ChartSerializationFormat.XML );
+    cache.get( inputs[1], ChartSerializationFormat.XML );
+    cache.get( inputs[0], ChartSerializationFormat.XML );
+    cache.get( inputs[2], ChartSerializationFormat.XML );
+    assertEquals( 2, cache.size() );
+    assertEquals( 1, cache.getEvictionCount() );
+
+    cache.resetStatistics();
+    cache.get( inputs[0], ChartSerializationFormat.XML );
+    cache.get( inputs[1], ChartSerializationFormat.XML );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+  }
+
+  @Test
+  public void testDisabled() {
+    ChartModelCache cache = new ChartModelCache( 0 );
+    String input = ChartSerializer.serialize( ChartModelBinaryCodecTest.createChartModel( 4 ),
+        ChartSerializationFormat.XML );
+    assertNotSame( cache.get( input, ChartSerializationFormat.XML ), cache.get( input, ChartSerializationFormat.XML ) );
+    assertEquals( 0, cache.size() );
+    assertEquals( 2, cache.getMissCount() );
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    final ChartModelCache cache = new ChartModelCache( 4 );
+    final String[] inputs = new String[6];
+    final String[] expected = new String[inputs.length];
+    for ( int i = 0; i < inputs.length; i++ ) {
+      inputs[i] = ChartSerializer.serialize( ChartModelBinaryCodecTest.createChartModel( i ),
+          ChartSerializationFormat.JSON );
+      expected[i] = ChartSerializer.serialize( ChartSerializer.deSerialize( inputs[i], ChartSerializationFormat.JSON ),
+          ChartSerializationFormat.XML );
+    }
+    ExecutorService executor = Executors.newFixedThreadPool( 8 );
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for ( int thread = 0; thread < 8; thread++ ) {
+        final int offset = thread;
+        results.add( executor.submit( new Callable<Boolean>() {
+          public Boolean call() {
+            for ( int i = 0; i < 200; i++ ) {
+              int index = ( i * 7 + offset ) % inputs.length;
+              ChartModel chartModel = cache.get( inputs[index], ChartSerializationFormat.JSON );
+              if ( !expected[index].equals( ChartSerializer.serialize( chartModel, ChartSerializationFormat.XML ) ) ) {
+                return false;
+              }
+            }
+            return true;
+          }
+        } ) );
+      }
+      for ( Future<Boolean> result : results ) {
+        assertTrue( result.get() );
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals( 1600, cache.getHitCount() + cache.getMissCount() );
+    assertTrue( cache.size() <= 4 );
+  }
+}
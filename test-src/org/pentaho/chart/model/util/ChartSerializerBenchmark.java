@@ -0,0 +1,63 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.model.util;
+
+import org.pentaho.chart.model.ChartModel;
+import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+
+/**
+ * Compares the size and the write and read times of the JSON, XML and binary forms of a few chart models. This is not
+ * a unit test; run it by hand. The optional argument is the number of iterations per model and format.
+ */
+public class ChartSerializerBenchmark {
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    String[] plots = { "bar", "line", "area", "scatter", "pie", "dial" };
+
+    for (int plotType = 0; plotType < plots.length; plotType++) {
+      ChartModel chartModel = ChartModelBinaryCodecTest.createChartModel(plotType);
+      for (ChartSerializationFormat format : ChartSerializationFormat.values()) {
+        int size = format == ChartSerializationFormat.BINARY ? ChartSerializer.serializeBinary(chartModel).length
+            : ChartSerializer.serialize(chartModel, format).length();
+        long bestWrite = Long.MAX_VALUE;
+        long bestRead = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+          long start = System.nanoTime();
+          Object serialized = null;
+          for (int i = 0; i < iterations; i++) {
+            serialized = format == ChartSerializationFormat.BINARY ? ChartSerializer.serializeBinary(chartModel)
+                : ChartSerializer.serialize(chartModel, format);
+          }
+          bestWrite = Math.min(bestWrite, System.nanoTime() - start);
+          start = System.nanoTime();
+          for (int i = 0; i < iterations; i++) {
+            if (format == ChartSerializationFormat.BINARY) {
+              ChartSerializer.deSerializeBinary((byte[]) serialized);
+            } else {
+              ChartSerializer.deSerialize((String) serialized, format);
+            }
+          }
+          bestRead = Math.min(bestRead, System.nanoTime() - start);
+        }
+        System.out.println(String.format("%-8s %-6s %6d bytes  write %8.2f us  read %8.2f us", plots[plotType],
+            format, size, bestWrite / 1e3 / iterations, bestRead / 1e3 / iterations));
+      }
+    }
+  }
+}
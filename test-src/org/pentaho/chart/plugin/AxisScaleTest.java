@@ -0,0 +1,122 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin;
+
+import junit.framework.TestCase;
+
+public class AxisScaleTest extends TestCase {
+
+  public void testNiceNumber() {
+    assertEquals(1.0, AxisScale.getNiceNumber(1));
+    assertEquals(2.0, AxisScale.getNiceNumber(1.1));
+    assertEquals(5.0, AxisScale.getNiceNumber(2.5));
+    assertEquals(10.0, AxisScale.getNiceNumber(7));
+    assertEquals(100.0, AxisScale.getNiceNumber(100));
+    assertEquals(0.2, AxisScale.getNiceNumber(0.15));
+    assertEquals(1e-300, AxisScale.getNiceNumber(1e-300));
+    assertEquals(5e300, AxisScale.getNiceNumber(3e300));
+    assertEquals(Double.MAX_VALUE, AxisScale.getNiceNumber(Double.MAX_VALUE));
+  }
+
+  public void testIntegerRange() {
+    double step = AxisScale.getTickStep(0, 87, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(10.0, step);
+    assertEquals(0.0, AxisScale.getLowerBound(0, step));
+    assertEquals(90.0, AxisScale.getUpperBound(87, step));
+
+    step = AxisScale.getTickStep(-13, 42, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(10.0, step);
+    assertEquals(-20.0, AxisScale.getLowerBound(-13, step));
+    assertEquals(50.0, AxisScale.getUpperBound(42, step));
+  }
+
+  public void testFractionalRange() {
+    double step = AxisScale.getTickStep(0.1, 0.45, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(0.05, step, 1e-15);
+    assertEquals(0.1, AxisScale.getLowerBound(0.1, step), 1e-15);
+    assertEquals(0.45, AxisScale.getUpperBound(0.45, step), 1e-15);
+  }
+
+  public void testFractionalBounds() {
+    double step = AxisScale.getTickStep(0.3, 0.7, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(0.05, step);
+    assertEquals(0.3, AxisScale.getLowerBound(0.3, step));
+    assertEquals(0.7, AxisScale.getUpperBound(0.7, step));
+
+    step = AxisScale.getTickStep(1.1, 1.7, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(0.1, step);
+    assertEquals(1.1, AxisScale.getLowerBound(1.1, step));
+    assertEquals(1.7, AxisScale.getUpperBound(1.7, step));
+    assertEquals(1.8, AxisScale.getUpperBound(1.71, step));
+    assertEquals(-0.3, AxisScale.getLowerBound(-0.21, step));
+    assertEquals(0.0, AxisScale.getUpperBound(-0.01, step));
+    assertEquals(1e-7, AxisScale.getUpperBound(8e-8, 1e-7));
+  }
+
+  public void testOverflow() {
+    double step = AxisScale.getTickStep(-Double.MAX_VALUE, Double.MAX_VALUE, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(-Double.MAX_VALUE, AxisScale.getLowerBound(-Double.MAX_VALUE, step));
+    assertEquals(Double.MAX_VALUE, AxisScale.getUpperBound(Double.MAX_VALUE, step));
+    assertEquals(-Double.MAX_VALUE, AxisScale.getLowerBound(-Double.MAX_VALUE, 0.1));
+    assertEquals(Double.MAX_VALUE, AxisScale.getUpperBound(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE));
+  }
+
+  public void testLargeRange() {
+    // Wider than Integer.MAX_VALUE
+    double step = AxisScale.getTickStep(0, 7.5e12, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(1e12, step);
+    assertEquals(8e12, AxisScale.getUpperBound(7.5e12, step));
+
+    // Wider than Double.MAX_VALUE
+    step = AxisScale.getTickStep(-Double.MAX_VALUE, Double.MAX_VALUE, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(5e307, step);
+  }
+
+  public void testEmptyRange() {
+    double step = AxisScale.getTickStep(0, 0, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(0.1, step);
+    assertEquals(0.1, AxisScale.getUpperBound(0, 0, step));
+
+    step = AxisScale.getTickStep(50, 50, AxisScale.DEFAULT_TICK_COUNT);
+    assertEquals(5.0, step);
+    double lowerBound = AxisScale.getLowerBound(50, step);
+    assertEquals(50.0, lowerBound);
+    assertEquals(55.0, AxisScale.getUpperBound(lowerBound, 50, step));
+  }
+
+  public void testInvalidRange() {
+    try {
+      AxisScale.getTickStep(2, 1, AxisScale.DEFAULT_TICK_COUNT);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      AxisScale.getTickStep(0, Double.NaN, AxisScale.DEFAULT_TICK_COUNT);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      AxisScale.getLowerBound(1, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.dataset;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.renderer.AbstractRenderer;
+import org.pentaho.chart.data.OffHeapXYDataModel;
+
+/**
+ * Renders a scatter chart from an off-heap model to show that the point count is not bounded by the heap. This is
+ * not a unit test; run it by hand with a small heap, for example <code>-Xmx512m</code>. The optional arguments are
+ * the number of points and a directory for memory-mapped storage.
+ */
+public class OffHeapScatterBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int pointCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    File directory = args.length > 1 ? new File(args[1]) : null;
+
+    Random random = new Random(42);
+    OffHeapXYDataModel model = new OffHeapXYDataModel(directory);
+    try {
+      long start = System.nanoTime();
+      for (int i = 0; i < pointCount; i++) {
+        model.addDataPoint("telemetry", i, random.nextGaussian() * 100);
+      }
+      long loaded = System.nanoTime();
+
+      JFreeChart chart = ChartFactory.createScatterPlot("", "", "", new OffHeapXYDataset(model),
+          PlotOrientation.VERTICAL, false, false, false);
+      ((AbstractRenderer) chart.getXYPlot().getRenderer()).setBaseCreateEntities(false);
+      BufferedImage image = chart.createBufferedImage(800, 600);
+      long rendered = System.nanoTime();
+
+      Runtime runtime = Runtime.getRuntime();
+      System.out.println(String.format("%d points: load %.1f ms, render %.1f ms, heap used %d MB of %d MB",
+          pointCount, (loaded - start) / 1e6, (rendered - loaded) / 1e6,
+          (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20));
+      image.flush();
+    } finally {
+      model.close();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.dataset;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.pentaho.chart.data.OffHeapXYDataModel;
+
+public class OffHeapXYDatasetTest extends TestCase {
+
+  public void testScatterChart() throws Exception {
+    OffHeapXYDataModel model = new OffHeapXYDataModel(null, 100);
+    for (int i = 0; i < 1000; i++) {
+      model.addDataPoint("s1", i, Math.sin(i / 100.0) * 50);
+    }
+    model.addDataPoint("s2", 2000, null);
+    try {
+      OffHeapXYDataset dataset = new OffHeapXYDataset(model);
+      assertEquals(2, dataset.getSeriesCount());
+      assertEquals(1000, dataset.getItemCount(0));
+      assertEquals(999.0, dataset.getXValue(0, 999));
+      assertNull(dataset.getY(1, 0));
+
+      JFreeChart chart =
+          ChartFactory.createScatterPlot("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+      XYPlot plot = chart.getXYPlot();
+      assertTrue(plot.getDomainAxis().getUpperBound() >= 2000);
+      assertTrue(plot.getRangeAxis().getLowerBound() <= -49);
+      chart.draw(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB).createGraphics(),
+          new Rectangle(200, 100));
+    } finally {
+      model.close();
+    }
+  }
+}
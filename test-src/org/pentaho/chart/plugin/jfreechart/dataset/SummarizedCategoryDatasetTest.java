@@ -0,0 +1,50 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.dataset;
+
+import junit.framework.TestCase;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.Range;
+
+public class SummarizedCategoryDatasetTest extends TestCase {
+
+  public void testAutoRangeUsesSummaryBounds() {
+    // Bounds wider than the data show that the axis was ranged from the summary, not from a scan.
+    SummarizedCategoryDataset dataset = new SummarizedCategoryDataset(new Range(0, 100));
+    dataset.addValue(1.0, "s1", "c1");
+    dataset.addValue(3.0, "s1", "c2");
+    JFreeChart chart =
+        ChartFactory.createLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    ValueAxis rangeAxis = chart.getCategoryPlot().getRangeAxis();
+    assertTrue(rangeAxis.getUpperBound() >= 100);
+  }
+
+  public void testFallsBackToScanWithoutBounds() {
+    SummarizedCategoryDataset dataset = new SummarizedCategoryDataset(null);
+    dataset.addValue(1.0, "s1", "c1");
+    dataset.addValue(3.0, "s1", "c2");
+    JFreeChart chart =
+        ChartFactory.createLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    ValueAxis rangeAxis = chart.getCategoryPlot().getRangeAxis();
+    assertTrue(rangeAxis.getUpperBound() < 10);
+  }
+}
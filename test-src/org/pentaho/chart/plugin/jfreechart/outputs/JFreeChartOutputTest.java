@@ -0,0 +1,125 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.outputs;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.pentaho.chart.plugin.api.IOutput;
+import org.pentaho.chart.plugin.api.PersistenceException;
+
+public class JFreeChartOutputTest extends TestCase {
+
+  private JFreeChartOutput createOutput() {
+    final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    dataset.addValue(1.0, "Series 1", "2007");
+    dataset.addValue(2.0, "Series 1", "2008");
+    dataset.addValue(3.0, "Series 2", "2007");
+    final JFreeChart chart =
+        ChartFactory.createBarChart("Test", "Year", "Value", dataset, PlotOrientation.VERTICAL, true, true, false);
+    return new JFreeChartOutput(chart);
+  }
+
+  private static BufferedImage read(final byte[] bytes) throws IOException {
+    return ImageIO.read(new ByteArrayInputStream(bytes));
+  }
+
+  public void testPersistChartsRendersEverySize() throws Exception {
+    final List<Dimension> sizes =
+        Arrays.asList(new Dimension(100, 75), new Dimension(400, 300), new Dimension(800, 600));
+    final List<byte[]> images = createOutput().persistCharts(sizes, IOutput.OutputTypes.FILE_TYPE_PNG, 0);
+    assertEquals(3, images.size());
+    for (int i = 0; i < sizes.size(); i++) {
+      final BufferedImage image = read(images.get(i));
+      assertEquals(sizes.get(i).width, image.getWidth());
+      assertEquals(sizes.get(i).height, image.getHeight());
+    }
+  }
+
+  public void testPersistChartsDerivesThumbnails() throws Exception {
+    final List<Dimension> sizes =
+        Arrays.asList(new Dimension(800, 600), new Dimension(160, 120), new Dimension(100, 100));
+    final List<byte[]> images = createOutput().persistCharts(sizes, IOutput.OutputTypes.FILE_TYPE_JPEG, 200);
+    assertEquals(3, images.size());
+    for (int i = 0; i < sizes.size(); i++) {
+      final BufferedImage image = read(images.get(i));
+      assertEquals(sizes.get(i).width, image.getWidth());
+      assertEquals(sizes.get(i).height, image.getHeight());
+    }
+  }
+
+  public void testPersistChartsKeepsMapOfLargestSize() throws Exception {
+    final JFreeChartOutput output = createOutput();
+    output.persistCharts(Arrays.asList(new Dimension(100, 75), new Dimension(800, 600)),
+        IOutput.OutputTypes.FILE_TYPE_PNG, 0);
+    final StringWriter writer = new StringWriter();
+    output.persistMap(writer, "map");
+    assertTrue(writer.toString().indexOf("<map") >= 0);
+  }
+
+  public void testDetachKeepsImageAndMap() throws Exception {
+    final JFreeChartOutput output = createOutput();
+    final ByteArrayOutputStream expectedImage = new ByteArrayOutputStream();
+    output.persistChart(expectedImage, IOutput.OutputTypes.FILE_TYPE_PNG, 400, 300);
+    final String expectedMap = output.getMap("a \"map\"");
+
+    final DetachedChartOutput detached = output.detach(IOutput.OutputTypes.FILE_TYPE_PNG, 400, 300);
+    assertNull(detached.getDrawable());
+    final ByteArrayOutputStream image = (ByteArrayOutputStream)
+        detached.persistChart(null, IOutput.OutputTypes.FILE_TYPE_PNG, 400, 300);
+    assertTrue(Arrays.equals(expectedImage.toByteArray(), image.toByteArray()));
+    assertEquals(expectedMap, detached.getMap("a \"map\""));
+    final StringWriter writer = new StringWriter();
+    detached.persistMap(writer, "a \"map\"");
+    assertEquals(expectedMap, writer.toString());
+
+    assertTrue(detached.getRetainedSize() > image.size());
+    assertTrue(detached.getRetainedSize() < image.size() + expectedMap.length());
+  }
+
+  public void testDetachedOutputOnlyHasItsOwnSize() throws Exception {
+    final DetachedChartOutput detached = createOutput().detach(null, 200, 100);
+    assertEquals(IOutput.OutputTypes.FILE_TYPE_PNG, detached.getFileType());
+    try {
+      detached.persistChart(null, IOutput.OutputTypes.FILE_TYPE_PNG, 400, 300);
+      fail();
+    } catch (PersistenceException e) {
+      // expected
+    }
+    try {
+      detached.persistChart(null, IOutput.OutputTypes.FILE_TYPE_JPEG, 200, 100);
+      fail();
+    } catch (PersistenceException e) {
+      // expected
+    }
+  }
+}
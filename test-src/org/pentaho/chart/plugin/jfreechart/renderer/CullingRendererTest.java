@@ -0,0 +1,230 @@
+/*!
+* This program is free software; you can redistribute it and/or modify it under the
+* terms of the GNU Lesser General Public License, version 2.1 as published by the Free Software
+* Foundation.
+*
+* You should have received a copy of the GNU Lesser General Public License along with this
+* program; if not, you can obtain a copy at http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+* or from the Free Software Foundation, Inc.,
+* 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+* without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+* See the GNU Lesser General Public License for more details.
+*
+* Copyright (c) 2002-2013 Pentaho Corporation..  All rights reserved.
+*/
+
+package org.pentaho.chart.plugin.jfreechart.renderer;
+
+import java.awt.Color;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.AbstractRenderer;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+public class CullingRendererTest extends TestCase {
+
+  private static final int WIDTH = 400;
+  private static final int HEIGHT = 300;
+
+  public void testDecimatorKeepsFourPointsPerColumn() {
+    M4Decimator decimator = new M4Decimator(false);
+    Rectangle2D bounds = null;
+    for (int i = 0; i < 10000; i++) {
+      double x = i / 100.0;
+      double y = Math.sin(i / 7.0) * 50;
+      decimator.add(x, y);
+      if (bounds == null) {
+        bounds = new Rectangle2D.Double(x, y, 0, 0);
+      } else {
+        bounds.add(x, y);
+      }
+    }
+    GeneralPath path = decimator.finish();
+    assertTrue(decimator.getPathPointCount() <= 400);
+    Rectangle2D pathBounds = path.getBounds2D();
+    assertEquals(bounds.getMinY(), pathBounds.getMinY(), 0.001);
+    assertEquals(bounds.getMaxY(), pathBounds.getMaxY(), 0.001);
+    assertEquals(bounds.getMaxX(), pathBounds.getMaxX(), 0.001);
+  }
+
+  public void testXYLineImage() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(50000));
+    JFreeChart chart = ChartFactory.createXYLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    chart.getXYPlot().setRenderer(new XYLineAndShapeRenderer(true, false));
+    BufferedImage expected = draw(chart, null);
+    chart.getXYPlot().setRenderer(new CullingXYLineAndShapeRenderer(true, false));
+    assertSimilar(expected, draw(chart, null));
+  }
+
+  public void testXYShapesAreCulled() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(50000));
+    JFreeChart chart = ChartFactory.createScatterPlot("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    ChartRenderingInfo info = new ChartRenderingInfo();
+    BufferedImage expected = draw(chart, info);
+    int expectedEntities = info.getEntityCollection().getEntityCount();
+
+    chart.getXYPlot().setRenderer(new CullingXYLineAndShapeRenderer(false, true));
+    info = new ChartRenderingInfo();
+    assertSimilar(expected, draw(chart, info));
+    assertTrue(info.getEntityCollection().getEntityCount() * 5 < expectedEntities);
+  }
+
+  public void testXYLineAsPathImage() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(50000));
+    JFreeChart chart = ChartFactory.createXYLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+    renderer.setDrawSeriesLineAsPath(true);
+    chart.getXYPlot().setRenderer(renderer);
+    BufferedImage expected = draw(chart, null);
+    renderer = new CullingXYLineAndShapeRenderer(true, false);
+    renderer.setDrawSeriesLineAsPath(true);
+    chart.getXYPlot().setRenderer(renderer);
+    assertSimilar(expected, draw(chart, null));
+  }
+
+  public void testXYLineWithHiddenLastItem() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(50000));
+    JFreeChart chart = ChartFactory.createXYLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    // The plot still passes a hidden last item to the renderer, which must draw the line regardless.
+    chart.getXYPlot().setRenderer(new XYLineAndShapeRenderer(true, false) {
+      public boolean getItemVisible(int series, int item) {
+        return item != 49999;
+      }
+    });
+    BufferedImage expected = draw(chart, null);
+    chart.getXYPlot().setRenderer(new CullingXYLineAndShapeRenderer(true, false) {
+      public boolean getItemVisible(int series, int item) {
+        return item != 49999;
+      }
+    });
+    BufferedImage actual = draw(chart, null);
+    assertSimilar(expected, actual);
+    assertTrue(countDark(actual) * 2 > countDark(expected));
+  }
+
+  public void testSparseXYLineIsNotCulled() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(100));
+    JFreeChart chart = ChartFactory.createScatterPlot("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    CullingXYLineAndShapeRenderer renderer = new CullingXYLineAndShapeRenderer(false, true);
+    chart.getXYPlot().setRenderer(renderer);
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    Rectangle2D dataArea = new Rectangle2D.Double(0, 0, WIDTH, HEIGHT);
+    XYItemRendererState sparse = renderer.initialise(image.createGraphics(), dataArea, chart.getXYPlot(), dataset, null);
+    assertFalse(sparse instanceof CullingXYLineAndShapeRenderer.CullingState);
+
+    renderer.setCullingThreshold(0.1);
+    XYItemRendererState first = renderer.initialise(image.createGraphics(), dataArea, chart.getXYPlot(), dataset, null);
+    XYItemRendererState second = renderer.initialise(image.createGraphics(), dataArea, chart.getXYPlot(), dataset, null);
+    assertTrue(first instanceof CullingXYLineAndShapeRenderer.CullingState);
+    assertNotSame(first, second);
+  }
+
+  public void testHorizontalXYLineImage() {
+    XYSeriesCollection dataset = new XYSeriesCollection(randomWalk(50000));
+    JFreeChart chart = ChartFactory.createXYLineChart("", "", "", dataset, PlotOrientation.HORIZONTAL, false, false, false);
+    chart.getXYPlot().setRenderer(new XYLineAndShapeRenderer(true, false));
+    BufferedImage expected = draw(chart, null);
+    chart.getXYPlot().setRenderer(new CullingXYLineAndShapeRenderer(true, false));
+    assertSimilar(expected, draw(chart, null));
+  }
+
+  public void testCategoryLineImage() {
+    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    Random random = new Random(7);
+    double a = 0, b = 0;
+    for (int i = 0; i < 5000; i++) {
+      a += random.nextGaussian();
+      b += random.nextGaussian();
+      String column = Integer.toString(i);
+      dataset.addValue(a, "a", column);
+      dataset.addValue(((i % 1000 == 500) || (i == 4999)) ? null : Double.valueOf(b), "b", column);
+    }
+    JFreeChart chart = ChartFactory.createLineChart("", "", "", dataset, PlotOrientation.VERTICAL, false, false, false);
+    chart.getCategoryPlot().getDomainAxis().setVisible(false);
+    BufferedImage expected = draw(chart, null);
+    chart.getCategoryPlot().setRenderer(new CullingLineAndShapeRenderer(true, false));
+    assertSimilar(expected, draw(chart, null));
+
+    chart.getCategoryPlot().setRenderer(new LineAndShapeRenderer(false, true));
+    ChartRenderingInfo info = new ChartRenderingInfo();
+    expected = draw(chart, info);
+    int expectedEntities = info.getEntityCollection().getEntityCount();
+
+    chart.getCategoryPlot().setRenderer(new CullingLineAndShapeRenderer(false, true));
+    info = new ChartRenderingInfo();
+    assertSimilar(expected, draw(chart, info));
+    assertTrue(info.getEntityCollection().getEntityCount() * 2 < expectedEntities);
+  }
+
+  private static XYSeries randomWalk(int count) {
+    XYSeries series = new XYSeries("walk", false, true);
+    Random random = new Random(42);
+    double y = 0;
+    for (int i = 0; i < count; i++) {
+      y += random.nextGaussian();
+      series.add(i, (i % 10000 == 5000) ? null : Double.valueOf(y));
+    }
+    return series;
+  }
+
+  private static BufferedImage draw(JFreeChart chart, ChartRenderingInfo info) {
+    // A new renderer would otherwise be given the next paints and shapes from the plot's drawing supplier.
+    AbstractRenderer renderer = (AbstractRenderer) ((chart.getPlot() instanceof XYPlot)
+        ? chart.getXYPlot().getRenderer() : chart.getCategoryPlot().getRenderer());
+    renderer.setSeriesPaint(0, Color.BLACK);
+    renderer.setSeriesPaint(1, Color.BLUE);
+    renderer.setSeriesShape(0, new Rectangle2D.Double(-3, -3, 6, 6));
+    renderer.setSeriesShape(1, new Rectangle2D.Double(-3, -3, 6, 6));
+    return chart.createBufferedImage(WIDTH, HEIGHT, info);
+  }
+
+  private static int countDark(BufferedImage image) {
+    int dark = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        if ((image.getRGB(x, y) & 0xFF) < 128) {
+          dark++;
+        }
+      }
+    }
+    return dark;
+  }
+
+  /**
+   * Allows a small fraction of pixels to differ noticeably, from antialiased edges of lines within a pixel column and
+   * of overlapping shapes.
+   */
+  private static void assertSimilar(BufferedImage expected, BufferedImage actual) {
+    int different = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int e = expected.getRGB(x, y);
+        int a = actual.getRGB(x, y);
+        for (int shift = 0; shift < 24; shift += 8) {
+          if (Math.abs(((e >> shift) & 0xFF) - ((a >> shift) & 0xFF)) > 64) {
+            different++;
+            break;
+          }
+        }
+      }
+    }
+    assertTrue("different pixels: " + different, different < WIDTH * HEIGHT / 100);
+  }
+}
@@ -47,6 +47,7 @@ import org.pentaho.chart.model.Plot.Orientation;
 import org.pentaho.chart.model.Theme.ChartTheme;
 import org.pentaho.chart.model.util.ChartSerializer;
 import org.pentaho.chart.model.util.ChartSerializer.ChartSerializationFormat;
+import org.pentaho.chart.model.util.ChartSerializer.DataDefinitionFormat;
 import org.pentaho.chart.plugin.jfreechart.JFreeChartPlugin;
 
 public class SerializationTest {
@@ -65,16 +66,21 @@ public class SerializationTest {
     chartDataDefinition.setScalingFactor(2);
     chartDataDefinition.getDefaultParameterMap().put("hello", "world");
     
-    String result = ChartSerializer.serializeDataDefinition(chartDataDefinition, ChartSerializationFormat.XML);    
+    String result = ChartSerializer.serializeDataDefinition(chartDataDefinition, DataDefinitionFormat.XML);    
     System.out.println(result);
-    ChartDataDefinition chartDataDefinition2 = ChartSerializer.deSerializeDataDefinition(result, ChartSerializationFormat.XML);   
+    ChartDataDefinition chartDataDefinition2 = ChartSerializer.deSerializeDataDefinition(result, DataDefinitionFormat.XML);   
     assertEquals(chartDataDefinition, chartDataDefinition2);
     
-    result = ChartSerializer.serializeDataDefinition(chartDataDefinition, ChartSerializationFormat.JSON);    
-    chartDataDefinition2 = ChartSerializer.deSerializeDataDefinition(result, ChartSerializationFormat.JSON);   
+    result = ChartSerializer.serializeDataDefinition(chartDataDefinition, DataDefinitionFormat.JSON);    
+    chartDataDefinition2 = ChartSerializer.deSerializeDataDefinition(result, DataDefinitionFormat.JSON);   
     assertEquals(chartDataDefinition, chartDataDefinition2);
   }
   
+  @Test(expected = IllegalArgumentException.class)
+  public void testDataDefinitionHasNoBinaryForm() {
+    ChartSerializer.serializeDataDefinition(new ChartDataDefinition(), ChartSerializationFormat.BINARY);
+  }
+  
   @Test
   public void testDialPlot() {
     ChartModel chartModel = new ChartModel();
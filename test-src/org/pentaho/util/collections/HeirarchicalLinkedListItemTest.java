@@ -531,4 +531,52 @@ public class HeirarchicalLinkedListItemTest extends TestCase {
     assertEquals(child5, child2.getNextDepthFirstItem());
     assertNull(child5.getNextDepthFirstItem());
   }
+
+  /**
+   * Tests the <code>freeze()</code> method.
+   */
+  @SuppressWarnings("nls")
+  public void testFreeze() {
+    final HeirarchicalLinkedListItem parent = new HeirarchicalLinkedListItem();
+    final HeirarchicalLinkedListItem child1 = new HeirarchicalLinkedListItem();
+    final HeirarchicalLinkedListItem child2 = new HeirarchicalLinkedListItem();
+    parent.addChildItem(child1);
+    child1.addChildItem(child2);
+    assertFalse(parent.isFrozen());
+
+    final long modNumber = parent.getModNumber();
+    parent.freeze();
+    assertTrue("freeze should be applied to all the children", child2.isFrozen());
+    assertEquals("freezing is not a modification", modNumber, parent.getModNumber());
+
+    final HeirarchicalLinkedListItem newItem = new HeirarchicalLinkedListItem();
+    try {
+      child2.addChildItem(newItem);
+      fail("Should not be able to add a child to a frozen item");
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    try {
+      parent.addFirstChildItem(newItem);
+      fail("Should not be able to add a child to a frozen item");
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    try {
+      child1.removeItem();
+      fail("Should not be able to remove a frozen item");
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    try {
+      newItem.addChildItem(child1);
+      fail("Should not be able to move a frozen item");
+    } catch (IllegalStateException ise) {
+      // correct
+    }
+    assertNull("failed changes should leave the new item alone", newItem.getParentItem());
+    assertEquals(child1, parent.getFirstChildItem());
+    assertEquals(parent, child1.getParentItem());
+    assertEquals(modNumber, parent.getModNumber());
+  }
 }